@@ -16,6 +16,7 @@
 package com.yahoo.labs.samoa.instances;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 
 /**
  * The Class InstanceImpl.
@@ -459,6 +460,31 @@ public class InstanceImpl implements MultiLabelInstance {
         return this.instanceData.value(instanceInformation.outputAttributeIndex(attributeIndex));
     }
 
+    @Override
+    public int[] nonZeroOutputIndices() {
+        if (this.instanceData instanceof SparseInstanceData) {
+            //the outputs are a block of attributes, so only the values stored in it are visited
+            int numOutputs = numOutputAttributes();
+            InstanceInformation instanceInformation = this.instanceHeader.getInstanceInformation();
+            SparseInstanceData data = (SparseInstanceData) this.instanceData;
+            int first = instanceInformation.outputAttributeIndex(0);
+            int end = first + numOutputs;
+            int position = data.locateIndex(first);
+            if (position < 0 || data.index(position) < first) {
+                position++;
+            }
+            int[] indices = new int[Math.min(numOutputs, data.numValues() - position)];
+            int count = 0;
+            for (; position < data.numValues() && data.index(position) < end; position++) {
+                if (data.valueSparse(position) != 0.0) {
+                    indices[count++] = data.index(position) - first;
+                }
+            }
+            return count == indices.length ? indices : Arrays.copyOf(indices, count);
+        }
+        return MultiLabelInstance.super.nonZeroOutputIndices();
+    }
+
     @Override
     public void setMissing(int instAttIndex) {
         this.setValue(instAttIndex, Double.NaN);
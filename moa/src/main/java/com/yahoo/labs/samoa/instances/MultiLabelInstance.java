@@ -15,6 +15,8 @@
  */
 package com.yahoo.labs.samoa.instances;
 
+import java.util.Arrays;
+
 /**
  * The Interface MultiLabelInstance.
  *
@@ -23,5 +25,25 @@ package com.yahoo.labs.samoa.instances;
    
 public interface MultiLabelInstance extends Instance {
 
+    /**
+     * Gets the outputs whose value is not zero, such as the relevant labels
+     * of a multi-label instance. Missing values are not zero, so they are
+     * included. This implementation visits every output; InstanceImpl visits
+     * only the values stored in sparse instances, so that the cost depends on
+     * the number of labels present and not on the number of outputs.
+     *
+     * @return the indices of the outputs that are not zero, in increasing order
+     */
+    public default int[] nonZeroOutputIndices() {
+        int numOutputs = numOutputAttributes();
+        int[] indices = new int[numOutputs];
+        int count = 0;
+        for (int j = 0; j < numOutputs; j++) {
+            if (valueOutputAttribute(j) != 0.0) {
+                indices[count++] = j;
+            }
+        }
+        return count == numOutputs ? indices : Arrays.copyOf(indices, count);
+    }
 }
  
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.  
+ */
+
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ProjectedInstance.
+ *
+ * Instance of a subspace of the attributes of another instance, used by
+ * ensembles that train their members on random subspaces. It reads its values
+ * from the source instance through a ProjectedInstanceData, so creating one
+ * costs two small objects whatever the number of attributes. The header of the
+ * subspace and the index array are shared by all the projections of a member.
+ * Changing a value, or deleting or inserting an attribute, first copies the
+ * values of the subspace, so the source is never modified; copy() returns an
+ * independent dense instance.
+ *
+ * Until then, the projection aliases its source: it keeps a reference to the
+ * full-width source instance, sees any later change to its values, keeps it
+ * alive for as long as the projection is referenced, and serializes it with
+ * the projection. Use copy() to keep the values of the subspace on their own.
+ */
+public class ProjectedInstance extends InstanceImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new projected instance.
+     *
+     * @param source the source instance
+     * @param indexes the index in the source of each attribute of the subspace
+     * @param header the header of the subspace
+     * @param weight the weight
+     */
+    public ProjectedInstance(Instance source, int[] indexes, InstancesHeader header, double weight) {
+        super(weight, new ProjectedInstanceData(source, indexes));
+        this.instanceHeader = header;
+    }
+
+    /**
+     * Instantiates a new projected instance with the weight of the source.
+     *
+     * @param source the source instance
+     * @param indexes the index in the source of each attribute of the subspace
+     * @param header the header of the subspace
+     */
+    public ProjectedInstance(Instance source, int[] indexes, InstancesHeader header) {
+        this(source, indexes, header, source.weight());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.  
+ */
+
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ProjectedInstanceData.
+ *
+ * View of some attributes of another instance. Attribute i of the view is
+ * attribute indexes[i] of the source, and values are read from the source when
+ * they are requested, so that nothing is copied. The first change to the view
+ * copies its values to a DenseInstanceData, which is used from then on, so
+ * the source is never modified. The view behaves as dense data, and copying
+ * it gives a DenseInstanceData.
+ */
+public class ProjectedInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The instance the values are read from.
+     */
+    protected Instance source;
+
+    /**
+     * The index in the source of each attribute of the view.
+     */
+    protected int[] indexes;
+
+    /**
+     * The values of the view once they have been changed, or null while they
+     * are read from the source.
+     */
+    protected InstanceData values;
+
+    /**
+     * Instantiates a new projected instance data.
+     *
+     * @param source the source instance
+     * @param indexes the index in the source of each attribute, which is not copied
+     */
+    public ProjectedInstanceData(Instance source, int[] indexes) {
+        this.source = source;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Copies the values of the view, unless they have already been copied,
+     * and stops reading them from the source.
+     *
+     * @return the values of the view
+     */
+    protected InstanceData ownValues() {
+        if (this.values == null) {
+            this.values = new DenseInstanceData(toDoubleArray());
+            this.source = null;
+        }
+        return this.values;
+    }
+
+    @Override
+    public int numAttributes() {
+        if (this.values != null) {
+            return this.values.numAttributes();
+        }
+        return this.indexes.length;
+    }
+
+    @Override
+    public double value(int indexAttribute) {
+        if (this.values != null) {
+            return this.values.value(indexAttribute);
+        }
+        return this.source.value(this.indexes[indexAttribute]);
+    }
+
+    @Override
+    public boolean isMissing(int indexAttribute) {
+        return Double.isNaN(this.value(indexAttribute));
+    }
+
+    @Override
+    public int numValues() {
+        return numAttributes();
+    }
+
+    @Override
+    public int index(int indexAttribute) {
+        return indexAttribute;
+    }
+
+    @Override
+    public double valueSparse(int indexAttribute) {
+        return value(indexAttribute);
+    }
+
+    @Override
+    public boolean isMissingSparse(int indexAttribute) {
+        return isMissing(indexAttribute);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        if (this.values != null) {
+            return this.values.toDoubleArray();
+        }
+        double[] values = new double[this.indexes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void setValue(int attributeIndex, double d) {
+        ownValues().setValue(attributeIndex, d);
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        ownValues().deleteAttributeAt(index);
+    }
+
+    @Override
+    public void insertAttributeAt(int index) {
+        ownValues().insertAttributeAt(index);
+    }
+
+    @Override
+    public InstanceData copy() {
+        return new DenseInstanceData(toDoubleArray());
+    }
+}
@@ -21,6 +21,9 @@
 package moa.classifiers.core.attributeclassobservers;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.AttributeSplitSuggestionHistrogram;
 import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
@@ -64,21 +67,27 @@ public class BinaryTreeNumericAttributeClassObserver extends AbstractOptionHandl
         }
 
         public void insertValue(double val, int label, double weight) {
-            if (val == this.cut_point) {
-                this.classCountsLeft.addToValue(label, weight);
-            } else if (val <= this.cut_point) {
-                this.classCountsLeft.addToValue(label, weight);
-                if (this.left == null) {
-                    this.left = new Node(val, label, weight);
-                } else {
-                    this.left.insertValue(val, label, weight);
-                }
-            } else { // val > cut_point
-                this.classCountsRight.addToValue(label, weight);
-                if (this.right == null) {
-                    this.right = new Node(val, label, weight);
-                } else {
-                    this.right.insertValue(val, label, weight);
+            Node node = this;
+            while (node != null) {
+                if (val == node.cut_point) {
+                    node.classCountsLeft.addToValue(label, weight);
+                    node = null;
+                } else if (val <= node.cut_point) {
+                    node.classCountsLeft.addToValue(label, weight);
+                    if (node.left == null) {
+                        node.left = new Node(val, label, weight);
+                        node = null;
+                    } else {
+                        node = node.left;
+                    }
+                } else { // val > cut_point
+                    node.classCountsRight.addToValue(label, weight);
+                    if (node.right == null) {
+                        node.right = new Node(val, label, weight);
+                        node = null;
+                    } else {
+                        node = node.right;
+                    }
                 }
             }
         }
@@ -109,62 +118,183 @@ public class BinaryTreeNumericAttributeClassObserver extends AbstractOptionHandl
     public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
             SplitCriterion criterion, double[] preSplitDist, int attIndex,
             boolean binaryOnly) {
-        return searchForBestSplitOption(this.root, null, null, null, null, false,
-                criterion, preSplitDist, attIndex);
+        if (this.root == null) {
+            return null;
+        }
+        int numValues = Math.max(preSplitDist.length, Math.max(
+                this.root.classCountsLeft.numValues(), this.root.classCountsRight.numValues()));
+        SplitCandidates candidates = new SplitCandidates(numValues);
+        collectSplitCandidates(this.root, -1, null, false, candidates);
+
+        double[] merits = new double[candidates.size];
+        criterion.getMeritOfBinarySplits(preSplitDist, candidates.leftDists,
+                candidates.rightDists, numValues, candidates.size, merits);
+        for (int i = 0; i < candidates.size; i++) {
+            if (candidates.leftLengths[i] < numValues || candidates.rightLengths[i] < numValues) {
+                //a branch that has not seen the last classes is shorter than
+                //a padded row, and criteria such as Gini and Hellinger do not
+                //give it the same merit as a row padded with zeros
+                merits[i] = criterion.getMeritOfSplit(preSplitDist, candidates.getPostSplitDists(i));
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < candidates.size; i++) {
+            if (merits[i] > merits[best]) {
+                best = i;
+            }
+        }
+        return new AttributeSplitSuggestion(new NumericAttributeBinaryTest(attIndex,
+                candidates.cutPoints[best], true), candidates.getPostSplitDists(best), merits[best]);
     }
 
-    protected AttributeSplitSuggestion searchForBestSplitOption(
-            Node currentNode, AttributeSplitSuggestion currentBestOption,
-            double[] actualParentLeft,
-            double[] parentLeft, double[] parentRight, boolean leftChild,
-            SplitCriterion criterion, double[] preSplitDist, int attIndex) {
-        if (currentNode == null) {
-            return currentBestOption;
+    /**
+     * Packed class distributions of the candidate split points of the tree,
+     * in the order they are visited by collectSplitCandidates. The rows are
+     * padded with zeros; the lengths are the ones of the distributions
+     * without padding, which only cover the classes seen by the nodes the
+     * distributions are derived from.
+     */
+    protected static class SplitCandidates {
+
+        public final int numValues;
+
+        public double[] leftDists;
+
+        public double[] rightDists;
+
+        public int[] leftLengths;
+
+        public int[] rightLengths;
+
+        public double[] cutPoints;
+
+        public int size;
+
+        public SplitCandidates(int numValues) {
+            this.numValues = numValues;
+            this.leftDists = new double[16 * numValues];
+            this.rightDists = new double[16 * numValues];
+            this.leftLengths = new int[16];
+            this.rightLengths = new int[16];
+            this.cutPoints = new double[16];
         }
-        DoubleVector leftDist = new DoubleVector();
-        DoubleVector rightDist = new DoubleVector();
-        if (parentLeft == null) {
-            leftDist.addValues(currentNode.classCountsLeft);
-            rightDist.addValues(currentNode.classCountsRight);
-        } else {
-            leftDist.addValues(parentLeft);
-            rightDist.addValues(parentRight);
-            if (leftChild) {
-                //get the exact statistics of the parent value
-                DoubleVector exactParentDist = new DoubleVector();
-                exactParentDist.addValues(actualParentLeft);
-                exactParentDist.subtractValues(currentNode.classCountsLeft);
-                exactParentDist.subtractValues(currentNode.classCountsRight);
 
-                // move the subtrees
-                leftDist.subtractValues(currentNode.classCountsRight);
-                rightDist.addValues(currentNode.classCountsRight);
+        public int add(double cutPoint) {
+            if (this.size == this.cutPoints.length) {
+                this.cutPoints = Arrays.copyOf(this.cutPoints, 2 * this.size);
+                this.leftLengths = Arrays.copyOf(this.leftLengths, 2 * this.size);
+                this.rightLengths = Arrays.copyOf(this.rightLengths, 2 * this.size);
+                this.leftDists = Arrays.copyOf(this.leftDists, 2 * this.size * this.numValues);
+                this.rightDists = Arrays.copyOf(this.rightDists, 2 * this.size * this.numValues);
+            }
+            this.cutPoints[this.size] = cutPoint;
+            return this.size++;
+        }
 
-                // move the exact value from the parent
-                rightDist.addValues(exactParentDist);
-                leftDist.subtractValues(exactParentDist);
+        /**
+         * Gets the distributions of a candidate, without padding.
+         */
+        public double[][] getPostSplitDists(int index) {
+            int offset = index * this.numValues;
+            return new double[][]{
+                Arrays.copyOfRange(this.leftDists, offset, offset + this.leftLengths[index]),
+                Arrays.copyOfRange(this.rightDists, offset, offset + this.rightLengths[index])};
+        }
+    }
 
-            } else {
-                leftDist.addValues(currentNode.classCountsLeft);
-                rightDist.subtractValues(currentNode.classCountsLeft);
+    /**
+     * Adds the split at the cut point of every node of the subtree to the
+     * candidates, visiting a node before its left and right subtrees. The
+     * tree is walked with an explicit stack, as it is not balanced and can be
+     * as deep as the number of distinct values observed.
+     *
+     * @param currentNode the root of the subtree
+     * @param parentIndex the candidate index of the parent, or -1 for the root
+     * @param actualParentLeft the left class counts of the parent node
+     * @param leftChild whether currentNode is the left child of its parent
+     * @param candidates the candidates to add the splits to
+     */
+    protected void collectSplitCandidates(Node currentNode, int parentIndex,
+            double[] actualParentLeft, boolean leftChild, SplitCandidates candidates) {
+        if (currentNode == null) {
+            return;
+        }
+        // pending nodes, with their parent and its candidate index
+        Deque<Node> nodes = new ArrayDeque<Node>();
+        Deque<Node> parents = new ArrayDeque<Node>();
+        Deque<Integer> parentIndices = new ArrayDeque<Integer>();
+        Node node = currentNode;
+        int index = addSplitCandidate(node, parentIndex, actualParentLeft, leftChild, candidates);
+        while (true) {
+            // right first, so that the left subtree is visited first
+            if (node.right != null) {
+                nodes.push(node.right);
+                parents.push(node);
+                parentIndices.push(index);
             }
+            if (node.left != null) {
+                nodes.push(node.left);
+                parents.push(node);
+                parentIndices.push(index);
+            }
+            if (nodes.isEmpty()) {
+                return;
+            }
+            node = nodes.pop();
+            Node parent = parents.pop();
+            index = addSplitCandidate(node, parentIndices.pop(),
+                    parent.classCountsLeft.getArrayRef(), parent.left == node, candidates);
         }
-        double[][] postSplitDists = new double[][]{leftDist.getArrayRef(),
-            rightDist.getArrayRef()};
-        double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
-        if ((currentBestOption == null) || (merit > currentBestOption.merit)) {
-            currentBestOption = new AttributeSplitSuggestion(
-                    new NumericAttributeBinaryTest(attIndex,
-                    currentNode.cut_point, true), postSplitDists, merit);
+    }
 
+    /**
+     * Adds the split at the cut point of a node to the candidates, deriving
+     * its class distributions from the ones of the split at its parent.
+     *
+     * @return the candidate index of the split
+     */
+    protected int addSplitCandidate(Node currentNode, int parentIndex,
+            double[] actualParentLeft, boolean leftChild, SplitCandidates candidates) {
+        int index = candidates.add(currentNode.cut_point);
+        int numValues = candidates.numValues;
+        int offset = index * numValues;
+        int parentOffset = parentIndex * numValues;
+        double[] leftDists = candidates.leftDists;
+        double[] rightDists = candidates.rightDists;
+        double[] countsLeft = currentNode.classCountsLeft.getArrayRef();
+        double[] countsRight = currentNode.classCountsRight.getArrayRef();
+        //the distributions cover the classes of all the counts they are derived from
+        if (parentIndex < 0) {
+            candidates.leftLengths[index] = countsLeft.length;
+            candidates.rightLengths[index] = countsRight.length;
+        } else if (leftChild) {
+            int length = Math.max(actualParentLeft.length,
+                    Math.max(countsLeft.length, countsRight.length));
+            candidates.leftLengths[index] = Math.max(candidates.leftLengths[parentIndex], length);
+            candidates.rightLengths[index] = Math.max(candidates.rightLengths[parentIndex], length);
+        } else {
+            candidates.leftLengths[index] = Math.max(candidates.leftLengths[parentIndex], countsLeft.length);
+            candidates.rightLengths[index] = Math.max(candidates.rightLengths[parentIndex], countsLeft.length);
+        }
+        for (int j = 0; j < numValues; j++) {
+            double left = j < countsLeft.length ? countsLeft[j] : 0.0;
+            double right = j < countsRight.length ? countsRight[j] : 0.0;
+            if (parentIndex < 0) {
+                leftDists[offset + j] = left;
+                rightDists[offset + j] = right;
+            } else if (leftChild) {
+                //get the exact statistics of the parent value
+                double exactParent = (j < actualParentLeft.length ? actualParentLeft[j] : 0.0)
+                        - left - right;
+                // move the subtrees and the exact value from the parent
+                leftDists[offset + j] = leftDists[parentOffset + j] - right - exactParent;
+                rightDists[offset + j] = rightDists[parentOffset + j] + right + exactParent;
+            } else {
+                leftDists[offset + j] = leftDists[parentOffset + j] + left;
+                rightDists[offset + j] = rightDists[parentOffset + j] - left;
+            }
         }
-        currentBestOption = searchForBestSplitOption(currentNode.left,
-                currentBestOption, currentNode.classCountsLeft.getArrayRef(), postSplitDists[0], postSplitDists[1], true,
-                criterion, preSplitDist, attIndex);
-        currentBestOption = searchForBestSplitOption(currentNode.right,
-                currentBestOption, currentNode.classCountsLeft.getArrayRef(), postSplitDists[0], postSplitDists[1], false,
-                criterion, preSplitDist, attIndex);
-        return currentBestOption;
+        return index;
     }
 
     @Override
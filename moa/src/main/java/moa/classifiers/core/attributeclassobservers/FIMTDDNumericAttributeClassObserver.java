@@ -27,6 +27,8 @@
 package moa.classifiers.core.attributeclassobservers;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
@@ -65,36 +67,41 @@ public class FIMTDDNumericAttributeClassObserver extends BinaryTreeNumericAttrib
          * sum of squared values arrays
          */
         public void insertValue(double val, double label, double weight) {
-
+            Node node = this;
+            while (node != null) {
 		// If the new value equals the value stored in a node, update
-            // the left (<=) node information
-            if (val == this.cut_point) {
-                this.leftStatistics.addToValue(0, 1);
-                this.leftStatistics.addToValue(1, label);
-                this.leftStatistics.addToValue(2, label * label);
-            } // If the new value is less than the value in a node, update the
-            // left distribution and send the value down to the left child node.
-            // If no left child exists, create one
-            else if (val <= this.cut_point) {
-                this.leftStatistics.addToValue(0, 1);
-                this.leftStatistics.addToValue(1, label);
-                this.leftStatistics.addToValue(2, label * label);
-                if (this.left == null) {
-                    this.left = new Node(val, label, weight);
-                } else {
-                    this.left.insertValue(val, label, weight);
-                }
-            } // If the new value is greater than the value in a node, update the
-            // right (>) distribution and send the value down to the right child node.
-            // If no right child exists, create one
-            else { // val > cut_point
-                this.rightStatistics.addToValue(0, 1);
-                this.rightStatistics.addToValue(1, label);
-                this.rightStatistics.addToValue(2, label * label);
-                if (this.right == null) {
-                    this.right = new Node(val, label, weight);
-                } else {
-                    this.right.insertValue(val, label, weight);
+                // the left (<=) node information
+                if (val == node.cut_point) {
+                    node.leftStatistics.addToValue(0, 1);
+                    node.leftStatistics.addToValue(1, label);
+                    node.leftStatistics.addToValue(2, label * label);
+                    node = null;
+                } // If the new value is less than the value in a node, update the
+                // left distribution and send the value down to the left child node.
+                // If no left child exists, create one
+                else if (val <= node.cut_point) {
+                    node.leftStatistics.addToValue(0, 1);
+                    node.leftStatistics.addToValue(1, label);
+                    node.leftStatistics.addToValue(2, label * label);
+                    if (node.left == null) {
+                        node.left = new Node(val, label, weight);
+                        node = null;
+                    } else {
+                        node = node.left;
+                    }
+                } // If the new value is greater than the value in a node, update the
+                // right (>) distribution and send the value down to the right child node.
+                // If no right child exists, create one
+                else { // val > cut_point
+                    node.rightStatistics.addToValue(0, 1);
+                    node.rightStatistics.addToValue(1, label);
+                    node.rightStatistics.addToValue(2, label * label);
+                    if (node.right == null) {
+                        node.right = new Node(val, label, weight);
+                        node = null;
+                    } else {
+                        node = node.right;
+                    }
                 }
             }
         }
@@ -144,46 +151,64 @@ public class FIMTDDNumericAttributeClassObserver extends BinaryTreeNumericAttrib
 
     /**
      * Implementation of the FindBestSplit algorithm from E.Ikonomovska et al.
+     * The in-order traversal of the E-BST uses an explicit stack, as the tree
+     * is not balanced and can be as deep as the number of distinct values.
      */
     protected AttributeSplitSuggestion searchForBestSplitOption(Node currentNode, AttributeSplitSuggestion currentBestOption, SplitCriterion criterion, int attIndex) {
-        // Return null if the current node is null or we have finished looking through all the possible splits
-        if (currentNode == null || countRightTotal == 0.0) {
-            return currentBestOption;
-        }
+        // Nodes whose left subtree is being searched (false) or whose right
+        // subtree is being searched (true), innermost first
+        Deque<Node> path = new ArrayDeque<Node>();
+        Deque<Boolean> searchingRight = new ArrayDeque<Boolean>();
+        Node entering = currentNode;
+        while (true) {
+            // Stop descending if the node is null or we have finished looking through all the possible splits
+            if (entering != null && countRightTotal != 0.0) {
+                path.push(entering);
+                searchingRight.push(false);
+                entering = entering.left;
+                continue;
+            }
 
-        if (currentNode.left != null) {
-            currentBestOption = searchForBestSplitOption(currentNode.left, currentBestOption, criterion, attIndex);
-        }
+            // Leave the nodes whose right subtree has been searched
+            while (!path.isEmpty() && searchingRight.peek()) {
+                Node node = path.pop();
+                searchingRight.pop();
+                sumTotalLeft -= node.leftStatistics.getValue(1);
+                sumTotalRight += node.leftStatistics.getValue(1);
+                sumSqTotalLeft -= node.leftStatistics.getValue(2);
+                sumSqTotalRight += node.leftStatistics.getValue(2);
+                countLeftTotal -= node.leftStatistics.getValue(0);
+                countRightTotal += node.leftStatistics.getValue(0);
+            }
+            if (path.isEmpty()) {
+                return currentBestOption;
+            }
+
+            // The left subtree of the innermost node has been searched
+            Node node = path.peek();
+            searchingRight.pop();
+            searchingRight.push(true);
 
-        sumTotalLeft += currentNode.leftStatistics.getValue(1);
-        sumTotalRight -= currentNode.leftStatistics.getValue(1);
-        sumSqTotalLeft += currentNode.leftStatistics.getValue(2);
-        sumSqTotalRight -= currentNode.leftStatistics.getValue(2);
-        countLeftTotal += currentNode.leftStatistics.getValue(0);
-        countRightTotal -= currentNode.leftStatistics.getValue(0);
+            sumTotalLeft += node.leftStatistics.getValue(1);
+            sumTotalRight -= node.leftStatistics.getValue(1);
+            sumSqTotalLeft += node.leftStatistics.getValue(2);
+            sumSqTotalRight -= node.leftStatistics.getValue(2);
+            countLeftTotal += node.leftStatistics.getValue(0);
+            countRightTotal -= node.leftStatistics.getValue(0);
 
-        double[][] postSplitDists = new double[][]{{countLeftTotal, sumTotalLeft, sumSqTotalLeft}, {countRightTotal, sumTotalRight, sumSqTotalRight}};
-        double[] preSplitDist = new double[]{(countLeftTotal + countRightTotal), (sumTotalLeft + sumTotalRight), (sumSqTotalLeft + sumSqTotalRight)};
-        double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            double[][] postSplitDists = new double[][]{{countLeftTotal, sumTotalLeft, sumSqTotalLeft}, {countRightTotal, sumTotalRight, sumSqTotalRight}};
+            double[] preSplitDist = new double[]{(countLeftTotal + countRightTotal), (sumTotalLeft + sumTotalRight), (sumSqTotalLeft + sumSqTotalRight)};
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
 
-        if ((currentBestOption == null) || (merit > currentBestOption.merit)) {
-            currentBestOption = new AttributeSplitSuggestion(
-                    new NumericAttributeBinaryTest(attIndex,
-                            currentNode.cut_point, true), postSplitDists, merit);
+            if ((currentBestOption == null) || (merit > currentBestOption.merit)) {
+                currentBestOption = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                                node.cut_point, true), postSplitDists, merit);
 
-        }
+            }
 
-        if (currentNode.right != null) {
-            currentBestOption = searchForBestSplitOption(currentNode.right, currentBestOption, criterion, attIndex);
+            entering = node.right;
         }
-        sumTotalLeft -= currentNode.leftStatistics.getValue(1);
-        sumTotalRight += currentNode.leftStatistics.getValue(1);
-        sumSqTotalLeft -= currentNode.leftStatistics.getValue(2);
-        sumSqTotalRight += currentNode.leftStatistics.getValue(2);
-        countLeftTotal -= currentNode.leftStatistics.getValue(0);
-        countRightTotal += currentNode.leftStatistics.getValue(0);
-
-        return currentBestOption;
     }
 
     /**
@@ -55,14 +55,44 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
         return 1.0 - gini;
     }
 
+    @Override
+    public void getMeritOfBinarySplits(double[] preSplitDist,
+            double[] leftDists, double[] rightDists, int numValues,
+            int numSplits, double[] merits) {
+        for (int i = 0, offset = 0; i < numSplits; i++, offset += numValues) {
+            double leftWeight = 0.0;
+            double rightWeight = 0.0;
+            for (int j = offset; j < offset + numValues; j++) {
+                leftWeight += leftDists[j];
+                rightWeight += rightDists[j];
+            }
+            double totalWeight = leftWeight + rightWeight;
+            //as in getMeritOfSplit, a branch without weight makes the merit NaN
+            double gini = (leftWeight / totalWeight)
+                    * computeGini(leftDists, offset, numValues, leftWeight)
+                    + (rightWeight / totalWeight)
+                    * computeGini(rightDists, offset, numValues, rightWeight);
+            merits[i] = 1.0 - gini;
+        }
+    }
+
     @Override
     public double getRangeOfMerit(double[] preSplitDist) {
         return 1.0;
     }
 
     public static double computeGini(double[] dist, double distSumOfWeights) {
+        return computeGini(dist, 0, dist.length, distSumOfWeights);
+    }
+
+    /**
+     * Computes the Gini index of the distribution stored in
+     * <code>dist[offset]</code> to <code>dist[offset + length - 1]</code>.
+     */
+    public static double computeGini(double[] dist, int offset, int length,
+            double distSumOfWeights) {
         double gini = 1.0;
-        for (int i = 0; i < dist.length; i++) {
+        for (int i = offset; i < offset + length; i++) {
             double relFreq = dist[i] / distSumOfWeights;
             gini -= relFreq * relFreq;
         }
@@ -82,6 +82,39 @@ public class HellingerSplitCriterion extends AbstractOptionHandler implements Sp
 		return computeHellinger(postSplitDists);
 	}
 
+	/**
+	 * Computes the Hellinger distance of several packed candidate binary splits at once,
+	 * see SplitCriterion.getMeritOfBinarySplits. Only the first two values of each branch
+	 * are used, and a class missing from a branch is counted as zero.
+	 */
+	@Override
+	public void getMeritOfBinarySplits(double[] preSplitDist, double[] leftDists, double[] rightDists,
+			int numValues, int numSplits, double[] merits)
+	{
+		for (int i = 0, offset = 0; i < numSplits; i++, offset += numValues)
+		{
+			if (numValues < 2)
+			{
+				merits[i] = 0; // Can't compute distance here.
+				continue;
+			}
+
+			double leftBranchNegatives = leftDists[offset];
+			double leftBranchPositives = leftDists[offset + 1];
+
+			double rightBranchNegatives = rightDists[offset];
+			double rightBranchPositives = rightDists[offset + 1];
+
+			double totalNegatives = leftBranchNegatives+rightBranchNegatives;
+			double totalPositives = leftBranchPositives+rightBranchPositives;
+
+			double left = Math.sqrt(leftBranchNegatives/totalNegatives)-Math.sqrt(leftBranchPositives/totalPositives);
+			double right = Math.sqrt(rightBranchNegatives/totalNegatives)-Math.sqrt(rightBranchPositives/totalPositives);
+
+			merits[i] = Math.sqrt(left * left + right * right);
+		}
+	}
+
 	/**
 	 * Gets the value of the range of splitting merit.
 	 */
@@ -44,6 +44,18 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
             "Minimum fraction of weight required down at least two branches.",
             0.01, 0.0, 0.5);
 
+    /**
+     * Values of x * log2(x) for the integers x below the size of the table,
+     * which covers the (integral) counts of most split evaluations.
+     */
+    private static final double[] X_LOG2_X = new double[1 << 16];
+
+    static {
+        for (int i = 1; i < X_LOG2_X.length; i++) {
+            X_LOG2_X[i] = i * Utils.log2(i);
+        }
+    }
+
     @Override
     public double getMeritOfSplit(double[] preSplitDist,
             double[][] postSplitDists) {
@@ -53,6 +65,32 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
         return computeEntropy(preSplitDist) - computeEntropy(postSplitDists);
     }
 
+    @Override
+    public void getMeritOfBinarySplits(double[] preSplitDist,
+            double[] leftDists, double[] rightDists, int numValues,
+            int numSplits, double[] merits) {
+        double minBranchFrac = this.minBranchFracOption.getValue();
+        double preSplitEntropy = computeEntropy(preSplitDist);
+        for (int i = 0, offset = 0; i < numSplits; i++, offset += numValues) {
+            double leftWeight = 0.0;
+            double rightWeight = 0.0;
+            for (int j = offset; j < offset + numValues; j++) {
+                leftWeight += leftDists[j];
+                rightWeight += rightDists[j];
+            }
+            double totalWeight = leftWeight + rightWeight;
+            if (!(leftWeight / totalWeight > minBranchFrac)
+                    || !(rightWeight / totalWeight > minBranchFrac)) {
+                merits[i] = Double.NEGATIVE_INFINITY;
+            } else {
+                merits[i] = preSplitEntropy
+                        - (leftWeight * computeEntropy(leftDists, offset, numValues)
+                        + rightWeight * computeEntropy(rightDists, offset, numValues))
+                        / totalWeight;
+            }
+        }
+    }
+
     @Override
     public double getRangeOfMerit(double[] preSplitDist) {
         int numClasses = preSplitDist.length > 2 ? preSplitDist.length : 2;
@@ -60,15 +98,32 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
     }
 
     public static double computeEntropy(double[] dist) {
+        return computeEntropy(dist, 0, dist.length);
+    }
+
+    /**
+     * Computes the entropy of the distribution stored in
+     * <code>dist[offset]</code> to <code>dist[offset + length - 1]</code>.
+     */
+    public static double computeEntropy(double[] dist, int offset, int length) {
         double entropy = 0.0;
         double sum = 0.0;
-        for (double d : dist) {
+        for (int i = offset; i < offset + length; i++) {
+            double d = dist[i];
             if (d > 0.0) { // TODO: how small can d be before log2 overflows?
-                entropy -= d * Utils.log2(d);
+                entropy -= xLog2x(d);
                 sum += d;
             }
         }
-        return sum > 0.0 ? (entropy + sum * Utils.log2(sum)) / sum : 0.0;
+        return sum > 0.0 ? (entropy + xLog2x(sum)) / sum : 0.0;
+    }
+
+    private static double xLog2x(double x) {
+        int i = (int) x;
+        if (i == x && i < X_LOG2_X.length) {
+            return X_LOG2_X[i];
+        }
+        return x * Utils.log2(x);
     }
 
     public static double computeEntropy(double[][] dists) {
@@ -52,4 +52,54 @@ public interface SplitCriterion extends OptionHandler {
      * @return value of the range of splitting merit
      */
     public double getRangeOfMerit(double[] preSplitDist);
+
+    /**
+     * Computes the merit of several candidate binary splits of the same
+     * attribute in a single call. The distributions of the candidates are
+     * packed row by row: the left branch of candidate i is stored in
+     * <code>leftDists[i * numValues]</code> to
+     * <code>leftDists[(i + 1) * numValues - 1]</code>, and likewise for the
+     * right branch. Rows are padded with zeros. The merit of each candidate
+     * must be exactly the one getMeritOfSplit returns for its two rows, so a
+     * branch whose values are all zero is a distribution of zeros, which
+     * gives a NaN merit with criteria such as Gini.
+     *
+     * @param preSplitDist the class distribution before the split
+     * @param leftDists the packed distributions of the left branches
+     * @param rightDists the packed distributions of the right branches
+     * @param numValues the length of each packed distribution
+     * @param numSplits the number of candidate splits
+     * @param merits the array where the merit of candidate i is stored at i
+     */
+    public default void getMeritOfBinarySplits(double[] preSplitDist,
+            double[] leftDists, double[] rightDists, int numValues,
+            int numSplits, double[] merits) {
+        getMeritOfBinarySplitsOneByOne(this, preSplitDist, leftDists,
+                rightDists, numValues, numSplits, merits);
+    }
+
+    /**
+     * Computes the merit of packed candidate binary splits by unpacking them
+     * and calling getMeritOfSplit for each candidate. Criteria that override
+     * getMeritOfSplit of a class with a specialised getMeritOfBinarySplits
+     * can fall back to this method.
+     *
+     * @param criterion the criterion used to compute the merits
+     * @param preSplitDist the class distribution before the split
+     * @param leftDists the packed distributions of the left branches
+     * @param rightDists the packed distributions of the right branches
+     * @param numValues the length of each packed distribution
+     * @param numSplits the number of candidate splits
+     * @param merits the array where the merit of candidate i is stored at i
+     */
+    public static void getMeritOfBinarySplitsOneByOne(SplitCriterion criterion,
+            double[] preSplitDist, double[] leftDists, double[] rightDists,
+            int numValues, int numSplits, double[] merits) {
+        for (int i = 0; i < numSplits; i++) {
+            double[][] postSplitDists = new double[2][numValues];
+            System.arraycopy(leftDists, i * numValues, postSplitDists[0], 0, numValues);
+            System.arraycopy(rightDists, i * numValues, postSplitDists[1], 0, numValues);
+            merits[i] = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+        }
+    }
 }
@@ -74,6 +74,24 @@ public class VarianceReductionSplitCriterion extends AbstractOptionHandler imple
     	}
     	return SDR;
     }
+
+    @Override
+    public void getMeritOfBinarySplits(double[] preSplitDist, double[] leftDists,
+            double[] rightDists, int numValues, int numSplits, double[] merits) {
+        double N = preSplitDist[0];
+        double preSplitSD = computeSD(preSplitDist);
+        for (int i = 0, offset = 0; i < numSplits; i++, offset += numValues) {
+            double Nl = leftDists[offset];
+            double Nr = rightDists[offset];
+            double SDR = 0.0;
+            if (Nl >= 5.0 && Nr >= 5.0) {
+                SDR = preSplitSD;
+                SDR -= (Nl/N)*computeSD(leftDists, offset);
+                SDR -= (Nr/N)*computeSD(rightDists, offset);
+            }
+            merits[i] = SDR;
+        }
+    }
     	
 
 
@@ -91,6 +109,13 @@ public class VarianceReductionSplitCriterion extends AbstractOptionHandler imple
         return (sumSq - ((sum * sum)/N))/N;
     }
 
+    private static double computeSD(double[] dists, int offset) {
+        int N = (int)dists[offset];
+        double sum = dists[offset + 1];
+        double sumSq = dists[offset + 2];
+        return (sumSq - ((sum * sum)/N))/N;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
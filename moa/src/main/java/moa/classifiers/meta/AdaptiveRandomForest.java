@@ -36,15 +36,11 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.Callable;
+import java.util.function.IntConsumer;
 
 import moa.classifiers.trees.ARFHoeffdingTree;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import moa.AbstractMOAObject;
 import moa.classifiers.core.driftdetection.ChangeDetector;
 
@@ -74,13 +70,27 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * values corresponds to M - m</li>
  * <li>-a : The lambda value for bagging (lambda=6 corresponds to levBag)</li>
  * <li>-j : Number of threads to be used for training</li>
+ * <li>-B : Number of instances the trees are trained on at a time</li>
  * <li>-x : Change detector for drifts and its parameters</li>
  * <li>-p : Change detector for warnings (start training bkg learner)</li>
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled then bkg learner is also disabled</li>
  * <li>-q : Should use bkg learner? If disabled then reset tree immediately</li>
+ * <li>-b : Should report the training time and size of bkg learners per tree?</li>
  * </ul>
  *
+ * <p>Training instances can be buffered in micro-batches (-B). The trees are
+ * only trained when a batch is full: the whole batch is handed to the threads
+ * one tree at a time, and each tree tests and then trains on the instances of
+ * the batch in order. Until then the forest predicts with the trees as they
+ * were at the end of the previous batch. The weights of the instances are
+ * drawn when they arrive, so the trees are the same for any number of
+ * threads, and with batches of one instance they are the same as without
+ * batches. The instances are copied when they are buffered, and a copy or a
+ * serialized forest keeps its pending batch. There is no end of stream
+ * notification: instances still pending when the forest is discarded are
+ * never trained on.</p>
+ *
  * @author Heitor Murilo Gomes (heitor_murilo_gomes at yahoo dot com dot br)
  * @version $Revision: 1 $
  */
@@ -115,6 +125,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
         "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+    public IntOption microBatchSizeOption = new IntOption("microBatchSize", 'B',
+        "Number of training instances buffered before the trees are trained on them (1 = train on each instance when it arrives).", 1, 1, Integer.MAX_VALUE);
     
     public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'x',
         "Change detector for drifts and its parameters", ChangeDetector.class, "ADWINChangeDetector -a 1.0E-3");
@@ -130,6 +143,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q', 
         "Should use bkg learner? If disabled then reset tree immediately.");
+
+    public FlagOption outputBackgroundLearnerStatsOption = new FlagOption("outputBackgroundLearnerStats", 'b',
+        "Should report the training time and size of bkg learners per tree as model measurements?");
     
     protected static final int FEATURES_M = 0;
     protected static final int FEATURES_SQRT = 1;
@@ -142,27 +158,31 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     protected long instancesSeen;
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
+    // Untrained tree shared by all members, copied whenever a new bkg learner is created.
+    protected ARFHoeffdingTree treePrototype;
+
+    // Runs the trees on several threads, SINGLE_THREAD and 1 job run them in place
+    protected EnsembleExecutor executor;
 
-    private ExecutorService executor;
+    // Training instances not yet seen by the trees, with the weight of each instance for each tree
+    protected Instance[] batchInstances;
+    protected int[][] batchWeights;
+    protected int batchSize;
     
     @Override
     public void resetLearningImpl() {
         // Reset attributes
         this.ensemble = null;
+        this.treePrototype = null;
         this.subspaceSize = 0;
         this.instancesSeen = 0;
         this.evaluator = new BasicClassificationPerformanceEvaluator();
+        this.batchInstances = new Instance[this.microBatchSizeOption.getValue()];
+        this.batchWeights = new int[this.microBatchSizeOption.getValue()][];
+        this.batchSize = 0;
         
         // Multi-threading
-        int numberOfJobs;
-        if(this.numberOfJobsOption.getValue() == -1) 
-            numberOfJobs = Runtime.getRuntime().availableProcessors();
-        else 
-            numberOfJobs = this.numberOfJobsOption.getValue();
-        // SINGLE_THREAD and requesting for only 1 thread are equivalent. 
-        // this.executor will be null and not used...
-        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
-            this.executor = Executors.newFixedThreadPool(numberOfJobs);
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
@@ -171,30 +191,51 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         if(this.ensemble == null) 
             initEnsemble(instance);
         
-        Collection<TrainingRunnable> trainers = new ArrayList<TrainingRunnable>();
+        // The weights are drawn in tree order when the instance arrives, so the trees can be trained later in any order
+        int[] weights = new int[this.ensemble.length];
         for (int i = 0 ; i < this.ensemble.length ; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
-            InstanceExample example = new InstanceExample(instance);
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
-            int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-            if (k > 0) {
-                if(this.executor != null) {
-                    TrainingRunnable trainer = new TrainingRunnable(this.ensemble[i], 
-                        instance, k, this.instancesSeen);
-                    trainers.add(trainer);
-                }
-                else { // SINGLE_THREAD is in-place... 
-                    this.ensemble[i].trainOnInstance(instance, k, this.instancesSeen);
-                }
-            }
+            weights[i] = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
         }
-        if(this.executor != null) {
-            try {
-                this.executor.invokeAll(trainers);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException("Could not call invokeAll() on training threads.");
+        // The caller may reuse the instance before the batch is full
+        this.batchInstances[this.batchSize] = this.batchInstances.length > 1 ? instance.copy() : instance;
+        this.batchWeights[this.batchSize] = weights;
+        ++this.batchSize;
+        if(this.batchSize == this.batchInstances.length)
+            trainOnBatch();
+    }
+
+    /**
+     * Tests and trains every tree on the buffered instances, in the order they arrived.
+     * Each tree is processed by a single thread and only changes its own state.
+     */
+    protected void trainOnBatch() {
+        if(this.batchSize == 0)
+            return;
+        final Instance[] instances = this.batchInstances;
+        final int[][] weights = this.batchWeights;
+        final int size = this.batchSize;
+        // instancesSeen when the first instance of the batch arrived
+        final long firstInstanceSeen = this.instancesSeen - size + 1;
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                for (int j = 0 ; j < size ; j++) {
+                    Instance instance = instances[j];
+                    DoubleVector vote = new DoubleVector(ensemble[i].getVotesForInstance(instance));
+                    InstanceExample example = new InstanceExample(instance);
+                    ensemble[i].evaluator.addResult(example, vote.getArrayRef());
+                    int k = weights[j][i];
+                    if (k > 0) {
+                        ensemble[i].trainOnInstance(instance, k, firstInstanceSeen + j);
+                    }
+                }
             }
+        });
+        for (int j = 0 ; j < size ; j++) {
+            this.batchInstances[j] = null;
+            this.batchWeights[j] = null;
         }
+        this.batchSize = 0;
     }
 
     @Override
@@ -231,7 +272,30 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
-        return null;
+        if(! this.outputBackgroundLearnerStatsOption.isSet() || this.ensemble == null)
+            return null;
+
+        Measurement[] measurements = new Measurement[3 + 3 * this.ensemble.length];
+        int activeBkgLearners = 0;
+        double totalTime = 0.0;
+        double totalSize = 0.0;
+        for(int i = 0 ; i < this.ensemble.length ; ++i) {
+            ARFBaseLearner learner = this.ensemble[i];
+            double time = learner.bkgTrainingTime / 1.0e9;
+            double size = learner.bkgLearner != null ? learner.bkgLearner.classifier.measureByteSize() : 0.0;
+            if(learner.bkgLearner != null)
+                ++activeBkgLearners;
+            totalTime += time;
+            totalSize += size;
+            measurements[3 + 3 * i] = new Measurement("tree " + i + " bkg learners created",
+                    learner.numberOfBkgLearnersCreated);
+            measurements[4 + 3 * i] = new Measurement("tree " + i + " bkg training time (seconds)", time);
+            measurements[5 + 3 * i] = new Measurement("tree " + i + " bkg model size (bytes)", size);
+        }
+        measurements[0] = new Measurement("active bkg learners", activeBkgLearners);
+        measurements[1] = new Measurement("bkg training time (seconds)", totalTime);
+        measurements[2] = new Measurement("bkg model size (bytes)", totalSize);
+        return measurements;
     }
 
     protected void initEnsemble(Instance instance) {
@@ -282,12 +346,13 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         
         ARFHoeffdingTree treeLearner = (ARFHoeffdingTree) getPreparedClassOption(this.treeLearnerOption);
         treeLearner.resetLearning();
+        treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
+        this.treePrototype = (ARFHoeffdingTree) treeLearner.copy();
         
         for(int i = 0 ; i < ensembleSize ; ++i) {
-            treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
             this.ensemble[i] = new ARFBaseLearner(
                 i, 
-                (ARFHoeffdingTree) treeLearner.copy(), 
+                (ARFHoeffdingTree) this.treePrototype.copy(), 
                 (BasicClassificationPerformanceEvaluator) classificationEvaluator.copy(), 
                 this.instancesSeen, 
                 ! this.disableBackgroundLearnerOption.isSet(),
@@ -345,6 +410,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         public BasicClassificationPerformanceEvaluator evaluator;
         protected int numberOfDriftsDetected;
         protected int numberOfWarningsDetected;
+        protected int numberOfBkgLearnersCreated;
+        // Time (nanoseconds) spent training bkg learners of this tree, only tracked if outputBackgroundLearnerStats is set
+        protected long bkgTrainingTime;
 
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
             long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
@@ -360,17 +428,19 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             
             this.numberOfDriftsDetected = 0;
             this.numberOfWarningsDetected = 0;
+            this.numberOfBkgLearnersCreated = 0;
+            this.bkgTrainingTime = 0;
             this.isBackgroundLearner = isBackgroundLearner;
 
             if(this.useDriftDetector) {
                 this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
 
             // Init Drift Detector for Warning detection. 
             if(this.useBkgLearner) {
                 this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
             }
         }
 
@@ -379,7 +449,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, driftOption, warningOption, isBackgroundLearner);
         }
 
-        public void reset() {
+        public void reset(long instancesSeen) {
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
                 
@@ -393,7 +463,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
             this.evaluator.reset();
         }
@@ -403,8 +473,16 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             weightedInstance.setWeight(instance.weight() * weight);
             this.classifier.trainOnInstance(weightedInstance);
             
-            if(this.bkgLearner != null)
-                this.bkgLearner.classifier.trainOnInstance(instance);
+            if(this.bkgLearner != null) {
+                if(outputBackgroundLearnerStatsOption.isSet()) {
+                    long start = System.nanoTime();
+                    this.bkgLearner.classifier.trainOnInstance(instance);
+                    this.bkgTrainingTime += System.nanoTime() - start;
+                }
+                else {
+                    this.bkgLearner.classifier.trainOnInstance(instance);
+                }
+            }
             
             // Should it use a drift detector? Also, is it a backgroundLearner? If so, then do not "incept" another one. 
             if(this.useDriftDetector && !this.isBackgroundLearner) {
@@ -417,8 +495,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                     if(this.warningDetectionMethod.getChange()) {
                         this.lastWarningOn = instancesSeen;
                         this.numberOfWarningsDetected++;
-                        // Create a new bkgTree classifier
-                        ARFHoeffdingTree bkgClassifier = (ARFHoeffdingTree) this.classifier.copy();
+                        // Create a new bkgTree classifier from the untrained prototype, rather than 
+                        // copying (and then discarding) the whole current tree and its observers.
+                        ARFHoeffdingTree bkgClassifier = (ARFHoeffdingTree) treePrototype.copy();
                         bkgClassifier.resetLearning();
                         
                         // Resets the evaluator
@@ -428,10 +507,11 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                         // Create a new bkgLearner object
                         this.bkgLearner = new ARFBaseLearner(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen, 
                             this.useBkgLearner, this.useDriftDetector, this.driftOption, this.warningOption, true);
+                        this.numberOfBkgLearnersCreated++;
                         
                         // Update the warning detection object for the current object 
                         // (this effectively resets changes made to the object while it was still a bkg learner). 
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                        this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
                     }
                 }
                 
@@ -442,7 +522,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 if(this.driftDetectionMethod.getChange()) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
-                    this.reset();
+                    this.reset(instancesSeen);
                 }
             }
         }
@@ -456,33 +536,4 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         public void getDescription(StringBuilder sb, int indent) {
         }
     }
-    
-    /***
-     * Inner class to assist with the multi-thread execution. 
-     */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
-        final private ARFBaseLearner learner;
-        final private Instance instance;
-        final private double weight;
-        final private long instancesSeen;
-
-        public TrainingRunnable(ARFBaseLearner learner, Instance instance, 
-                double weight, long instancesSeen) {
-            this.learner = learner;
-            this.instance = instance;
-            this.weight = weight;
-            this.instancesSeen = instancesSeen;
-        }
-
-        @Override
-        public void run() {
-            learner.trainOnInstance(this.instance, this.weight, this.instancesSeen);
-        }
-
-        @Override
-        public Integer call() {
-            run();
-            return 0;
-        }
-    }
 }
@@ -352,13 +352,13 @@ public class AdaptiveRandomForestRE extends AbstractClassifier implements MultiC
 
             if(this.useDriftDetector) {
                 this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
 
             // Init Drift Detector for Warning detection.
             if(this.useBkgLearner) {
                 this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
             }
         }
 
@@ -382,7 +382,7 @@ public class AdaptiveRandomForestRE extends AbstractClassifier implements MultiC
             else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
             this.evaluator.reset();
         }
@@ -446,7 +446,7 @@ public class AdaptiveRandomForestRE extends AbstractClassifier implements MultiC
 
                         // Update the warning detection object for the current object
                         // (this effectively resets changes made to the object while it was still a bkg learner).
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                        this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
                     }
                 }
 
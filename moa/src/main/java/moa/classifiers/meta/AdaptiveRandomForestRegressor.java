@@ -267,13 +267,13 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
 
             if(this.useDriftDetector) {
                 this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
 
             // Init Drift Detector for Warning detection.
             if(this.useBkgLearner) {
                 this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
             }
         }
 
@@ -296,7 +296,7 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
             else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
             }
             this.evaluator.reset();
         }
@@ -335,7 +335,7 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
 
                         // Update the warning detection object for the current object
                         // (this effectively resets changes made to the object while it was still a bkg learner).
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                        this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
                     }
                 }
 
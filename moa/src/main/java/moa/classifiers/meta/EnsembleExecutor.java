@@ -0,0 +1,199 @@
+/*
+ *    EnsembleExecutor.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.meta;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.core.DoubleVector;
+
+/**
+ * Runs work on the members of an ensemble using a pool of worker threads.
+ *
+ * Every call to forEachMember is a barrier: it returns once the work on all
+ * the members is done. The work on a member must only change the state of
+ * that member, and the random numbers of the ensemble must be drawn by the
+ * calling thread before or after the call, in member order. Votes are
+ * collected per member and combined in member order by the caller. This way
+ * the results do not depend on the number of jobs.
+ *
+ * The pool is created when first needed and is not serialized, so copies of
+ * an ensemble get their own pool. Idle workers are daemon threads that stop
+ * after a while.
+ */
+public class EnsembleExecutor implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //seconds an idle worker waits for work before it stops
+    protected static final long KEEP_ALIVE_SECONDS = 60;
+
+    protected int numberOfJobs;
+
+    protected transient ThreadPoolExecutor pool;
+
+    /**
+     * Creates an executor with the semantics of the numberOfJobs option of
+     * the ensembles.
+     *
+     * @param numberOfJobs number of threads, -1 for one per processor, 0 or
+     * 1 to do all the work on the calling thread
+     */
+    public EnsembleExecutor(int numberOfJobs) {
+        if (numberOfJobs == -1) {
+            numberOfJobs = Runtime.getRuntime().availableProcessors();
+        }
+        this.numberOfJobs = Math.max(1, numberOfJobs);
+    }
+
+    public int getNumberOfJobs() {
+        return this.numberOfJobs;
+    }
+
+    public boolean isParallel() {
+        return this.numberOfJobs > 1;
+    }
+
+    /**
+     * Runs body for every member from 0 to n-1 and waits until all of them
+     * are done. Without threads the members are run in order.
+     *
+     * @param n number of members
+     * @param body the work on one member
+     */
+    public void forEachMember(int n, final IntConsumer body) {
+        int numTasks = Math.min(n, this.numberOfJobs);
+        if (numTasks < 2) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        //members take different times, so the tasks take the next member free
+        final AtomicInteger next = new AtomicInteger();
+        final int size = n;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < size) {
+                        body.accept(i);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> f : getPool().invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns the votes of the first n members for an instance.
+     *
+     * @param members the ensemble
+     * @param n number of members that vote
+     * @param inst the instance
+     * @return the votes of each member
+     */
+    public double[][] getVotes(final Classifier[] members, int n, final Instance inst) {
+        final double[][] votes = new double[n][];
+        forEachMember(n, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                votes[i] = members[i].getVotesForInstance(inst);
+            }
+        });
+        return votes;
+    }
+
+    /**
+     * Sums the normalized votes of all the members, in member order.
+     *
+     * @param members the ensemble
+     * @param inst the instance
+     * @return the combined vote
+     */
+    public double[] getCombinedVote(Classifier[] members, Instance inst) {
+        double[][] votes = getVotes(members, members.length, inst);
+        DoubleVector combinedVote = new DoubleVector();
+        for (int i = 0; i < votes.length; i++) {
+            DoubleVector vote = new DoubleVector(votes[i]);
+            if (vote.sumOfValues() > 0.0) {
+                vote.normalize();
+                combinedVote.addValues(vote);
+            }
+        }
+        return combinedVote.getArrayRef();
+    }
+
+    protected ThreadPoolExecutor getPool() {
+        if (this.pool == null) {
+            this.pool = new ThreadPoolExecutor(this.numberOfJobs, this.numberOfJobs,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "EnsembleExecutor");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+        return this.pool;
+    }
+
+    /**
+     * Stops the worker threads. The executor can still be used afterwards.
+     */
+    public void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+}
@@ -33,7 +33,8 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
 
-import moa.core.DoubleVector;
+import java.util.function.IntConsumer;
+
 import moa.core.Measurement;
 import moa.core.MiscUtils;
 
@@ -45,6 +46,10 @@ import moa.core.MiscUtils;
  * Leveraging Bagging for Evolving Data Streams Machine Learning and Knowledge
  * Discovery in Databases, European Conference, ECML PKDD}, 2010.</p>
  *
+ * <p>The models are trained and vote on several threads with the -j option.
+ * The weights of the instances are drawn beforehand in model order, so the
+ * results are the same for any number of threads.</p>
+ *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
@@ -84,8 +89,13 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected EnsembleExecutor executor;
+
     protected ADWIN[] ADError;
 
     protected int numberOfChangesDetected;
@@ -110,10 +120,11 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         if (this.outputCodesOption.isSet()) {
             this.initMatrixCodes = true;
         }
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    public void trainOnInstanceImpl(final Instance inst) {
         int numClasses = inst.numClasses();
         //Output Codes
         if (this.initMatrixCodes == true) {
@@ -146,12 +157,16 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         }
 
 
-        boolean Change = false;
-        Instance weightedInst = (Instance) inst.copy();
+        final int ensembleSize = this.ensemble.length;
+        final double[] ks = new double[ensembleSize];
+        // Class values and weights the models see, as the instance is shared by all of them
+        final double[] classValues = new double[ensembleSize];
+        final double[] weights = new double[ensembleSize];
+        final Instance weightedInst = inst.copy();
         double w = this.weightShrinkOption.getValue();
 
-        //Train ensemble of classifiers
-        for (int i = 0; i < this.ensemble.length; i++) {
+        //Draw the weights of the ensemble of classifiers
+        for (int i = 0; i < ensembleSize; i++) {
             double k = 0.0;
             switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
                 case 0: //LeveragingBag
@@ -180,15 +195,40 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                     weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
                 }
                 weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
             }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
+            ks[i] = k;
+            classValues[i] = weightedInst.classValue();
+            weights[i] = weightedInst.weight();
+        }
+
+        //Train ensemble of classifiers
+        final boolean outputCodes = this.outputCodesOption.isSet();
+        final boolean parallel = this.executor.isParallel();
+        final boolean[] changes = new boolean[ensembleSize];
+        this.executor.forEachMember(ensembleSize, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                // Models trained one after the other can share the copy
+                Instance memberInst = parallel ? inst.copy() : weightedInst;
+                if (outputCodes) {
+                    memberInst.setClassValue(classValues[i]);
+                }
+                memberInst.setWeight(weights[i]);
+                if (ks[i] > 0) {
+                    ensemble[i].trainOnInstance(memberInst);
+                }
+                boolean correctlyClassifies = ensemble[i].correctlyClassifies(memberInst);
+                double ErrEstim = ADError[i].getEstimation();
+                if (ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+                    if (ADError[i].getEstimation() > ErrEstim) {
+                        changes[i] = true;
+                    }
                 }
             }
+        });
+        boolean Change = false;
+        for (int i = 0; i < ensembleSize; i++) {
+            Change |= changes[i];
         }
         if (Change) {
             numberOfChangesDetected++;
@@ -213,27 +253,25 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         if (this.outputCodesOption.isSet()) {
             return getVotesForInstanceBinary(inst);
         }
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                combinedVote.addValues(vote);
-            }
-        }
-        return combinedVote.getArrayRef();
+        return this.executor.getCombinedVote(this.ensemble, inst);
     }
 
-    public double[] getVotesForInstanceBinary(Instance inst) {
+    public double[] getVotesForInstanceBinary(final Instance inst) {
         double combinedVote[] = new double[(int) inst.numClasses()];
-        Instance weightedInst = (Instance) inst.copy();
         if (this.initMatrixCodes == false) {
+            final double[][] votes = new double[this.ensemble.length][];
+            final Instance sharedInst = this.executor.isParallel() ? null : inst.copy();
+            this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+                @Override
+                public void accept(int i) {
+                    //Replace class by OC
+                    Instance weightedInst = sharedInst != null ? sharedInst : inst.copy();
+                    weightedInst.setClassValue((double) matrixCodes[i][(int) inst.classValue()]);
+                    votes[i] = ensemble[i].getVotesForInstance(weightedInst);
+                }
+            });
             for (int i = 0; i < this.ensemble.length; i++) {
-                //Replace class by OC
-                weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
-
-                double vote[];
-                vote = this.ensemble[i].getVotesForInstance(weightedInst);
+                double vote[] = votes[i];
                 //Binary Case
                 int voteClass = 0;
                 if (vote.length == 2) {
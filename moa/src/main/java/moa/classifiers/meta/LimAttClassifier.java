@@ -284,7 +284,6 @@ public class LimAttClassifier extends AbstractClassifier implements MultiClassCl
         }
 
         boolean Change = false;
-        Instance weightedInst = (Instance) inst.copy();
 
         //Train Perceptron
         double[][] votes = new double[this.ensemble.length + 1][numClasses];
@@ -318,7 +317,7 @@ public class LimAttClassifier extends AbstractClassifier implements MultiClassCl
         if (adwinReplaceWorstClassifierOption.isSet() == false) {
             //Train ensemble of classifiers
             for (int i = 0; i < this.ensemble.length; i++) {
-                boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
+                boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
                 double ErrEstim = this.ADError[i].getEstimation();
                 if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
                     numInstances = initialNumInstancesOption.getValue();
@@ -337,7 +336,7 @@ public class LimAttClassifier extends AbstractClassifier implements MultiClassCl
         } else {
             //Train ensemble of classifiers
             for (int i = 0; i < this.ensemble.length; i++) {
-                boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
+                boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
                 double ErrEstim = this.ADError[i].getEstimation();
                 if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
                     if (this.ADError[i].getEstimation() > ErrEstim) {
@@ -14,6 +14,8 @@
 
 package moa.classifiers.meta;
 
+import java.util.function.IntConsumer;
+
 import com.github.javacliparser.FloatOption;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -40,19 +42,26 @@ public class OOB extends OzaBag {
 	}
 	
 	@Override
-    public void trainOnInstanceImpl(Instance inst) {
+    public void trainOnInstanceImpl(final Instance inst) {
 		
 		updateClassSize(inst);
 		double lambda = calculatePoissonLambda(inst);
 		
+		// The weights are drawn in model order, so the models can be trained on several threads (-j)
+		final int[] k = new int[this.ensemble.length];
 		for (int i = 0; i < this.ensemble.length; i++) {
-            int k = MiscUtils.poisson(lambda, this.classifierRandom);
-            if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
-            }
+            k[i] = MiscUtils.poisson(lambda, this.classifierRandom);
         }
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                if (k[i] > 0) {
+                    Instance weightedInst = inst.copy();
+                    weightedInst.setWeight(inst.weight() * k[i]);
+                    ensemble[i].trainOnInstance(weightedInst);
+                }
+            }
+        });
     }
 	
 	protected void updateClassSize(Instance inst) {
@@ -22,6 +22,7 @@ package moa.classifiers.meta;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import java.util.function.IntConsumer;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
@@ -38,6 +39,8 @@ import moa.options.ClassOption;
  *
  * <p>Parameters:</p> <ul> <li>-l : Classiﬁer to train</li> <li>-s : The number
  * of models to boost</li> 
+ * <li>-j : Number of threads used to train the models and to compute their
+ * votes</li>
  * </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
@@ -66,8 +69,13 @@ public class OnlineSmoothBoost extends AbstractClassifier implements MultiClassC
             "The value of the gamma parameter.",
             0.1, 0.0, 1.0);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected EnsembleExecutor executor;
+
     protected double[] alpha;
     
     protected double gamma;
@@ -86,21 +94,36 @@ public class OnlineSmoothBoost extends AbstractClassifier implements MultiClassC
         }
         this.gamma = this.gammaOption.getValue();
        this.theta = this.gamma/(2.0+this.gamma);
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
+    public void trainOnInstanceImpl(final Instance inst) {
+        // A model is evaluated before it is trained, so all of them can be evaluated first
+        final boolean[] correct = new boolean[this.ensemble.length];
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                correct[i] = ensemble[i].correctlyClassifies(inst);
+            }
+        });
+        final double[] weights = new double[this.ensemble.length];
         double zt = 0.0;
         double weight = 1.0;
         for (int i = 0; i < this.ensemble.length; i++) {
-            zt += (this.ensemble[i].correctlyClassifies(inst) ? 1 : -1) - theta;
+            zt += (correct[i] ? 1 : -1) - theta;
                     //normalized_predict(ex.x) * ex.y - theta;
-            Instance weightedInst = (Instance) inst.copy();
-            weightedInst.setWeight(weight);
-            this.ensemble[i].trainOnInstance(weightedInst);
+            weights[i] = weight;
             weight = (zt<=0)? 1.0 : Math.pow(1.0-gamma, zt/2.0);
         }
-
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                Instance weightedInst = (Instance) inst.copy();
+                weightedInst.setWeight(weights[i]);
+                ensemble[i].trainOnInstance(weightedInst);
+            }
+        });
     }
 
     protected double getEnsembleMemberWeight(int i) {
@@ -108,21 +131,27 @@ public class OnlineSmoothBoost extends AbstractClassifier implements MultiClassC
     }
 
     public double[] getVotesForInstance(Instance inst) {
-               
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            double memberWeight = getEnsembleMemberWeight(i);
-            if (memberWeight > 0.0) {
-                DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-                if (vote.sumOfValues() > 0.0) {
-                    vote.normalize();
-                    vote.scaleValues(memberWeight);
-                    combinedVote.addValues(vote);
-                }
+        // Only the models before the first one without weight vote
+        double[] memberWeights = new double[this.ensemble.length];
+        int numVoters = 0;
+        while (numVoters < this.ensemble.length) {
+            memberWeights[numVoters] = getEnsembleMemberWeight(numVoters);
+            if (memberWeights[numVoters] > 0.0) {
+                numVoters++;
             } else {
                 break;
             }
         }
+        double[][] votes = this.executor.getVotes(this.ensemble, numVoters, inst);
+        DoubleVector combinedVote = new DoubleVector();
+        for (int i = 0; i < numVoters; i++) {
+            DoubleVector vote = new DoubleVector(votes[i]);
+            if (vote.sumOfValues() > 0.0) {
+                vote.normalize();
+                vote.scaleValues(memberWeights[i]);
+                combinedVote.addValues(vote);
+            }
+        }
         return combinedVote.getArrayRef();
     }
 
@@ -28,7 +28,8 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
 
-import moa.core.DoubleVector;
+import java.util.function.IntConsumer;
+
 import moa.core.Measurement;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
@@ -78,7 +79,9 @@ import com.github.javacliparser.IntOption;
  * <code>OzaBagAdwin -l HoeffdingTreeNBAdaptive -s 10</code>
  * <p>Parameters:</p> <ul>
  * <li>-l : Classiﬁer to train</li>
- * <li>-s : The number of models in the bag</li> </ul>
+ * <li>-s : The number of models in the bag</li>
+ * <li>-j : Number of threads used to train the models and to compute their
+ * votes</li> </ul>
  *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
@@ -99,8 +102,13 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected EnsembleExecutor executor;
+
     protected ADWIN[] ADError;
 
     @Override
@@ -115,25 +123,36 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ADError[i] = new ADWIN();
         }
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
-    public void trainOnInstanceImpl(Instance inst) {
-        boolean Change = false;
+    public void trainOnInstanceImpl(final Instance inst) {
+        final int[] k = new int[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            int k = MiscUtils.poisson(1.0, this.classifierRandom);
-            if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
-            }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
+            k[i] = MiscUtils.poisson(1.0, this.classifierRandom);
+        }
+        final boolean[] changes = new boolean[this.ensemble.length];
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                if (k[i] > 0) {
+                    Instance weightedInst = (Instance) inst.copy();
+                    weightedInst.setWeight(inst.weight() * k[i]);
+                    ensemble[i].trainOnInstance(weightedInst);
+                }
+                boolean correctlyClassifies = ensemble[i].correctlyClassifies(inst);
+                double ErrEstim = ADError[i].getEstimation();
+                if (ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+                    if (ADError[i].getEstimation() > ErrEstim) {
+                        changes[i] = true;
+                    }
                 }
             }
+        });
+        boolean Change = false;
+        for (int i = 0; i < changes.length; i++) {
+            Change |= changes[i];
         }
         if (Change) {
             double max = 0.0;
@@ -154,15 +173,7 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                combinedVote.addValues(vote);
-            }
-        }
-        return combinedVote.getArrayRef();
+        return this.executor.getCombinedVote(this.ensemble, inst);
     }
 
     @Override
@@ -47,8 +47,13 @@ import com.github.javacliparser.IntOption;
  *
  * <p>Parameters:</p> <ul> <li>-l : Classiﬁer to train</li> <li>-s : The number
  * of models to boost</li> <li>-p : Boost with weights only; no poisson</li>
+ * <li>-j : Number of threads used to compute the votes of the models</li>
  * </ul>
  *
+ * <p>The weight of an instance for a model depends on the models before it,
+ * so the models are trained in sequence and only the votes are computed in
+ * parallel.</p>
+ *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
@@ -70,8 +75,13 @@ public class OzaBoost extends AbstractClassifier implements MultiClassClassifier
     public FlagOption pureBoostOption = new FlagOption("pureBoost", 'p',
             "Boost with weights only; no poisson.");
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected EnsembleExecutor executor;
+
     protected double[] scms;
 
     protected double[] swms;
@@ -86,6 +96,7 @@ public class OzaBoost extends AbstractClassifier implements MultiClassClassifier
         }
         this.scms = new double[this.ensemble.length];
         this.swms = new double[this.ensemble.length];
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
@@ -118,20 +129,27 @@ public class OzaBoost extends AbstractClassifier implements MultiClassClassifier
     }
 
     public double[] getVotesForInstance(Instance inst) {
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            double memberWeight = getEnsembleMemberWeight(i);
-            if (memberWeight > 0.0) {
-                DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-                if (vote.sumOfValues() > 0.0) {
-                    vote.normalize();
-                    vote.scaleValues(memberWeight);
-                    combinedVote.addValues(vote);
-                }
+        // Only the models before the first one without weight vote
+        double[] memberWeights = new double[this.ensemble.length];
+        int numVoters = 0;
+        while (numVoters < this.ensemble.length) {
+            memberWeights[numVoters] = getEnsembleMemberWeight(numVoters);
+            if (memberWeights[numVoters] > 0.0) {
+                numVoters++;
             } else {
                 break;
             }
         }
+        double[][] votes = this.executor.getVotes(this.ensemble, numVoters, inst);
+        DoubleVector combinedVote = new DoubleVector();
+        for (int i = 0; i < numVoters; i++) {
+            DoubleVector vote = new DoubleVector(votes[i]);
+            if (vote.sumOfValues() > 0.0) {
+                vote.normalize();
+                vote.scaleValues(memberWeights[i]);
+                combinedVote.addValues(vote);
+            }
+        }
         return combinedVote.getArrayRef();
     }
 
@@ -23,9 +23,10 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -39,6 +40,7 @@ import moa.options.ClassOption;
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.function.IntConsumer;
 
 /**
  * Streaming Random Patches
@@ -65,8 +67,14 @@ import java.util.Random;
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled, then the bkg learner is also disabled.</li>
  * <li>-q : Should use bkg learner? If disabled, then trees are reset immediately.</li>
+ * <li>-j : Number of threads used to train the learners and to compute their votes.</li>
  * </ul>
  *
+ * <p>Each learner draws the subspaces of its resets and bkg learners from its own random
+ * generator, seeded in learner order when the ensemble is created. With more than one
+ * thread, the weights of an instance are drawn for all the learners before they are
+ * trained. The results are then the same for any number of threads.</p>
+ *
  * @author Heitor Murilo Gomes (heitor dot gomes at waikato dot ac dot nz)
  * @version $Revision: 1 $
  */
@@ -118,6 +126,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q',
             "Should use bkg learner? If disabled, then trees are reset immediately.");
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     public static final int TRAIN_RANDOM_SUBSPACES = 0;
     public static final int TRAIN_RESAMPLING = 1;
     public static final int TRAIN_RANDOM_PATCHES = 2;
@@ -130,10 +141,12 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     protected StreamingRandomPatchesClassifier[] ensemble;
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
+    protected EnsembleExecutor executor;
 
     @Override
     public void resetLearningImpl() {
         this.instancesSeen = 0;
+        this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
     }
 
     @Override
@@ -142,6 +155,10 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         if(this.ensemble == null)
             initEnsemble(instance);
 
+        if(this.executor.isParallel()) {
+            trainOnInstanceInParallel(instance);
+            return;
+        }
         for (int i = 0 ; i < this.ensemble.length ; i++) {
             double[] rawVote = this.ensemble[i].getVotesForInstance(instance);
             DoubleVector vote = new DoubleVector(rawVote);
@@ -150,30 +167,67 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
             // Train using random subspaces without resampling, i.e. all instances are used for training.
             if(this.trainingMethodOption.getChosenIndex() == TRAIN_RANDOM_SUBSPACES) {
-                this.ensemble[i].trainOnInstance(instance,1, this.instancesSeen, this.classifierRandom);
+                this.ensemble[i].trainOnInstance(instance,1, this.instancesSeen);
             }
             // Train using random patches or resampling, thus we simulate online bagging with poisson(lambda=...)
             else {
                 int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
                 if (k > 0) {
                     double weight = k;
-                    this.ensemble[i].trainOnInstance(instance, weight, this.instancesSeen, this.classifierRandom);
+                    this.ensemble[i].trainOnInstance(instance, weight, this.instancesSeen);
                 }
             }
         }
     }
 
+    /**
+     * Draws the weights of the instance for all the learners and trains them on the threads
+     * of the executor. The learners only use their own random numbers while training.
+     */
+    protected void trainOnInstanceInParallel(final Instance instance) {
+        final double[] weights = new double[this.ensemble.length];
+        for (int i = 0 ; i < this.ensemble.length ; i++) {
+            if(this.trainingMethodOption.getChosenIndex() == TRAIN_RANDOM_SUBSPACES) {
+                weights[i] = 1;
+            }
+            else {
+                weights[i] = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+            }
+        }
+        final long instancesSeen = this.instancesSeen;
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                double[] rawVote = ensemble[i].getVotesForInstance(instance);
+                DoubleVector vote = new DoubleVector(rawVote);
+                InstanceExample example = new InstanceExample(instance);
+
+                ensemble[i].evaluator.addResult(example, vote.getArrayRef());
+                if (weights[i] > 0) {
+                    ensemble[i].trainOnInstance(instance, weights[i], instancesSeen);
+                }
+            }
+        });
+    }
+
     @Override
     public double[] getVotesForInstance(Instance instance) {
-        Instance testInstance = instance.copy();
+        final Instance testInstance = instance.copy();
         testInstance.setMissing(instance.classAttribute());
         testInstance.setClassValue(0.0);
         if(this.ensemble == null)
             initEnsemble(testInstance);
         DoubleVector combinedVote = new DoubleVector();
 
+        final double[][] votes = new double[this.ensemble.length][];
+        this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                votes[i] = ensemble[i].getVotesForInstance(testInstance);
+            }
+        });
         for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
+            DoubleVector vote = new DoubleVector(votes[i]);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
@@ -305,7 +359,8 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                     break;
             }
         }
-
+        for(int i = 0 ; i < ensembleSize ; ++i)
+            this.ensemble[i].random = new Random(this.classifierRandom.nextLong());
     }
 
     @Override
@@ -369,8 +424,8 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public long createdOn;
         public Classifier classifier;
 
-        // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        // Header of the current model subspace, used by the projections of the original instances.
+        public InstancesHeader subset;
         public int[] featureIndexes;
 
         // Drift detection
@@ -395,6 +450,13 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public int numberOfDriftsInduced;
         public int numberOfWarningsInduced;
 
+        // Detections of the last call to learn, not handled yet
+        protected boolean warningDetected;
+        protected boolean driftDetected;
+
+        // Random numbers of the resets and bkg learners, drawn in the same order for any number of threads
+        protected Random random;
+
         private void init(int indexOriginal, Classifier instantiatedClassifier,
                           BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                           long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
@@ -409,13 +471,13 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
 
             if(!this.disableDriftDetector) {
                 this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(driftOption);
             }
 
             // Init Drift Detector for Warning detection.
             if(!this.disableBkgLearner) {
                 this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(warningOption)).copy();
+                this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(warningOption);
             }
 
             this.numberOfDriftsDetected = this.numberOfDriftsInduced = 0;
@@ -457,26 +519,21 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 attSub.add(instance.attribute(featuresIndexes.get(i)));
                 this.featureIndexes[i] = featuresIndexes.get(i);
             }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes()-1);
-            prepareRandomSubspaceInstance(instance,1);
+            this.subset = createSubsetHeader(attSub);
+        }
+
+        private InstancesHeader createSubsetHeader(ArrayList<Attribute> attSub) {
+            Instances subset = new Instances("Subsets Candidate Instances", attSub, 0);
+            subset.setClassIndex(subset.numAttributes()-1);
+            return new InstancesHeader(subset);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while(this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for(int j = 0 ; j < this.subset.numAttributes() ; ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length-1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        /**
+         * Returns a view of the instance in the current model subspace. The class is the
+         * last index of featureIndexes, so it is also the last attribute of the view.
+         */
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return new ProjectedInstance(instance, this.featureIndexes, this.subset, weight);
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -512,10 +569,12 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 this.classifier.resetLearning();
                 this.evaluator.reset();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
 
                 if(this.subset != null) {
                     ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
+                    // A new array, as the array of the old subspace may be shared
+                    this.featureIndexes = new int[fIndexes.size()];
                     for(int i = 0 ; i < fIndexes.size() ; ++i)
                         this.featureIndexes[i] = fIndexes.get(i);
                     ArrayList<Attribute> attSub = new ArrayList<Attribute>();
@@ -523,25 +582,31 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                     for(int i = 0 ; i < this.featureIndexes.length ; ++i)
                         attSub.add(instance.attribute(this.featureIndexes[i]));
 
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes()-1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    this.subset = createSubsetHeader(attSub);
                 }
             }
         }
 
-        public void trainOnInstance(Instance instance, double weight, long instancesSeen, Random random) {
+        public void trainOnInstance(Instance instance, double weight, long instancesSeen) {
+            learn(instance, weight, instancesSeen);
+            handleDetections(instance, instancesSeen);
+        }
+
+        /**
+         * Trains the learner and its bkg learner and updates the change detectors. Warnings and
+         * drifts are only recorded, they are handled by handleDetections.
+         */
+        public void learn(Instance instance, double weight, long instancesSeen) {
             boolean correctlyClassifies;
             // The subset object will be null if we are training with all features
             if(this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
+                Instance subInstance = prepareRandomSubspaceInstance(instance, weight);
 
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if(this.bkgLearner != null)
-                    this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
+                    this.bkgLearner.learn(instance, weight, instancesSeen);
             }
             else {
                 Instance weightedInstance = instance.copy();
@@ -549,7 +614,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 this.classifier.trainOnInstance(weightedInstance);
                 correctlyClassifies = this.classifier.correctlyClassifies(instance);
                 if(this.bkgLearner != null)
-                    this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
+                    this.bkgLearner.learn(instance, weight, instancesSeen);
             }
 
             if(!this.disableDriftDetector && !this.isBackgroundLearner) {
@@ -561,7 +626,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                     // Check if there was a change
                     if (this.warningDetectionMethod.getChange()) {
                         this.numberOfWarningsDetected++;
-                        triggerWarning(instance, instancesSeen, random);
+                        this.warningDetected = true;
                     }
                 }
 
@@ -571,12 +636,27 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 // Check if there was a change
                 if (this.driftDetectionMethod.getChange()) {
                     this.numberOfDriftsDetected++;
-                    // There was a change, this model must be reset
-                    this.reset(instance, instancesSeen, random);
+                    this.driftDetected = true;
                 }
             }
         }
 
+        /**
+         * Starts a bkg learner if learn detected a warning and resets the learner if it detected
+         * a drift. Changing the subspace uses the random numbers of the learner.
+         */
+        public void handleDetections(Instance instance, long instancesSeen) {
+            if (this.warningDetected) {
+                this.warningDetected = false;
+                triggerWarning(instance, instancesSeen, this.random);
+            }
+            if (this.driftDetected) {
+                this.driftDetected = false;
+                // There was a change, this model must be reset
+                this.reset(instance, instancesSeen, this.random);
+            }
+        }
+
         public void triggerWarning(Instance instance, long instancesSeen, Random random) {
             Classifier bkgClassifier = this.classifier.copy();
             bkgClassifier.resetLearning();
@@ -594,7 +674,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                         this.disableBkgLearner, this.disableDriftDetector, this.driftOption, this.warningOption,
                         fIndexes, instance,true);
             }
-            this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+            this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
         }
 
         /**
@@ -603,9 +683,8 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
          */
         public double[] getVotesForInstance(Instance instance) {
             if(this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // The instance transformed to the correct subspace (i.e. current model subspace).
+                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(prepareRandomSubspaceInstance(instance, 1)));
 
                 return vote.getArrayRef();
             }
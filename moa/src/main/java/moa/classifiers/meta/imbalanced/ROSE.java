@@ -407,10 +407,10 @@ public class ROSE extends AbstractClassifier implements MultiClassClassifier, Ca
 			this.isBackgroundLearner = isBackgroundLearner;
 
 			this.driftOption = driftOption;
-			this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+			this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
 
 			this.warningOption = warningOption;
-			this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+			this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
 		}
 
 		public void reset() {
@@ -427,7 +427,7 @@ public class ROSE extends AbstractClassifier implements MultiClassClassifier, Ca
 			else {
 				this.classifier.resetLearning();
 				this.createdOn = instancesSeen;
-				this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+				this.driftDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.driftOption);
 			}
 
 			this.lastWarningOn = 0;
@@ -469,7 +469,7 @@ public class ROSE extends AbstractClassifier implements MultiClassClassifier, Ca
 
 					// Update the warning detection object for the current object 
 					// (this effectively resets changes made to the object while it was still a bkg learner). 
-					this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+					this.warningDetectionMethod = (ChangeDetector) getPreparedClassOptionCopy(this.warningOption);
 				} else {
 					this.warningDetected = false;
 				}
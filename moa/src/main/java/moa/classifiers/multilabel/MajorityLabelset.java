@@ -62,24 +62,52 @@ public class MajorityLabelset extends AbstractMultiLabelLearner implements Multi
 
     @Override
     public void trainOnInstanceImpl(MultiLabelInstance x) {
-		int L = x.numberOutputTargets();
-
-        MultiLabelPrediction y = new MultiLabelPrediction(L);
-		for(int j=0; j<L;j++)
-    		y.setVotes(j,new double[]{1- x.classValue(j), x.classValue(j)});
+		//the labelset is identified by its relevant labels, so that the cost
+		//depends on the number of relevant labels and not on the number of labels
+		int[] relevant = x.nonZeroOutputIndices();
+		String key = labelsetKey(x, relevant);
 
         double freq = x.weight();
-		if (this.vectorCounts.containsKey(y.toString())) {
-            freq += this.vectorCounts.get(y.toString());
+		Double count = this.vectorCounts.get(key);
+		if (count != null) {
+            freq += count;
         }
-        this.vectorCounts.put(y.toString(), (Double)freq);
+        this.vectorCounts.put(key, (Double)freq);
         if (freq > this.maxValue) {
             this.maxValue = freq;
-            this.majorityLabelset = y;
+            this.majorityLabelset = toPrediction(x, relevant);
         }
         //System.out.println("---"+this.majorityLabelset);
     }
 
+    /**
+     * Gets the key of a labelset: the relevant labels, with their values if
+     * they are not 1.
+     */
+    protected static String labelsetKey(MultiLabelInstance x, int[] relevant) {
+		StringBuilder key = new StringBuilder();
+		for (int j : relevant) {
+			key.append(j);
+			double value = x.classValue(j);
+			if (value != 1.0) {
+				key.append(':').append(value);
+			}
+			key.append(',');
+		}
+		return key.toString();
+    }
+
+    protected static MultiLabelPrediction toPrediction(MultiLabelInstance x, int[] relevant) {
+		int L = x.numberOutputTargets();
+        MultiLabelPrediction y = new MultiLabelPrediction(L);
+		int r = 0;
+		for(int j=0; j<L;j++) {
+			double value = r < relevant.length && relevant[r] == j ? x.classValue(relevant[r++]) : 0.0;
+    		y.setVotes(j,new double[]{1- value, value});
+		}
+		return y;
+    }
+
     @Override
     public Prediction getPredictionForInstance(MultiLabelInstance x){
 
@@ -179,6 +179,9 @@ public class MultilabelHoeffdingTree extends HoeffdingTreeClassifLeaves implemen
 		}
 		this.activeLeafNodeCount--;
 		this.inactiveLeafNodeCount++;
+		if (this.telemetry != null) {
+			this.telemetry.recordDeactivation();
+		}
 	}
 
 
@@ -32,6 +32,7 @@ import moa.core.MiscUtils;
 import moa.core.Example;
 
 import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 /**
  * OzaBag for Multi-label data.
@@ -41,6 +42,33 @@ import java.util.Arrays;
  */
 public class OzaBagML extends OzaBag implements MultiLabelLearner, MultiTargetRegressor{
 
+	@Override
+	public void resetLearningImpl() {
+		super.resetLearningImpl();
+		// Randomized members (e.g. ISOUPTreeRF) get their own seed, drawn in member order
+		if (this.ensemble[0].isRandomizable()) {
+			for (int i = 0; i < this.ensemble.length; i++) {
+				this.ensemble[i].setRandomSeed(this.classifierRandom.nextInt());
+				this.ensemble[i].resetLearning();
+			}
+		}
+		if (getModelContext() != null) {
+			for (int i = 0; i < this.ensemble.length; i++) {
+				this.ensemble[i].setModelContext(getModelContext());
+			}
+		}
+	}
+
+	@Override
+	public void setModelContext(InstancesHeader ih) {
+		super.setModelContext(ih);
+		if (this.ensemble != null) {
+			for (int i = 0; i < this.ensemble.length; i++) {
+				this.ensemble[i].setModelContext(ih);
+			}
+		}
+	}
+
 	//Training
 	@Override
 	public void trainOnInstanceImpl(MultiLabelInstance inst) {
@@ -49,8 +77,15 @@ public class OzaBagML extends OzaBag implements MultiLabelLearner, MultiTargetRe
 
 	// Predictions
 	@Override
-	public Prediction getPredictionForInstance(Example<Instance> example) {
-		return compilePredictions(this.ensemble, example);
+	public Prediction getPredictionForInstance(final Example<Instance> example) {
+		final Prediction[] predictions = new Prediction[this.ensemble.length];
+		this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				predictions[i] = ensemble[i].getPredictionForInstance(example);
+			}
+		});
+		return combinePredictions(predictions, example.getData());
 	}
 
 	public static Prediction compilePredictions(Classifier h[], Example example) {
@@ -31,7 +31,9 @@ import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
@@ -146,6 +148,9 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 	public FileOption weightFile = new FileOption("targetWeightFile", 'w', "File with the weights of the targets.",
 			null, null, false);
 
+	public FlagOption singlePrecisionOption = new FlagOption("singlePrecision", 'q',
+			"Keep the statistics of the split points of the numeric attributes as floats.");
+
 	// endregion ================ OPTIONS ================
 
 	// region ================ CLASSES ================
@@ -596,13 +601,29 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 
 		@Override
 		public long calcByteSize() {
-			long size = super.calcByteSize();
-			size += SizeOf.sizeOf(PHsums) + SizeOf.sizeOf(PHmins) + SizeOf.sizeOf(sumOfAbsErrors);
-			for (Node child : children)
-				size += child.calcByteSize();
+			long size = 0;
+			Deque<Node> stack = new ArrayDeque<Node>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				if (node instanceof InnerNode) {
+					size += ((InnerNode) node).calcByteSizeExcludingChildren();
+					for (Node child : ((InnerNode) node).children)
+						stack.push(child);
+				} else {
+					size += node.calcByteSize();
+				}
+			}
 			return size;
 		}
 
+		/**
+		 * The byte size of this node alone, without its subtree
+		 */
+		protected long calcByteSizeExcludingChildren() {
+			return super.calcByteSize() + SizeOf.sizeOf(PHsums) + SizeOf.sizeOf(PHmins) + SizeOf.sizeOf(sumOfAbsErrors);
+		}
+
 		public int numChildren() {
 			return children.size();
 		}
@@ -623,23 +644,42 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 
 		@Override
 		public void disableChangeDetection() {
-			changeDetection = false;
-			for (Node child : children) {
-				child.disableChangeDetection();
+			Deque<Node> stack = new ArrayDeque<Node>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				if (node instanceof InnerNode) {
+					node.changeDetection = false;
+					for (Node child : ((InnerNode) node).children) {
+						stack.push(child);
+					}
+				} else {
+					node.disableChangeDetection();
+				}
 			}
 		}
 
 		@Override
 		public void restartChangeDetection() {
-			if (this.alternateTree == null) {
-				changeDetection = true;
-				PHsums = new DoubleVector();
-				PHmins = new DoubleVector();
-				for (int i = 0; i < tree.numOutputAttributes; i++) {
-					PHmins.setValue(i, Double.MAX_VALUE);
+			Deque<Node> stack = new ArrayDeque<Node>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				if (node instanceof InnerNode) {
+					InnerNode inner = (InnerNode) node;
+					if (inner.alternateTree == null) {
+						inner.changeDetection = true;
+						inner.PHsums = new DoubleVector();
+						inner.PHmins = new DoubleVector();
+						for (int i = 0; i < tree.numOutputAttributes; i++) {
+							inner.PHmins.setValue(i, Double.MAX_VALUE);
+						}
+						for (Node child : inner.children)
+							stack.push(child);
+					}
+				} else {
+					node.restartChangeDetection();
 				}
-				for (Node child : children)
-					child.restartChangeDetection();
 			}
 		}
 
@@ -703,8 +743,8 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 		}
 
 		@Override
-		public long calcByteSize() {
-			return super.calcByteSize() + SizeOf.sizeOf(predicate);
+		protected long calcByteSizeExcludingChildren() {
+			return super.calcByteSizeExcludingChildren() + SizeOf.sizeOf(predicate);
 		}
 
 		public int instanceChildIndex(Instance inst) {
@@ -713,25 +753,49 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 
 		@Override
 		public void describeSubtree(StringBuilder out, int indent) {
-			for (int branch = 0; branch < children.size(); branch++) {
-				Node child = getChild(branch);
-				if (child != null) {
-					if (branch == 0) {
-						StringUtils.appendIndented(out, indent, "if ");
-						this.predicate.getDescription(out, 0, tree.getModelContext().getInstanceInformation());
-					} else {
-						StringUtils.appendIndented(out, indent, "else");
-					}
-					out.append(": ");
-					StringUtils.appendNewline(out);
-					child.describeSubtree(out, indent + 2);
+			// The split nodes being described, with the next branch to describe
+			Deque<SplitNode> path = new ArrayDeque<SplitNode>();
+			Deque<Integer> nextBranches = new ArrayDeque<Integer>();
+			path.push(this);
+			nextBranches.push(0);
+			while (!path.isEmpty()) {
+				SplitNode splitNode = path.peek();
+				int branch = nextBranches.pop();
+				while (branch < splitNode.children.size() && splitNode.getChild(branch) == null) {
+					branch++;
+				}
+				if (branch >= splitNode.children.size()) {
+					path.pop();
+					continue;
+				}
+				nextBranches.push(branch + 1);
+				int branchIndent = indent + 2 * (path.size() - 1);
+				Node child = splitNode.getChild(branch);
+				if (branch == 0) {
+					StringUtils.appendIndented(out, branchIndent, "if ");
+					splitNode.predicate.getDescription(out, 0, tree.getModelContext().getInstanceInformation());
+				} else {
+					StringUtils.appendIndented(out, branchIndent, "else");
+				}
+				out.append(": ");
+				StringUtils.appendNewline(out);
+				if (child instanceof SplitNode) {
+					path.push((SplitNode) child);
+					nextBranches.push(0);
+				} else {
+					child.describeSubtree(out, branchIndent + 2);
 				}
 			}
 		}
 
 		@Override
 		public double[] getPrediction(Instance inst) {
-			return children.get(predicate.evaluate(inst) ? 0 : 1).getPrediction(inst);
+			Node node = this;
+			while (node instanceof SplitNode) {
+				SplitNode splitNode = (SplitNode) node;
+				node = splitNode.children.get(splitNode.predicate.evaluate(inst) ? 0 : 1);
+			}
+			return node.getPrediction(inst);
 		}
 	}
 
@@ -1262,9 +1326,13 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 			// ClassOption.cliStringToObject("MultiLabelBSTree2 -z 2000",
 			// MultiLabelBSTree2.class, null);
 			if (runAsPCTOption.isSet()) {
-				return new MultiLabelBSTreePCT();
+				MultiLabelBSTreePCT o = new MultiLabelBSTreePCT();
+				o.singlePrecisionOption.setValue(singlePrecisionOption.isSet());
+				return o;
 			} else {
-				return new MultiLabelBSTree();
+				MultiLabelBSTree o = new MultiLabelBSTree();
+				o.singlePrecisionOption.setValue(singlePrecisionOption.isSet());
+				return o;
 			}
 
 		} catch (Exception e) {
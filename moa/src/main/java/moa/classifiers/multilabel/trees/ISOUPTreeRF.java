@@ -4,9 +4,19 @@ import java.util.List;
 import java.util.Vector;
 
 import com.github.javacliparser.MultiChoiceOption;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 import moa.core.DoubleVector;
 
+/**
+ * iSOUP-Tree that learns each leaf on a random subspace of the input
+ * attributes, to be used as the member of an ensemble such as OzaBagML.
+ *
+ * The subspaces are drawn from the random generator of the tree when the
+ * leaves are created, so they only depend on the seed of the tree and on the
+ * instances it is trained on. Ensembles give each member its own seed, and
+ * the members can be trained on different threads without changing them.
+ */
 public class ISOUPTreeRF extends ISOUPTree {
 
 	/**
@@ -22,18 +32,36 @@ public class ISOUPTreeRF extends ISOUPTree {
 
 	public int numRFAttrs() {
 		if (subspaceSize == null) {
+			int numAttrs = this.getModelContext().numInputAttributes();
+			int size;
 			switch (subspaceSizeOption.getChosenLabel()) {
 			case "sqrt":
-				this.subspaceSize = 1 + (int) Math.ceil(Math.sqrt(this.getModelContext().numInputAttributes()));
+				size = 1 + (int) Math.ceil(Math.sqrt(numAttrs));
+				break;
 			case "log":
-				this.subspaceSize = 1 + (int) Math.ceil(Math.log(this.getModelContext().numInputAttributes()));
-			case "percent":
-				this.subspaceSize = (int) Math.ceil(0.1 * this.getModelContext().numInputAttributes());
+				size = 1 + (int) Math.ceil(Math.log(numAttrs));
+				break;
+			default:
+				size = (int) Math.ceil(0.1 * numAttrs);
+				break;
 			}
+			this.subspaceSize = Math.max(1, Math.min(size, numAttrs));
 		}
 		return this.subspaceSize;
 	}
 
+	@Override
+	public void resetLearningImpl() {
+		this.subspaceSize = null;
+		super.resetLearningImpl();
+	}
+
+	@Override
+	public void setModelContext(InstancesHeader ih) {
+		this.subspaceSize = null;
+		super.setModelContext(ih);
+	}
+
 	@Override
 	public List<Integer> newInputIndexes() {
 		List<Integer> indexes = new Vector<>();
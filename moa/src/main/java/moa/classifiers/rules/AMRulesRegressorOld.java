@@ -161,6 +161,7 @@ public class AMRulesRegressorOld extends AbstractAMRules implements Regressor{
 	 */
 	@Override
 	public void resetLearningImpl() {
+		super.resetLearningImpl();
 		this.statistics= new double[]{0.0,0,0};	
 		this.ruleNumberID=0;
 		this.defaultRule = newRule(++this.ruleNumberID);
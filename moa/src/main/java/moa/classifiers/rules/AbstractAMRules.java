@@ -31,13 +31,18 @@ package moa.classifiers.rules;
  * 
  **/
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 import moa.classifiers.AbstractClassifier;
+import moa.classifiers.meta.EnsembleExecutor;
+import moa.classifiers.rules.core.Predicate;
 import moa.classifiers.rules.core.Rule;
 import moa.classifiers.rules.core.Rule.Builder;
 import moa.classifiers.rules.core.RuleActiveLearningNode;
+import moa.classifiers.rules.core.RuleCoverageIndex;
 import moa.classifiers.rules.core.RuleSet;
 import moa.classifiers.rules.core.attributeclassobservers.FIMTDDNumericAttributeClassLimitObserver;
 import moa.classifiers.rules.core.voting.ErrorWeightedVote;
@@ -113,6 +118,17 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 			'z', "Numeric observer.", 
 			FIMTDDNumericAttributeClassLimitObserver.class,
 			"FIMTDDNumericAttributeClassLimitObserver");
+
+	public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+			"Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+	protected EnsembleExecutor executor = new EnsembleExecutor(1);
+
+	//index of the predicates of the rule set, built again when a rule is added, removed or expanded
+	protected transient RuleCoverageIndex coverageIndex;
+
+	//rules of the rule set when the index was built
+	protected transient Rule[] indexedRules;
 	
 
 	protected double attributesPercentage;
@@ -197,12 +213,13 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 		numInstances+=instance.weight();
 		debug("Train",3);
 		debug("Nº instance "+numInstances + " - " + instance.toString(),3);
-		boolean rulesCoveringInstance = false;
-		Iterator<Rule> ruleIterator= this.ruleSet.iterator();
-		while (ruleIterator.hasNext()) { 
-			Rule rule = ruleIterator.next();
-			if (rule.isCovering(instance) == true) {
-				rulesCoveringInstance = true;
+		int[] covering = getCoveringRules(instance);
+		boolean rulesCoveringInstance = covering.length > 0;
+		if (this.unorderedRulesOption.isSet() && covering.length > 1 && this.executor.isParallel()) {
+			trainCoveringRulesInParallel(instance, covering);
+		} else {
+			for (int position : covering) { 
+				Rule rule = this.indexedRules[position];
 				if (isAnomaly(instance, rule) == false) {
 					//Update Change Detection Tests
 					double error = rule.computeError(instance); //Use adaptive mode error
@@ -210,7 +227,8 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 					if (changeDetected == true) {
 						debug("I) Drift Detected. Exa. : " +  this.numInstances + " (" + rule.getInstancesSeen() +") Remove Rule: " +rule.getRuleNumberID(),1);
 
-						ruleIterator.remove();
+						this.ruleSet.remove(rule);
+						this.coverageIndex = null;
 						this.numChangesDetected+=instance.weight();  //Just for statistics 
 					} else {
 						rule.updateStatistics(instance);
@@ -218,6 +236,7 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 							if (rule.tryToExpand(this.splitConfidenceOption.getValue(), this.tieThresholdOption.getValue()) ) 
 							{
 								rule.split();
+								this.coverageIndex = null;
 								debug("Rule Expanded:",2);
 								debug(rule.printRule(),2);
 							}	
@@ -231,7 +250,7 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 				if (!this.unorderedRulesOption.isSet()) 
 					break;
 			}
-		}	
+		}
 
 		if (rulesCoveringInstance == false){ 
 			defaultRule.updateStatistics(instance);
@@ -243,6 +262,7 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 					defaultRule.split();
 					defaultRule.setRuleNumberID(++ruleNumberID);
 					this.ruleSet.add(this.defaultRule);
+					this.coverageIndex = null;
 
 					debug("Default rule expanded! New Rule:",2);
 					debug(defaultRule.printRule(),2);
@@ -257,6 +277,85 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 
 
 
+	/**
+	 * Trains the unordered rules that cover an instance, checking the
+	 * expansions of the rules in parallel. The statistics of the rules are
+	 * updated in order first, since they may draw random numbers. Then the
+	 * rules due for an expansion check run their check at the same time, and
+	 * at last the rules are split or removed in order. The result is the same
+	 * as training the rules one after the other.
+	 *
+	 * @param instance the instance
+	 * @param covering the positions of the rules that cover the instance
+	 */
+	protected void trainCoveringRulesInParallel(Instance instance, int[] covering) {
+		final int n = covering.length;
+		final Rule[] rules = new Rule[n];
+		final boolean[] anomaly = new boolean[n];
+		final boolean[] changeDetected = new boolean[n];
+		final boolean[] expansionDue = new boolean[n];
+		final boolean[] expanded = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			Rule rule = this.indexedRules[covering[i]];
+			rules[i] = rule;
+			anomaly[i] = isAnomaly(instance, rule);
+			if (!anomaly[i]) {
+				double error = rule.computeError(instance);
+				changeDetected[i] = rule.getLearningNode().updateChangeDetection(error);
+				if (!changeDetected[i]) {
+					rule.updateStatistics(instance);
+					expansionDue[i] = rule.getInstancesSeen() % this.gracePeriodOption.getValue() == 0.0;
+				}
+			}
+		}
+		final double splitConfidence = this.splitConfidenceOption.getValue();
+		final double tieThreshold = this.tieThresholdOption.getValue();
+		this.executor.forEachMember(n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				if (expansionDue[i]) {
+					expanded[i] = rules[i].tryToExpand(splitConfidence, tieThreshold);
+				}
+			}
+		});
+		for (int i = 0; i < n; i++) {
+			Rule rule = rules[i];
+			if (anomaly[i]) {
+				debug("Anomaly Detected: " + this.numInstances + " Rule: " +rule.getRuleNumberID() ,1);
+				this.numAnomaliesDetected+=instance.weight();
+			} else if (changeDetected[i]) {
+				debug("I) Drift Detected. Exa. : " +  this.numInstances + " (" + rule.getInstancesSeen() +") Remove Rule: " +rule.getRuleNumberID(),1);
+				this.ruleSet.remove(rule);
+				this.coverageIndex = null;
+				this.numChangesDetected+=instance.weight();
+			} else if (expanded[i]) {
+				rule.split();
+				this.coverageIndex = null;
+				debug("Rule Expanded:",2);
+				debug(rule.printRule(),2);
+			}
+		}
+	}
+
+	/**
+	 * Gets the rules that cover an instance, building the index of the
+	 * rule set if it changed.
+	 *
+	 * @param instance the instance
+	 * @return the positions of the covering rules in the rule set
+	 */
+	protected int[] getCoveringRules(Instance instance) {
+		if (this.coverageIndex == null) {
+			this.indexedRules = this.ruleSet.toArray(new Rule[this.ruleSet.size()]);
+			List<Predicate[]> predicates = new ArrayList<Predicate[]>(this.indexedRules.length);
+			for (Rule rule : this.indexedRules) {
+				predicates.add(rule.getPredicates());
+			}
+			this.coverageIndex = new RuleCoverageIndex(predicates);
+		}
+		return this.coverageIndex.getCoveringRules(instance);
+	}
+
 	/**
 	 * Method to verify if the instance is an anomaly.
 	 * @param instance
@@ -373,8 +472,8 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 
 	@Override
 	public void resetLearningImpl() {
-		
-
+		this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
+		this.coverageIndex = null;
 	}
 
 	/**
@@ -407,18 +506,18 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 		int numberOfRulesCovering = 0;
 
 		VerboseToConsole(instance); // Verbose to console Dataset name.
-		for (Rule rule : ruleSet) {
-			if (rule.isCovering(instance) == true){
-				numberOfRulesCovering++;
-				//DoubleVector vote = new DoubleVector(rule.getPrediction(instance));
-				double [] vote=rule.getPrediction(instance);
-				double error= rule.getCurrentError();
-				debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + Arrays.toString(vote) + " Error: " + error + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
-				errorWeightedVote.addVote(vote,error);
-				//combinedVote.addValues(vote);
-				if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
-					break; // Only one rule cover the instance.
-				}
+		int[] covering = getCoveringRules(instance);
+		for (int position : covering) {
+			Rule rule = this.indexedRules[position];
+			numberOfRulesCovering++;
+			//DoubleVector vote = new DoubleVector(rule.getPrediction(instance));
+			double [] vote=rule.getPrediction(instance);
+			double error= rule.getCurrentError();
+			debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + Arrays.toString(vote) + " Error: " + error + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
+			errorWeightedVote.addVote(vote,error);
+			//combinedVote.addValues(vote);
+			if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
+				break; // Only one rule cover the instance.
 			}
 		}
 
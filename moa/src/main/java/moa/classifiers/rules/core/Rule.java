@@ -119,6 +119,18 @@ public class Rule extends AbstractMOAObject {
     }*/
 
 
+	/**
+	 * Gets the predicates of the rule, in the order they are evaluated.
+	 */
+	public Predicate[] getPredicates() {
+		Predicate[] predicates = new Predicate[nodeList.size()];
+		int i = 0;
+		for (RuleSplitNode node : nodeList) {
+			predicates[i++] = (Predicate) node.getSplitTest();
+		}
+		return predicates;
+	}
+
 	public boolean isCovering(Instance inst) {
 		boolean isCovering = true;
 		for (RuleSplitNode node : nodeList) {
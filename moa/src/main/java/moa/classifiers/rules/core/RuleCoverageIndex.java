@@ -0,0 +1,230 @@
+/*
+ *    RuleCoverageIndex.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.classifiers.rules.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import moa.classifiers.rules.core.conditionaltests.NumericAttributeBinaryRulePredicate;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Index of the predicates of a rule set, used to find the rules that cover an
+ * instance without evaluating the predicates one by one.
+ *
+ * The numeric predicates of all the rules are grouped by attribute and
+ * comparison, and the thresholds of each group are sorted. For an instance, a
+ * binary search in each group gives the range of thresholds whose predicates
+ * fail, and those rules are marked in a bitset. The other predicates are
+ * evaluated as usual, only for the rules not marked yet. The rules that are
+ * left are the ones that cover the instance, with the same result as
+ * evaluating every predicate.
+ *
+ * The index is a snapshot: it must be built again whenever a rule is added,
+ * removed or expanded. After it is built it is not changed, so it can be
+ * used by several threads.
+ */
+public class RuleCoverageIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The thresholds of the predicates that compare the same attribute in the
+	 * same way.
+	 */
+	protected static class Group implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		//index of the attribute, as in the predicates
+		protected int attIndex;
+
+		//true if the predicates hold for values <= threshold, false for values > threshold
+		protected boolean lessOrEqual;
+
+		//true if the predicates hold for missing values
+		protected boolean holdsWhenMissing;
+
+		//sorted thresholds
+		protected double[] thresholds;
+
+		//rule of each threshold
+		protected int[] rules;
+	}
+
+	protected int numRules;
+
+	protected Group[] groups;
+
+	//predicates that are not in a group, per rule (null if none)
+	protected Predicate[][] otherPredicates;
+
+	/**
+	 * Builds the index of a rule set.
+	 *
+	 * @param rulePredicates the predicates of each rule, in the order of the rules
+	 */
+	public RuleCoverageIndex(List<Predicate[]> rulePredicates) {
+		this.numRules = rulePredicates.size();
+		this.otherPredicates = new Predicate[this.numRules][];
+		Map<Integer, List<double[]>> entries = new TreeMap<Integer, List<double[]>>();
+		for (int r = 0; r < this.numRules; r++) {
+			List<Predicate> others = null;
+			for (Predicate predicate : rulePredicates.get(r)) {
+				Integer key = groupKey(predicate);
+				if (key == null) {
+					if (others == null) {
+						others = new ArrayList<Predicate>();
+					}
+					others.add(predicate);
+				} else {
+					List<double[]> group = entries.get(key);
+					if (group == null) {
+						group = new ArrayList<double[]>();
+						entries.put(key, group);
+					}
+					group.add(new double[]{((NumericAttributeBinaryRulePredicate) predicate).getSplitValue(), r});
+				}
+			}
+			if (others != null) {
+				this.otherPredicates[r] = others.toArray(new Predicate[others.size()]);
+			}
+		}
+		this.groups = new Group[entries.size()];
+		int g = 0;
+		for (Map.Entry<Integer, List<double[]>> entry : entries.entrySet()) {
+			double[][] values = entry.getValue().toArray(new double[0][]);
+			Arrays.sort(values, new Comparator<double[]>() {
+				@Override
+				public int compare(double[] a, double[] b) {
+					return Double.compare(a[0], b[0]);
+				}
+			});
+			Group group = new Group();
+			int key = entry.getKey();
+			group.attIndex = key >> 2;
+			group.lessOrEqual = (key & 2) != 0;
+			group.holdsWhenMissing = (key & 1) != 0;
+			group.thresholds = new double[values.length];
+			group.rules = new int[values.length];
+			for (int i = 0; i < values.length; i++) {
+				group.thresholds[i] = values[i][0];
+				group.rules[i] = (int) values[i][1];
+			}
+			this.groups[g++] = group;
+		}
+	}
+
+	/**
+	 * Gets the group of a predicate, or null if the predicate must be
+	 * evaluated.
+	 */
+	protected static Integer groupKey(Predicate predicate) {
+		if (predicate.getClass() != NumericAttributeBinaryRulePredicate.class) {
+			return null;
+		}
+		NumericAttributeBinaryRulePredicate numeric = (NumericAttributeBinaryRulePredicate) predicate;
+		int operator = numeric.getOperator();
+		if ((operator != 1 && operator != 2) || Double.isNaN(numeric.getSplitValue())) {
+			return null;
+		}
+		//a negated predicate holds when the test fails, which includes missing values
+		boolean negated = !numeric.isEqualOrLess();
+		boolean lessOrEqual = (operator == 1) != negated;
+		return (numeric.getAttributeIndex() << 2) | (lessOrEqual ? 2 : 0) | (negated ? 1 : 0);
+	}
+
+	public int getNumRules() {
+		return this.numRules;
+	}
+
+	/**
+	 * Gets the rules that cover an instance.
+	 *
+	 * @param inst the instance
+	 * @return the positions of the rules that cover the instance, in order
+	 */
+	public int[] getCoveringRules(Instance inst) {
+		long[] failed = new long[(this.numRules + 63) >> 6];
+		int classIndex = inst.classIndex();
+		for (Group group : this.groups) {
+			//same mapping as NumericAttributeBinaryRulePredicate
+			int instAttIndex = group.attIndex < classIndex ? group.attIndex : group.attIndex + 1;
+			int n = group.thresholds.length;
+			double value = inst.isMissing(instAttIndex) ? Double.NaN : inst.value(instAttIndex);
+			int from;
+			int to;
+			if (Double.isNaN(value)) {
+				if (group.holdsWhenMissing) {
+					continue;
+				}
+				from = 0;
+				to = n;
+			} else {
+				//number of thresholds < value
+				int low = 0;
+				int high = n;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (group.thresholds[mid] < value) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				if (group.lessOrEqual) {
+					from = 0;
+					to = low;
+				} else {
+					from = low;
+					to = n;
+				}
+			}
+			int[] rules = group.rules;
+			for (int i = from; i < to; i++) {
+				failed[rules[i] >> 6] |= 1L << rules[i];
+			}
+		}
+		int count = 0;
+		int[] covering = new int[this.numRules];
+		for (int r = 0; r < this.numRules; r++) {
+			if ((failed[r >> 6] & (1L << r)) == 0 && evaluateOthers(r, inst)) {
+				covering[count++] = r;
+			}
+		}
+		return count == covering.length ? covering : Arrays.copyOf(covering, count);
+	}
+
+	protected boolean evaluateOthers(int rule, Instance inst) {
+		Predicate[] others = this.otherPredicates[rule];
+		if (others != null) {
+			for (Predicate predicate : others) {
+				if (!predicate.evaluate(inst)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
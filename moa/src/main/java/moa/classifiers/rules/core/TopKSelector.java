@@ -0,0 +1,180 @@
+/*
+ *    TopKSelector.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.classifiers.rules.core;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the k candidates with the highest scores among the ones offered, such
+ * as the outputs or inputs with the best heuristic.
+ *
+ * The candidates kept are in a binary heap with the worst one at the top, so
+ * offering n candidates takes O(n log k) time and O(k) memory instead of
+ * sorting all of them. Of two candidates with the same score the one offered
+ * first is better, and NaN scores are worse than any other score, so the
+ * result does not depend on the order of the heap.
+ */
+public class TopKSelector {
+
+	protected final int k;
+
+	protected final int[] indices;
+
+	protected final double[] scores;
+
+	//order in which each candidate was offered, to break ties
+	protected final int[] order;
+
+	protected int size;
+
+	protected int numOffered;
+
+	/**
+	 * Creates an empty selector.
+	 *
+	 * @param k the maximum number of candidates to keep, at least 1
+	 */
+	public TopKSelector(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1: " + k);
+		}
+		this.k = k;
+		this.indices = new int[k];
+		this.scores = new double[k];
+		this.order = new int[k];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Offers a candidate.
+	 *
+	 * @param index the index of the candidate
+	 * @param score the score of the candidate, higher is better
+	 * @return true if the candidate is kept, for now
+	 */
+	public boolean offer(int index, double score) {
+		int offered = this.numOffered++;
+		if (this.size < this.k) {
+			int pos = this.size++;
+			set(pos, index, score, offered);
+			siftUp(pos);
+			return true;
+		}
+		//it replaces the worst candidate only if it is better
+		if (!isWorse(this.scores[0], this.order[0], score, offered)) {
+			return false;
+		}
+		set(0, index, score, offered);
+		siftDown(0);
+		return true;
+	}
+
+	/**
+	 * Gets the indices of the candidates kept, from the best to the worst.
+	 * The selector is left empty.
+	 *
+	 * @return the indices of the best candidates
+	 */
+	public int[] removeAll() {
+		int[] result = new int[this.size];
+		for (int i = result.length - 1; i >= 0; i--) {
+			result[i] = this.indices[0];
+			int last = --this.size;
+			set(0, this.indices[last], this.scores[last], this.order[last]);
+			siftDown(0);
+		}
+		this.numOffered = 0;
+		return result;
+	}
+
+	/**
+	 * Gets the indices of the candidates kept, in increasing order. The
+	 * selector is left empty.
+	 *
+	 * @return the indices of the best candidates
+	 */
+	public int[] removeAllInIndexOrder() {
+		int[] result = removeAll();
+		Arrays.sort(result);
+		return result;
+	}
+
+	protected void set(int pos, int index, double score, int offered) {
+		this.indices[pos] = index;
+		this.scores[pos] = score;
+		this.order[pos] = offered;
+	}
+
+	/**
+	 * Gets whether the first candidate is worse than the second one.
+	 */
+	protected static boolean isWorse(double scoreA, int orderA, double scoreB, int orderB) {
+		boolean nanA = Double.isNaN(scoreA);
+		boolean nanB = Double.isNaN(scoreB);
+		if (nanA != nanB) {
+			return nanA;
+		}
+		if (!nanA && scoreA != scoreB) {
+			return scoreA < scoreB;
+		}
+		return orderA > orderB;
+	}
+
+	protected boolean isWorse(int a, int b) {
+		return isWorse(this.scores[a], this.order[a], this.scores[b], this.order[b]);
+	}
+
+	protected void siftUp(int pos) {
+		while (pos > 0) {
+			int parent = (pos - 1) >> 1;
+			if (!isWorse(pos, parent)) {
+				break;
+			}
+			swap(pos, parent);
+			pos = parent;
+		}
+	}
+
+	protected void siftDown(int pos) {
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && isWorse(child + 1, child)) {
+				child++;
+			}
+			if (!isWorse(child, pos)) {
+				break;
+			}
+			swap(pos, child);
+			pos = child;
+		}
+	}
+
+	protected void swap(int a, int b) {
+		int index = this.indices[a];
+		double score = this.scores[a];
+		int offered = this.order[a];
+		set(a, this.indices[b], this.scores[b], this.order[b]);
+		set(b, index, score, offered);
+	}
+}
@@ -109,6 +109,10 @@ public class NumericAttributeBinaryRulePredicate extends InstanceConditionalBina
 		 return this.attValue;
 	 }
 
+	 public int getOperator() {
+		 return this.operator;
+	 }
+
 	 @Override
 	 public boolean evaluate(Instance inst) {
 		 if(state)
@@ -20,6 +20,7 @@
 package moa.classifiers.rules.core.splitcriteria;
 
 import moa.classifiers.core.splitcriteria.SDRSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
 
 
 public class SDRSplitCriterionAMRules extends SDRSplitCriterion implements AMRulesSplitCriterion {
@@ -53,7 +54,12 @@ public class SDRSplitCriterionAMRules extends SDRSplitCriterion implements AMRul
 		return SDR;
 	}
 
-
+	@Override
+	public void getMeritOfBinarySplits(double[] preSplitDist, double[] leftDists,
+			double[] rightDists, int numValues, int numSplits, double[] merits) {
+		SplitCriterion.getMeritOfBinarySplitsOneByOne(this, preSplitDist, leftDists,
+				rightDists, numValues, numSplits, merits);
+	}
 
 	@Override
 	public double getRangeOfMerit(double[] preSplitDist) {
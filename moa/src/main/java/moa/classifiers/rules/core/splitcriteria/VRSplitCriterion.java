@@ -1,5 +1,6 @@
 package moa.classifiers.rules.core.splitcriteria;
 
+import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion;
 
 public class VRSplitCriterion extends VarianceReductionSplitCriterion implements AMRulesSplitCriterion{
@@ -49,4 +50,11 @@ public class VRSplitCriterion extends VarianceReductionSplitCriterion implements
     	return SDR;
     }
 
+    @Override
+    public void getMeritOfBinarySplits(double[] preSplitDist, double[] leftDists,
+            double[] rightDists, int numValues, int numSplits, double[] merits) {
+        SplitCriterion.getMeritOfBinarySplitsOneByOne(this, preSplitDist, leftDists,
+                rightDists, numValues, numSplits, merits);
+    }
+
 }
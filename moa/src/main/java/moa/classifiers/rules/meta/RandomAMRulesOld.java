@@ -129,7 +129,7 @@ public class RandomAMRulesOld extends AbstractClassifier implements Regressor {
 	public double[] getVotesForInstance(Instance inst) {
 		double [] votes=null;
 		//ErrorWeightedVote combinedVote = (ErrorWeightedVote)((ErrorWeightedVote) votingTypeOption.getPreMaterializedObject()).copy();
-		ErrorWeightedVote combinedVote = (ErrorWeightedVote)((ErrorWeightedVote) getPreparedClassOption(this.votingFunctionOption)).copy();
+		ErrorWeightedVote combinedVote = (ErrorWeightedVote) getPreparedClassOptionCopy(this.votingFunctionOption);
 		StringBuilder sb = null;
 		if (VerbosityOption.getValue()>1)
 			sb=new StringBuilder();
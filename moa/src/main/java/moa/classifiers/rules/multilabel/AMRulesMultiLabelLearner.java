@@ -20,11 +20,16 @@
 
 package moa.classifiers.rules.multilabel;
 
-import java.util.ListIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 import moa.classifiers.AbstractMultiLabelLearner;
 import moa.classifiers.MultiLabelLearner;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.meta.EnsembleExecutor;
+import moa.classifiers.rules.core.Predicate;
+import moa.classifiers.rules.core.RuleCoverageIndex;
 import moa.classifiers.rules.core.anomalydetection.AnomalyDetector;
 import moa.classifiers.rules.core.anomalydetection.OddsRatioScore;
 import moa.classifiers.rules.featureranking.FeatureRanking;
@@ -151,6 +156,17 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 			FeatureRanking.class,
 			NoFeatureRanking.class.getName());
 
+	public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+			"Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+	protected EnsembleExecutor executor = new EnsembleExecutor(1);
+
+	//index of the predicates of the rule set, built again when a rule is added, removed or expanded
+	protected transient RuleCoverageIndex coverageIndex;
+
+	//rules of the rule set when the index was built
+	protected transient MultiLabelRule[] indexedRules;
+
 	private int nAttributes=0;
 	
 	protected double attributesPercentage;
@@ -202,20 +218,19 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 		//int numberOfRulesCovering = 0;
 
 		VerboseToConsole(instance); // Verbose to console Dataset name.
-		for (MultiLabelRule rule : ruleSet) {
-			if (rule.isCovering(instance) == true){
-				//numberOfRulesCovering++;
-				Prediction vote=rule.getPredictionForInstance(instance);
-				if (vote!=null){ //should only happen for first instance
-					double [] errors= rule.getCurrentErrors();
-					if(errors==null) //if errors==null, rule has seen no predictions since expansion: return maximum error, since prediction is not reliable
-						errors=defaultRuleErrors(vote);
-					//debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + vote.toString() + " Error: " + errors + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
-					errorWeightedVote.addVote(vote,errors);
-				}
-				if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
-					break; // Only one rule cover the instance.
-				}
+		for (int position : getCoveringRules(instance)) {
+			MultiLabelRule rule = this.indexedRules[position];
+			//numberOfRulesCovering++;
+			Prediction vote=rule.getPredictionForInstance(instance);
+			if (vote!=null){ //should only happen for first instance
+				double [] errors= rule.getCurrentErrors();
+				if(errors==null) //if errors==null, rule has seen no predictions since expansion: return maximum error, since prediction is not reliable
+					errors=defaultRuleErrors(vote);
+				//debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + vote.toString() + " Error: " + errors + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
+				errorWeightedVote.addVote(vote,errors);
+			}
+			if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
+				break; // Only one rule cover the instance.
 			}
 		}
 
@@ -305,16 +320,17 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 		numInstances+=instance.weight();
 		//debug("Train",3);
 		//debug("Nº instance "+numInstances + " - " + instance.toString(),3);
-		boolean rulesCoveringInstance = false;
-		ListIterator<MultiLabelRule> ruleIterator= this.ruleSet.listIterator();
-		while (ruleIterator.hasNext()) { 
-			MultiLabelRule rule = ruleIterator.next();
-			if (rule.isCovering(instance) == true) {
-				rulesCoveringInstance = true;
+		int[] covering = getCoveringRules(instance);
+		boolean rulesCoveringInstance = covering.length > 0;
+		if (this.unorderedRulesOption.isSet() && covering.length > 1 && this.executor.isParallel()) {
+			trainCoveringRulesInParallel(instance, covering);
+		} else {
+			for (int position : covering) { 
+				MultiLabelRule rule = this.indexedRules[position];
 				if (!rule.updateAnomalyDetection(instance)) {
 					if (rule.updateChangeDetection(instance)) {
 						//debug("I) Drift Detected. Exa. : " +  this.numInstances + " (" + rule.getWeightSeenSinceExpansion() +") Remove Rule: " +rule.getRuleNumberID(),1);
-						ruleIterator.remove();
+						removeRule(rule);
 
 						//Rule expansion event
 						rule.notifyAll(new ChangeDetectedMessage());
@@ -325,19 +341,7 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 						if (rule.getWeightSeenSinceExpansion()  % this.gracePeriodOption.getValue() == 0.0) {
 							if (rule.tryToExpand(this.splitConfidenceOption.getValue(), this.tieThresholdOption.getValue()) ) 
 							{
-
-								MultiLabelRule otherMultiLabelRule=rule.getNewRuleFromOtherOutputs(); //Need to be outside to make sure other rules are cleaned
-								if(!dropOldRuleAfterExpansionOption.isSet() && rule.hasNewRuleFromOtherOutputs()){
-									rule.clearOtherOutputs();
-									otherMultiLabelRule.setRuleNumberID(++ruleNumberID);
-									setRuleOptions(otherMultiLabelRule);
-									ruleIterator.add(otherMultiLabelRule);
-									if(observer!=null)
-										otherMultiLabelRule.addObserver(observer);
-								}
-								setRuleOptions(rule);
-								//debug("Rule Expanded:",2);
-								//debug(rule.toString(),2);
+								ruleExpanded(rule);
 							}	
 						}
 					}
@@ -348,9 +352,8 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 				}
 				if (!this.unorderedRulesOption.isSet()) 
 					break;
-
 			}
-		}	
+		}
 
 		if (rulesCoveringInstance == false){ 
 			defaultRule.trainOnInstance(instance);
@@ -366,6 +369,7 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 					//Add expanded rule to ruleset
 					setRuleOptions(defaultRule);
 					ruleSet.add(this.defaultRule);
+					this.coverageIndex = null;
 
 
 					//debug("Default rule expanded! New Rule:",2);
@@ -382,6 +386,107 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 
 
 
+	/**
+	 * Trains the unordered rules that cover an instance, checking the
+	 * expansions of the rules in parallel. The rules are trained in order
+	 * first, since they may draw random numbers. Then the learning literals of
+	 * the rules due for an expansion check run their check at the same time,
+	 * and at last the rules are expanded or removed in order, which also
+	 * notifies the observers in order. The result is the same as training the
+	 * rules one after the other.
+	 *
+	 * @param instance the instance
+	 * @param covering the positions of the rules that cover the instance
+	 */
+	protected void trainCoveringRulesInParallel(MultiLabelInstance instance, int[] covering) {
+		final int n = covering.length;
+		final MultiLabelRule[] rules = new MultiLabelRule[n];
+		final boolean[] anomaly = new boolean[n];
+		final boolean[] changeDetected = new boolean[n];
+		final boolean[] expansionDue = new boolean[n];
+		final boolean[] expanded = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			MultiLabelRule rule = this.indexedRules[covering[i]];
+			rules[i] = rule;
+			anomaly[i] = rule.updateAnomalyDetection(instance);
+			if (!anomaly[i]) {
+				changeDetected[i] = rule.updateChangeDetection(instance);
+				if (!changeDetected[i]) {
+					rule.trainOnInstance(instance);
+					expansionDue[i] = rule.getWeightSeenSinceExpansion() % this.gracePeriodOption.getValue() == 0.0;
+				}
+			}
+		}
+		final double splitConfidence = this.splitConfidenceOption.getValue();
+		final double tieThreshold = this.tieThresholdOption.getValue();
+		this.executor.forEachMember(n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				if (expansionDue[i]) {
+					expanded[i] = rules[i].getLearningNode().tryToExpand(splitConfidence, tieThreshold);
+				}
+			}
+		});
+		for (int i = 0; i < n; i++) {
+			MultiLabelRule rule = rules[i];
+			if (anomaly[i]) {
+				this.numAnomaliesDetected+=instance.weight();
+			} else if (changeDetected[i]) {
+				removeRule(rule);
+				rule.notifyAll(new ChangeDetectedMessage());
+				this.numChangesDetected+=instance.weight();
+			} else if (expansionDue[i] && rule.completeExpansion(expanded[i])) {
+				ruleExpanded(rule);
+			}
+		}
+	}
+
+	/**
+	 * Adds the rule for the outputs not selected by an expansion, if any,
+	 * right after the rule that expanded.
+	 *
+	 * @param rule the rule that expanded
+	 */
+	protected void ruleExpanded(MultiLabelRule rule) {
+		MultiLabelRule otherMultiLabelRule=rule.getNewRuleFromOtherOutputs(); //Need to be outside to make sure other rules are cleaned
+		if(!dropOldRuleAfterExpansionOption.isSet() && rule.hasNewRuleFromOtherOutputs()){
+			rule.clearOtherOutputs();
+			otherMultiLabelRule.setRuleNumberID(++ruleNumberID);
+			setRuleOptions(otherMultiLabelRule);
+			ruleSet.add(ruleSet.indexOf(rule) + 1, otherMultiLabelRule);
+			if(observer!=null)
+				otherMultiLabelRule.addObserver(observer);
+		}
+		setRuleOptions(rule);
+		this.coverageIndex = null;
+		//debug("Rule Expanded:",2);
+		//debug(rule.toString(),2);
+	}
+
+	protected void removeRule(MultiLabelRule rule) {
+		ruleSet.remove(rule);
+		this.coverageIndex = null;
+	}
+
+	/**
+	 * Gets the rules that cover an instance, building the index of the
+	 * rule set if it changed.
+	 *
+	 * @param instance the instance
+	 * @return the positions of the covering rules in the rule set
+	 */
+	protected int[] getCoveringRules(MultiLabelInstance instance) {
+		if (this.coverageIndex == null) {
+			this.indexedRules = this.ruleSet.toArray(new MultiLabelRule[this.ruleSet.size()]);
+			List<Predicate[]> predicates = new ArrayList<Predicate[]>(this.indexedRules.length);
+			for (MultiLabelRule rule : this.indexedRules) {
+				predicates.add(rule.getPredicates());
+			}
+			this.coverageIndex = new RuleCoverageIndex(predicates);
+		}
+		return this.coverageIndex.getCoveringRules(instance);
+	}
+
 	/**
 	 * print GUI evaluate model	
 	 */
@@ -518,13 +623,15 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 	public void resetLearningImpl() {
 		defaultRule=newDefaultRule();
 		this.classifierRandom.setSeed(this.randomSeed);
-		MultiLabelLearner l = (MultiLabelLearner)((MultiLabelLearner)getPreparedClassOption(learnerOption)).copy();
+		MultiLabelLearner l = (MultiLabelLearner)getPreparedClassOptionCopy(learnerOption);
 		l.setRandomSeed(this.randomSeed);
 		l.resetLearning();
 		defaultRule.setLearner(l);
 		defaultRule.setInstanceTransformer(new NoInstanceTransformation());
 		setRuleOptions(defaultRule);
 		ruleSet = new MultiLabelRuleSet();
+		this.coverageIndex = null;
+		this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
 		ruleNumberID=1;
 		statistics=null;
 		this.featureRanking=(FeatureRanking) getPreparedClassOption(this.featureRankingOption);
@@ -533,22 +640,22 @@ public abstract class AMRulesMultiLabelLearner extends AbstractMultiLabelLearner
 
 
 	protected void setRuleOptions(MultiLabelRule rule){
-		rule.setSplitCriterion((MultiLabelSplitCriterion)((MultiLabelSplitCriterion)getPreparedClassOption(splitCriterionOption)).copy());
-		rule.setChangeDetector((ChangeDetector)((ChangeDetector)getPreparedClassOption(changeDetector)).copy());
-		rule.setAnomalyDetector((AnomalyDetector)((AnomalyDetector)getPreparedClassOption(anomalyDetector)).copy());
-		rule.setNumericObserverOption((NumericStatisticsObserver)((NumericStatisticsObserver)getPreparedClassOption(numericObserverOption)).copy());
-		rule.setNominalObserverOption((NominalStatisticsObserver)((NominalStatisticsObserver)getPreparedClassOption(nominalObserverOption)).copy());
-		rule.setErrorMeasurer((MultiLabelErrorMeasurer)((MultiLabelErrorMeasurer)getPreparedClassOption(errorMeasurerOption)).copy());
-		rule.setOutputAttributesSelector((OutputAttributesSelector)((OutputAttributesSelector)getPreparedClassOption(outputSelectorOption)).copy());
+		rule.setSplitCriterion((MultiLabelSplitCriterion)getPreparedClassOptionCopy(splitCriterionOption));
+		rule.setChangeDetector((ChangeDetector)getPreparedClassOptionCopy(changeDetector));
+		rule.setAnomalyDetector((AnomalyDetector)getPreparedClassOptionCopy(anomalyDetector));
+		rule.setNumericObserverOption((NumericStatisticsObserver)getPreparedClassOptionCopy(numericObserverOption));
+		rule.setNominalObserverOption((NominalStatisticsObserver)getPreparedClassOptionCopy(nominalObserverOption));
+		rule.setErrorMeasurer((MultiLabelErrorMeasurer)getPreparedClassOptionCopy(errorMeasurerOption));
+		rule.setOutputAttributesSelector((OutputAttributesSelector)getPreparedClassOptionCopy(outputSelectorOption));
 		rule.setRandomGenerator(this.classifierRandom);
 		rule.setAttributesPercentage(this.attributesPercentage);
-		rule.setInputAttributesSelector((InputAttributesSelector)((InputAttributesSelector)getPreparedClassOption(inputSelectorOption)).copy());
+		rule.setInputAttributesSelector((InputAttributesSelector)getPreparedClassOptionCopy(inputSelectorOption));
 	}
 
 	abstract protected MultiLabelRule newDefaultRule();
 
 	public ErrorWeightedVoteMultiLabel newErrorWeightedVote(){
-		return (ErrorWeightedVoteMultiLabel)((ErrorWeightedVoteMultiLabel) getPreparedClassOption(weightedVoteOption)).copy();
+		return (ErrorWeightedVoteMultiLabel) getPreparedClassOptionCopy(weightedVoteOption);
 	}
 
 
@@ -562,7 +562,7 @@ public abstract class AMRulesMultiLabelLearnerSemiSuper extends AbstractMultiLab
             
 		defaultRule=newDefaultRule();
 		this.classifierRandom.setSeed(this.randomSeed);
-		MultiLabelLearner l = (MultiLabelLearner)((MultiLabelLearner)getPreparedClassOption(learnerOption)).copy();
+		MultiLabelLearner l = (MultiLabelLearner)getPreparedClassOptionCopy(learnerOption);
 
                 l.setRandomSeed(this.randomSeed);
                 
@@ -580,22 +580,22 @@ public abstract class AMRulesMultiLabelLearnerSemiSuper extends AbstractMultiLab
 
 
 	protected void setRuleOptions(MultiLabelRule rule){
-		rule.setSplitCriterion((MultiLabelSplitCriterion)((MultiLabelSplitCriterion)getPreparedClassOption(splitCriterionOption)).copy());
-		rule.setChangeDetector((ChangeDetector)((ChangeDetector)getPreparedClassOption(changeDetector)).copy());
-		rule.setAnomalyDetector((AnomalyDetector)((AnomalyDetector)getPreparedClassOption(anomalyDetector)).copy());
-		rule.setNumericObserverOption((NumericStatisticsObserver)((NumericStatisticsObserver)getPreparedClassOption(numericObserverOption)).copy());
-		rule.setNominalObserverOption((NominalStatisticsObserver)((NominalStatisticsObserver)getPreparedClassOption(nominalObserverOption)).copy());
-		rule.setErrorMeasurer((MultiLabelErrorMeasurer)((MultiLabelErrorMeasurer)getPreparedClassOption(errorMeasurerOption)).copy());
-		rule.setOutputAttributesSelector((OutputAttributesSelector)((OutputAttributesSelector)getPreparedClassOption(outputSelectorOption)).copy());
+		rule.setSplitCriterion((MultiLabelSplitCriterion)getPreparedClassOptionCopy(splitCriterionOption));
+		rule.setChangeDetector((ChangeDetector)getPreparedClassOptionCopy(changeDetector));
+		rule.setAnomalyDetector((AnomalyDetector)getPreparedClassOptionCopy(anomalyDetector));
+		rule.setNumericObserverOption((NumericStatisticsObserver)getPreparedClassOptionCopy(numericObserverOption));
+		rule.setNominalObserverOption((NominalStatisticsObserver)getPreparedClassOptionCopy(nominalObserverOption));
+		rule.setErrorMeasurer((MultiLabelErrorMeasurer)getPreparedClassOptionCopy(errorMeasurerOption));
+		rule.setOutputAttributesSelector((OutputAttributesSelector)getPreparedClassOptionCopy(outputSelectorOption));
 		rule.setRandomGenerator(this.classifierRandom);
 		rule.setAttributesPercentage(this.attributesPercentage);
-		rule.setInputAttributesSelector((InputAttributesSelector)((InputAttributesSelector)getPreparedClassOption(inputSelectorOption)).copy());
+		rule.setInputAttributesSelector((InputAttributesSelector)getPreparedClassOptionCopy(inputSelectorOption));
 	}
 
 	abstract protected MultiLabelRule newDefaultRule();
 
 	public ErrorWeightedVoteMultiLabel newErrorWeightedVote(){
-		return (ErrorWeightedVoteMultiLabel)((ErrorWeightedVoteMultiLabel) getPreparedClassOption(weightedVoteOption)).copy();
+		return (ErrorWeightedVoteMultiLabel) getPreparedClassOptionCopy(weightedVoteOption);
 	}
 
 
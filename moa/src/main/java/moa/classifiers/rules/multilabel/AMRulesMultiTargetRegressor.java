@@ -88,7 +88,7 @@ public class AMRulesMultiTargetRegressor extends AMRulesMultiLabelLearner implem
 	
 	@Override
 	public ErrorWeightedVoteMultiLabel newErrorWeightedVote(){
-		return (ErrorWeightedVoteMultiLabel)((ErrorWeightedVoteMultiLabel) getPreparedClassOption(weightedVoteOption)).copy();
+		return (ErrorWeightedVoteMultiLabel) getPreparedClassOptionCopy(weightedVoteOption);
 		
 	}
 
@@ -20,7 +20,7 @@
 
 package moa.classifiers.rules.multilabel.attributeclassobservers;
 
-import java.io.Serializable;
+import java.util.Arrays;
 
 import moa.classifiers.rules.core.NumericRulePredicate;
 import moa.classifiers.rules.core.Utils;
@@ -31,10 +31,14 @@ import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 
 /**
  * Binary search tree for AMRules splitting points determination
+ *
+ * The nodes are kept in arrays and their statistics in a
+ * SufficientStatisticsStore, in double or single precision.
  */
 
 
@@ -45,12 +49,19 @@ public class MultiLabelBSTree extends AbstractOptionHandler implements NumericSt
 	 * 
 	 */
 	public IntOption maxNodesOption = new IntOption("maxNodesOption", 'z', "Maximum number of nodes", 50, 0, Integer.MAX_VALUE);
+	public FlagOption singlePrecisionOption = new FlagOption("singlePrecision", 'f', "Keep the statistics and split points as floats.");
 	protected int maxNodes;
 	protected int numNodes;
 
 	private static final long serialVersionUID = 1L;
 
-	protected Node root = null;
+	// E-BST nodes by index, the root is node 0 (-1 for no child)
+	protected double [] cutPoints;
+	protected int [] leftChild;
+	protected int [] rightChild;
+
+	// Statistics of the values <= cut point of each node (null before the first value)
+	protected SufficientStatisticsStore nodeStatistics;
 
 	protected DoubleVector [] leftStatistics;
 	protected DoubleVector [] rightStatistics;
@@ -60,14 +71,76 @@ public class MultiLabelBSTree extends AbstractOptionHandler implements NumericSt
 			DoubleVector[] statistics) {
 		if (!Double.isNaN(inputAttributeValue))
 		{
-			if (this.root == null) {
-				this.root = new Node(inputAttributeValue, statistics);
+			if (this.nodeStatistics == null) {
+				this.nodeStatistics = new SufficientStatisticsStore(statistics.length, isSinglePrecision());
+				this.cutPoints = new double[0];
+				this.leftChild = new int[0];
+				this.rightChild = new int[0];
+				addNode(inputAttributeValue, statistics);
 				maxNodes=maxNodesOption.getValue();
 			} else {
-				this.root.observeAttribute(inputAttributeValue, statistics);
+				observeAttribute(toCutPoint(inputAttributeValue), statistics, 0);
+			}
+		}
+
+	}
+
+	/**
+	 * Updates the tree with a new observation, from a node down
+	 */
+	protected void observeAttribute(double inputAttributeValue, DoubleVector [] statistics, int node) {
+		while (true) {
+			double cutPoint = this.cutPoints[node];
+			if (inputAttributeValue == cutPoint) {
+				this.nodeStatistics.addToRow(node, statistics);
+				return;
+			}
+			else if (inputAttributeValue < cutPoint) {
+				this.nodeStatistics.addToRow(node, statistics);
+				if (this.leftChild[node] < 0) {
+					if(numNodes<maxNodes){
+						int child = addNode(inputAttributeValue, statistics);
+						this.leftChild[node] = child;
+						++numNodes;
+					}
+					return;
+				}
+				node = this.leftChild[node];
 			}
+			else {
+				if (this.rightChild[node] < 0) {
+					if(numNodes<maxNodes){
+						int child = addNode(inputAttributeValue, statistics);
+						this.rightChild[node] = child;
+						++numNodes;
+					}
+					return;
+				}
+				node = this.rightChild[node];
+			}
+		}
+	}
+
+	protected int addNode(double inputAttributeValue, DoubleVector [] statistics) {
+		int node = this.nodeStatistics.addRow(statistics);
+		if (node == this.cutPoints.length) {
+			int capacity = Math.max(4, node + (node >> 1));
+			this.cutPoints = Arrays.copyOf(this.cutPoints, capacity);
+			this.leftChild = Arrays.copyOf(this.leftChild, capacity);
+			this.rightChild = Arrays.copyOf(this.rightChild, capacity);
 		}
+		this.cutPoints[node] = toCutPoint(inputAttributeValue);
+		this.leftChild[node] = -1;
+		this.rightChild[node] = -1;
+		return node;
+	}
+
+	protected boolean isSinglePrecision() {
+		return singlePrecisionOption.isSet();
+	}
 
+	protected double toCutPoint(double inputAttributeValue) {
+		return isSinglePrecision() ? (float) inputAttributeValue : inputAttributeValue;
 	}
 
 
@@ -83,26 +156,22 @@ public class MultiLabelBSTree extends AbstractOptionHandler implements NumericSt
 			leftStatistics[i]=new DoubleVector(new double [preSplitStatistics[i].numValues()]); //sets statistics to zeros
 			rightStatistics[i]=new DoubleVector(preSplitStatistics[i]);
 		}
-		AttributeExpansionSuggestion ret=searchForBestSplitOption(this.root, null, criterion, preSplitStatistics, inputAttributeIndex);
+		AttributeExpansionSuggestion ret=searchForBestSplitOption(this.nodeStatistics == null ? -1 : 0, null, criterion, preSplitStatistics, inputAttributeIndex);
 		leftStatistics=null;
 		rightStatistics=null;
 		return ret;
 	}
 
-	protected AttributeExpansionSuggestion searchForBestSplitOption(Node currentNode, AttributeExpansionSuggestion currentBestOption, MultiLabelSplitCriterion criterion, DoubleVector [] preSplitStatistics, int inputAttributeIndex) {
+	protected AttributeExpansionSuggestion searchForBestSplitOption(int currentNode, AttributeExpansionSuggestion currentBestOption, MultiLabelSplitCriterion criterion, DoubleVector [] preSplitStatistics, int inputAttributeIndex) {
 		// Return null if the current node is null or we have finished looking through all the possible splits
-		if (currentNode == null) { // TODO: JD check || countRightTotal == 0.0
+		if (currentNode < 0) { // TODO: JD check || countRightTotal == 0.0
 			return currentBestOption;
 		}
 
-		if (currentNode.left != null) {
-			currentBestOption = searchForBestSplitOption(currentNode.left, currentBestOption, criterion, preSplitStatistics, inputAttributeIndex);
-		}
-		for (int i=0; i<leftStatistics.length; i++)
-		{
-			leftStatistics[i].addValues(currentNode.leftStatistics[i]);
-			rightStatistics[i].subtractValues(currentNode.leftStatistics[i]);
+		if (this.leftChild[currentNode] >= 0) {
+			currentBestOption = searchForBestSplitOption(this.leftChild[currentNode], currentBestOption, criterion, preSplitStatistics, inputAttributeIndex);
 		}
+		this.nodeStatistics.transferRow(currentNode, leftStatistics, rightStatistics);
 
 		DoubleVector[][] postSplitDists = new DoubleVector [leftStatistics.length][2];
 		for (int i=0; i<leftStatistics.length; i++)
@@ -115,17 +184,13 @@ public class MultiLabelBSTree extends AbstractOptionHandler implements NumericSt
 		double merit = criterion.getMeritOfSplit(preSplitStatistics, postSplitDists);
 
 		if ((currentBestOption == null) || (merit > currentBestOption.merit)) {
-			currentBestOption= new AttributeExpansionSuggestion(new NumericRulePredicate(inputAttributeIndex, currentNode.cutPoint, true), Utils.copy(postSplitDists), merit);
+			currentBestOption= new AttributeExpansionSuggestion(new NumericRulePredicate(inputAttributeIndex, this.cutPoints[currentNode], true), Utils.copy(postSplitDists), merit);
 		}
 
-		if (currentNode.right != null) {
-			currentBestOption = searchForBestSplitOption(currentNode.right, currentBestOption, criterion, preSplitStatistics, inputAttributeIndex);
-		}
-		for (int i=0; i<leftStatistics.length; i++)
-		{
-			leftStatistics[i].subtractValues(currentNode.leftStatistics[i]);
-			rightStatistics[i].addValues(currentNode.leftStatistics[i]);
+		if (this.rightChild[currentNode] >= 0) {
+			currentBestOption = searchForBestSplitOption(this.rightChild[currentNode], currentBestOption, criterion, preSplitStatistics, inputAttributeIndex);
 		}
+		this.nodeStatistics.transferRow(currentNode, rightStatistics, leftStatistics);
 		return currentBestOption;
 	}
 
@@ -148,73 +213,4 @@ public class MultiLabelBSTree extends AbstractOptionHandler implements NumericSt
 	}
 
 
-	//Inner classes inspired in FIMTDDNumericalAttributeClassObserver
-
-	protected class Node implements Serializable {
-
-		private static final long serialVersionUID = 1L;
-
-		// The split point to use
-		private double cutPoint;
-
-		// E-BST statistics
-		private DoubleVector [] leftStatistics;
-		private DoubleVector [] rightStatistics;
-
-		// Child nodes
-		private Node left;
-		private Node right;
-
-		public Node(double inputAttributeValue, DoubleVector [] statistics) {
-			cutPoint = inputAttributeValue;
-			int numOutputAttributes=statistics.length;
-			leftStatistics=new DoubleVector[numOutputAttributes];
-			for (int i=0; i<numOutputAttributes; i++)
-			{					
-				leftStatistics[i]=new DoubleVector(statistics[i]);
-			}
-			//this.leftStatistics=statistics.clone();
-
-			this.rightStatistics=new DoubleVector[numOutputAttributes];
-			for (int i=0; i<numOutputAttributes; i++)
-				this.rightStatistics[i]= new DoubleVector();
-		}
-
-		/**
-		 * Updates tree with new observation
-		 */
-		public void observeAttribute(double inputAttributeValue, DoubleVector [] statistics) {
-			if (inputAttributeValue == this.cutPoint) {
-				for (int i=0; i<statistics.length; i++)
-					this.leftStatistics[i].addValues(statistics[i]);
-			}
-			else if (inputAttributeValue < this.cutPoint) {
-				for (int i=0; i<statistics.length; i++)
-					this.leftStatistics[i].addValues(statistics[i]);
-				
-				if (this.left == null) {
-					if(numNodes<maxNodes){
-						this.left = new Node(inputAttributeValue, statistics);
-						++numNodes;
-					}
-				} else {
-					this.left.observeAttribute(inputAttributeValue, statistics);
-				}
-			}
-			else { 
-				for (int i=0; i<statistics.length; i++)
-					this.rightStatistics[i].addValues(statistics[i]);
-				if (this.right == null) {
-					if(numNodes<maxNodes){
-						this.right = new Node(inputAttributeValue, statistics);
-						++numNodes;
-					}
-				} else {
-					this.right.observeAttribute(inputAttributeValue, statistics);
-				}
-			}
-		}
-	}
-
-
 }
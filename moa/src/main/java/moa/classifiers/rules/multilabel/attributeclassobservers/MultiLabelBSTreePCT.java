@@ -1,7 +1,8 @@
 package moa.classifiers.rules.multilabel.attributeclassobservers;
 
-import java.io.Serializable;
+import java.util.Arrays;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 
 import moa.core.DoubleVector;
@@ -21,12 +22,22 @@ public class MultiLabelBSTreePCT extends AbstractOptionHandler implements Numeri
 	 */
 	public IntOption maxNodesOption = new IntOption("maxNodesOption", 'z', "Maximum number of nodes", 2000, 0,
 			Integer.MAX_VALUE);
+	public FlagOption singlePrecisionOption = new FlagOption("singlePrecision", 'f',
+			"Keep the statistics and split points as floats.");
 	protected int maxNodes;
 	protected int numNodes;
 
 	private static final long serialVersionUID = 1L;
 
-	protected Node root = null;
+	// E-BST nodes by index, the root is node 0 (-1 for no child)
+	protected double[] cutPoints;
+	protected int[] leftChild;
+	protected int[] rightChild;
+
+	// Statistics of the values equal to the cut point of each node (null before
+	// the first value)
+	protected SufficientStatisticsStore nodeTargetStatistics;
+	protected SufficientStatisticsStore nodeInputStatistics;
 
 	protected DoubleVector[] leftTargetStatistics;
 	protected DoubleVector[] rightTargetStatistics;
@@ -52,14 +63,69 @@ public class MultiLabelBSTreePCT extends AbstractOptionHandler implements Numeri
 	public void observeAttribute(double inputAttributeValue, DoubleVector[] targetStatistics,
 			DoubleVector[] inputStatistics) {
 		if (!Double.isNaN(inputAttributeValue)) {
-			if (this.root == null) {
-				this.root = new Node(inputAttributeValue, targetStatistics, inputStatistics);
+			if (this.nodeTargetStatistics == null) {
+				boolean singlePrecision = singlePrecisionOption.isSet();
+				this.nodeTargetStatistics = new SufficientStatisticsStore(targetStatistics.length, singlePrecision);
+				this.nodeInputStatistics = new SufficientStatisticsStore(inputStatistics.length, singlePrecision);
+				this.cutPoints = new double[0];
+				this.leftChild = new int[0];
+				this.rightChild = new int[0];
+				addNode(inputAttributeValue, targetStatistics, inputStatistics);
 				maxNodes = maxNodesOption.getValue();
 			} else {
-				this.root.observeAttribute(inputAttributeValue, targetStatistics, inputStatistics);
+				observeAttribute(toCutPoint(inputAttributeValue), targetStatistics, inputStatistics, 0);
+			}
+		}
+
+	}
+
+	/**
+	 * Updates the tree with a new observation, from a node down
+	 */
+	protected void observeAttribute(double inputAttributeValue, DoubleVector[] targetStatistics,
+			DoubleVector[] inputStatistics, int node) {
+		while (true) {
+			double cutPoint = this.cutPoints[node];
+			if (inputAttributeValue == cutPoint) {
+				this.nodeTargetStatistics.addToRow(node, targetStatistics);
+				this.nodeInputStatistics.addToRow(node, inputStatistics);
+				return;
+			}
+			int child = inputAttributeValue < cutPoint ? this.leftChild[node] : this.rightChild[node];
+			if (child < 0) {
+				if (numNodes < maxNodes) {
+					child = addNode(inputAttributeValue, targetStatistics, inputStatistics);
+					if (inputAttributeValue < cutPoint) {
+						this.leftChild[node] = child;
+					} else {
+						this.rightChild[node] = child;
+					}
+					numNodes++;
+				}
+				return;
 			}
+			node = child;
 		}
+	}
+
+	protected int addNode(double inputAttributeValue, DoubleVector[] targetStatistics,
+			DoubleVector[] inputStatistics) {
+		int node = this.nodeTargetStatistics.addRow(targetStatistics);
+		this.nodeInputStatistics.addRow(inputStatistics);
+		if (node == this.cutPoints.length) {
+			int capacity = Math.max(4, node + (node >> 1));
+			this.cutPoints = Arrays.copyOf(this.cutPoints, capacity);
+			this.leftChild = Arrays.copyOf(this.leftChild, capacity);
+			this.rightChild = Arrays.copyOf(this.rightChild, capacity);
+		}
+		this.cutPoints[node] = toCutPoint(inputAttributeValue);
+		this.leftChild[node] = -1;
+		this.rightChild[node] = -1;
+		return node;
+	}
 
+	protected double toCutPoint(double inputAttributeValue) {
+		return singlePrecisionOption.isSet() ? (float) inputAttributeValue : inputAttributeValue;
 	}
 
 	@Override
@@ -95,33 +161,26 @@ public class MultiLabelBSTreePCT extends AbstractOptionHandler implements Numeri
 			rightInputStatistics[i] = new DoubleVector(preSplitInputStatistics[i]);
 		}
 
-		return searchForBestSplitOption(this.root, null, criterion, preSplitTargetStatistics, preSplitInputStatistics,
-				inputAttributeIndex);
+		return searchForBestSplitOption(this.nodeTargetStatistics == null ? -1 : 0, null, criterion,
+				preSplitTargetStatistics, preSplitInputStatistics, inputAttributeIndex);
 	}
 
-	protected AttributeExpansionSuggestion searchForBestSplitOption(Node currentNode,
+	protected AttributeExpansionSuggestion searchForBestSplitOption(int currentNode,
 			AttributeExpansionSuggestion currentBestOption, MultiLabelSplitCriterion criterion,
 			DoubleVector[] preSplitTargetStatistics, DoubleVector[] preSplitInputStatistics, int inputAttributeIndex) {
 		// Return null if the current node is null or we have finished looking through
 		// all the possible splits
-		if (currentNode == null) { // TODO: JD check || countRightTotal == 0.0
+		if (currentNode < 0) { // TODO: JD check || countRightTotal == 0.0
 			return currentBestOption;
 		}
 
-		if (currentNode.left != null) {
-			currentBestOption = searchForBestSplitOption(currentNode.left, currentBestOption, criterion,
+		if (this.leftChild[currentNode] >= 0) {
+			currentBestOption = searchForBestSplitOption(this.leftChild[currentNode], currentBestOption, criterion,
 					preSplitTargetStatistics, preSplitInputStatistics, inputAttributeIndex);
 		}
 
-		for (int i = 0; i < leftTargetStatistics.length; i++) {
-			leftTargetStatistics[i].addValues(currentNode.targetStatistics[i]);
-			rightTargetStatistics[i].subtractValues(currentNode.targetStatistics[i]);
-		}
-
-		for (int i = 0; i < leftInputStatistics.length; i++) {
-			leftInputStatistics[i].addValues(currentNode.inputStatistics[i]);
-			rightInputStatistics[i].subtractValues(currentNode.inputStatistics[i]);
-		}
+		this.nodeTargetStatistics.transferRow(currentNode, leftTargetStatistics, rightTargetStatistics);
+		this.nodeInputStatistics.transferRow(currentNode, leftInputStatistics, rightInputStatistics);
 
 		DoubleVector[][] postSplitTargetDists = new DoubleVector[leftTargetStatistics.length][2];
 		DoubleVector[][] postSplitInputDists = new DoubleVector[leftInputStatistics.length][2];
@@ -141,22 +200,16 @@ public class MultiLabelBSTreePCT extends AbstractOptionHandler implements Numeri
 
 		if ((!Double.isNaN(merit)) && (currentBestOption == null || (merit > currentBestOption.merit))) {
 			currentBestOption = new AttributeExpansionSuggestion(
-					new NumericRulePredicate(inputAttributeIndex, currentNode.cutPoint, true),
+					new NumericRulePredicate(inputAttributeIndex, this.cutPoints[currentNode], true),
 					Utils.copy(postSplitTargetDists), merit);
 		}
 
-		if (currentNode.right != null) {
-			currentBestOption = searchForBestSplitOption(currentNode.right, currentBestOption, criterion,
+		if (this.rightChild[currentNode] >= 0) {
+			currentBestOption = searchForBestSplitOption(this.rightChild[currentNode], currentBestOption, criterion,
 					preSplitTargetStatistics, preSplitInputStatistics, inputAttributeIndex);
 		}
-		for (int i = 0; i < leftTargetStatistics.length; i++) {
-			leftTargetStatistics[i].subtractValues(currentNode.targetStatistics[i]);
-			rightTargetStatistics[i].addValues(currentNode.targetStatistics[i]);
-		}
-		for (int i = 0; i < leftInputStatistics.length; i++) {
-			leftInputStatistics[i].subtractValues(currentNode.inputStatistics[i]);
-			rightInputStatistics[i].addValues(currentNode.inputStatistics[i]);
-		}
+		this.nodeTargetStatistics.transferRow(currentNode, rightTargetStatistics, leftTargetStatistics);
+		this.nodeInputStatistics.transferRow(currentNode, rightInputStatistics, leftInputStatistics);
 
 		return currentBestOption;
 	}
@@ -175,72 +228,4 @@ public class MultiLabelBSTreePCT extends AbstractOptionHandler implements Numeri
 
 	}
 
-	// Inner classes inspired in FIMTDDNumericalAttributeClassObserver
-
-	protected class Node implements Serializable {
-
-		private static final long serialVersionUID = 1L;
-
-		// The split point to use
-		private double cutPoint;
-
-		// E-BST statistics
-		private DoubleVector[] targetStatistics;
-		private DoubleVector[] inputStatistics;
-
-		// Child nodes
-		private Node left;
-		private Node right;
-
-		public Node(double inputAttributeValue, DoubleVector[] targetStatistics, DoubleVector[] inputStatistics) {
-			cutPoint = inputAttributeValue;
-			int numOutputAttributes = targetStatistics.length;
-			int numInputAttributes = inputStatistics.length;
-			this.targetStatistics = new DoubleVector[numOutputAttributes];
-			this.inputStatistics = new DoubleVector[numInputAttributes];
-			for (int i = 0; i < numOutputAttributes; i++) {
-				if (targetStatistics[i] != null)
-					this.targetStatistics[i] = new DoubleVector(targetStatistics[i]);
-				else
-					this.targetStatistics[i] = new DoubleVector();
-			}
-			for (int i = 0; i < numInputAttributes; i++) {
-				this.inputStatistics[i] = new DoubleVector(inputStatistics[i]);
-			}
-		}
-
-		/**
-		 * Updates tree with new observation
-		 */
-		public void observeAttribute(double inputAttributeValue, DoubleVector[] targetStatistics,
-				DoubleVector[] inputStatistics) {
-			if (inputAttributeValue == this.cutPoint) {
-				for (int i = 0; i < targetStatistics.length; i++)
-					if (targetStatistics[i] != null)
-						this.targetStatistics[i].addValues(targetStatistics[i]);
-				for (int i = 0; i < inputStatistics.length; i++)
-					this.inputStatistics[i].addValues(inputStatistics[i]);
-
-			} else if (inputAttributeValue < this.cutPoint) {
-				if (this.left == null) {
-					if (numNodes < maxNodes) {
-						this.left = new Node(inputAttributeValue, targetStatistics, inputStatistics);
-						numNodes++;
-					}
-				} else {
-					this.left.observeAttribute(inputAttributeValue, targetStatistics, inputStatistics);
-				}
-			} else {
-				if (this.right == null) {
-					if (numNodes < maxNodes) {
-						this.right = new Node(inputAttributeValue, targetStatistics, inputStatistics);
-						numNodes++;
-					}
-				} else {
-					this.right.observeAttribute(inputAttributeValue, targetStatistics, inputStatistics);
-				}
-			}
-		}
-	}
-
 }
@@ -0,0 +1,205 @@
+/*
+ *    SufficientStatisticsStore.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.classifiers.rules.multilabel.attributeclassobservers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import moa.core.DoubleVector;
+
+/**
+ * Sufficient statistics of several outputs (or inputs) for many rows, such as
+ * the nodes of a binary search tree, packed in one array.
+ *
+ * A row holds one vector of statistics per output, all with the same width
+ * (e.g. weight, sum and sum of squares), one after the other. The values are
+ * kept in a double or a float array, so that there is no object per row or
+ * per output, and the loops that add a row to the statistics of a split run
+ * over contiguous memory.
+ *
+ * Missing vectors (null) count as zeros. The width grows if a wider vector is
+ * added.
+ */
+public class SufficientStatisticsStore implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final int numVectors;
+
+	protected final boolean singlePrecision;
+
+	protected int width;
+
+	protected int numRows;
+
+	protected double[] doubleValues;
+
+	protected float[] floatValues;
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param numVectors the number of vectors of statistics in a row
+	 * @param singlePrecision whether to keep the values as floats
+	 */
+	public SufficientStatisticsStore(int numVectors, boolean singlePrecision) {
+		this.numVectors = numVectors;
+		this.singlePrecision = singlePrecision;
+		if (singlePrecision) {
+			this.floatValues = new float[0];
+		} else {
+			this.doubleValues = new double[0];
+		}
+	}
+
+	public int getNumRows() {
+		return this.numRows;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public boolean isSinglePrecision() {
+		return this.singlePrecision;
+	}
+
+	/**
+	 * Adds a row.
+	 *
+	 * @param statistics the initial statistics of the row
+	 * @return the index of the new row
+	 */
+	public int addRow(DoubleVector[] statistics) {
+		ensureWidth(statistics);
+		int rowLength = this.numVectors * this.width;
+		int needed = (this.numRows + 1) * rowLength;
+		int capacity = this.singlePrecision ? this.floatValues.length : this.doubleValues.length;
+		if (needed > capacity) {
+			int newCapacity = Math.max(needed, capacity + (capacity >> 1));
+			if (this.singlePrecision) {
+				this.floatValues = Arrays.copyOf(this.floatValues, newCapacity);
+			} else {
+				this.doubleValues = Arrays.copyOf(this.doubleValues, newCapacity);
+			}
+		}
+		int row = this.numRows++;
+		addToRow(row, statistics);
+		return row;
+	}
+
+	/**
+	 * Adds statistics to a row.
+	 *
+	 * @param row the index of the row
+	 * @param statistics the statistics of each vector
+	 */
+	public void addToRow(int row, DoubleVector[] statistics) {
+		ensureWidth(statistics);
+		int offset = row * this.numVectors * this.width;
+		for (int i = 0; i < this.numVectors; i++, offset += this.width) {
+			if (statistics[i] == null) {
+				continue;
+			}
+			double[] values = statistics[i].getArrayRef();
+			if (this.singlePrecision) {
+				float[] store = this.floatValues;
+				for (int k = 0; k < values.length; k++) {
+					store[offset + k] += (float) values[k];
+				}
+			} else {
+				double[] store = this.doubleValues;
+				for (int k = 0; k < values.length; k++) {
+					store[offset + k] += values[k];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the statistics of a row from one side of a split to the other:
+	 * adds them to the first vectors and subtracts them from the second ones.
+	 *
+	 * @param row the index of the row
+	 * @param add the vectors to add the row to
+	 * @param subtract the vectors to subtract the row from
+	 */
+	public void transferRow(int row, DoubleVector[] add, DoubleVector[] subtract) {
+		int offset = row * this.numVectors * this.width;
+		for (int i = 0; i < this.numVectors; i++, offset += this.width) {
+			double[] a = arrayOfWidth(add[i]);
+			double[] s = arrayOfWidth(subtract[i]);
+			if (this.singlePrecision) {
+				float[] store = this.floatValues;
+				for (int k = 0; k < this.width; k++) {
+					double value = store[offset + k];
+					a[k] += value;
+					s[k] -= value;
+				}
+			} else {
+				double[] store = this.doubleValues;
+				for (int k = 0; k < this.width; k++) {
+					double value = store[offset + k];
+					a[k] += value;
+					s[k] -= value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the values of a vector with at least the width of the store.
+	 */
+	protected double[] arrayOfWidth(DoubleVector vector) {
+		if (vector.numValues() < this.width) {
+			vector.addToValue(this.width - 1, 0.0);
+		}
+		return vector.getArrayRef();
+	}
+
+	protected void ensureWidth(DoubleVector[] statistics) {
+		int newWidth = this.width;
+		for (int i = 0; i < this.numVectors; i++) {
+			if (statistics[i] != null && statistics[i].numValues() > newWidth) {
+				newWidth = statistics[i].numValues();
+			}
+		}
+		if (newWidth == this.width) {
+			return;
+		}
+		int numSlots = this.numRows * this.numVectors;
+		int capacitySlots = Math.max(numSlots, this.singlePrecision
+				? (this.width == 0 ? 0 : this.floatValues.length / this.width)
+				: (this.width == 0 ? 0 : this.doubleValues.length / this.width));
+		//move the vectors to their place with the new width
+		if (this.singlePrecision) {
+			float[] values = new float[capacitySlots * newWidth];
+			for (int j = 0; j < numSlots; j++) {
+				System.arraycopy(this.floatValues, j * this.width, values, j * newWidth, this.width);
+			}
+			this.floatValues = values;
+		} else {
+			double[] values = new double[capacitySlots * newWidth];
+			for (int j = 0; j < numSlots; j++) {
+				System.arraycopy(this.doubleValues, j * this.width, values, j * newWidth, this.width);
+			}
+			this.doubleValues = values;
+		}
+		this.width = newWidth;
+	}
+}
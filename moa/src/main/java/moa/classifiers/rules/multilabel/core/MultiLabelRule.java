@@ -7,6 +7,7 @@ import java.util.Random;
 
 import moa.classifiers.MultiLabelLearner;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.rules.core.Predicate;
 import moa.classifiers.rules.core.anomalydetection.AnomalyDetector;
 import moa.classifiers.rules.featureranking.messages.MeritCheckMessage;
 import moa.classifiers.rules.featureranking.messages.RuleExpandedMessage;
@@ -79,6 +80,18 @@ public class MultiLabelRule extends ObservableMOAObject {
 		return isCovering;
 	}
 
+	/**
+	 * Gets the predicates of the literals of the rule.
+	 */
+	public Predicate[] getPredicates() {
+		Predicate[] predicates = new Predicate[literalList.size()];
+		int i = 0;
+		for (Literal l : literalList) {
+			predicates[i++] = l.predicate;
+		}
+		return predicates;
+	}
+
 	public int[] getOutputsCovered() {
 		return learningLiteral.getOutputsToLearn();
 	}
@@ -138,8 +151,19 @@ public class MultiLabelRule extends ObservableMOAObject {
             return  this.learningLiteral.anomalyDetector.getAnomalyScore();
         }
 	public boolean tryToExpand(double splitConfidence, double tieThresholdOption) {
-		boolean hasExpanded=learningLiteral.tryToExpand(splitConfidence,tieThresholdOption);
-		
+		return completeExpansion(learningLiteral.tryToExpand(splitConfidence,tieThresholdOption));
+	}
+
+	/**
+	 * Second part of tryToExpand, after the learning literal was asked to
+	 * expand with getLearningNode().tryToExpand(). The first part only changes
+	 * the learning literal, so it can run for several rules at the same time;
+	 * this part notifies the observers and changes the literals of the rule.
+	 *
+	 * @param hasExpanded the result of the learning literal
+	 * @return hasExpanded
+	 */
+	public boolean completeExpansion(boolean hasExpanded) {
 		//Merit check event
 		double[] merit=learningLiteral.getMeritInputAttributes();
 		if(merit!=null)
@@ -25,6 +25,7 @@ import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
 
 import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
 
 
 /**
@@ -44,16 +45,21 @@ InputAttributesSelector {
 			'p', "Allowed merit decrease in percentage of best input attribute.",
 			0.1, 0.0, 1.0);
 
+	public IntOption maxInputsOption = new IntOption("maxInputs",
+			'k', "Maximum number of input attributes to keep, the ones with the highest merit (0 for no limit). At least two are kept for the Hoeffding bound.",
+			0, 0, Integer.MAX_VALUE);
+
 	@Override
 	public int[] getNextInputIndices(
 			AttributeExpansionSuggestion[] sortedSplitSuggestions) {
 		int [] nextInput=null;
 		if(sortedSplitSuggestions.length>0){
-			int [] temp=new int[sortedSplitSuggestions.length]; //use list instead?
+			int maxInputs=maxInputsOption.getValue()>0 ? maxInputsOption.getValue() : sortedSplitSuggestions.length;
+			int [] temp=new int[Math.min(sortedSplitSuggestions.length, Math.max(2, maxInputs))];
 			double threshold=sortedSplitSuggestions[sortedSplitSuggestions.length-1].merit*(percentageThresholdOption.getValue());
 			temp[0]=sortedSplitSuggestions[sortedSplitSuggestions.length-1].predicate.getAttributeIndex();
 			int c=1;
-			for (int i=sortedSplitSuggestions.length-2; i>=0 && sortedSplitSuggestions[i].merit>=threshold; i--){
+			for (int i=sortedSplitSuggestions.length-2; i>=0 && c<maxInputs && sortedSplitSuggestions[i].merit>=threshold; i--){
 				temp[c]=sortedSplitSuggestions[i].getPredicate().getAttributeIndex();		
 				c++;
 			}
@@ -26,8 +26,8 @@ import java.util.List;
 
 import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.InstanceImpl;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import com.yahoo.labs.samoa.instances.Range;
 
 /**
@@ -78,20 +78,13 @@ public class InstanceAttributesSelector extends InstanceOutputAttributesSelector
 		Range r= new Range("-" + targetOutputIndices.length);
 		r.setUpper(totAttributes);
 		targetInstances.setRangeOutputIndices(r);
+		this.sourceIndices=sourceIndices(sourceInstances, targetInputIndices, targetOutputIndices);
 	}
 
 	@Override
 	public Instance sourceInstanceToTarget(Instance sourceInstance) {
-		double [] attValues = new double[targetInstances.numAttributes()];
-		Instance newInstance=new InstanceImpl(sourceInstance.weight(),attValues);
-		for (int i=0; i<this.targetInputIndices.length; i++){
-			newInstance.setValue(i, sourceInstance.valueInputAttribute(targetInputIndices[i]));
-		}
-		for (int i=0; i<this.targetOutputIndices.length; i++){
-			newInstance.setValue(i, sourceInstance.valueOutputAttribute(targetOutputIndices[i]));
-		}
-		newInstance.setDataset(targetInstances);
-		return newInstance;
+		//a view of the source instance, nothing is copied
+		return new ProjectedInstance(sourceInstance, this.sourceIndices, this.targetInstances);
 	}
 
 
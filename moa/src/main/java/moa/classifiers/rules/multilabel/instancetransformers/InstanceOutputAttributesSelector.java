@@ -27,10 +27,11 @@ import moa.AbstractMOAObject;
 
 import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.InstanceImpl;
+import com.yahoo.labs.samoa.instances.InstanceInformation;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.MultiLabelPrediction;
 import com.yahoo.labs.samoa.instances.Prediction;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import com.yahoo.labs.samoa.instances.Range;
 
 /**
@@ -45,6 +46,8 @@ public class InstanceOutputAttributesSelector extends AbstractMOAObject implemen
 	public InstancesHeader targetInstances;
 	public int [] targetOutputIndices;
 	public int numSourceInstancesOutputs;
+	//index in the source instances of each attribute of the target instances
+	protected int [] sourceIndices;
 
 	public InstanceOutputAttributesSelector(){
 		
@@ -75,22 +78,31 @@ public class InstanceOutputAttributesSelector extends AbstractMOAObject implemen
 		Range r= new Range("-" + targetOutputIndices.length);
 		r.setUpper(totAttributes);
 		targetInstances.setRangeOutputIndices(r);
+
+		int [] targetInputIndices=new int[numInputs];
+		for (int i=0; i<numInputs;i++)
+			targetInputIndices[i]=i;
+		this.sourceIndices=sourceIndices(sourceInstances, targetInputIndices, targetOutputIndices);
+	}
+
+	/**
+	 * Returns the index in the source instances of the selected input attributes followed by the selected outputs.
+	 */
+	protected static int [] sourceIndices(InstancesHeader sourceInstances, int [] targetInputIndices, int [] targetOutputIndices){
+		InstanceInformation information=sourceInstances.getInstanceInformation();
+		int [] indices=new int[targetInputIndices.length+targetOutputIndices.length];
+		for (int i=0; i<targetInputIndices.length;i++)
+			indices[i]=information.inputAttributeIndex(targetInputIndices[i]);
+		for (int i=0; i<targetOutputIndices.length;i++)
+			indices[targetInputIndices.length+i]=information.outputAttributeIndex(targetOutputIndices[i]);
+		return indices;
 	}
 
 
 	@Override
 	public Instance sourceInstanceToTarget(Instance sourceInstance) {
-		double [] attValues = new double[targetInstances.numAttributes()];
-		Instance newInstance=new InstanceImpl(sourceInstance.weight(),attValues);
-		int numInputs=this.targetInstances.numInputAttributes();
-		for (int i=0; i<numInputs; i++){
-			newInstance.setValue(i, sourceInstance.valueInputAttribute(i));
-		}
-		for (int i=0; i<this.targetOutputIndices.length; i++){
-			newInstance.setValue(numInputs+i, sourceInstance.valueOutputAttribute(targetOutputIndices[i]));
-		}
-		newInstance.setDataset(targetInstances);
-		return newInstance;
+		//a view of the source instance, nothing is copied
+		return new ProjectedInstance(sourceInstance, this.sourceIndices, this.targetInstances);
 	}
 
 	@Override
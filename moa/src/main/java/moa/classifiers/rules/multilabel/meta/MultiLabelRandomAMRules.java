@@ -21,8 +21,11 @@
 
 package moa.classifiers.rules.multilabel.meta;
 
+import java.util.function.IntConsumer;
+
 import moa.classifiers.AbstractMultiLabelLearner;
 import moa.classifiers.MultiTargetRegressor;
+import moa.classifiers.meta.EnsembleExecutor;
 import moa.classifiers.rules.featureranking.BasicFeatureRanking;
 import moa.classifiers.rules.featureranking.FeatureRanking;
 import moa.classifiers.rules.featureranking.NoFeatureRanking;
@@ -86,6 +89,11 @@ implements MultiTargetRegressor {
 
 	public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
 			"Seed for random behaviour of the classifier.", 1);
+
+	public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+			"Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+	protected EnsembleExecutor executor;
 	protected AMRulesMultiLabelLearner [] ensemble;
 
 	protected MultiLabelErrorMeasurer [] errorMeasurer;
@@ -122,6 +130,7 @@ implements MultiTargetRegressor {
 			this.ensemble[i].setRandomSeed(this.classifierRandom.nextInt());
 			this.errorMeasurer[i]=(MultiLabelErrorMeasurer)measurer.copy();
 		}
+		this.executor = new EnsembleExecutor(this.numberOfJobsOption.getValue());
 		this.isRegression = (baseLearner instanceof MultiTargetRegressor);
                 featureRanking=  (FeatureRanking) getPreparedClassOption(this.featureRankingOption);
 	}
@@ -134,21 +143,37 @@ implements MultiTargetRegressor {
 			}
 			nAttributes=instance.numInputAttributes();
 		}
+		final int[] weights = new int[this.ensemble.length];
 		for (int i = 0; i < this.ensemble.length; i++) {
-			MultiLabelInstance inst=(MultiLabelInstance)instance.copy();
 			int k = 1;
 			if ( this.useBaggingOption.isSet()) {
 				k = MiscUtils.poisson(1.0, this.classifierRandom);
 			} 
-			if (k > 0) {
-				//Instance weightedInst = transformInstance(inst,i);
-				inst.setWeight(inst.weight() * k);
-				//estimate error
-				Prediction p=ensemble[i].getPredictionForInstance(inst);
-				if(p!=null)
-					errorMeasurer[i].addPrediction(p, inst);	
-				//train learner
-				this.ensemble[i].trainOnInstance(inst);
+			weights[i] = k;
+		}
+		final MultiLabelInstance source = instance;
+		IntConsumer trainMember = new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				if (weights[i] > 0) {
+					MultiLabelInstance inst=(MultiLabelInstance)source.copy();
+					//Instance weightedInst = transformInstance(inst,i);
+					inst.setWeight(inst.weight() * weights[i]);
+					//estimate error
+					Prediction p=ensemble[i].getPredictionForInstance(inst);
+					if(p!=null)
+						errorMeasurer[i].addPrediction(p, inst);	
+					//train learner
+					ensemble[i].trainOnInstance(inst);
+				}
+			}
+		};
+		//the members share the feature ranking, which must see their messages in order
+		if (this.featureRanking instanceof NoFeatureRanking) {
+			this.executor.forEachMember(this.ensemble.length, trainMember);
+		} else {
+			for (int i = 0; i < this.ensemble.length; i++) {
+				trainMember.accept(i);
 			}
 		}
 	}
@@ -157,14 +182,22 @@ implements MultiTargetRegressor {
 	public Prediction getPredictionForInstance(MultiLabelInstance inst) {
 		Prediction vote=null;
 		//ErrorWeightedVote combinedVote = (ErrorWeightedVote)((ErrorWeightedVote) votingTypeOption.getPreMaterializedObject()).copy();
-		ErrorWeightedVoteMultiLabel combinedVote = (ErrorWeightedVoteMultiLabel)((ErrorWeightedVoteMultiLabel) getPreparedClassOption(this.votingFunctionOption)).copy();
+		ErrorWeightedVoteMultiLabel combinedVote = (ErrorWeightedVoteMultiLabel) getPreparedClassOptionCopy(this.votingFunctionOption);
 		StringBuilder sb = null;
 		if (VerbosityOption.getValue()>1)
 			sb=new StringBuilder();
 
+		final ErrorWeightedVoteMultiLabel[] votes = new ErrorWeightedVoteMultiLabel[this.ensemble.length];
+		final MultiLabelInstance instance = inst;
+		this.executor.forEachMember(this.ensemble.length, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				// transformInstance method visibility changed from private to protected in RandomRules
+				votes[i] = ((AMRulesMultiLabelLearner) ensemble[i]).getVotes(instance);
+			}
+		});
 		for (int i = 0; i < this.ensemble.length; i++) {
-			// transformInstance method visibility changed from private to protected in RandomRules
-			ErrorWeightedVoteMultiLabel v = ((AMRulesMultiLabelLearner) this.ensemble[i]).getVotes(inst);
+			ErrorWeightedVoteMultiLabel v = votes[i];
 			if (VerbosityOption.getValue()>1)
 				sb.append(v.getPrediction() + ", " + " E: " + v.getWeightedError() + " ");
 			/*if (!this.isRegression){
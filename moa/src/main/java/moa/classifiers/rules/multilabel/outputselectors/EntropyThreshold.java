@@ -20,7 +20,9 @@
 package moa.classifiers.rules.multilabel.outputselectors;
 
 import com.github.javacliparser.FloatOption;
-import java.util.LinkedList;
+import com.github.javacliparser.IntOption;
+import java.util.Arrays;
+import moa.classifiers.rules.core.TopKSelector;
 import moa.classifiers.rules.core.Utils;
 import moa.core.DoubleVector;
 import moa.core.ObjectRepository;
@@ -49,6 +51,10 @@ OutputAttributesSelector {
 			'p', "Maximum allowed Entropy (entropy(new)/entropy(old)).",
 			1.0, 0.5, 2.0);
 
+	public IntOption maxOutputsOption = new IntOption("maxOutputs",
+			'k', "Maximum number of outputs to keep, the ones that improve the most (0 keeps all the outputs below the threshold).",
+			0, 0, Integer.MAX_VALUE);
+
 
 	public int[] getNextOutputIndices(DoubleVector[] resultingStatistics, DoubleVector[] currentLiteralStatistics, int[] currentIndices) {
             
@@ -56,25 +62,28 @@ OutputAttributesSelector {
 		double threshold=thresholdOption.getValue();
 		
 
+		int maxOutputs=maxOutputsOption.getValue();
+		TopKSelector best=maxOutputs>0 && maxOutputs<numCurrentOutputs ? new TopKSelector(maxOutputs) : null;
+
         //get new outputs
-		LinkedList<Integer> newOutputsList= new LinkedList<Integer>();
+		int [] newOutputs=best==null ? new int[numCurrentOutputs] : null;
+		int ct=0;
 		for(int i=0; i<numCurrentOutputs;i++){
 
             double EntRes=Utils.computeEntropy(resultingStatistics[i].getValue(0),resultingStatistics[i].getValue(1));
 			double EntCur=Utils.computeEntropy(currentLiteralStatistics[i].getValue(0),currentLiteralStatistics[i].getValue(1));
 
-                        if( (EntCur-EntRes) > 0 || EntCur==0) 
-				newOutputsList.add(currentIndices[i]);
+                        if( (EntCur-EntRes) > 0 || EntCur==0) {
+				if(best!=null)
+					best.offer(currentIndices[i], EntCur-EntRes);
+				else
+					newOutputs[ct++]=currentIndices[i];
+			}
                         
 		}
-		//list to array
-		int [] newOutputs=new int[newOutputsList.size()];
-		int ct=0;
-		for(int outIndex : newOutputsList){
-			newOutputs[ct]=outIndex;
-			++ct;
-		}
-		return newOutputs;
+		if(best!=null)
+			return best.removeAllInIndexOrder();
+		return ct==newOutputs.length ? newOutputs : Arrays.copyOf(newOutputs, ct);
 	}
 
 
@@ -19,8 +19,9 @@
  */
 package moa.classifiers.rules.multilabel.outputselectors;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
+import moa.classifiers.rules.core.TopKSelector;
 import moa.classifiers.rules.core.Utils;
 import moa.core.DoubleVector;
 import moa.core.ObjectRepository;
@@ -28,6 +29,7 @@ import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
 
 import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
 
 public class VarianceThreshold extends AbstractOptionHandler implements
 OutputAttributesSelector {
@@ -41,27 +43,33 @@ OutputAttributesSelector {
 			'p', "Maximum allowed variance ratio (variance(new)/variance(old)).",
 			1.0, 0.5, 2.0);
 
+	public IntOption maxOutputsOption = new IntOption("maxOutputs",
+			'k', "Maximum number of outputs to keep, the ones that improve the most (0 keeps all the outputs below the threshold).",
+			0, 0, Integer.MAX_VALUE);
+
 
 	public int[] getNextOutputIndices(DoubleVector[] resultingStatistics, DoubleVector[] currentLiteralStatistics, int[] currentIndices) {
 		int numCurrentOutputs=resultingStatistics.length;
 		double threshold=thresholdOption.getValue();
+		int maxOutputs=maxOutputsOption.getValue();
+		TopKSelector best=maxOutputs>0 && maxOutputs<numCurrentOutputs ? new TopKSelector(maxOutputs) : null;
 		//get new outputs
-		LinkedList<Integer> newOutputsList= new LinkedList<Integer>();
+		int [] newOutputs=best==null ? new int[numCurrentOutputs] : null;
+		int ct=0;
 		for(int i=0; i<numCurrentOutputs;i++){
 			double stdRes=Utils.computeVariance(resultingStatistics[i].getValue(0),resultingStatistics[i].getValue(3),resultingStatistics[i].getValue(4));
 			double stdCur=Utils.computeVariance(currentLiteralStatistics[i].getValue(0),currentLiteralStatistics[i].getValue(3),currentLiteralStatistics[i].getValue(4));
 	
-			if(stdRes/stdCur<=threshold || stdCur==0) 
-				newOutputsList.add(currentIndices[i]);
-		}
-		//list to array
-		int [] newOutputs=new int[newOutputsList.size()];
-		int ct=0;
-		for(int outIndex : newOutputsList){
-			newOutputs[ct]=outIndex;
-			++ct;
+			if(stdRes/stdCur<=threshold || stdCur==0) {
+				if(best!=null)
+					best.offer(currentIndices[i], -stdRes/stdCur); //lower ratio first, outputs without variance last
+				else
+					newOutputs[ct++]=currentIndices[i];
+			}
 		}
-		return newOutputs;
+		if(best!=null)
+			return best.removeAllInIndexOrder();
+		return ct==newOutputs.length ? newOutputs : Arrays.copyOf(newOutputs, ct);
 	}
 
 
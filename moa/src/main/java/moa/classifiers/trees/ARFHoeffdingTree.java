@@ -110,6 +110,9 @@ public class ARFHoeffdingTree extends HoeffdingTree {
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+                if (ht.telemetry != null) {
+                    ht.telemetry.recordObserverUpdate(i);
+                }
             }
         }
     }
@@ -98,6 +98,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.telemetry = this.telemetryOption.isSet() ? new HoeffdingTreeTelemetry() : null;
     }
 
     @Override
@@ -115,14 +116,14 @@ public class ASHoeffdingTree extends HoeffdingTree {
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
-            learningNode.learnFromInstance(inst, this);
+            learnFromInstanceAtLeaf(learningNode, inst);
             if (this.growthAllowed
                     && (learningNode instanceof ActiveLearningNode)) {
                 ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
                         - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
-                    attemptToSplit(activeLearningNode, foundNode.parent,
+                    attemptToSplitAndRecord(activeLearningNode, foundNode.parent,
                             foundNode.parentBranch);
                     //EXTENSION TO ASHT
                     // if size too big, resize tree ONLY Split Nodes
@@ -86,6 +86,18 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     "The number of instances an internal node should observe between re-evaluation attempts.",
     2000, 0, Integer.MAX_VALUE);
 
+  public FloatOption reEvalBudgetOption = new FloatOption(
+    "reevaluationBudget",
+    'B',
+    "Number of attribute evaluations per instance that can be spent re-evaluating internal nodes; re-evaluating a node costs one evaluation per attribute it still observes. Nodes that have observed reevaluationPeriod instances since their last re-evaluation are scheduled by growth and closeness to the Hoeffding bound. 0 re-evaluates every node on the path every reevaluationPeriod instances.",
+    0.0, 0.0, Double.MAX_VALUE);
+
+  public IntOption observersKeptAtSplitsOption = new IntOption(
+    "observersKeptAtSplits",
+    'K',
+    "The number of attributes, besides the split attribute, whose statistics are kept when a node becomes an internal node, ranked by their average merit. The statistics of the other attributes are discarded, so re-evaluation can no longer split on them. 0 keeps all statistics.",
+    0, 0, Integer.MAX_VALUE);
+
   public IntOption maxByteSizeOption = new IntOption("maxByteSize", 'm',
     "Maximum memory consumed by the tree.", 33554432, 0,
     Integer.MAX_VALUE);
@@ -180,6 +192,14 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
   protected int splitCount = 0;
 
+  // Attribute evaluations left for re-evaluations, only used if reevaluationBudget is set
+  protected double reEvalCredit;
+
+  protected int reEvalCount;
+
+  // Internal nodes on the path of the current instance that are due for re-evaluation
+  protected transient List<FoundNode> dueReEvaluations;
+
   @Override
   public String getPurposeString() {
     return "Hoeffding Tree or VFDT.";
@@ -208,6 +228,9 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     this.activeLeafByteSizeEstimate = 0.0;
     this.byteSizeEstimateOverheadFraction = 1.0;
     this.growthAllowed = true;
+    this.reEvalCredit = 0.0;
+    this.reEvalCount = 0;
+    this.dueReEvaluations = null;
     if (this.leafpredictionOption.getChosenIndex() > 0) {
       this.removePoorAttsOption = null;
     }
@@ -234,7 +257,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
   protected Measurement[] getModelMeasurementsImpl() {
     FoundNode[] learningNodes = findLearningNodes();
 
-    return new Measurement[]{
+    List<Measurement> measurements = new ArrayList<>(Arrays.asList(
 
       new Measurement("tree size (nodes)", this.decisionNodeCount
 	+ this.activeLeafNodeCount + this.inactiveLeafNodeCount),
@@ -249,7 +272,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       new Measurement("byte size estimate overhead",
 	this.byteSizeEstimateOverheadFraction),
       new Measurement("splits",
-	this.splitCount)};
+	this.splitCount)));
+    if (this.reEvalBudgetOption.getValue() > 0.0) {
+      measurements.add(new Measurement("re-evaluations",
+	this.reEvalCount));
+    }
+    return measurements.toArray(new Measurement[measurements.size()]);
   }
 
   public int measureTreeDepth() {
@@ -541,6 +569,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	    node.getObservedClassDistribution(), splitDecision.numSplits());
 	  ((EFDTSplitNode) newSplit).attributeObservers = node.attributeObservers; // copy the attribute observers
 	  newSplit.setInfogainSum(node.getInfogainSum());  // transfer infogain history, leaf to split
+	  discardAttributeObservers((EFDTSplitNode) newSplit);
 
 	  for (int i = 0; i < splitDecision.numSplits(); i++) {
 
@@ -593,9 +622,106 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     ((EFDTNode) this.treeRoot).learnFromInstance(inst, this, null, -1);
 
+    if (this.reEvalBudgetOption.getValue() > 0.0) {
+      runDueReEvaluations();
+    }
+
     numInstances++;
   }
 
+  /**
+   * Re-evaluates the internal nodes collected while the current instance was
+   * sorted down the tree, by decreasing priority, for as long as the credit
+   * allows. The credit grows by reevaluationBudget attribute evaluations every
+   * instance, up to the budget of a whole reevaluationPeriod, and a
+   * re-evaluation costs the number of attributes the node observes, so the
+   * same stream always yields the same tree. The tree is restructured at
+   * most once per instance: nodes that are skipped stay due and are scheduled
+   * again the next time an instance reaches them.
+   */
+  protected void runDueReEvaluations() {
+    double budget = this.reEvalBudgetOption.getValue();
+    this.reEvalCredit = Math.min(this.reEvalCredit + budget,
+      budget * Math.max(1, this.reEvalPeriodOption.getValue()));
+    if (this.dueReEvaluations == null || this.dueReEvaluations.isEmpty()) {
+      return;
+    }
+    this.dueReEvaluations.sort(new Comparator<FoundNode>() {
+
+      @Override
+      public int compare(FoundNode fn1, FoundNode fn2) {
+	return Double.compare(((EFDTSplitNode) fn2.node).reEvaluationPriority(EFDT.this),
+	  ((EFDTSplitNode) fn1.node).reEvaluationPriority(EFDT.this));
+      }
+    });
+    for (FoundNode due : this.dueReEvaluations) {
+      if (this.reEvalCredit <= 0.0) {
+	break;
+      }
+      EFDTSplitNode node = (EFDTSplitNode) due.node;
+      this.reEvalCredit -= numObservedAttributes(node);
+      node.reEvaluateBestSplit(node, (EFDTSplitNode) due.parent, due.parentBranch);
+      Node current = due.parent == null ? this.treeRoot : due.parent.getChild(due.parentBranch);
+      if (current != node) {
+	break;
+      }
+    }
+    this.dueReEvaluations.clear();
+  }
+
+  /**
+   * Counts the attributes whose split suggestions are evaluated when the
+   * given node is re-evaluated.
+   */
+  protected static int numObservedAttributes(EFDTSplitNode node) {
+    int count = 0;
+    if (node.attributeObservers != null) {
+      for (AttributeClassObserver obs : node.attributeObservers) {
+	if (obs != null && !(obs instanceof NullAttributeClassObserver)) {
+	  count++;
+	}
+      }
+    }
+    return Math.max(1, count);
+  }
+
+  /**
+   * Keeps the observers of the split attribute and of the
+   * observersKeptAtSplits attributes with the highest sum of merits at a new
+   * split node, and discards the other observers by replacing them with null
+   * observers. Their statistics are lost, so later re-evaluations of the node
+   * only consider the kept attributes.
+   */
+  protected void discardAttributeObservers(EFDTSplitNode node) {
+    int numKept = this.observersKeptAtSplitsOption.getValue();
+    if (numKept <= 0 || node.attributeObservers == null) {
+      return;
+    }
+    final HashMap<Integer, Double> infogainSum = node.getInfogainSum();
+    List<Integer> ranked = new ArrayList<>();
+    for (Integer att : infogainSum.keySet()) {
+      if (att >= 0) {
+	ranked.add(att);
+      }
+    }
+    ranked.sort(new Comparator<Integer>() {
+
+      @Override
+      public int compare(Integer a1, Integer a2) {
+	return Double.compare(infogainSum.get(a2), infogainSum.get(a1));
+      }
+    });
+    Set<Integer> kept = new HashSet<>(ranked.subList(0, Math.min(numKept, ranked.size())));
+    if (node.splitTest != null) {
+      kept.add(node.splitTest.getAttsTestDependsOn()[0]);
+    }
+    for (int i = 0; i < node.attributeObservers.size(); i++) {
+      if (!kept.contains(i) && node.attributeObservers.get(i) != null) {
+	node.attributeObservers.set(i, new NullAttributeClassObserver());
+      }
+    }
+  }
+
 
   protected LearningNode newLearningNode() {
     return new EFDTLearningNode(new double[0]);
@@ -888,6 +1014,12 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
 
+    // nodeTime at the last re-evaluation of this node
+    protected int nodeTimeAtLastReEvaluation;
+
+    // Distance of the last deltaG below the Hoeffding bound, relative to the bound
+    protected double lastReEvaluationGap;
+
     public EFDTSplitNode(InstanceConditionalTest splitTest, double[] classObservations, int size) {
       super(splitTest, classObservations, size);
     }
@@ -969,7 +1101,15 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       }
 
       // check if a better split is available. if so, chop the tree at this point, copying likelihood. predictors for children are from parent likelihood.
-      if (ht.numInstances % ht.reEvalPeriodOption.getValue() == 0) {
+      if (ht.reEvalBudgetOption.getValue() > 0.0) {
+	if (this.nodeTime - this.nodeTimeAtLastReEvaluation >= ht.reEvalPeriodOption.getValue()) {
+	  if (ht.dueReEvaluations == null) {
+	    ht.dueReEvaluations = new ArrayList<>();
+	  }
+	  ht.dueReEvaluations.add(new FoundNode(this, parent, parentBranch));
+	}
+      }
+      else if (ht.numInstances % ht.reEvalPeriodOption.getValue() == 0) {
 	this.reEvaluateBestSplit(this, parent, parentBranch);
       }
 
@@ -982,11 +1122,24 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     }
 
+    /**
+     * Priority of this node in the re-evaluation schedule: the number of
+     * reevaluationPeriods observed since the last re-evaluation, discounted
+     * when the last deltaG was far below the Hoeffding bound.
+     */
+    public double reEvaluationPriority(EFDT ht) {
+      double growth = (this.nodeTime - this.nodeTimeAtLastReEvaluation)
+	/ (double) Math.max(1, ht.reEvalPeriodOption.getValue());
+      return growth / (1.0 + this.lastReEvaluationGap);
+    }
+
     protected void reEvaluateBestSplit(EFDTSplitNode node, EFDTSplitNode parent,
 				       int parentIndex) {
 
 
       node.addToSplitAttempts(1);
+      node.nodeTimeAtLastReEvaluation = node.nodeTime;
+      EFDT.this.reEvalCount++;
 
       // EFDT must transfer over gain averages when replacing a node: leaf to split, split to leaf, or split to split
       // It must replace split nodes with leaves if null wins
@@ -1058,6 +1211,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
       // compute the average deltaG
       double deltaG = bestSuggestionAverageMerit - currentAverageMerit;
+      node.lastReEvaluationGap = hoeffdingBound > 0.0 ? Math.max(0.0, (hoeffdingBound - deltaG) / hoeffdingBound) : 0.0;
 
       if (deltaG > hoeffdingBound
 	|| (hoeffdingBound < tieThreshold && deltaG > tieThreshold / 2)) {
@@ -1088,6 +1242,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
 	  ((EFDTSplitNode) newSplit).attributeObservers = node.attributeObservers; // copy the attribute observers
 	  newSplit.setInfogainSum(node.getInfogainSum());  // transfer infogain history, split to replacement split
+	  discardAttributeObservers((EFDTSplitNode) newSplit);
 
 	  if (node.splitTest == splitDecision.splitTest
 	    && node.splitTest.getClass() == NumericAttributeBinaryTest.class &&
@@ -21,7 +21,9 @@
 package moa.classifiers.trees;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -424,19 +426,38 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 		}
 
 		public void disableChangeDetection() {
-			changeDetection = false;
-			for (Node child : children) {
-				child.disableChangeDetection();
+			Deque<Node> stack = new ArrayDeque<Node>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				if (node instanceof InnerNode) {
+					node.changeDetection = false;
+					for (Node child : ((InnerNode) node).children) {
+						stack.push(child);
+					}
+				} else {
+					node.disableChangeDetection();
+				}
 			}
 		}
 
 		public void restartChangeDetection() {
-			if (alternateTree == null) {
-				changeDetection = true;
-				PHsum = 0;
-				PHmin = Integer.MAX_VALUE;
-				for (Node child : children)
-					child.restartChangeDetection();
+			Deque<Node> stack = new ArrayDeque<Node>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				if (node instanceof InnerNode) {
+					InnerNode inner = (InnerNode) node;
+					if (inner.alternateTree == null) {
+						inner.changeDetection = true;
+						inner.PHsum = 0;
+						inner.PHmin = Integer.MAX_VALUE;
+						for (Node child : inner.children)
+							stack.push(child);
+					}
+				} else {
+					node.restartChangeDetection();
+				}
 			}
 		}
 		
@@ -505,21 +526,44 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 		}
 
 		public void describeSubtree(StringBuilder out, int indent) {
-			for (int branch = 0; branch < children.size(); branch++) {
-				Node child = getChild(branch);
-				if (child != null) {
-					StringUtils.appendIndented(out, indent, "if ");
-					out.append(this.splitTest.describeConditionForBranch(branch,
-							tree.getModelContext()));
-					out.append(": ");
-					StringUtils.appendNewline(out);
-					child.describeSubtree(out, indent + 2);
+			// The split nodes being described, with the next branch to describe
+			Deque<SplitNode> path = new ArrayDeque<SplitNode>();
+			Deque<Integer> nextBranches = new ArrayDeque<Integer>();
+			path.push(this);
+			nextBranches.push(0);
+			while (!path.isEmpty()) {
+				SplitNode splitNode = path.peek();
+				int branch = nextBranches.pop();
+				while (branch < splitNode.children.size() && splitNode.getChild(branch) == null) {
+					branch++;
+				}
+				if (branch >= splitNode.children.size()) {
+					path.pop();
+					continue;
+				}
+				nextBranches.push(branch + 1);
+				int branchIndent = indent + 2 * (path.size() - 1);
+				Node child = splitNode.getChild(branch);
+				StringUtils.appendIndented(out, branchIndent, "if ");
+				out.append(splitNode.splitTest.describeConditionForBranch(branch,
+						tree.getModelContext()));
+				out.append(": ");
+				StringUtils.appendNewline(out);
+				if (child instanceof SplitNode) {
+					path.push((SplitNode) child);
+					nextBranches.push(0);
+				} else {
+					child.describeSubtree(out, branchIndent + 2);
 				}
 			}
 		}
 
 		public double getPrediction(Instance inst) {
-			return children.get(splitTest.branchForInstance(inst)).getPrediction(inst);
+			Node node = this;
+			while (node instanceof SplitNode) {
+				node = ((SplitNode) node).descendOneStep(inst);
+			}
+			return node.getPrediction(inst);
 		}
 	}
 
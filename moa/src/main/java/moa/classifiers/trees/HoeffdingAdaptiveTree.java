@@ -19,6 +19,7 @@
  */
 package moa.classifiers.trees;
 
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -107,21 +108,21 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         //		return ErrorChange;
         //}
         @Override
-        public int calcByteSizeIncludingSubtree() {
-            int byteSize = calcByteSize();
-            if (alternateTree != null) {
-                byteSize += alternateTree.calcByteSizeIncludingSubtree();
-            }
+        public int calcByteSize() {
+            int byteSize = super.calcByteSize();
             if (estimationErrorWeight != null) {
                 byteSize += estimationErrorWeight.measureByteSize();
             }
-            for (Node child : this.children) {
-                if (child != null) {
-                    byteSize += child.calcByteSizeIncludingSubtree();
-                }
-            }
             return byteSize;
         }
+
+        @Override
+        protected void pushSubtreesToMeasure(Deque<Node> stack) {
+            super.pushSubtreesToMeasure(stack);
+            if (alternateTree != null) {
+                stack.push(alternateTree);
+            }
+        }
         
         public AdaSplitNode(InstanceConditionalTest splitTest,
                 double[] classObservations, int size) {
@@ -379,13 +380,13 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             }
 
             //Update statistics
-            learnFromInstance(weightedInst, ht);	//inst
+            ht.learnFromInstanceAtLeaf(this, weightedInst);	//inst
 
             //Check for Split condition
             double weightSeen = this.getWeightSeen();
             if (weightSeen
                     - this.getWeightSeenAtLastSplitEvaluation() >= ht.gracePeriodOption.getValue()) {
-                ht.attemptToSplit(this, parent,
+                ht.attemptToSplitAndRecord(this, parent,
                         parentBranch);
                 this.setWeightSeenAtLastSplitEvaluation(weightSeen);
             }
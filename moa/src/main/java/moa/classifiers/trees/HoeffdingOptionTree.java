@@ -22,8 +22,11 @@ package moa.classifiers.trees;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -297,15 +300,24 @@ public class HoeffdingOptionTree extends AbstractClassifier implements MultiClas
 
         @Override
         public int calcByteSizeIncludingSubtree() {
-            int byteSize = calcByteSize();
-            for (Node child : this.children) {
-                if (child != null) {
-                    byteSize += child.calcByteSizeIncludingSubtree();
+            int byteSize = 0;
+            Deque<Node> stack = new ArrayDeque<Node>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                byteSize += node.calcByteSize();
+                if (node instanceof SplitNode) {
+                    SplitNode splitNode = (SplitNode) node;
+                    for (Node child : splitNode.children) {
+                        if (child != null) {
+                            stack.push(child);
+                        }
+                    }
+                    if (splitNode.nextOption != null) {
+                        stack.push(splitNode.nextOption);
+                    }
                 }
             }
-            if (this.nextOption != null) {
-                byteSize += this.nextOption.calcByteSizeIncludingSubtree();
-            }
             return byteSize;
         }
 
@@ -344,54 +356,98 @@ public class HoeffdingOptionTree extends AbstractClassifier implements MultiClas
         public void filterInstanceToLeaves(Instance inst, SplitNode myparent,
                 int parentBranch, List<FoundNode> foundNodes,
                 boolean updateSplitterCounts) {
-            if (updateSplitterCounts) {
-                this.observedClassDistribution.addToValue((int) inst.classValue(), inst.weight());
-            }
-            int childIndex = instanceChildIndex(inst);
-            if (childIndex >= 0) {
-                Node child = getChild(childIndex);
-                if (child != null) {
-                    child.filterInstanceToLeaves(inst, this, childIndex,
-                            foundNodes, updateSplitterCounts);
-                } else {
-                    foundNodes.add(new FoundNode(null, this, childIndex));
+            // pending subtrees; the taken branch of a split node is visited
+            // before its next option, as in a depth-first recursion
+            Deque<FoundNode> stack = new ArrayDeque<FoundNode>();
+            stack.push(new FoundNode(this, myparent, parentBranch));
+            while (!stack.isEmpty()) {
+                FoundNode pending = stack.pop();
+                if (!(pending.node instanceof SplitNode)) {
+                    pending.node.filterInstanceToLeaves(inst, pending.parent,
+                            pending.parentBranch, foundNodes, updateSplitterCounts);
+                    continue;
+                }
+                SplitNode splitNode = (SplitNode) pending.node;
+                if (updateSplitterCounts) {
+                    splitNode.observedClassDistribution.addToValue((int) inst.classValue(), inst.weight());
+                }
+                if (splitNode.nextOption != null) {
+                    stack.push(new FoundNode(splitNode.nextOption, splitNode, -999));
+                }
+                int childIndex = splitNode.instanceChildIndex(inst);
+                if (childIndex >= 0) {
+                    Node child = splitNode.getChild(childIndex);
+                    if (child != null) {
+                        stack.push(new FoundNode(child, splitNode, childIndex));
+                    } else {
+                        foundNodes.add(new FoundNode(null, splitNode, childIndex));
+                    }
                 }
-            }
-            if (this.nextOption != null) {
-                this.nextOption.filterInstanceToLeaves(inst, this, -999,
-                        foundNodes, updateSplitterCounts);
             }
         }
 
         @Override
         public void describeSubtree(HoeffdingOptionTree ht, StringBuilder out,
                 int indent) {
-            for (int branch = 0; branch < numChildren(); branch++) {
-                Node child = getChild(branch);
+            // branches still to describe, with the indent of their subtree
+            Deque<FoundNode> stack = new ArrayDeque<FoundNode>();
+            Deque<Integer> indents = new ArrayDeque<Integer>();
+            pushBranchesToDescribe(this, indent + 2, stack, indents);
+            while (!stack.isEmpty()) {
+                FoundNode branch = stack.pop();
+                int branchIndent = indents.pop();
+                StringUtils.appendIndented(out, branchIndent - 2, "if ");
+                out.append(branch.parent.splitTest.describeConditionForBranch(
+                        branch.parentBranch, ht.getModelContext()));
+                out.append(": ");
+                out.append("** option count = " + branch.parent.optionCount);
+                StringUtils.appendNewline(out);
+                if (branch.node instanceof SplitNode) {
+                    pushBranchesToDescribe((SplitNode) branch.node,
+                            branchIndent + 2, stack, indents);
+                } else {
+                    branch.node.describeSubtree(ht, out, branchIndent);
+                }
+            }
+        }
+
+        private static void pushBranchesToDescribe(SplitNode splitNode,
+                int indent, Deque<FoundNode> stack, Deque<Integer> indents) {
+            // reverse order, so that branches are popped in order
+            for (int branch = splitNode.numChildren() - 1; branch >= 0; branch--) {
+                Node child = splitNode.getChild(branch);
                 if (child != null) {
-                    StringUtils.appendIndented(out, indent, "if ");
-                    out.append(this.splitTest.describeConditionForBranch(branch,
-                            ht.getModelContext()));
-                    out.append(": ");
-                    out.append("** option count = " + this.optionCount);
-                    StringUtils.appendNewline(out);
-                    child.describeSubtree(ht, out, indent + 2);
+                    stack.push(new FoundNode(child, splitNode, branch));
+                    indents.push(indent);
                 }
             }
         }
 
         @Override
         public int subtreeDepth() {
-            int maxChildDepth = 0;
-            for (Node child : this.children) {
-                if (child != null) {
-                    int depth = child.subtreeDepth();
-                    if (depth > maxChildDepth) {
-                        maxChildDepth = depth;
+            // the depth is the number of levels that contain a split node
+            int depth = 0;
+            List<Node> level = new ArrayList<Node>();
+            level.add(this);
+            while (!level.isEmpty()) {
+                List<Node> nextLevel = new ArrayList<Node>();
+                boolean levelHasSplitNode = false;
+                for (Node node : level) {
+                    if (node instanceof SplitNode) {
+                        levelHasSplitNode = true;
+                        for (Node child : ((SplitNode) node).children) {
+                            if (child != null) {
+                                nextLevel.add(child);
+                            }
+                        }
                     }
                 }
+                if (levelHasSplitNode) {
+                    depth++;
+                }
+                level = nextLevel;
             }
-            return maxChildDepth + 1;
+            return depth;
         }
 
         public double computeMeritOfExistingSplit(
@@ -1102,17 +1158,29 @@ public class HoeffdingOptionTree extends AbstractClassifier implements MultiClas
 
     protected void findLearningNodes(Node node, SplitNode parent,
             int parentBranch, List<FoundNode> found) {
+        Deque<FoundNode> stack = new ArrayDeque<FoundNode>();
         if (node != null) {
-            if (node instanceof LearningNode) {
-                found.add(new FoundNode(node, parent, parentBranch));
+            stack.push(new FoundNode(node, parent, parentBranch));
+        }
+        while (!stack.isEmpty()) {
+            FoundNode current = stack.pop();
+            if (current.node instanceof LearningNode) {
+                found.add(current);
             }
-            if (node instanceof SplitNode) {
-                SplitNode splitNode = (SplitNode) node;
-                for (int i = 0; i < splitNode.numChildren(); i++) {
-                    findLearningNodes(splitNode.getChild(i), splitNode, i,
-                            found);
+            if (current.node instanceof SplitNode) {
+                SplitNode splitNode = (SplitNode) current.node;
+                // reverse order, so that the nodes are found as in a
+                // depth-first recursion: children left to right, then the
+                // next option
+                if (splitNode.nextOption != null) {
+                    stack.push(new FoundNode(splitNode.nextOption, splitNode, -999));
+                }
+                for (int i = splitNode.numChildren() - 1; i >= 0; i--) {
+                    Node child = splitNode.getChild(i);
+                    if (child != null) {
+                        stack.push(new FoundNode(child, splitNode, i));
+                    }
                 }
-                findLearningNodes(splitNode.nextOption, splitNode, -999, found);
             }
         }
     }
@@ -19,8 +19,11 @@
  */
 package moa.classifiers.trees;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -50,6 +53,7 @@ import moa.classifiers.trees.HoeffdingTree.SplitNode;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
+import moa.core.MetricsSink;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
 import moa.core.Utils;
@@ -179,6 +183,9 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption telemetryOption = new FlagOption("telemetry", 'T',
+            "Collect split and growth statistics and report them as model measurements.");
+
     public static class FoundNode {
 
         public Node node;
@@ -212,6 +219,14 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
             return calcByteSize();
         }
 
+        /**
+         * Pushes the roots of the subtrees whose size is part of the size of
+         * this node's subtree. Used by the iterative
+         * calcByteSizeIncludingSubtree of split nodes.
+         */
+        protected void pushSubtreesToMeasure(Deque<Node> stack) {
+        }
+
         public boolean isLeaf() {
             return true;
         }
@@ -277,13 +292,24 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
 
         @Override
         public int calcByteSizeIncludingSubtree() {
-            int byteSize = calcByteSize();
+            int byteSize = 0;
+            Deque<Node> stack = new ArrayDeque<Node>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                byteSize += node.calcByteSize();
+                node.pushSubtreesToMeasure(stack);
+            }
+            return byteSize;
+        }
+
+        @Override
+        protected void pushSubtreesToMeasure(Deque<Node> stack) {
             for (Node child : this.children) {
                 if (child != null) {
-                    byteSize += child.calcByteSizeIncludingSubtree();
+                    stack.push(child);
                 }
             }
-            return byteSize;
         }
 
         public SplitNode(InstanceConditionalTest splitTest,
@@ -329,46 +355,87 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         @Override
         public FoundNode filterInstanceToLeaf(Instance inst, SplitNode parent,
                 int parentBranch) {
-            int childIndex = instanceChildIndex(inst);
-            if (childIndex >= 0) {
-                Node child = getChild(childIndex);
-                if (child != null) {
-                    return child.filterInstanceToLeaf(inst, this, childIndex);
+            SplitNode splitNode = this;
+            while (true) {
+                int childIndex = splitNode.instanceChildIndex(inst);
+                if (childIndex < 0) {
+                    return new FoundNode(splitNode, parent, parentBranch);
+                }
+                Node child = splitNode.getChild(childIndex);
+                if (child == null) {
+                    return new FoundNode(null, splitNode, childIndex);
+                }
+                if (!(child instanceof SplitNode)) {
+                    return child.filterInstanceToLeaf(inst, splitNode, childIndex);
                 }
-                return new FoundNode(null, this, childIndex);
+                parent = splitNode;
+                parentBranch = childIndex;
+                splitNode = (SplitNode) child;
             }
-            return new FoundNode(this, parent, parentBranch);
         }
                
 
         @Override
         public void describeSubtree(HoeffdingTree ht, StringBuilder out,
                 int indent) {
-            for (int branch = 0; branch < numChildren(); branch++) {
-                Node child = getChild(branch);
+            // branches still to describe, with the indent of their subtree
+            Deque<FoundNode> stack = new ArrayDeque<FoundNode>();
+            Deque<Integer> indents = new ArrayDeque<Integer>();
+            pushBranchesToDescribe(this, indent + 2, stack, indents);
+            while (!stack.isEmpty()) {
+                FoundNode branch = stack.pop();
+                int branchIndent = indents.pop();
+                StringUtils.appendIndented(out, branchIndent - 2, "if ");
+                out.append(branch.parent.splitTest.describeConditionForBranch(
+                        branch.parentBranch, ht.getModelContext()));
+                out.append(": ");
+                StringUtils.appendNewline(out);
+                if (branch.node instanceof SplitNode) {
+                    pushBranchesToDescribe((SplitNode) branch.node,
+                            branchIndent + 2, stack, indents);
+                } else {
+                    branch.node.describeSubtree(ht, out, branchIndent);
+                }
+            }
+        }
+
+        private static void pushBranchesToDescribe(SplitNode splitNode,
+                int indent, Deque<FoundNode> stack, Deque<Integer> indents) {
+            // reverse order, so that branches are popped in order
+            for (int branch = splitNode.numChildren() - 1; branch >= 0; branch--) {
+                Node child = splitNode.getChild(branch);
                 if (child != null) {
-                    StringUtils.appendIndented(out, indent, "if ");
-                    out.append(this.splitTest.describeConditionForBranch(branch,
-                            ht.getModelContext()));
-                    out.append(": ");
-                    StringUtils.appendNewline(out);
-                    child.describeSubtree(ht, out, indent + 2);
+                    stack.push(new FoundNode(child, splitNode, branch));
+                    indents.push(indent);
                 }
             }
         }
 
         @Override
         public int subtreeDepth() {
-            int maxChildDepth = 0;
-            for (Node child : this.children) {
-                if (child != null) {
-                    int depth = child.subtreeDepth();
-                    if (depth > maxChildDepth) {
-                        maxChildDepth = depth;
+            // the depth is the number of levels that contain a split node
+            int depth = 0;
+            List<Node> level = new ArrayList<Node>();
+            level.add(this);
+            while (!level.isEmpty()) {
+                List<Node> nextLevel = new ArrayList<Node>();
+                boolean levelHasSplitNode = false;
+                for (Node node : level) {
+                    if (node instanceof SplitNode) {
+                        levelHasSplitNode = true;
+                        for (Node child : ((SplitNode) node).children) {
+                            if (child != null) {
+                                nextLevel.add(child);
+                            }
+                        }
                     }
                 }
+                if (levelHasSplitNode) {
+                    depth++;
+                }
+                level = nextLevel;
             }
-            return maxChildDepth + 1;
+            return depth;
         }
     }
 
@@ -436,6 +503,9 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+                if (ht.telemetry != null) {
+                    ht.telemetry.recordObserverUpdate(i);
+                }
             }
         }
 
@@ -499,6 +569,8 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
     
     protected boolean maxDepthAllowed;
 
+    protected HoeffdingTreeTelemetry telemetry;
+
     public int calcByteSize() {
         int size = (int) SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -525,6 +597,23 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
         }
+        this.telemetry = this.telemetryOption.isSet() ? new HoeffdingTreeTelemetry() : null;
+    }
+
+    public HoeffdingTreeTelemetry getTelemetry() {
+        return this.telemetry;
+    }
+
+    /**
+     * Sends the split and growth statistics of the tree to a sink. Does
+     * nothing unless the telemetry option is set.
+     *
+     * @param sink the destination of the metrics
+     */
+    public void publishTelemetry(MetricsSink sink) {
+        if (this.telemetry != null) {
+            this.telemetry.publish(sink);
+        }
     }
 
     @Override
@@ -542,14 +631,14 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
-            learningNode.learnFromInstance(inst, this);
+            learnFromInstanceAtLeaf(learningNode, inst);
             if (this.growthAllowed
                     && (learningNode instanceof ActiveLearningNode)) {
                 ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
                         - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
-                    attemptToSplit(activeLearningNode, foundNode.parent,
+                    attemptToSplitAndRecord(activeLearningNode, foundNode.parent,
                             foundNode.parentBranch);
                     activeLearningNode.setWeightSeenAtLastSplitEvaluation(weightSeen);
                 }
@@ -581,7 +670,7 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
-        return new Measurement[]{
+        Measurement[] measurements = new Measurement[]{
                     new Measurement("tree size (nodes)", this.decisionNodeCount
                     + this.activeLeafNodeCount + this.inactiveLeafNodeCount),
                     new Measurement("tree size (leaves)", this.activeLeafNodeCount
@@ -595,6 +684,12 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
                     this.inactiveLeafByteSizeEstimate),
                     new Measurement("byte size estimate overhead",
                     this.byteSizeEstimateOverheadFraction)};
+        if (this.telemetry == null) {
+            return measurements;
+        }
+        List<Measurement> measurementList = new ArrayList<Measurement>(Arrays.asList(measurements));
+        this.telemetry.publish(MetricsSink.toMeasurements(measurementList));
+        return measurementList.toArray(new Measurement[measurementList.size()]);
     }
 
     public int measureTreeDepth() {
@@ -646,6 +741,37 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         return (AttributeClassObserver) numericClassObserver.copy();
     }
 
+    /**
+     * Updates the statistics of a leaf, timing the update when the telemetry
+     * option is set.
+     */
+    protected void learnFromInstanceAtLeaf(LearningNode learningNode, Instance inst) {
+        if (this.telemetry == null) {
+            learningNode.learnFromInstance(inst, this);
+            return;
+        }
+        long start = System.nanoTime();
+        learningNode.learnFromInstance(inst, this);
+        this.telemetry.recordLeafUpdate(System.nanoTime() - start, inst.numAttributes() - 1);
+    }
+
+    /**
+     * Calls attemptToSplit, recording its latency and whether the leaf was
+     * split when the telemetry option is set.
+     */
+    protected void attemptToSplitAndRecord(ActiveLearningNode node, SplitNode parent,
+            int parentIndex) {
+        if (this.telemetry == null) {
+            attemptToSplit(node, parent, parentIndex);
+            return;
+        }
+        int decisionNodes = this.decisionNodeCount;
+        long start = System.nanoTime();
+        attemptToSplit(node, parent, parentIndex);
+        this.telemetry.recordSplitAttempt(System.nanoTime() - start,
+                this.decisionNodeCount > decisionNodes);
+    }
+
     protected void attemptToSplit(ActiveLearningNode node, SplitNode parent,
             int parentIndex) {
         if (!node.observedClassDistributionIsPure()) {
@@ -725,10 +851,13 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
     }
 
     public void enforceTrackerLimit() {
-        if ((this.inactiveLeafNodeCount > 0)
-                || ((this.activeLeafNodeCount * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
+        boolean overLimit = (this.activeLeafNodeCount * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
                 * this.inactiveLeafByteSizeEstimate)
-                * this.byteSizeEstimateOverheadFraction > this.maxByteSizeOption.getValue())) {
+                * this.byteSizeEstimateOverheadFraction > this.maxByteSizeOption.getValue();
+        if (overLimit && this.telemetry != null) {
+            this.telemetry.recordMemoryLimitEvent();
+        }
+        if ((this.inactiveLeafNodeCount > 0) || overLimit) {
             if (this.stopMemManagementOption.isSet()) {
                 this.growthAllowed = false;
                 return;
@@ -829,6 +958,9 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         }
         this.activeLeafNodeCount--;
         this.inactiveLeafNodeCount++;
+        if (this.telemetry != null) {
+            this.telemetry.recordDeactivation();
+        }
     }
 
     protected void activateLearningNode(InactiveLearningNode toActivate,
@@ -841,6 +973,9 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
         }
         this.activeLeafNodeCount++;
         this.inactiveLeafNodeCount--;
+        if (this.telemetry != null) {
+            this.telemetry.recordReactivation();
+        }
     }
 
     protected FoundNode[] findLearningNodes() {
@@ -851,15 +986,23 @@ public class HoeffdingTree extends AbstractClassifier implements MultiClassClass
 
     protected void findLearningNodes(Node node, SplitNode parent,
             int parentBranch, List<FoundNode> found) {
+        Deque<FoundNode> stack = new ArrayDeque<FoundNode>();
         if (node != null) {
-            if (node instanceof LearningNode) {
-                found.add(new FoundNode(node, parent, parentBranch));
+            stack.push(new FoundNode(node, parent, parentBranch));
+        }
+        while (!stack.isEmpty()) {
+            FoundNode current = stack.pop();
+            if (current.node instanceof LearningNode) {
+                found.add(current);
             }
-            if (node instanceof SplitNode) {
-                SplitNode splitNode = (SplitNode) node;
-                for (int i = 0; i < splitNode.numChildren(); i++) {
-                    findLearningNodes(splitNode.getChild(i), splitNode, i,
-                            found);
+            if (current.node instanceof SplitNode) {
+                SplitNode splitNode = (SplitNode) current.node;
+                // reverse order, so that the nodes are found left to right
+                for (int i = splitNode.numChildren() - 1; i >= 0; i--) {
+                    Node child = splitNode.getChild(i);
+                    if (child != null) {
+                        stack.push(new FoundNode(child, splitNode, i));
+                    }
                 }
             }
         }
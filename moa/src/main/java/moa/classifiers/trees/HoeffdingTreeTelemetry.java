@@ -0,0 +1,151 @@
+/*
+ *    HoeffdingTreeTelemetry.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+import moa.core.MetricsSink;
+
+/**
+ * Counters describing how a Hoeffding tree grows: split attempts and their
+ * latency, successful splits, leaf deactivations and reactivations, memory
+ * limit events and attribute observer updates per attribute.
+ *
+ * The counters are plain fields updated by the tree while it trains, and are
+ * only published to a {@link MetricsSink} when the metrics are requested.
+ */
+public class HoeffdingTreeTelemetry extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    protected long splitAttempts;
+
+    protected long splitAttemptNanos;
+
+    protected long maxSplitAttemptNanos;
+
+    protected long splits;
+
+    protected long deactivations;
+
+    protected long reactivations;
+
+    protected long memoryLimitEvents;
+
+    protected long leafUpdates;
+
+    protected long leafUpdateNanos;
+
+    protected long[] observerUpdates = new long[0];
+
+    public void recordSplitAttempt(long nanos, boolean split) {
+        this.splitAttempts++;
+        this.splitAttemptNanos += nanos;
+        if (nanos > this.maxSplitAttemptNanos) {
+            this.maxSplitAttemptNanos = nanos;
+        }
+        if (split) {
+            this.splits++;
+        }
+    }
+
+    public void recordDeactivation() {
+        this.deactivations++;
+    }
+
+    public void recordReactivation() {
+        this.reactivations++;
+    }
+
+    public void recordMemoryLimitEvent() {
+        this.memoryLimitEvents++;
+    }
+
+    public void recordLeafUpdate(long nanos, int numAttributes) {
+        this.leafUpdates++;
+        this.leafUpdateNanos += nanos;
+        if (numAttributes > this.observerUpdates.length) {
+            this.observerUpdates = Arrays.copyOf(this.observerUpdates, numAttributes);
+        }
+    }
+
+    public void recordObserverUpdate(int attIndex) {
+        if (attIndex >= this.observerUpdates.length) {
+            this.observerUpdates = Arrays.copyOf(this.observerUpdates, attIndex + 1);
+        }
+        this.observerUpdates[attIndex]++;
+    }
+
+    public long getSplitAttempts() {
+        return this.splitAttempts;
+    }
+
+    public long getSplits() {
+        return this.splits;
+    }
+
+    public long getDeactivations() {
+        return this.deactivations;
+    }
+
+    public long getReactivations() {
+        return this.reactivations;
+    }
+
+    public long getMemoryLimitEvents() {
+        return this.memoryLimitEvents;
+    }
+
+    public long getObserverUpdates(int attIndex) {
+        return attIndex < this.observerUpdates.length ? this.observerUpdates[attIndex] : 0;
+    }
+
+    /**
+     * Sends the current value of every counter to the sink. Latencies are
+     * reported in microseconds.
+     *
+     * @param sink the destination of the metrics
+     */
+    public void publish(MetricsSink sink) {
+        sink.addMetric("split attempts", this.splitAttempts);
+        sink.addMetric("splits", this.splits);
+        sink.addMetric("mean split attempt latency (us)", this.splitAttempts > 0
+                ? this.splitAttemptNanos / (1000.0 * this.splitAttempts) : 0.0);
+        sink.addMetric("max split attempt latency (us)",
+                this.maxSplitAttemptNanos / 1000.0);
+        sink.addMetric("leaf deactivations", this.deactivations);
+        sink.addMetric("leaf reactivations", this.reactivations);
+        sink.addMetric("memory limit events", this.memoryLimitEvents);
+        sink.addMetric("mean leaf update latency (us)", this.leafUpdates > 0
+                ? this.leafUpdateNanos / (1000.0 * this.leafUpdates) : 0.0);
+        long totalObserverUpdates = 0;
+        for (long updates : this.observerUpdates) {
+            totalObserverUpdates += updates;
+        }
+        sink.addMetric("observer updates", totalObserverUpdates);
+        for (int i = 0; i < this.observerUpdates.length; i++) {
+            sink.addMetric("observer updates (attribute " + i + ")",
+                    this.observerUpdates[i]);
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
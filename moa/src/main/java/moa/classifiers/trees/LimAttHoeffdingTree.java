@@ -103,6 +103,9 @@ public class LimAttHoeffdingTree extends HoeffdingTree {
                     this.attributeObservers.set(i, obs);
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+                if (ht.telemetry != null) {
+                    ht.telemetry.recordObserverUpdate(i);
+                }
             }
         }
     }
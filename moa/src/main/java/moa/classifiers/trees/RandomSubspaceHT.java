@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 
 /**
  * Hoeffding Tree on a fixed random subspace of features
@@ -20,10 +22,16 @@ public class RandomSubspaceHT extends HoeffdingTree {
 	public boolean[] listAttributes;
 
 	public Instances instanceHeader;
+
+	// Index of each attribute of the subspace in the original instances, the class being last
+	protected int[] projectionIndexes;
+
+	protected InstancesHeader projectionHeader;
 	
 	public void setup(boolean[] listAttibutes, Instances instanceHeader) {
 		this.listAttributes = listAttibutes;
 		this.instanceHeader = instanceHeader;
+		this.projectionIndexes = null;
 	}
 
 	@Override
@@ -42,15 +50,7 @@ public class RandomSubspaceHT extends HoeffdingTree {
 			setupListAttributes(instance);
 		}
 
-		Instance instanceProjected = instance.copy();
-
-		for(int att = instanceProjected.numAttributes()-2; att >= 0; att--) {
-			if(this.listAttributes[att] == false) {
-				instanceProjected.deleteAttributeAt(att);	
-			}
-		}
-
-		instanceProjected.setDataset(instanceHeader);
+		Instance instanceProjected = project(instance);
 
 		super.trainOnInstanceImpl(instanceProjected);
 	}
@@ -61,17 +61,38 @@ public class RandomSubspaceHT extends HoeffdingTree {
 			setupListAttributes(instance);
 		}
 
-		Instance instanceProjected = instance.copy();
+		Instance instanceProjected = project(instance);
 
-		for(int att = instanceProjected.numAttributes()-2; att >= 0; att--) {
-			if(this.listAttributes[att] == false) {
-				instanceProjected.deleteAttributeAt(att);	
-			}
-		}
+		return super.getVotesForInstance(instanceProjected);
+	}
 
-		instanceProjected.setDataset(instanceHeader);
+	/**
+	 * Returns a view of the instance restricted to the subspace, without copying it.
+	 */
+	protected Instance project(Instance instance) {
+		if(this.projectionIndexes == null) {
+			setupProjection(instance.numAttributes());
+		}
+		return new ProjectedInstance(instance, this.projectionIndexes, this.projectionHeader);
+	}
 
-		return super.getVotesForInstance(instanceProjected);
+	protected void setupProjection(int numAttributes) {
+		int size = 1;
+		for(int att = 0; att < numAttributes-1; att++) {
+			if(this.listAttributes[att]) {
+				size++;
+			}
+		}
+		this.projectionIndexes = new int[size];
+		int index = 0;
+		for(int att = 0; att < numAttributes-1; att++) {
+			if(this.listAttributes[att]) {
+				this.projectionIndexes[index++] = att;
+			}
+		}
+		this.projectionIndexes[index] = numAttributes-1;
+		this.projectionHeader = this.instanceHeader instanceof InstancesHeader
+				? (InstancesHeader) this.instanceHeader : new InstancesHeader(this.instanceHeader);
 	}
 
 	@Override
@@ -85,6 +106,7 @@ public class RandomSubspaceHT extends HoeffdingTree {
 
 		this.listAttributes = new boolean[numberAttributes];
 		this.instanceHeader = new Instances(instance.dataset());
+		this.projectionIndexes = null;
 
 		ArrayList<Integer> attributesPool = new ArrayList<Integer>();
 
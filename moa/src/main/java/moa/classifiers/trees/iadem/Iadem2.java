@@ -29,7 +29,9 @@ import moa.classifiers.core.driftdetection.AbstractChangeDetector;
 
 import com.yahoo.labs.samoa.instances.Instance;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -1971,11 +1973,37 @@ public class Iadem2 extends AbstractClassifier implements MultiClassClassifier {
             this.children.set(index, child);
         }
 
+        /**
+         * Whether the traversals of the subtree can step through this node
+         * without calling its own methods. Split nodes that add to the
+         * traversals, like the ones with alternative subtrees in Iadem3,
+         * return false.
+         */
+        protected boolean isSteppedThrough() {
+            return true;
+        }
+
+        private boolean isSteppedThrough(Node node) {
+            return node instanceof SplitNode && ((SplitNode) node).isSteppedThrough();
+        }
+
         @Override
         public int getSubtreeNodeCount() {
             int count = 1;
+            Deque<Node> stack = new ArrayDeque<Node>();
             for (Node currentChild : this.children) {
-                count += currentChild.getSubtreeNodeCount();
+                stack.push(currentChild);
+            }
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (isSteppedThrough(node)) {
+                    count++;
+                    for (Node currentChild : ((SplitNode) node).children) {
+                        stack.push(currentChild);
+                    }
+                } else {
+                    count += node.getSubtreeNodeCount();
+                }
             }
             return count;
         }
@@ -1983,8 +2011,19 @@ public class Iadem2 extends AbstractClassifier implements MultiClassClassifier {
         @Override
         public ArrayList<LeafNode> getLeaves() {
             ArrayList<LeafNode> leaves = new ArrayList<LeafNode>();
-            for (Node currentChild : this.children) {
-                leaves.addAll(currentChild.getLeaves());
+            Deque<Node> stack = new ArrayDeque<Node>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node instanceof SplitNode) {
+                    // reverse order, so that the leaves are found left to right
+                    AutoExpandVector<Node> nodeChildren = ((SplitNode) node).children;
+                    for (int i = nodeChildren.size() - 1; i >= 0; i--) {
+                        stack.push(nodeChildren.get(i));
+                    }
+                } else {
+                    leaves.addAll(node.getLeaves());
+                }
             }
             return leaves;
         }
@@ -2024,25 +2063,37 @@ public class Iadem2 extends AbstractClassifier implements MultiClassClassifier {
 
         @Override
         public Node learnFromInstance(Instance inst) {
-            int childIndex = instanceChildIndex(inst);
-            if (childIndex >= 0) {
-                Node child = getChild(childIndex);
-                if (child != null) {
+            SplitNode splitNode = this;
+            while (true) {
+                int childIndex = splitNode.instanceChildIndex(inst);
+                if (childIndex < 0) {
+                    return null;
+                }
+                Node child = splitNode.getChild(childIndex);
+                if (child == null) {
+                    return null;
+                }
+                if (!isSteppedThrough(child)) {
                     return child.learnFromInstance(inst);
                 }
+                splitNode = (SplitNode) child;
             }
-            return null;
         }
 
         @Override
         public double[] getClassVotes(Instance inst) {
-            int childIndex = instanceChildIndex(inst);
-            // there is no missing value
-            if (childIndex >= 0) {
-                Node currentChild = getChild(childIndex);
-                return currentChild.getClassVotes(inst);
-            } else {
-                return this.classValueDist.getArrayCopy();
+            SplitNode splitNode = this;
+            while (true) {
+                int childIndex = splitNode.instanceChildIndex(inst);
+                // there is no missing value
+                if (childIndex < 0) {
+                    return splitNode.classValueDist.getArrayCopy();
+                }
+                Node currentChild = splitNode.getChild(childIndex);
+                if (!isSteppedThrough(currentChild)) {
+                    return currentChild.getClassVotes(inst);
+                }
+                splitNode = (SplitNode) currentChild;
             }
         }
 
@@ -2062,8 +2113,20 @@ public class Iadem2 extends AbstractClassifier implements MultiClassClassifier {
         @Override
         public void getNumberOfNodes(int[] count) {
             count[0]++;
+            Deque<Node> stack = new ArrayDeque<Node>();
             for (Node child : children) {
-                child.getNumberOfNodes(count);
+                stack.push(child);
+            }
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (isSteppedThrough(node)) {
+                    count[0]++;
+                    for (Node child : ((SplitNode) node).children) {
+                        stack.push(child);
+                    }
+                } else {
+                    node.getNumberOfNodes(count);
+                }
             }
         }
     }
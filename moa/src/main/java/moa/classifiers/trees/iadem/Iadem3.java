@@ -1224,6 +1224,11 @@ public class Iadem3 extends Iadem2 implements MultiClassClassifier {
             return trees;
         }
 
+        @Override
+        protected boolean isSteppedThrough() {
+            return false;
+        }
+
         @Override
         public double[] getClassVotes(Instance observacion) {
             double[] classDist = this.leaf.getClassVotes(observacion);
@@ -0,0 +1,78 @@
+/*
+ *    CentroidIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers;
+
+import java.io.Serializable;
+
+/**
+ * Index over the centres of micro-clusters, used by micro-clusterers to find
+ * the micro-cluster nearest to a point without comparing the point with every
+ * centre. Micro-clusters are identified by small non-negative integers chosen
+ * by the clusterer, and their centres are updated through put whenever they
+ * move.
+ *
+ * Distances are Euclidean and computed in the same order as a plain loop over
+ * the coordinates, and ties are broken towards the smallest id, so that an
+ * index gives the same answers as a linear scan over the ids.
+ */
+public interface CentroidIndex extends Serializable {
+
+    /**
+     * Removes all the centres from the index.
+     */
+    void clear();
+
+    /**
+     * Inserts a centre or moves an existing one.
+     *
+     * @param id the id of the micro-cluster
+     * @param center the centre, which is copied
+     * @param extent an upper bound on the radius of the micro-cluster, used
+     * by candidatesWithin
+     */
+    void put(int id, double[] center, double extent);
+
+    void remove(int id);
+
+    boolean contains(int id);
+
+    int size();
+
+    /**
+     * @param point the query point
+     * @param exclude an id to ignore, or -1
+     * @return the id of the nearest centre, or -1 if the index is empty
+     */
+    int nearest(double[] point, int exclude);
+
+    /**
+     * Returns the ids of all the micro-clusters whose centre is closer to the
+     * point than their extent plus the slack. Further micro-clusters may be
+     * returned as well.
+     *
+     * @param point the query point
+     * @param slack a tolerance added to every extent
+     * @return the ids, in no particular order
+     */
+    int[] candidatesWithin(double[] point, double slack);
+
+    /**
+     * @return the distance between the point and the indexed centre of id
+     */
+    double distance(double[] point, int id);
+}
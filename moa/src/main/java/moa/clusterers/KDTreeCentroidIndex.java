@@ -0,0 +1,464 @@
+/*
+ *    KDTreeCentroidIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers;
+
+import java.util.Arrays;
+
+/**
+ * Centroid index based on a kd-tree over the centres of the micro-clusters.
+ *
+ * Micro-clusters move a little every time they absorb a point, so the tree is
+ * not rebuilt on every move. Each centre remembers the position it had when the
+ * tree was built, and every node keeps the largest distance any of its centres
+ * has drifted since then. Searches subtract that drift from the distance to the
+ * bounding box of a node, so they remain exact. New centres, and centres that
+ * moved further than the size of their leaf, are kept in a small list that is
+ * scanned linearly, and the tree is rebuilt once the number of changes since
+ * the last build is comparable to its size.
+ */
+public class KDTreeCentroidIndex implements CentroidIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int LEAF_SIZE = 8;
+
+    /** Relative tolerance on pruning bounds, covering rounding errors. */
+    protected static final double TOLERANCE = 1e-9;
+
+    protected int dimensions = -1;
+
+    protected double[][] centers = new double[0][];
+
+    /** Position of each centre when the tree was built. */
+    protected double[][] indexedCenters = new double[0][];
+
+    protected double[] extents = new double[0];
+
+    protected double[] drifts = new double[0];
+
+    /** Leaf holding each centre, or -1 if the centre is in the pending list. */
+    protected int[] leafOf = new int[0];
+
+    protected int[] pending = new int[0];
+
+    protected int[] pendingPosition = new int[0];
+
+    protected int pendingCount;
+
+    protected int size;
+
+    protected int treeSize;
+
+    protected int changesSinceBuild;
+
+    protected int[] perm = new int[0];
+
+    protected int nodeCount;
+
+    protected int[] nodeLo = new int[0];
+
+    protected int[] nodeHi = new int[0];
+
+    protected int[] nodeLeft = new int[0];
+
+    protected int[] nodeRight = new int[0];
+
+    protected int[] nodeParent = new int[0];
+
+    protected double[] nodeMin = new double[0];
+
+    protected double[] nodeMax = new double[0];
+
+    protected double[] nodeDrift = new double[0];
+
+    protected double[] nodeExtent = new double[0];
+
+    // state of the current search
+    private double[] query;
+
+    private int exclude;
+
+    private int bestId;
+
+    private double bestDistance;
+
+    private double slack;
+
+    private int[] found;
+
+    private int foundCount;
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.centers, null);
+        this.size = 0;
+        this.pendingCount = 0;
+        this.treeSize = 0;
+        this.nodeCount = 0;
+        this.changesSinceBuild = 0;
+    }
+
+    @Override
+    public void put(int id, double[] center, double extent) {
+        if (this.dimensions < 0) {
+            this.dimensions = center.length;
+        }
+        ensureCapacity(id + 1);
+        this.extents[id] = extent;
+        if (this.centers[id] == null) {
+            this.centers[id] = center.clone();
+            this.leafOf[id] = -1;
+            this.pendingPosition[id] = this.pendingCount;
+            this.pending[this.pendingCount++] = id;
+            this.size++;
+            this.changesSinceBuild++;
+        } else {
+            System.arraycopy(center, 0, this.centers[id], 0, this.dimensions);
+            int node = this.leafOf[id];
+            if (node >= 0 && driftOf(id) > diagonal(node)) {
+                // a centre that jumped away, as when a micro-cluster is
+                // replaced, would spoil the bounds of all its ancestors
+                this.leafOf[id] = -1;
+                this.pendingPosition[id] = this.pendingCount;
+                this.pending[this.pendingCount++] = id;
+                this.changesSinceBuild++;
+            } else if (node >= 0) {
+                double drift = driftOf(id);
+                this.drifts[id] = drift;
+                for (; node >= 0; node = this.nodeParent[node]) {
+                    if (this.nodeDrift[node] < drift) {
+                        this.nodeDrift[node] = drift;
+                    }
+                    if (this.nodeExtent[node] < extent) {
+                        this.nodeExtent[node] = extent;
+                    }
+                }
+                this.changesSinceBuild++;
+            }
+        }
+        if (this.pendingCount > 16 + 2 * Math.sqrt(this.treeSize)
+                || this.changesSinceBuild > 16 + this.treeSize) {
+            build();
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        this.centers[id] = null;
+        if (this.leafOf[id] < 0) {
+            int position = this.pendingPosition[id];
+            int last = this.pending[--this.pendingCount];
+            this.pending[position] = last;
+            this.pendingPosition[last] = position;
+        }
+        this.leafOf[id] = -1;
+        this.size--;
+        this.changesSinceBuild++;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id >= 0 && id < this.centers.length && this.centers[id] != null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int nearest(double[] point, int exclude) {
+        this.query = point;
+        this.exclude = exclude;
+        this.bestId = -1;
+        this.bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < this.pendingCount; i++) {
+            consider(this.pending[i]);
+        }
+        if (this.nodeCount > 0) {
+            searchNearest(0, boxDistance(0));
+        }
+        this.query = null;
+        return this.bestId;
+    }
+
+    @Override
+    public int[] candidatesWithin(double[] point, double slack) {
+        this.query = point;
+        this.slack = slack;
+        this.found = new int[Math.max(4, this.pendingCount)];
+        this.foundCount = 0;
+        for (int i = 0; i < this.pendingCount; i++) {
+            collect(this.pending[i]);
+        }
+        if (this.nodeCount > 0) {
+            searchWithin(0);
+        }
+        int[] candidates = Arrays.copyOf(this.found, this.foundCount);
+        this.query = null;
+        this.found = null;
+        return candidates;
+    }
+
+    @Override
+    public double distance(double[] point, int id) {
+        return LinearCentroidIndex.distance(point, this.centers[id]);
+    }
+
+    private void consider(int id) {
+        if (id == this.exclude) {
+            return;
+        }
+        double distance = LinearCentroidIndex.distance(this.query, this.centers[id]);
+        if (this.bestId < 0 || distance < this.bestDistance
+                || (distance == this.bestDistance && id < this.bestId)) {
+            this.bestId = id;
+            this.bestDistance = distance;
+        }
+    }
+
+    private void collect(int id) {
+        if (LinearCentroidIndex.distance(this.query, this.centers[id]) < this.extents[id] + this.slack) {
+            if (this.foundCount == this.found.length) {
+                this.found = Arrays.copyOf(this.found, 2 * this.found.length);
+            }
+            this.found[this.foundCount++] = id;
+        }
+    }
+
+    private void searchNearest(int node, double boxDistance) {
+        if (this.bestId >= 0 && lowerBound(node, boxDistance) > this.bestDistance) {
+            return;
+        }
+        if (this.nodeLeft[node] < 0) {
+            for (int p = this.nodeLo[node]; p < this.nodeHi[node]; p++) {
+                int id = this.perm[p];
+                if (this.leafOf[id] == node) {
+                    consider(id);
+                }
+            }
+            return;
+        }
+        int left = this.nodeLeft[node];
+        int right = this.nodeRight[node];
+        double leftDistance = boxDistance(left);
+        double rightDistance = boxDistance(right);
+        if (leftDistance <= rightDistance) {
+            searchNearest(left, leftDistance);
+            searchNearest(right, rightDistance);
+        } else {
+            searchNearest(right, rightDistance);
+            searchNearest(left, leftDistance);
+        }
+    }
+
+    private void searchWithin(int node) {
+        if (lowerBound(node, boxDistance(node)) >= this.nodeExtent[node] + this.slack) {
+            return;
+        }
+        if (this.nodeLeft[node] < 0) {
+            for (int p = this.nodeLo[node]; p < this.nodeHi[node]; p++) {
+                int id = this.perm[p];
+                if (this.leafOf[id] == node) {
+                    collect(id);
+                }
+            }
+            return;
+        }
+        searchWithin(this.nodeLeft[node]);
+        searchWithin(this.nodeRight[node]);
+    }
+
+    /**
+     * A lower bound on the distance between the query and the current
+     * position of any centre in the node.
+     */
+    private double lowerBound(int node, double boxDistance) {
+        double bound = boxDistance - this.nodeDrift[node];
+        return bound - TOLERANCE * Math.abs(bound);
+    }
+
+    private double boxDistance(int node) {
+        int offset = node * this.dimensions;
+        double distance = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+            double v = this.query[i];
+            double d = 0.0;
+            if (v < this.nodeMin[offset + i]) {
+                d = this.nodeMin[offset + i] - v;
+            } else if (v > this.nodeMax[offset + i]) {
+                d = v - this.nodeMax[offset + i];
+            }
+            distance += d * d;
+        }
+        return Math.sqrt(distance);
+    }
+
+    private double diagonal(int node) {
+        int offset = node * this.dimensions;
+        double distance = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+            double d = this.nodeMax[offset + i] - this.nodeMin[offset + i];
+            distance += d * d;
+        }
+        return Math.sqrt(distance);
+    }
+
+    private double driftOf(int id) {
+        double[] center = this.centers[id];
+        double[] indexed = this.indexedCenters[id];
+        double distance = 0.0;
+        double magnitude = 0.0;
+        for (int i = 0; i < this.dimensions; i++) {
+            double d = center[i] - indexed[i];
+            distance += d * d;
+            magnitude = Math.max(magnitude, Math.abs(indexed[i]));
+        }
+        distance = Math.sqrt(distance);
+        return distance + TOLERANCE * (distance + magnitude);
+    }
+
+    protected void build() {
+        int n = 0;
+        this.perm = new int[this.size];
+        for (int id = 0; id < this.centers.length; id++) {
+            if (this.centers[id] != null) {
+                this.perm[n++] = id;
+                if (this.indexedCenters[id] == null) {
+                    this.indexedCenters[id] = new double[this.dimensions];
+                }
+                System.arraycopy(this.centers[id], 0, this.indexedCenters[id], 0, this.dimensions);
+                this.drifts[id] = 0.0;
+            }
+        }
+        int maxNodes = n / 2 + 2;
+        if (this.nodeLo.length < maxNodes) {
+            this.nodeLo = new int[maxNodes];
+            this.nodeHi = new int[maxNodes];
+            this.nodeLeft = new int[maxNodes];
+            this.nodeRight = new int[maxNodes];
+            this.nodeParent = new int[maxNodes];
+            this.nodeDrift = new double[maxNodes];
+            this.nodeExtent = new double[maxNodes];
+            this.nodeMin = new double[maxNodes * this.dimensions];
+            this.nodeMax = new double[maxNodes * this.dimensions];
+        }
+        this.nodeCount = 0;
+        if (n > 0) {
+            buildNode(0, n, -1);
+        }
+        this.pendingCount = 0;
+        this.treeSize = n;
+        this.changesSinceBuild = 0;
+    }
+
+    private int buildNode(int lo, int hi, int parent) {
+        int node = this.nodeCount++;
+        this.nodeLo[node] = lo;
+        this.nodeHi[node] = hi;
+        this.nodeParent[node] = parent;
+        this.nodeDrift[node] = 0.0;
+        int offset = node * this.dimensions;
+        Arrays.fill(this.nodeMin, offset, offset + this.dimensions, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.nodeMax, offset, offset + this.dimensions, Double.NEGATIVE_INFINITY);
+        double extent = 0.0;
+        for (int p = lo; p < hi; p++) {
+            int id = this.perm[p];
+            double[] center = this.indexedCenters[id];
+            for (int i = 0; i < this.dimensions; i++) {
+                this.nodeMin[offset + i] = Math.min(this.nodeMin[offset + i], center[i]);
+                this.nodeMax[offset + i] = Math.max(this.nodeMax[offset + i], center[i]);
+            }
+            extent = Math.max(extent, this.extents[id]);
+        }
+        this.nodeExtent[node] = extent;
+        if (hi - lo <= LEAF_SIZE) {
+            this.nodeLeft[node] = -1;
+            this.nodeRight[node] = -1;
+            for (int p = lo; p < hi; p++) {
+                this.leafOf[this.perm[p]] = node;
+            }
+            return node;
+        }
+        int splitDimension = 0;
+        double widest = -1.0;
+        for (int i = 0; i < this.dimensions; i++) {
+            double width = this.nodeMax[offset + i] - this.nodeMin[offset + i];
+            if (width > widest) {
+                widest = width;
+                splitDimension = i;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, splitDimension);
+        this.nodeLeft[node] = buildNode(lo, mid, node);
+        this.nodeRight[node] = buildNode(mid, hi, node);
+        return node;
+    }
+
+    /**
+     * Partially sorts perm[lo..hi] so that position k holds the centre that
+     * would be there if the range were sorted on the given dimension.
+     */
+    private void select(int lo, int hi, int k, int dimension) {
+        while (lo < hi) {
+            double pivot = this.indexedCenters[this.perm[(lo + hi) >>> 1]][dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (this.indexedCenters[this.perm[i]][dimension] < pivot) {
+                    i++;
+                }
+                while (this.indexedCenters[this.perm[j]][dimension] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = this.perm[i];
+                    this.perm[i] = this.perm[j];
+                    this.perm[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.centers.length) {
+            return;
+        }
+        capacity = Math.max(capacity, 2 * this.centers.length);
+        this.centers = Arrays.copyOf(this.centers, capacity);
+        this.indexedCenters = Arrays.copyOf(this.indexedCenters, capacity);
+        this.extents = Arrays.copyOf(this.extents, capacity);
+        this.drifts = Arrays.copyOf(this.drifts, capacity);
+        this.leafOf = Arrays.copyOf(this.leafOf, capacity);
+        this.pending = Arrays.copyOf(this.pending, capacity);
+        this.pendingPosition = Arrays.copyOf(this.pendingPosition, capacity);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *    LinearCentroidIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers;
+
+import java.util.Arrays;
+
+/**
+ * Centroid index that compares the query with every centre. It has no
+ * maintenance cost, which makes it the fastest choice for a few hundred
+ * micro-clusters.
+ */
+public class LinearCentroidIndex implements CentroidIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    protected double[][] centers = new double[0][];
+
+    protected double[] extents = new double[0];
+
+    protected int size;
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.centers, null);
+        this.size = 0;
+    }
+
+    @Override
+    public void put(int id, double[] center, double extent) {
+        if (id >= this.centers.length) {
+            int capacity = Math.max(id + 1, 2 * this.centers.length);
+            this.centers = Arrays.copyOf(this.centers, capacity);
+            this.extents = Arrays.copyOf(this.extents, capacity);
+        }
+        if (this.centers[id] == null) {
+            this.size++;
+        }
+        this.centers[id] = center.clone();
+        this.extents[id] = extent;
+    }
+
+    @Override
+    public void remove(int id) {
+        if (contains(id)) {
+            this.centers[id] = null;
+            this.size--;
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id < this.centers.length && this.centers[id] != null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int nearest(double[] point, int exclude) {
+        int nearest = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int id = 0; id < this.centers.length; id++) {
+            if (this.centers[id] == null || id == exclude) {
+                continue;
+            }
+            double distance = distance(point, this.centers[id]);
+            if (nearest < 0 || distance < minDistance) {
+                nearest = id;
+                minDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    @Override
+    public int[] candidatesWithin(double[] point, double slack) {
+        int[] candidates = new int[this.size];
+        int count = 0;
+        for (int id = 0; id < this.centers.length; id++) {
+            if (this.centers[id] != null
+                    && distance(point, this.centers[id]) < this.extents[id] + slack) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    @Override
+    public double distance(double[] point, int id) {
+        return distance(point, this.centers[id]);
+    }
+
+    public static double distance(double[] pointA, double[] pointB) {
+        double distance = 0.0;
+        for (int i = 0; i < pointA.length; i++) {
+            double d = pointA[i] - pointB[i];
+            distance += d * d;
+        }
+        return Math.sqrt(distance);
+    }
+}
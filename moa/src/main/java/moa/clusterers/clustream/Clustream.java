@@ -28,8 +28,12 @@ import moa.cluster.Cluster;
 import moa.cluster.Clustering;
 import moa.cluster.SphereCluster;
 import moa.clusterers.AbstractClusterer;
+import moa.clusterers.CentroidIndex;
+import moa.clusterers.KDTreeCentroidIndex;
+import moa.clusterers.LinearCentroidIndex;
 import moa.core.Measurement;
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -51,9 +55,16 @@ public class Clustream extends AbstractClusterer{
 			"kernelRadiFactor", 't',
 			"Multiplier for the kernel radius", 2);
 
+	public MultiChoiceOption centroidIndexOption = new MultiChoiceOption(
+			"centroidIndex", 'n', "Index used to find the nearest kernel.",
+			new String[]{"Linear", "KDTree"},
+			new String[]{"Compare every point with all the kernels",
+				"Kd-tree over the kernel centres, faster with thousands of kernels"}, 0);
+
 	private int timeWindow;
 	private long timestamp = -1;
 	private ClustreamKernel[] kernels;
+	private CentroidIndex centroidIndex;
 	private boolean initialized;
 	private List<ClustreamKernel> buffer; // Buffer for initialization with kNN
 	private int bufferSize;
@@ -73,6 +84,8 @@ public class Clustream extends AbstractClusterer{
 		this.bufferSize = maxNumKernelsOption.getValue();
 		t = kernelRadiFactorOption.getValue();
 		m = maxNumKernelsOption.getValue();
+		this.centroidIndex = centroidIndexOption.getChosenIndex() == 0
+				? new LinearCentroidIndex() : new KDTreeCentroidIndex();
 	}
 
 	@Override
@@ -100,6 +113,10 @@ public class Clustream extends AbstractClusterer{
 			for ( int i = 0; i < kmeans_clustering.size(); i++ ) {
 				kernels[i] = new ClustreamKernel( new DenseInstance(1.0,centers[i].getCenter()), dim, timestamp, t, m );
 			}
+			centroidIndex.clear();
+			for ( int i = 0; i < kernels.length; i++ ) {
+				centroidIndex.put( i, kernels[i].getCenter(), 0.0 );
+			}
 
 			buffer.clear();
 			initialized = true;
@@ -107,16 +124,10 @@ public class Clustream extends AbstractClusterer{
 
 
 		// 1. Determine closest kernel
-		ClustreamKernel closestKernel = null;
-		double minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
-			double distance = distance(instance.toDoubleArray(), kernels[i].getCenter() );
-			if ( distance < minDistance ) {
-				closestKernel = kernels[i];
-				minDistance = distance;
-			}
-		}
+		double[] point = instance.toDoubleArray();
+		int closest = this.centroidIndex.nearest( point, -1 );
+		ClustreamKernel closestKernel = kernels[closest];
+		double minDistance = this.centroidIndex.distance( point, closest );
 
 		// 2. Check whether instance fits into closestKernel
 		double radius = 0.0;
@@ -125,13 +136,9 @@ public class Clustream extends AbstractClusterer{
 			// next closest cluster
 			radius = Double.MAX_VALUE;
 			double[] center = closestKernel.getCenter();
-			for ( int i = 0; i < kernels.length; i++ ) {
-				if ( kernels[i] == closestKernel ) {
-					continue;
-				}
-
-				double distance = distance(kernels[i].getCenter(), center );
-				radius = Math.min( distance, radius );
+			int nextClosest = this.centroidIndex.nearest( center, closest );
+			if ( nextClosest >= 0 ) {
+				radius = this.centroidIndex.distance( center, nextClosest );
 			}
 		} else {
 			radius = closestKernel.getRadius();
@@ -140,6 +147,7 @@ public class Clustream extends AbstractClusterer{
 		if ( minDistance < radius ) {
 			// Date fits, put into kernel and be happy
 			closestKernel.insert( instance, timestamp );
+			this.centroidIndex.put( closest, closestKernel.getCenter(), 0.0 );
 			return;
 		}
 
@@ -151,6 +159,7 @@ public class Clustream extends AbstractClusterer{
 		for ( int i = 0; i < kernels.length; i++ ) {
 			if ( kernels[i].getRelevanceStamp() < threshold ) {
 				kernels[i] = new ClustreamKernel( instance, dim, timestamp, t, m );
+				this.centroidIndex.put( i, kernels[i].getCenter(), 0.0 );
 				return;
 			}
 		}
@@ -161,19 +170,31 @@ public class Clustream extends AbstractClusterer{
 		minDistance = Double.MAX_VALUE;
 		for ( int i = 0; i < kernels.length; i++ ) {
 			double[] centerA = kernels[i].getCenter();
-			for ( int j = i + 1; j < kernels.length; j++ ) {
-				double dist = distance( centerA, kernels[j].getCenter() );
-				if ( dist < minDistance ) {
-					minDistance = dist;
-					closestA = i;
-					closestB = j;
-				}
+			int j = this.centroidIndex.nearest( centerA, i );
+			if ( j < 0 ) {
+				continue;
+			}
+			double dist = this.centroidIndex.distance( centerA, j );
+			if ( dist < minDistance ) {
+				minDistance = dist;
+				closestA = i;
+			}
+		}
+		// No kernel before closestA has a partner at minDistance, so the first
+		// pair a scan over i < j would find is closestA and its first partner
+		double[] centerA = kernels[closestA].getCenter();
+		for ( int j = closestA + 1; j < kernels.length; j++ ) {
+			if ( this.centroidIndex.distance( centerA, j ) == minDistance ) {
+				closestB = j;
+				break;
 			}
 		}
 		assert (closestA != closestB);
 
 		kernels[closestA].add( kernels[closestB] );
 		kernels[closestB] = new ClustreamKernel( instance, dim, timestamp, t,  m );
+		this.centroidIndex.put( closestA, kernels[closestA].getCenter(), 0.0 );
+		this.centroidIndex.put( closestB, kernels[closestB].getCenter(), 0.0 );
 	}
 
 	@Override
@@ -49,6 +49,15 @@ public class ClusTree extends AbstractClusterer{
 	public FlagOption breadthFirstStrategyOption = new FlagOption(
 			"breadthFirstStrategy", 'B',
 			"Use breadth first strategy");
+
+	public IntOption batchSizeOption = new IntOption(
+			"batchSize", 'n',
+			"Number of points buffered and inserted together at the time of the last one.",
+			1, 1, Integer.MAX_VALUE);
+
+	public FlagOption snapshotsOption = new FlagOption(
+			"snapshots", 'S',
+			"Publish a copy of the micro-clusters after every batch, so that other threads can read them without racing the learner. The copy lags by the points of the pending batch; no effect with a batch size of 1.");
     
     protected int getDefaultHeight() {
     	return 8;
@@ -101,6 +110,25 @@ public class ClusTree extends AbstractClusterer{
     
     //TODO: cleanup
     private Entry alsoUpdate;
+
+    /**
+     * Points waiting to be inserted when the batch size is larger than one.
+     */
+    protected ClusKernel[] batch;
+    /**
+     * Times at which the buffered points arrived.
+     */
+    protected long[] batchTimestamps;
+    /**
+     * Number of buffered points.
+     */
+    protected int batchCount;
+    /**
+     * The micro-clusters published after the last batch when snapshots are
+     * enabled and the batch size is larger than one. A published clustering
+     * is never changed by the learner.
+     */
+    protected volatile Clustering snapshot;
     
     @Override
     public void resetLearningImpl() {
@@ -114,6 +142,10 @@ public class ClusTree extends AbstractClusterer{
         height = 0;
         numRootSplits = 0;
         numberInsertions = 0;
+        batch = new ClusKernel[batchSizeOption.getValue()];
+        batchTimestamps = new long[batchSizeOption.getValue()];
+        batchCount = 0;
+        snapshot = null;
     }
 
 
@@ -156,7 +188,50 @@ public class ClusTree extends AbstractClusterer{
         }
 
         ClusKernel newPointAsKernel = new ClusKernel(instance.toDoubleArray(), numberDimensions);
-        insert(newPointAsKernel, new SimpleBudget(1000),timestamp);
+        if (batch.length == 1) {
+            //no snapshots: copying every micro-cluster for every point costs more than the insertion
+            insert(newPointAsKernel, new SimpleBudget(1000),timestamp);
+        }
+        else {
+            batch[batchCount] = newPointAsKernel;
+            batchTimestamps[batchCount] = timestamp;
+            batchCount++;
+            if (batchCount == batch.length) {
+                insertBatch();
+            }
+        }
+    }
+
+    /**
+     * Inserts the buffered points, in the order they arrived, at the time of
+     * the last one. Each point is first aged by the time it spent in the
+     * buffer, so it enters the tree with the weight it would have had if it
+     * had been inserted on arrival. Since all points of a batch are inserted
+     * at the same time, the entries on their paths are aged once per batch
+     * instead of once per point.
+     */
+    protected void insertBatch() {
+        if (batchCount == 0) {
+            return;
+        }
+        long batchTime = batchTimestamps[batchCount - 1];
+        for (int i = 0; i < batchCount; i++) {
+            batch[i].makeOlder(batchTime - batchTimestamps[i], negLambda);
+            insert(batch[i], new SimpleBudget(1000), batchTime);
+            batch[i] = null;
+        }
+        batchCount = 0;
+        if (snapshotsOption.isSet()) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Publishes a copy of the current micro-clusters. The copy is built
+     * without aging the entries of the tree.
+     */
+    protected void publishSnapshot() {
+        snapshot = getClustering(timestamp, -1, false);
     }
 
 
@@ -445,18 +520,20 @@ public class ClusTree extends AbstractClusterer{
 	}
     
     private ArrayList<Node> collectLeafNodes(Node curr){
-    	ArrayList<Node> toReturn = new ArrayList<Node>();
+    	return collectLeafNodes(curr, new ArrayList<Node>());
+    }
+
+    private ArrayList<Node> collectLeafNodes(Node curr, ArrayList<Node> toReturn){
     	if (curr==null)
     		return toReturn;
     	if	(curr.isLeaf()){
     		toReturn.add(curr);
-    		return toReturn;
     	}
     	else{
     		for (Entry e : curr.getEntries())
-    			toReturn.addAll(collectLeafNodes(e.getChild()));
-    		return toReturn;
+    			collectLeafNodes(e.getChild(), toReturn);
     	}
+    	return toReturn;
     }
 
 	// TODO: Expand all function that work on entries to work with the Budget.
@@ -744,11 +821,22 @@ public class ClusTree extends AbstractClusterer{
     }
 
     /**
+     * With snapshots, the micro-clusters published after the last complete
+     * batch are returned, so the points of the pending batch, up to the batch
+     * size minus one, are not included yet. Until a batch is complete, and
+     * always with a batch size of 1, no snapshot exists and the tree itself
+     * is read, which must then be done by the thread training the learner.
+     *
      * @return The kernels at the leaf level as a clustering
      */
     //TODO: Microcluster unter dem Threshhold nich zur�ckgeben (WIe bei outdated entries)
     @Override
     public Clustering getMicroClusteringResult() {
+        Clustering published = snapshot;
+        if (published != null) {
+            return published;
+        }
+        insertBatch();
         return getClustering(timestamp, -1);
     }
 
@@ -763,6 +851,17 @@ public class ClusTree extends AbstractClusterer{
      * @return The kernels at the given level as a clustering.
      */
     public Clustering getClustering(long currentTime, int targetLevel) {
+        return getClustering(currentTime, targetLevel, true);
+    }
+
+    /**
+     * @param currentTime The current time
+     * @param ageEntries Whether the entries at the given level are aged to
+     * the current time, or only the returned copies of their kernels.
+     * @return The kernels at the given level as a clustering.
+     */
+    protected Clustering getClustering(long currentTime, int targetLevel,
+            boolean ageEntries) {
         if (root == null) {
             return null;
         }
@@ -789,12 +888,21 @@ public class ClusTree extends AbstractClusterer{
                     if (entry == null || entry.isEmpty()) {
                         continue;
                     }
-                    // XXX
-                    entry.makeOlder(currentTime, this.negLambda);
-                    if (entry.isIrrelevant(this.weightThreshold))
-                    	continue;
-
-                    ClusKernel gaussKernel = new ClusKernel(entry.getData());
+                    ClusKernel gaussKernel;
+                    if (ageEntries) {
+                        // XXX
+                        entry.makeOlder(currentTime, this.negLambda);
+                        if (entry.isIrrelevant(this.weightThreshold))
+                        	continue;
+
+                        gaussKernel = new ClusKernel(entry.getData());
+                    } else {
+                        gaussKernel = new ClusKernel(entry.getData());
+                        gaussKernel.makeOlder(currentTime - entry.getTimestamp(),
+                                this.negLambda);
+                        if (gaussKernel.getWeight() < this.weightThreshold)
+                        	continue;
+                    }
 
 //                  long diff = currentTime - entry.getTimestamp();
 //                    if (diff > 0) {
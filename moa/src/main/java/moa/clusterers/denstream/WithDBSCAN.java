@@ -24,15 +24,22 @@
 
 package moa.clusterers.denstream;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 import moa.cluster.Cluster;
 import moa.cluster.Clustering;
 import moa.clusterers.AbstractClusterer;
+import moa.clusterers.CentroidIndex;
+import moa.clusterers.KDTreeCentroidIndex;
+import moa.clusterers.LinearCentroidIndex;
 import moa.clusterers.macro.dbscan.DBScan;
 import moa.core.Measurement;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -64,6 +71,12 @@ public class WithDBSCAN extends AbstractClusterer {
 	 public IntOption speedOption = new IntOption("processingSpeed", 's',
 				"Number of incoming points per time unit.", 100, 1, 1000);
 
+	public MultiChoiceOption centroidIndexOption = new MultiChoiceOption(
+			"centroidIndex", 'n', "Index used to find the nearest micro-cluster.",
+			new String[]{"Linear", "KDTree"},
+			new String[]{"Compare every point with all the micro-clusters",
+				"Kd-tree over the micro-cluster centres"}, 1);
+
 	private double weightThreshold = 0.01;
 	double lambda;
 	double epsilon;
@@ -75,6 +88,22 @@ public class WithDBSCAN extends AbstractClusterer {
 	Clustering o_micro_cluster;
 	ArrayList<DenPoint> initBuffer;
 
+	/*
+	 * Centres and radii of the potential and outlier micro-clusters. The
+	 * centre and radius of a micro-cluster only change when a point is
+	 * inserted, because fading scales all its statistics by the same factor,
+	 * so the indexes are updated on insertions only. Each micro-cluster has an
+	 * id in the indexes and a sequence number giving its position in its list,
+	 * which nearestCluster uses to break ties as a scan of the list would.
+	 */
+	private CentroidIndex p_index;
+	private CentroidIndex o_index;
+	private IdentityHashMap<MicroCluster, Integer> clusterIds;
+	private ArrayDeque<Integer> freeIds;
+	private MicroCluster[] clustersById;
+	private long[] clusterSequence;
+	private long nextSequence;
+
 	boolean initialized;
 	private long timestamp = 0;
 	Timestamp currentTimestamp;
@@ -115,6 +144,19 @@ public class WithDBSCAN extends AbstractClusterer {
 		p_micro_cluster = new Clustering();
 		o_micro_cluster = new Clustering();
 		initBuffer = new ArrayList<DenPoint>();
+
+		if (centroidIndexOption.getChosenIndex() == 0) {
+			p_index = new LinearCentroidIndex();
+			o_index = new LinearCentroidIndex();
+		} else {
+			p_index = new KDTreeCentroidIndex();
+			o_index = new KDTreeCentroidIndex();
+		}
+		clusterIds = new IdentityHashMap<MicroCluster, Integer>();
+		freeIds = new ArrayDeque<Integer>();
+		clustersById = new MicroCluster[16];
+		clusterSequence = new long[16];
+		nextSequence = 0;
 		
 		tp = Math.round(1 / lambda * Math.log((beta * mu) / (beta * mu - 1))) + 1;
 		
@@ -135,6 +177,7 @@ public class WithDBSCAN extends AbstractClusterer {
 							currentTimestamp);
 					expandCluster(mc, initBuffer, neighbourhood);
 					p_micro_cluster.add(mc);
+					register(mc, p_index);
 				} else {
 					point.covered = false;
 				}
@@ -168,16 +211,17 @@ public class WithDBSCAN extends AbstractClusterer {
 			// ////////////
 			boolean merged = false;
 			if (p_micro_cluster.getClustering().size() != 0) {
-				MicroCluster x = nearestCluster(point, p_micro_cluster);
+				MicroCluster x = nearestCluster(point, p_micro_cluster, p_index);
 				MicroCluster xCopy = x.copy();
 				xCopy.insert(point, timestamp);
 				if (xCopy.getRadius(timestamp) <= epsilon) {
 					x.insert(point, timestamp);
+					reindex(x, p_index);
 					merged = true;
 				}
 			}
 			if (!merged && (o_micro_cluster.getClustering().size() != 0)) {
-				MicroCluster x = nearestCluster(point, o_micro_cluster);
+				MicroCluster x = nearestCluster(point, o_micro_cluster, o_index);
 				MicroCluster xCopy = x.copy();
 				xCopy.insert(point, timestamp);
 
@@ -187,14 +231,19 @@ public class WithDBSCAN extends AbstractClusterer {
 					if (x.getWeight() > beta * mu) {
 						o_micro_cluster.getClustering().remove(x);
 						p_micro_cluster.getClustering().add(x);
+						unregister(x, o_index);
+						register(x, p_index);
+					} else {
+						reindex(x, o_index);
 					}
 				}
 			}
 			if (!merged) {
-				o_micro_cluster.getClustering().add(
-						new MicroCluster(point.toDoubleArray(), point
-								.toDoubleArray().length, timestamp, lambda,
-								currentTimestamp));
+				MicroCluster mc = new MicroCluster(point.toDoubleArray(), point
+						.toDoubleArray().length, timestamp, lambda,
+						currentTimestamp);
+				o_micro_cluster.getClustering().add(mc);
+				register(mc, o_index);
 			}
 
 			// //////////////////////////
@@ -207,8 +256,9 @@ public class WithDBSCAN extends AbstractClusterer {
 						removalList.add((MicroCluster) c);
 					}
 				}
-				for (Cluster c : removalList) {
+				for (MicroCluster c : removalList) {
 					p_micro_cluster.getClustering().remove(c);
+					unregister(c, p_index);
 				}
 
 				for (Cluster c : o_micro_cluster.getClustering()) {
@@ -221,8 +271,9 @@ public class WithDBSCAN extends AbstractClusterer {
 						removalList.add((MicroCluster) c);
 					}
 				}
-				for (Cluster c : removalList) {
+				for (MicroCluster c : removalList) {
 					o_micro_cluster.getClustering().remove(c);
+					unregister(c, o_index);
 				}
 			}
 
@@ -261,23 +312,76 @@ public class WithDBSCAN extends AbstractClusterer {
 		return neighbourIDs;
 	}
 
-	private MicroCluster nearestCluster(DenPoint p, Clustering cl) {
+	/**
+	 * Returns the micro-cluster whose border is nearest to the point among
+	 * those that contain it, or the first micro-cluster of the list if none
+	 * does. Only the micro-clusters that the index reports as possibly
+	 * containing the point are evaluated, with the same formula and the same
+	 * tie-breaking as a scan of the list.
+	 */
+	private MicroCluster nearestCluster(DenPoint p, Clustering cl,
+			CentroidIndex index) {
+		double[] point = p.toDoubleArray();
+		double slack = 1e-9 * (1 + maxAbs(point));
 		MicroCluster min = null;
 		double minDist = 0;
-		for (int c = 0; c < cl.size(); c++) {
-			MicroCluster x = (MicroCluster) cl.get(c);
-			if (min == null) {
-				min = x;
-			}
-			double dist = distance(p.toDoubleArray(), x.getCenter());
+		long minSequence = Long.MAX_VALUE;
+		for (int id : index.candidatesWithin(point, slack)) {
+			MicroCluster x = clustersById[id];
+			double dist = distance(point, x.getCenter());
 			dist -= x.getRadius(timestamp);
-			if (dist < minDist) {
+			if (dist < minDist
+					|| (min != null && dist == minDist && clusterSequence[id] < minSequence)) {
 				minDist = dist;
 				min = x;
+				minSequence = clusterSequence[id];
 			}
 		}
-		return min;
+		return min != null ? min : (MicroCluster) cl.get(0);
+	}
+
+	private void register(MicroCluster mc, CentroidIndex index) {
+		Integer id = freeIds.poll();
+		if (id == null) {
+			id = clusterIds.size();
+		}
+		if (id >= clusterSequence.length) {
+			clustersById = Arrays.copyOf(clustersById, 2 * clustersById.length);
+			clusterSequence = Arrays.copyOf(clusterSequence, 2 * clusterSequence.length);
+		}
+		clusterIds.put(mc, id);
+		clustersById[id] = mc;
+		clusterSequence[id] = nextSequence++;
+		reindex(mc, index);
+	}
 
+	private void unregister(MicroCluster mc, CentroidIndex index) {
+		Integer id = clusterIds.remove(mc);
+		if (id != null) {
+			index.remove(id);
+			clustersById[id] = null;
+			freeIds.add(id);
+		}
+	}
+
+	/**
+	 * Puts the current centre and radius of a micro-cluster in the index. The
+	 * extent allows for the rounding errors of recomputing the radius from the
+	 * faded statistics, which can reach the square root of the machine
+	 * precision times the size of the centre.
+	 */
+	private void reindex(MicroCluster mc, CentroidIndex index) {
+		double[] center = mc.getCenter();
+		double extent = mc.getRadius(timestamp) + 1e-6 * (1 + maxAbs(center));
+		index.put(clusterIds.get(mc), center, extent);
+	}
+
+	private static double maxAbs(double[] values) {
+		double max = 0;
+		for (double v : values) {
+			max = Math.max(max, Math.abs(v));
+		}
+		return max;
 	}
 
 	private double distance(double[] pointA, double[] pointB) {
@@ -0,0 +1,241 @@
+/**
+ *    DensityGridMap.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package moa.clusterers.dstream;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Map from density grids to values, used for the grid list of D-Stream.
+ *
+ * Entries are kept in parallel arrays in insertion order, so they can be
+ * iterated by position without creating iterators or entry objects. The
+ * coordinates of each grid are hashed once into a long, and an open-addressing
+ * table of positions with linear probing locates entries. Lookups can be made
+ * directly with a coordinate array, so probing a neighbour of a grid does not
+ * require creating a DensityGrid.
+ *
+ * As with a HashMap, putting a value for a grid that is already present keeps
+ * the grid object that was inserted first.
+ */
+public class DensityGridMap<V> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private DensityGrid[] keys;
+
+	private Object[] values;
+
+	private long[] hashes;
+
+	/** Position of each entry plus one, or zero for an empty slot. */
+	private int[] slots;
+
+	private int size;
+
+	public DensityGridMap()
+	{
+		this.keys = new DensityGrid[INITIAL_CAPACITY];
+		this.values = new Object[INITIAL_CAPACITY];
+		this.hashes = new long[INITIAL_CAPACITY];
+		this.slots = new int[2 * INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	public DensityGrid keyAt(int position)
+	{
+		return this.keys[position];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V valueAt(int position)
+	{
+		return (V) this.values[position];
+	}
+
+	/**
+	 * @return the position of the grid with the given coordinates, or -1 if it is not present
+	 */
+	public int indexOf(int[] coordinates)
+	{
+		long hash = hash(coordinates);
+		int mask = this.slots.length - 1;
+		for (int s = slotOf(hash, mask) ; ; s = (s + 1) & mask)
+		{
+			int position = this.slots[s] - 1;
+			if (position < 0)
+				return -1;
+			if (this.hashes[position] == hash && Arrays.equals(this.keys[position].getCoordinates(), coordinates))
+				return position;
+		}
+	}
+
+	public int indexOf(DensityGrid dg)
+	{
+		return indexOf(dg.getCoordinates());
+	}
+
+	public boolean containsKey(DensityGrid dg)
+	{
+		return indexOf(dg.getCoordinates()) >= 0;
+	}
+
+	public V get(DensityGrid dg)
+	{
+		int position = indexOf(dg.getCoordinates());
+		return position < 0 ? null : valueAt(position);
+	}
+
+	public void put(DensityGrid dg, V value)
+	{
+		int position = indexOf(dg.getCoordinates());
+		if (position >= 0)
+		{
+			this.values[position] = value;
+			return;
+		}
+		if (this.size == this.keys.length)
+			grow();
+		long hash = hash(dg.getCoordinates());
+		position = this.size++;
+		this.keys[position] = dg;
+		this.values[position] = value;
+		this.hashes[position] = hash;
+		int mask = this.slots.length - 1;
+		int s = slotOf(hash, mask);
+		while (this.slots[s] != 0)
+			s = (s + 1) & mask;
+		this.slots[s] = position + 1;
+	}
+
+	public void putAll(DensityGridMap<V> other)
+	{
+		for (int i = 0 ; i < other.size ; i++)
+			put(other.keys[i], other.valueAt(i));
+	}
+
+	/**
+	 * Removes a grid. The last entry is moved into its position, so positions
+	 * beyond the removed one are not preserved.
+	 */
+	public V remove(DensityGrid dg)
+	{
+		int position = indexOf(dg.getCoordinates());
+		if (position < 0)
+			return null;
+		V removed = valueAt(position);
+		int mask = this.slots.length - 1;
+		deleteSlot(findSlot(position, mask), mask);
+
+		int last = --this.size;
+		if (position != last)
+		{
+			this.slots[findSlot(last, mask)] = position + 1;
+			this.keys[position] = this.keys[last];
+			this.values[position] = this.values[last];
+			this.hashes[position] = this.hashes[last];
+		}
+		this.keys[last] = null;
+		this.values[last] = null;
+		return removed;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(this.keys, 0, this.size, null);
+		Arrays.fill(this.values, 0, this.size, null);
+		Arrays.fill(this.slots, 0);
+		this.size = 0;
+	}
+
+	private int findSlot(int position, int mask)
+	{
+		int s = slotOf(this.hashes[position], mask);
+		while (this.slots[s] != position + 1)
+			s = (s + 1) & mask;
+		return s;
+	}
+
+	/**
+	 * Empties a slot, shifting back the entries of the probe sequence that
+	 * follows it so that they remain reachable.
+	 */
+	private void deleteSlot(int s, int mask)
+	{
+		int hole = s;
+		for (int next = (hole + 1) & mask ; this.slots[next] != 0 ; next = (next + 1) & mask)
+		{
+			int home = slotOf(this.hashes[this.slots[next] - 1], mask);
+			if (((next - home) & mask) >= ((next - hole) & mask))
+			{
+				this.slots[hole] = this.slots[next];
+				hole = next;
+			}
+		}
+		this.slots[hole] = 0;
+	}
+
+	private void grow()
+	{
+		int capacity = 2 * this.keys.length;
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.values = Arrays.copyOf(this.values, capacity);
+		this.hashes = Arrays.copyOf(this.hashes, capacity);
+		this.slots = new int[2 * capacity];
+		int mask = this.slots.length - 1;
+		for (int position = 0 ; position < this.size ; position++)
+		{
+			int s = slotOf(this.hashes[position], mask);
+			while (this.slots[s] != 0)
+				s = (s + 1) & mask;
+			this.slots[s] = position + 1;
+		}
+	}
+
+	private static int slotOf(long hash, int mask)
+	{
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	/**
+	 * Hashes grid coordinates into a long, mixing each coordinate so that
+	 * neighbouring grids are spread over the table.
+	 */
+	static long hash(int[] coordinates)
+	{
+		long h = 0x9E3779B97F4A7C15L;
+		for (int i = 0 ; i < coordinates.length ; i++)
+		{
+			h = (h ^ coordinates[i]) * 0xBF58476D1CE4E5B9L;
+			h ^= h >>> 29;
+		}
+		h *= 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+}
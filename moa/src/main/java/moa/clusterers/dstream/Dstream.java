@@ -20,7 +20,6 @@ package moa.clusterers.dstream;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -121,14 +120,14 @@ public class Dstream extends AbstractClusterer {
 	 * A list of all density grids which are being monitored;
 	 * given in figure 1 of Chen and Tu 2007
 	 */
-	private HashMap<DensityGrid,CharacteristicVector> grid_list;
+	private DensityGridMap<CharacteristicVector> grid_list;
 	
 	/**
 	 * A list of all density grids which have been deleted;
 	 * allows the recording of tm - the last time when the 
 	 * grid is removed from grid list as a sporadic grid (if ever).
 	 */
-	private HashMap<DensityGrid,Integer> deleted_grids;
+	private DensityGridMap<Integer> deleted_grids;
 	
 	
 	/**
@@ -156,6 +155,13 @@ public class Dstream extends AbstractClusterer {
 	 */
 	private int[]maxVals;
 
+	/**
+	 * Reused coordinates of the grid of the current instance, and of the
+	 * neighbouring grids being looked up
+	 */
+	private int[] gridCoordinates;
+	private int[] neighbourCoordinates;
+
 	/**
 	 *  @see moa.clusterers.Clusterer#isRandomizable()
 	 * D-Stream is not randomizable.
@@ -203,8 +209,8 @@ public class Dstream extends AbstractClusterer {
 		//System.out.println("Option values set...");
 
 		this.initialized = false;
-		this.grid_list = new HashMap<DensityGrid, CharacteristicVector>();
-		this.deleted_grids = new HashMap<DensityGrid, Integer>();
+		this.grid_list = new DensityGridMap<CharacteristicVector>();
+		this.deleted_grids = new DensityGridMap<Integer>();
 		this.cluster_list = new ArrayList<GridCluster>();
 		//System.out.println("Data structures initialized...");
 
@@ -215,6 +221,8 @@ public class Dstream extends AbstractClusterer {
 		this.N = -1;
 		this.minVals = null;
 		this.maxVals = null;
+		this.gridCoordinates = null;
+		this.neighbourCoordinates = null;
 		//System.out.println("Dependent values initialized...\n");
 		//printDStreamState();
 	}
@@ -265,7 +273,9 @@ public class Dstream extends AbstractClusterer {
 
 		// 2. Determine the density grid g that contains x
 		//System.out.print(" & Step 2 ");
-		g = new int[this.d];
+		if (this.gridCoordinates == null || this.gridCoordinates.length != this.d)
+			this.gridCoordinates = new int[this.d];
+		g = this.gridCoordinates;
 
 		for (int i = 0 ; i < this.d ; i++)
 		{
@@ -319,19 +329,19 @@ public class Dstream extends AbstractClusterer {
 			//System.out.println(" A is "+optionA+", B is "+optionB+" and gap = "+gap);
 		}
 
-		dg = new DensityGrid(g);
-		//System.out.println(dg.toString());
-		
 		// 3. If (g not in grid_list) insert dg to grid_list
 		//System.out.println(" & Step 3 or 4");
 		
-		if(!this.grid_list.containsKey(dg))
+		int position = this.grid_list.indexOf(g);
+		if(position < 0)
 		{
 			//System.out.print("3 - dg wasn't in grid_list!");
-			if(this.deleted_grids.containsKey(dg))
+			dg = new DensityGrid(g);
+			int deletedPosition = this.deleted_grids.indexOf(g);
+			if(deletedPosition >= 0)
 			{
 				//System.out.print(" but it was in deleted_grids!");
-				cv = new CharacteristicVector(this.getCurrTime(), this.deleted_grids.get(dg).intValue(), 1.0, -1, false, this.getDL(), this.getDM());
+				cv = new CharacteristicVector(this.getCurrTime(), this.deleted_grids.valueAt(deletedPosition).intValue(), 1.0, -1, false, this.getDL(), this.getDM());
 				this.deleted_grids.remove(dg);
 			}
 			else
@@ -345,15 +355,13 @@ public class Dstream extends AbstractClusterer {
 		else
 		{
 			//System.out.print("4 - dg was in grid_list!");
-			cv = this.grid_list.get(dg);
+			cv = this.grid_list.valueAt(position);
 				
 			cv.densityWithNew(this.getCurrTime(), this.getDecayFactor());
 				
 			cv.setUpdateTime(this.getCurrTime());
 		
-			//System.out.println(" "+dg.toString()+" "+cv.toString());
-		
-			grid_list.put(dg, cv);
+			//System.out.println(" "+cv.toString());
 		}
 
 		// 5. If tc == gap, then initial clustering
@@ -413,14 +421,10 @@ public class Dstream extends AbstractClusterer {
 		// 2. Assign each dense grid to a distinct cluster
 		// and
 		// 3. Label all other grids as NO_CLASS	
-		Iterator<Map.Entry<DensityGrid, CharacteristicVector>> glIter = this.grid_list.entrySet().iterator();
-		HashMap<DensityGrid, CharacteristicVector> newGL = new HashMap<DensityGrid, CharacteristicVector>();
-		
-		while(glIter.hasNext())
+		for (int i = 0 ; i < this.grid_list.size() ; i++)
 		{
-			Map.Entry<DensityGrid, CharacteristicVector> grid = glIter.next();
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cvOfG = grid.getValue();
+			DensityGrid dg = this.grid_list.keyAt(i);
+			CharacteristicVector cvOfG = this.grid_list.valueAt(i);
 
 			//System.out.print(dg.toString());
 			if(cvOfG.getAttribute() == DENSE)
@@ -436,10 +440,7 @@ public class Dstream extends AbstractClusterer {
 				cvOfG.setLabel(NO_CLASS);
 
 			//System.out.println();
-			newGL.put(dg, cvOfG);
 		}
-
-		this.grid_list = newGL;
 		//printGridClusters();
 		
 		// 4. Make changes to grid labels by doing:
@@ -495,17 +496,16 @@ public class Dstream extends AbstractClusterer {
 				{
 					//System.out.println(" Density grid dg is outside!");
 					// c. for each neighbouring grid, dgprime, of dg
-					Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
-					
-					while(dgNeighbourhood.hasNext())
+					for (int n = 0 ; n < 2 * dg.getDimensions() ; n++)
 					{
-						DensityGrid dgprime = dgNeighbourhood.next();
-						//System.out.print("Inspecting neighbour, dgprime:"+dgprime.toString()+", standby...");
+						int dgprimePosition = indexOfNeighbour(this.grid_list, dg, n);
 						
-						if(this.grid_list.containsKey(dgprime))
+						if(dgprimePosition >= 0)
 						{
+							DensityGrid dgprime = this.grid_list.keyAt(dgprimePosition);
+							//System.out.print("Inspecting neighbour, dgprime:"+dgprime.toString()+", standby...");
 							CharacteristicVector cv1 = this.grid_list.get(dg);
-							CharacteristicVector cv2 = this.grid_list.get(dgprime);
+							CharacteristicVector cv2 = this.grid_list.valueAt(dgprimePosition);
 							//System.out.print(" 1: "+cv1.toString()+", 2: "+cv2.toString());
 							int class1 = cv1.getLabel();
 							int class2 = cv2.getLabel();
@@ -592,14 +592,12 @@ public class Dstream extends AbstractClusterer {
 	 */
 	private boolean inspectChangedGrids()
 	{
-		HashMap<DensityGrid, CharacteristicVector> glNew = new HashMap<DensityGrid, CharacteristicVector>();
-		Iterator<Map.Entry<DensityGrid, CharacteristicVector>> gridIter = this.grid_list.entrySet().iterator();
+		DensityGridMap<CharacteristicVector> glNew = new DensityGridMap<CharacteristicVector>();
 		
-		while (gridIter.hasNext() && glNew.isEmpty())
+		for (int i = 0 ; i < this.grid_list.size() && glNew.isEmpty() ; i++)
 		{
-			Map.Entry<DensityGrid, CharacteristicVector> grid = gridIter.next();
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
+			DensityGrid dg = this.grid_list.keyAt(i);
+			CharacteristicVector cv = this.grid_list.valueAt(i);
 			int dgClass = cv.getLabel();
 			
 			if(cv.isAttChanged() && !dg.isVisited())
@@ -636,11 +634,11 @@ public class Dstream extends AbstractClusterer {
 	 * @param cv the characteristic vector of dg
 	 * @param dgClass the cluster to which dg belonged
 	 * 
-	 * @return a HashMap<DensityGrid, CharacteristicVector> containing density grids for update after this iteration
+	 * @return a DensityGridMap<CharacteristicVector> containing density grids for update after this iteration
 	 */
-	private HashMap<DensityGrid, CharacteristicVector> adjustForSparseGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
+	private DensityGridMap<CharacteristicVector> adjustForSparseGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
 	{
-		HashMap<DensityGrid, CharacteristicVector> glNew = new HashMap<DensityGrid, CharacteristicVector>();
+		DensityGridMap<CharacteristicVector> glNew = new DensityGridMap<CharacteristicVector>();
 		//System.out.print("Density grid "+dg.toString()+" is adjusted as a sparse grid at time "+this.getCurrTime()+". ");
 		if (dgClass != NO_CLASS)
 		{
@@ -666,11 +664,11 @@ public class Dstream extends AbstractClusterer {
 	 * 
 	 * @param gc the gridcluster to be reclustered
 	 * 
-	 * @return a HashMap<DensityGrid, CharacteristicVector> containing density grids for update after this iteration
+	 * @return a DensityGridMap<CharacteristicVector> containing density grids for update after this iteration
 	 */
-	private HashMap<DensityGrid, CharacteristicVector> recluster (GridCluster gc)
+	private DensityGridMap<CharacteristicVector> recluster (GridCluster gc)
 	{
-		HashMap<DensityGrid, CharacteristicVector> glNew = new HashMap<DensityGrid, CharacteristicVector>();
+		DensityGridMap<CharacteristicVector> glNew = new DensityGridMap<CharacteristicVector>();
 		Iterator<Map.Entry<DensityGrid,Boolean>> gcIter = gc.getGrids().entrySet().iterator();
 		newClusterList = new ArrayList<GridCluster>();
 		//System.out.println("Recluster called for cluster "+gc.getClusterLabel());
@@ -702,7 +700,7 @@ public class Dstream extends AbstractClusterer {
 		do
 		{
 			changesMade = false;
-			HashMap<DensityGrid, CharacteristicVector> glAdjusted = adjustNewLabels(glNew);
+			DensityGridMap<CharacteristicVector> glAdjusted = adjustNewLabels(glNew);
 			
 			if(!glAdjusted.isEmpty())
 			{
@@ -720,10 +718,10 @@ public class Dstream extends AbstractClusterer {
 	}
 	
 	
-	private HashMap<DensityGrid, CharacteristicVector> adjustNewLabels(HashMap<DensityGrid, CharacteristicVector> glNew)
+	private DensityGridMap<CharacteristicVector> adjustNewLabels(DensityGridMap<CharacteristicVector> glNew)
 	{
 		Iterator<GridCluster> newClusIter = newClusterList.iterator();
-		HashMap<DensityGrid, CharacteristicVector> glAdjusted = new HashMap<DensityGrid, CharacteristicVector>();
+		DensityGridMap<CharacteristicVector> glAdjusted = new DensityGridMap<CharacteristicVector>();
 
 		// a. For each cluster c
 		while (newClusIter.hasNext())
@@ -740,16 +738,15 @@ public class Dstream extends AbstractClusterer {
 				if (!inside)
 				{
 					// c. for each neighbouring grid, dgprime, of dg
-					Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
-					
-					while(dgNeighbourhood.hasNext())
+					for (int n = 0 ; n < 2 * dg.getDimensions() ; n++)
 					{
-						DensityGrid dgprime = dgNeighbourhood.next();
+						int dgprimePosition = indexOfNeighbour(glNew, dg, n);
 						
-						if(glNew.containsKey(dgprime))
+						if(dgprimePosition >= 0)
 						{
+							DensityGrid dgprime = glNew.keyAt(dgprimePosition);
 							CharacteristicVector cv1 = glNew.get(dg);
-							CharacteristicVector cv2 = glNew.get(dgprime);
+							CharacteristicVector cv2 = glNew.valueAt(dgprimePosition);
 							int class1 = cv1.getLabel();
 							int class2 = cv2.getLabel();
 
@@ -788,21 +785,17 @@ public class Dstream extends AbstractClusterer {
 		return glAdjusted;
 	}
 	
-	private HashMap<DensityGrid, CharacteristicVector> mergeNewClusters(HashMap<DensityGrid, CharacteristicVector> glNew, int smallClus, int bigClus)
+	private DensityGridMap<CharacteristicVector> mergeNewClusters(DensityGridMap<CharacteristicVector> glNew, int smallClus, int bigClus)
 	{
 		//System.out.println("Merge new clusters "+smallClus+" and "+bigClus+".");
 		// Iterate through the density grids in grid_list to find those which are in highClass
-		for (Map.Entry<DensityGrid, CharacteristicVector> grid : glNew.entrySet())
+		for (int i = 0 ; i < glNew.size() ; i++)
 		{
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
+			CharacteristicVector cv = glNew.valueAt(i);
 
 			// Assign density grids in smallClus to bigClus
 			if(cv.getLabel() == smallClus)
-			{
 				cv.setLabel(bigClus);
-				glNew.put(dg, cv);
-			}
 		}
 		//System.out.println("Density grids assigned to cluster "+bigClus+".");
 		
@@ -824,29 +817,28 @@ public class Dstream extends AbstractClusterer {
 	 * @param cv the characteristic vector of dg
 	 * @param dgClass the cluster to which dg belonged
 	 * 
-	 * @return a HashMap<DensityGrid, CharacteristicVector> containing density grids for update after this iteration
+	 * @return a DensityGridMap<CharacteristicVector> containing density grids for update after this iteration
 	 */
-	private HashMap<DensityGrid, CharacteristicVector> adjustForDenseGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
+	private DensityGridMap<CharacteristicVector> adjustForDenseGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
 	{
 		//System.out.print("Density grid "+dg.toString()+" is adjusted as a dense grid at time "+this.getCurrTime()+". ");
 
 		// Among all neighbours of dg, find the grid h whose cluster ch has the largest size
 		GridCluster ch;								// The cluster, ch, of h
-		DensityGrid hChosen = new DensityGrid(dg);	// The chosen grid h, whose cluster ch has the largest size
+		DensityGrid hChosen = dg;					// The chosen grid h, whose cluster ch has the largest size
 		double hChosenSize = -1.0;					// The size of ch, the largest cluster
-		DensityGrid dgH;							// The neighbour of g being considered
+		int dgHPosition;							// The position of the neighbour of g being considered
 		int hClass = NO_CLASS;						// The class label of h
 		int hChosenClass = NO_CLASS;				// The class label of ch
-		Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
-		HashMap<DensityGrid, CharacteristicVector> glNew = new HashMap<DensityGrid, CharacteristicVector>();
+		DensityGridMap<CharacteristicVector> glNew = new DensityGridMap<CharacteristicVector>();
 		
-		while (dgNeighbourhood.hasNext())
+		for (int n = 0 ; n < 2 * dg.getDimensions() ; n++)
 		{
-			dgH = dgNeighbourhood.next();
+			dgHPosition = indexOfNeighbour(this.grid_list, dg, n);
 		
-			if (this.grid_list.containsKey(dgH))
+			if (dgHPosition >= 0)
 			{
-				hClass = this.grid_list.get(dgH).getLabel();
+				hClass = this.grid_list.valueAt(dgHPosition).getLabel();
 				if (hClass != NO_CLASS)
 				{
 					ch = this.cluster_list.get(hClass);
@@ -855,7 +847,7 @@ public class Dstream extends AbstractClusterer {
 					{
 						hChosenSize = ch.getWeight();
 						hChosenClass = hClass;
-						hChosen = new DensityGrid(dgH);
+						hChosen = this.grid_list.keyAt(dgHPosition);
 					}
 				}
 			}
@@ -943,15 +935,14 @@ public class Dstream extends AbstractClusterer {
 			
 			// Iterate through the neighbourhood until no more transitional neighbours can be added
 			// (dense neighbours will add themselves as part of their adjust process)
-			dgNeighbourhood = dg.getNeighbours().iterator();
-					
-			while(dgNeighbourhood.hasNext())
+			for (int n = 0 ; n < 2 * dg.getDimensions() ; n++)
 			{
-				DensityGrid dghprime = dgNeighbourhood.next();
+				int dghprimePosition = indexOfNeighbour(this.grid_list, dg, n);
+				DensityGrid dghprime = dghprimePosition >= 0 ? this.grid_list.keyAt(dghprimePosition) : null;
 						
-				if (this.grid_list.containsKey(dghprime) && !c.getGrids().containsKey(dghprime))
+				if (dghprime != null && !c.getGrids().containsKey(dghprime))
 				{
-					CharacteristicVector cvhprime = this.grid_list.get(dghprime);
+					CharacteristicVector cvhprime = this.grid_list.valueAt(dghprimePosition);
 					if(cvhprime.getAttribute() == TRANSITIONAL)
 					{
 						//System.out.println("Added "+dghprime.toString()+" to cluster "+newClass+".");
@@ -976,9 +967,9 @@ public class Dstream extends AbstractClusterer {
 	 * @param cv the characteristic vector of dg
 	 * @param dgClass the cluster to which dg belonged
 	 * 
-	 * @return a HashMap<DensityGrid, CharacteristicVector> containing density grids for update after this iteration
+	 * @return a DensityGridMap<CharacteristicVector> containing density grids for update after this iteration
 	 */
-	private HashMap<DensityGrid, CharacteristicVector> adjustForTransitionalGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
+	private DensityGridMap<CharacteristicVector> adjustForTransitionalGrid(DensityGrid dg, CharacteristicVector cv, int dgClass)
 	{
 		//System.out.print("Density grid "+dg.toString()+" is adjusted as a transitional grid at time "+this.getCurrTime()+". ");
 		
@@ -986,19 +977,18 @@ public class Dstream extends AbstractClusterer {
 		// and satisfies that dg would be an outside grid if added to it
 		GridCluster ch;								// The cluster, ch, of h
 		double hChosenSize = 0.0;					// The size of ch, the largest cluster
-		DensityGrid dgH;							// The neighbour of dg being considered
+		int dgHPosition;							// The position of the neighbour of dg being considered
 		int hClass = NO_CLASS;						// The class label of h
 		int hChosenClass = NO_CLASS;				// The class label of ch
-		Iterator<DensityGrid> dgNeighbourhood = dg.getNeighbours().iterator();
-		HashMap<DensityGrid, CharacteristicVector> glNew = new HashMap<DensityGrid, CharacteristicVector>();
+		DensityGridMap<CharacteristicVector> glNew = new DensityGridMap<CharacteristicVector>();
 		
-		while (dgNeighbourhood.hasNext())
+		for (int n = 0 ; n < 2 * dg.getDimensions() ; n++)
 		{
-			dgH = dgNeighbourhood.next();
+			dgHPosition = indexOfNeighbour(this.grid_list, dg, n);
 			
-			if (this.grid_list.containsKey(dgH))
+			if (dgHPosition >= 0)
 			{
-				hClass = this.grid_list.get(dgH).getLabel();
+				hClass = this.grid_list.valueAt(dgHPosition).getLabel();
 				if (hClass != NO_CLASS)
 				{
 					ch = this.cluster_list.get(hClass);
@@ -1089,12 +1079,11 @@ public class Dstream extends AbstractClusterer {
 				}
 				//System.out.println("Cluster "+index+": "+dg.toString()+" is here.");
 				cv.setLabel(index);
-				this.grid_list.put(dg, cv);
 			}
 		}
 	}
 	
-	private HashMap<DensityGrid, CharacteristicVector> cleanNewClusters(HashMap<DensityGrid, CharacteristicVector> glNew)
+	private DensityGridMap<CharacteristicVector> cleanNewClusters(DensityGridMap<CharacteristicVector> glNew)
 	{
 		Iterator<GridCluster> clusIter = this.newClusterList.iterator();
 		ArrayList<GridCluster> toRem = new ArrayList<GridCluster>();
@@ -1136,7 +1125,6 @@ public class Dstream extends AbstractClusterer {
 				DensityGrid dg = gridsOfClus.next().getKey();
 				CharacteristicVector cv = glNew.get(dg);
 				cv.setLabel(index);
-				glNew.put(dg, cv);
 			}
 		}
 		
@@ -1157,15 +1145,12 @@ public class Dstream extends AbstractClusterer {
 		//       i. If (S1 && S2), mark as sporadic
 		
 		// For each grid g in grid_list
-		Iterator<Map.Entry<DensityGrid, CharacteristicVector>> glIter = this.grid_list.entrySet().iterator();
-		HashMap<DensityGrid, CharacteristicVector> newGL = new HashMap<DensityGrid, CharacteristicVector>();
 		ArrayList<DensityGrid> remGL = new ArrayList<DensityGrid>();
 				
-		while(glIter.hasNext())
+		for (int i = 0 ; i < this.grid_list.size() ; i++)
 		{
-			Map.Entry<DensityGrid, CharacteristicVector> grid = glIter.next();
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
+			DensityGrid dg = this.grid_list.keyAt(i);
+			CharacteristicVector cv = this.grid_list.valueAt(i);
 			
 			// If g is sporadic
 			if (cv.isSporadic())
@@ -1186,7 +1171,6 @@ public class Dstream extends AbstractClusterer {
 				{
 					cv.setSporadic(checkIfSporadic(cv));
 					//System.out.println("within gap" + dg.toString() + " sporadicity assessed "+cv.isSporadic());
-					newGL.put(dg, cv);
 				}
 				
 			}
@@ -1195,12 +1179,9 @@ public class Dstream extends AbstractClusterer {
 			{
 				cv.setSporadic(checkIfSporadic(cv));
 				//System.out.println(dg.toString() + " sporadicity assessed "+cv.isSporadic());
-				newGL.put(dg, cv);
 			}
 		}
 		
-		this.grid_list.putAll(newGL);
-		
 		//System.out.println(" - Removed "+remGL.size()+" grids from grid_list.");
 		Iterator<DensityGrid> remIter = remGL.iterator();
 		
@@ -1208,7 +1189,7 @@ public class Dstream extends AbstractClusterer {
 		{
 			DensityGrid sporadicDG = remIter.next();
 			//System.out.println("Removing sporadic grid "+sporadicDG.toString()+" at time "+this.getCurrTime()+".");
-			this.deleted_grids.put(sporadicDG, new Integer(this.getCurrTime()));
+			this.deleted_grids.put(sporadicDG, Integer.valueOf(this.getCurrTime()));
 			this.grid_list.remove(sporadicDG);
 		}
 		
@@ -1256,17 +1237,13 @@ public class Dstream extends AbstractClusterer {
 	{		
 		//System.out.println("Merge clusters "+smallClus+" and "+bigClus+".");
 		// Iterate through the density grids in grid_list to find those which are in highClass
-		for (Map.Entry<DensityGrid, CharacteristicVector> grid : grid_list.entrySet())
+		for (int i = 0 ; i < this.grid_list.size() ; i++)
 		{
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
+			CharacteristicVector cv = this.grid_list.valueAt(i);
 
 			// Assign density grids in smallClus to bigClus
 			if(cv.getLabel() == smallClus)
-			{
 				cv.setLabel(bigClus);
-				this.grid_list.put(dg, cv);
-			}
 		}
 		//System.out.println("Density grids assigned to cluster "+bigClus+".");
 		
@@ -1285,18 +1262,34 @@ public class Dstream extends AbstractClusterer {
 	 */
 	private void updateGridListDensity()
 	{
-		for (Map.Entry<DensityGrid, CharacteristicVector> grid : grid_list.entrySet())
+		for (int i = 0 ; i < this.grid_list.size() ; i++)
 		{
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cvOfG = grid.getValue();
-
-			dg.setVisited(false);
-			cvOfG.updateGridDensity(this.getCurrTime(), this.getDecayFactor(), this.getDL(), this.getDM());
-
-			this.grid_list.put(dg, cvOfG);
+			this.grid_list.keyAt(i).setVisited(false);
+			this.grid_list.valueAt(i).updateGridDensity(this.getCurrTime(), this.getDecayFactor(), this.getDL(), this.getDM());
 		}
 	}
 
+	/**
+	 * Looks up a neighbour of a density grid without creating it. Neighbours are
+	 * numbered as in DensityGrid#getNeighbours: 2i is one step down in dimension
+	 * i and 2i+1 is one step up.
+	 * 
+	 * @param map the map in which to look up the neighbour
+	 * @param dg the density grid whose neighbour is looked up
+	 * @param n the number of the neighbour
+	 * 
+	 * @return the position of the neighbour in the map, or -1 if it is not present
+	 */
+	private int indexOfNeighbour(DensityGridMap<?> map, DensityGrid dg, int n)
+	{
+		int[] coordinates = dg.getCoordinates();
+		if (this.neighbourCoordinates == null || this.neighbourCoordinates.length != coordinates.length)
+			this.neighbourCoordinates = new int[coordinates.length];
+		System.arraycopy(coordinates, 0, this.neighbourCoordinates, 0, coordinates.length);
+		this.neighbourCoordinates[n >> 1] += (n & 1) == 0 ? -1 : 1;
+		return map.indexOf(this.neighbourCoordinates);
+	}
+
 	/**
 	 * @return currTime - the stream's internal time
 	 */
@@ -1379,10 +1372,10 @@ public class Dstream extends AbstractClusterer {
 	public void printGridList()
 	{
 		System.out.println("Grid List. Size "+this.grid_list.size()+".");
-		for (Map.Entry<DensityGrid, CharacteristicVector> grid : grid_list.entrySet())
+		for (int i = 0 ; i < this.grid_list.size() ; i++)
 		{
-			DensityGrid dg = grid.getKey();
-			CharacteristicVector cv = grid.getValue();
+			DensityGrid dg = this.grid_list.keyAt(i);
+			CharacteristicVector cv = this.grid_list.valueAt(i);
 			
 			if (cv.getAttribute() != SPARSE)
 			{
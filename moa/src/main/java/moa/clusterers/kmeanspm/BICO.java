@@ -21,9 +21,7 @@ package moa.clusterers.kmeanspm;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Queue;
 
 import com.github.javacliparser.IntOption;
@@ -65,13 +63,18 @@ public class BICO extends AbstractClusterer {
 			"Number of random projections used for the nearest neighbour search.",
 			10, 1, Integer.MAX_VALUE);
 
+	public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+			"Total number of concurrent jobs used for the k-means++ runs on the coreset (-1 = as much as possible, 0 = do not use multithreading)",
+			1, -1, Integer.MAX_VALUE);
+
 	protected int numClusters;
 	protected int numDimensions;
 	protected int maxNumClusterFeatures;
 	protected int numProjections;
 
 	private boolean bufferPhase;
-	private List<double[]> buffer;
+	private CoresetEngine buffer;
+	private CoresetEngine coreset;
 	private double minDistance;
 	private int pairwiseDifferent;
 
@@ -148,52 +151,47 @@ public class BICO extends AbstractClusterer {
 	 */
 	@Override
 	public Clustering getClusteringResult() {
-		List<double[]> microClustering;
+		this.coreset.clear();
 		// If the buffer phase is active then the buffer (without duplicates) is
 		// equal to the micro clustering
 		if (this.bufferPhase) {
-			microClustering = new ArrayList<double[]>(this.buffer.size());
-			for (double[] pointA : this.buffer) {
+			double[] points = this.buffer.getCoordinates();
+			for (int a = 0; a < this.buffer.size(); a++) {
 				// Searches for a duplicate of the current point
+				double[] centers = this.coreset.getCoordinates();
 				boolean duplicate = false;
-				for (double[] pointB : microClustering) {
+				for (int b = 0; b < this.coreset.size(); b++) {
 					int i;
-					for (i = 0; i < pointA.length; i++) {
-						if (pointA[i] != pointB[i + 1]) {
+					for (i = 0; i < this.numDimensions; i++) {
+						if (points[a * this.numDimensions + i] != centers[b
+								* this.numDimensions + i]) {
 							break;
 						}
 					}
-					if (i == pointA.length) {
+					if (i == this.numDimensions) {
 						duplicate = true;
-						pointB[0] += 1;
+						this.coreset.getWeights()[b] += 1;
 						break;
 					}
 				}
 
 				if (!duplicate) {
-					// Copies the point to an array with the weight in the first
-					// element
-					double[] pointWeighted = new double[pointA.length + 1];
-					pointWeighted[0] = 1;
-					System.arraycopy(pointA, 0, pointWeighted, 1, pointA.length);
-					microClustering.add(pointWeighted);
+					this.coreset.add(1, this.buffer.getPoint(a));
 				}
 			}
 		} else {
-			// Collects all nodes as arrays with the weight in the first element
-			microClustering = this.root
-					.addToClusteringCenters(new ArrayList<double[]>(this.rootCount));
+			// Collects all nodes with their number of points as weight
+			this.root.addToCoreset(this.coreset);
 		}
 		// Runs the k-means algorithm five times on the micro clustering
-		List<double[]> result = null;
+		double[][] result = null;
 		double minValue = Double.POSITIVE_INFINITY;
 		for (int i = 0; i < 5; i++) {
 			// Creates the starting centroids
-			List<double[]> newResult = CoresetKMeans
-					.generatekMeansPlusPlusCentroids(this.numClusters,
-							microClustering, this.clustererRandom);
+			double[][] newResult = this.coreset.kMeansPlusPlusCentroids(
+					this.numClusters, this.clustererRandom);
 			// Runs the k-means algorithm with changing the starting centroids
-			double newValue = CoresetKMeans.kMeans(newResult, microClustering);
+			double newValue = this.coreset.kMeans(newResult);
 			// Selects the result with minimum costs
 			if (newValue < minValue) {
 				result = newResult;
@@ -203,7 +201,7 @@ public class BICO extends AbstractClusterer {
 
 		// Prepares the points for the clustering result
 		AutoExpandVector<Cluster> resultClustering = new AutoExpandVector<Cluster>(
-				result.size());
+				result.length);
 		for (double[] point : result) {
 			resultClustering.add(new SphereCluster(point, 0.0));
 		}
@@ -223,8 +221,11 @@ public class BICO extends AbstractClusterer {
 		this.numProjections = this.numProjectionsOption.getValue();
 
 		this.bufferPhase = true;
-		this.buffer = new ArrayList<double[]>(
+		this.buffer = new CoresetEngine(this.numDimensions,
+				this.maxNumClusterFeaturesOption.getValue() + 1);
+		this.coreset = new CoresetEngine(this.numDimensions,
 				this.maxNumClusterFeaturesOption.getValue() + 1);
+		this.coreset.setNumberOfJobs(this.numberOfJobsOption.getValue());
 		this.minDistance = Double.POSITIVE_INFINITY;
 		this.pairwiseDifferent = 0;
 
@@ -255,8 +256,8 @@ public class BICO extends AbstractClusterer {
 		if (this.bufferPhase) {
 			// Calculates the pairwise distance to all unequal point in the
 			// buffer
-			for (double[] point : this.buffer) {
-				double d = Metric.distanceSquared(point, x);
+			for (int slot = 0; slot < this.buffer.size(); slot++) {
+				double d = this.buffer.distanceSquared(x, slot);
 				if (d > 0) {
 					this.pairwiseDifferent++;
 					if (d < minDistance) {
@@ -264,7 +265,7 @@ public class BICO extends AbstractClusterer {
 					}
 				}
 			}
-			this.buffer.add(x);
+			this.buffer.add(1, x);
 
 			// Checks if the buffer is large enough
 			if (this.pairwiseDifferent >= this.maxNumClusterFeatures + 1) {
@@ -273,10 +274,9 @@ public class BICO extends AbstractClusterer {
 				this.root.setThreshold(calcRSquared(1));
 				this.bufferPhase = false;
 				// Adds all points to the ClusteringFeature tree
-				for (double[] point : this.buffer) {
-					bicoUpdate(point);
+				for (int slot = 0; slot < this.buffer.size(); slot++) {
+					bicoUpdate(this.buffer.getPoint(slot));
 				}
-				this.buffer.clear();
 				this.buffer = null;
 			}
 		} else {
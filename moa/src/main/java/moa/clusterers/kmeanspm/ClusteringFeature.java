@@ -147,6 +147,23 @@ public class ClusteringFeature extends SphereCluster {
 		return output;
 	}
 
+	/**
+	 * Adds the cluster center of the ClusteringFeature to a coreset, with the
+	 * number of points as weight.
+	 *
+	 * @param coreset
+	 *            the coreset
+	 */
+	public void addClusterCenterTo(CoresetEngine coreset) {
+		int slot = coreset.allocate();
+		double[] coordinates = coreset.getCoordinates();
+		int offset = slot * this.sumPoints.length;
+		for (int i = 0; i < this.sumPoints.length; i++) {
+			coordinates[offset + i] = this.sumPoints[i] / this.numPoints;
+		}
+		coreset.getWeights()[slot] = this.numPoints;
+	}
+
 	/**
 	 * Writes the cluster center to a given stream.
 	 *
@@ -112,6 +112,24 @@ public class ClusteringTreeNode extends AbstractMOAObject {
 		return clustering;
 	}
 
+	/**
+	 * Adds all clustering centers of the ClusterFeatures of the tree with this
+	 * node as the root to a coreset.
+	 *
+	 * @param coreset
+	 *            the coreset to add the clustering centers too.
+	 * @return the input coreset
+	 */
+	public CoresetEngine addToCoreset(CoresetEngine coreset) {
+		if (center != null && getClusteringFeature() != null) {
+			getClusteringFeature().addClusterCenterTo(coreset);
+		}
+		for (ClusteringTreeNode child : children) {
+			child.addToCoreset(coreset);
+		}
+		return coreset;
+	}
+
 	/**
 	 * Writes all clustering centers of the ClusterFeatures of the tree with this
 	 * node as the root to a given stream.
@@ -0,0 +1,476 @@
+/*
+ *    CoresetEngine.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.kmeanspm;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Flat-array store of weighted points shared by the coreset clusterers
+ * (StreamKM and BICO), with the k-means++ seeding and the k-means algorithm
+ * run on it.
+ *
+ * Points live in slots. The coordinates of all slots are kept in a single
+ * array, slot after slot, and the weight, the sum of squares, the id, a label
+ * and a cost of each slot in parallel arrays. Slots are either handed out in
+ * order, so that the slots 0 to size() - 1 form a point set, or recycled
+ * through collect, which frees every slot that is not referenced by the given
+ * arrays of slots. The arrays returned by the getters are replaced when the
+ * store grows, so they must be fetched again after allocating.
+ *
+ * Loops over the points can be run by several threads. Each iteration only
+ * writes the entries of its own point, and sums are taken afterwards in the
+ * order of the points, so the results do not depend on the number of threads.
+ */
+public class CoresetEngine implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Minimum number of indices handed to a thread by parallelFor. */
+	protected static final int MIN_TASK_SIZE = 1024;
+
+	protected final int dimension;
+
+	protected double[] coordinates;
+
+	protected double[] weights;
+
+	protected double[] squareSums;
+
+	protected int[] ids;
+
+	protected int[] labels;
+
+	protected double[] costs;
+
+	protected int size;
+
+	protected int[] freeSlots;
+
+	protected int numFreeSlots;
+
+	protected int numberOfJobs = 1;
+
+	protected transient ForkJoinPool pool;
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param dimension
+	 *            number of coordinates of each point
+	 * @param capacity
+	 *            initial number of slots
+	 */
+	public CoresetEngine(int dimension, int capacity) {
+		this.dimension = dimension;
+		capacity = Math.max(capacity, 1);
+		this.coordinates = new double[capacity * dimension];
+		this.weights = new double[capacity];
+		this.squareSums = new double[capacity];
+		this.ids = new int[capacity];
+		this.labels = new int[capacity];
+		this.costs = new double[capacity];
+		this.freeSlots = new int[0];
+	}
+
+	public int getDimension() {
+		return this.dimension;
+	}
+
+	/**
+	 * Returns the number of slots handed out since the last clear, including
+	 * the free ones.
+	 *
+	 * @return the number of slots
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	public double[] getCoordinates() {
+		return this.coordinates;
+	}
+
+	public double[] getWeights() {
+		return this.weights;
+	}
+
+	public double[] getSquareSums() {
+		return this.squareSums;
+	}
+
+	public int[] getIds() {
+		return this.ids;
+	}
+
+	/**
+	 * @return the label of each slot, free for use by the algorithms
+	 */
+	public int[] getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * @return the cost of each slot, free for use by the algorithms
+	 */
+	public double[] getCosts() {
+		return this.costs;
+	}
+
+	/**
+	 * Sets the number of threads used by the loops over the points.
+	 *
+	 * @param numberOfJobs
+	 *            number of threads, -1 for one per processor
+	 */
+	public void setNumberOfJobs(int numberOfJobs) {
+		if (numberOfJobs == -1) {
+			numberOfJobs = Runtime.getRuntime().availableProcessors();
+		}
+		this.numberOfJobs = Math.max(1, numberOfJobs);
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+	}
+
+	public int getNumberOfJobs() {
+		return this.numberOfJobs;
+	}
+
+	/**
+	 * Frees all slots.
+	 */
+	public void clear() {
+		this.size = 0;
+		this.numFreeSlots = 0;
+	}
+
+	/**
+	 * Hands out a slot holding a point at the origin with weight 1 and id -1.
+	 *
+	 * @return the slot
+	 */
+	public int allocate() {
+		int slot;
+		if (this.numFreeSlots > 0) {
+			slot = this.freeSlots[--this.numFreeSlots];
+		} else {
+			if (this.size == this.weights.length) {
+				grow();
+			}
+			slot = this.size++;
+		}
+		Arrays.fill(this.coordinates, slot * this.dimension, (slot + 1)
+				* this.dimension, 0.0);
+		this.weights[slot] = 1.0;
+		this.squareSums[slot] = 0.0;
+		this.ids[slot] = -1;
+		this.labels[slot] = -1;
+		this.costs[slot] = 0.0;
+		return slot;
+	}
+
+	/**
+	 * Hands out a slot holding a copy of another slot.
+	 *
+	 * @param slot
+	 *            the slot to copy
+	 * @return the new slot
+	 */
+	public int copy(int slot) {
+		int copy = allocate();
+		System.arraycopy(this.coordinates, slot * this.dimension,
+				this.coordinates, copy * this.dimension, this.dimension);
+		this.weights[copy] = this.weights[slot];
+		this.squareSums[copy] = this.squareSums[slot];
+		this.ids[copy] = this.ids[slot];
+		this.labels[copy] = this.labels[slot];
+		this.costs[copy] = this.costs[slot];
+		return copy;
+	}
+
+	/**
+	 * Hands out a slot holding the given point.
+	 *
+	 * @param weight
+	 *            weight of the point
+	 * @param point
+	 *            coordinates of the point
+	 * @return the slot
+	 */
+	public int add(double weight, double[] point) {
+		int slot = allocate();
+		System.arraycopy(point, 0, this.coordinates, slot * this.dimension,
+				this.dimension);
+		this.weights[slot] = weight;
+		return slot;
+	}
+
+	/**
+	 * Copies the coordinates of a slot into a new array.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return the coordinates
+	 */
+	public double[] getPoint(int slot) {
+		return Arrays.copyOfRange(this.coordinates, slot * this.dimension,
+				(slot + 1) * this.dimension);
+	}
+
+	/**
+	 * Frees every slot that does not appear in the given arrays.
+	 *
+	 * @param references
+	 *            the arrays of slots still in use
+	 */
+	public void collect(int[]... references) {
+		boolean[] used = new boolean[this.size];
+		for (int[] slots : references) {
+			for (int slot : slots) {
+				used[slot] = true;
+			}
+		}
+		this.numFreeSlots = 0;
+		if (this.freeSlots.length < this.size) {
+			this.freeSlots = new int[this.size];
+		}
+		// Slots are handed out from the top of the stack, so push them in
+		// reverse order to reuse the lowest ones first
+		for (int slot = this.size - 1; slot >= 0; slot--) {
+			if (!used[slot]) {
+				this.freeSlots[this.numFreeSlots++] = slot;
+			}
+		}
+	}
+
+	protected void grow() {
+		int capacity = 2 * this.weights.length;
+		this.coordinates = Arrays.copyOf(this.coordinates, capacity
+				* this.dimension);
+		this.weights = Arrays.copyOf(this.weights, capacity);
+		this.squareSums = Arrays.copyOf(this.squareSums, capacity);
+		this.ids = Arrays.copyOf(this.ids, capacity);
+		this.labels = Arrays.copyOf(this.labels, capacity);
+		this.costs = Arrays.copyOf(this.costs, capacity);
+	}
+
+	/**
+	 * Runs body for every index from 0 to n-1 using numberOfJobs threads. The
+	 * body must only write state belonging to its own index. Short loops, such
+	 * as the ones over small tree nodes, are run by the calling thread.
+	 *
+	 * @param n
+	 *            number of indices
+	 * @param body
+	 *            the loop body
+	 */
+	public void parallelFor(int n, final IntConsumer body) {
+		int numTasks = Math.min(n / MIN_TASK_SIZE, 4 * this.numberOfJobs);
+		if (this.numberOfJobs <= 1 || numTasks < 2) {
+			for (int i = 0; i < n; i++) {
+				body.accept(i);
+			}
+			return;
+		}
+		if (this.pool == null) {
+			this.pool = new ForkJoinPool(this.numberOfJobs);
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numTasks);
+		for (int t = 0; t < numTasks; t++) {
+			final int from = (int) ((long) n * t / numTasks);
+			final int to = (int) ((long) n * (t + 1) / numTasks);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = from; i < to; i++) {
+						body.accept(i);
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> f : this.pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Generates the initial centroids like the k-means++ algorithm from the
+	 * slots 0 to size() - 1. Uses the costs of these slots.
+	 *
+	 * @param k
+	 *            number of centroids
+	 * @param random
+	 *            instance to generate a stream of pseudorandom numbers
+	 * @return the generated centroids
+	 */
+	public double[][] kMeansPlusPlusCentroids(int k, Random random) {
+		final int n = this.size;
+		assert (n > 0);
+		final double[] distance = this.costs;
+
+		double[][] centers = new double[k][];
+		// Selects and copies the first centroid
+		centers[0] = getPoint(random.nextInt(n));
+
+		Arrays.fill(distance, 0, n, Double.POSITIVE_INFINITY);
+		for (int i = 1; i < k; i++) {
+			// Selects the next centroid
+			final double[] lastCenter = centers[i - 1];
+			parallelFor(n, new IntConsumer() {
+				@Override
+				public void accept(int j) {
+					distance[j] = Math.min(distance[j], weights[j]
+							* distanceSquared(lastCenter, j));
+				}
+			});
+			double sum = 0.0;
+			for (int j = 0; j < n; j++) {
+				sum += distance[j];
+			}
+			int candidate = 0;
+			if (sum > 0) {
+				double nextCenterValue = sum * random.nextDouble();
+				double currentValue = distance[0];
+				while (!(nextCenterValue < currentValue)) {
+					currentValue += distance[++candidate];
+				}
+			}
+			// Copies the selected centroid
+			centers[i] = getPoint(candidate);
+		}
+		return centers;
+	}
+
+	/**
+	 * Executes the k-means algorithm on the slots 0 to size() - 1 with the
+	 * given initial centroids until the costs converges. Uses the labels of
+	 * these slots.
+	 *
+	 * @param centers
+	 *            initial centroids, replaced by the final ones
+	 * @return the k-means costs
+	 */
+	public double kMeans(final double[][] centers) {
+		final int k = centers.length;
+		assert (k > 0);
+		final int d = this.dimension;
+		final int n = this.size;
+		final int[] nearestCluster = this.labels;
+
+		double[][] newCenter = new double[k][d];
+		double[] newCenterWeight = new double[k];
+		boolean converged;
+		do {
+			for (int i = 0; i < k; i++) {
+				Arrays.fill(newCenter[i], 0.0);
+				newCenterWeight[i] = 0.0;
+			}
+			// Calculates the distance from all points to all centroids
+			parallelFor(n, new IntConsumer() {
+				@Override
+				public void accept(int l) {
+					double minDistance = Double.POSITIVE_INFINITY;
+					int closestCluster = -1;
+					for (int i = 0; i < k; i++) {
+						double distance = Math.sqrt(distanceSquared(centers[i], l));
+						if (distance < minDistance) {
+							closestCluster = i;
+							minDistance = distance;
+						}
+					}
+					nearestCluster[l] = closestCluster;
+				}
+			});
+
+			// Sums up all points for the new centroids
+			for (int l = 0; l < n; l++) {
+				int closestCluster = nearestCluster[l];
+				assert (closestCluster >= 0 && closestCluster < k);
+				double weight = this.weights[l];
+				double[] sum = newCenter[closestCluster];
+				int offset = l * d;
+				for (int j = 0; j < d; j++) {
+					sum[j] += weight * this.coordinates[offset + j];
+				}
+				newCenterWeight[closestCluster] += weight;
+			}
+
+			// Calculates the new centroids
+			converged = true;
+			for (int i = 0; i < k; i++) {
+				for (int j = 0; j < d; j++) {
+					if (newCenterWeight[i] != 0.0) {
+						double newValue = newCenter[i][j] / newCenterWeight[i];
+						if (newValue != centers[i][j]) {
+							converged = false;
+						}
+						centers[i][j] = newValue;
+					}
+				}
+			}
+		} while (!converged);
+
+		// Calculates the costs of the solution
+		double costs = 0.0;
+		for (int l = 0; l < n; l++) {
+			costs += this.weights[l]
+					* distanceSquared(centers[nearestCluster[l]], l);
+		}
+		return costs;
+	}
+
+	/**
+	 * Calculates the squared Euclidean distance between a point and a slot.
+	 *
+	 * @param point
+	 *            the point
+	 * @param slot
+	 *            the slot
+	 * @return the squared Euclidean distance
+	 */
+	public double distanceSquared(double[] point, int slot) {
+		double distance = 0.0;
+		int offset = slot * this.dimension;
+		for (int i = 0; i < this.dimension; i++) {
+			double d = point[i] - this.coordinates[offset + i];
+			distance += d * d;
+		}
+		return distance;
+	}
+}
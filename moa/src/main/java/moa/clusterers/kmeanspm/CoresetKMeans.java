@@ -20,7 +20,6 @@
 package moa.clusterers.kmeanspm;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
@@ -50,47 +49,12 @@ public class CoresetKMeans {
 			List<double[]> input, Random random) {
 		int n = input.size();
 		assert (n > 0);
-		int d = input.get(0).length - 1;
 		assert (k <= n);
-
+		double[][] centers = toCoreset(input).kMeansPlusPlusCentroids(k, random);
 		List<double[]> centerValue = new ArrayList<double[]>(k);
-		// Selects and copies the first centroid
-		double[] lastCenter = new double[d];
-		System.arraycopy(input.get(random.nextInt(n)), 1, lastCenter, 0, d);
-		centerValue.add(lastCenter);
-
-		double[] distance = new double[n];
-		for (int j = 0; j < n; j++) {
-			distance[j] = Double.POSITIVE_INFINITY;
+		for (double[] center : centers) {
+			centerValue.add(center);
 		}
-		for (int i = 1; i < k; i++) {
-			// Selects the next centroid
-			double sum = 0.0;
-			Iterator<double[]> jIter = input.iterator();
-			for (int j = 0; j < n; j++) {
-				double[] point = jIter.next();
-				distance[j] = Math
-						.min(distance[j],
-								point[0]
-										* Metric.distanceSquared(lastCenter,
-												point, 1));
-				sum += distance[j];
-
-			}
-			int candidate = 0;
-			if (sum > 0) {
-				double nextCenterValue = sum * random.nextDouble();
-				double currentValue = distance[0];
-				while (!(nextCenterValue < currentValue)) {
-					currentValue += distance[++candidate];
-				}
-			}
-			// Copies the selected centroid
-			lastCenter = new double[d];
-			System.arraycopy(input.get(candidate), 1, lastCenter, 0, d);
-			centerValue.add(lastCenter);
-		}
-
 		return centerValue;
 	}
 
@@ -107,79 +71,32 @@ public class CoresetKMeans {
 	public static double kMeans(List<double[]> centroids, List<double[]> input) {
 		int k = centroids.size();
 		assert (k > 0);
-		int d = centroids.get(0).length;
-		int size = input.size();
-
-		double[][] center = new double[k][];
-		Iterator<double[]> iIter = centroids.iterator();
-		for (int i = 0; i < k; i++) {
-			center[i] = iIter.next();
-		}
-
-		double[][] newCenter = new double[k][d];
-		double[] newCenterWeight = new double[k];
-		int[] nearestCluster = new int[size];
-		boolean converged;
-		do {
-			for (int i = 0; i < k; i++) {
-				for (int j = 0; j < d; j++) {
-					newCenter[i][j] = 0.0;
-				}
-				newCenterWeight[i] = 0.0;
-			}
-			Iterator<double[]> lIter = input.iterator();
-			for (int l = 0; l < size; l++) {
-				// Calculates the distance from all points to all centroids
-				double[] point = lIter.next();
-				assert (d == point.length - 1);
-				double minDistance = Double.POSITIVE_INFINITY;
-				int closestCluster = -1;
-				for (int i = 0; i < k; i++) {
-					double distance = Metric.distance(center[i], point, 1);
-					if (distance < minDistance) {
-						closestCluster = i;
-						minDistance = distance;
-					}
-				}
-
-				// Sums up all points for the new centroids
-				assert (closestCluster >= 0 && closestCluster < k);
-				for (int j = 0; j < d; j++) {
-					newCenter[closestCluster][j] += point[0] * point[j + 1];
-				}
-				newCenterWeight[closestCluster] += point[0];
-				nearestCluster[l] = closestCluster;
-			}
-
-			// Calculates the new centroids
-			converged = true;
-			for (int i = 0; i < k; i++) {
-				for (int j = 0; j < d; j++) {
-					if (newCenterWeight[i] != 0.0) {
-						double newValue = newCenter[i][j] / newCenterWeight[i];
-						if (newValue != center[i][j]) {
-							converged = false;
-						}
-						center[i][j] = newValue;
-					}
-				}
-			}
-		} while (!converged);
+		double[][] center = centroids.toArray(new double[k][]);
+		double costs = toCoreset(input).kMeans(center);
 		// Replaces the old centroids with the new ones
 		for (int i = 0; i < k; i++) {
 			centroids.set(i, center[i]);
 		}
+		return costs;
+	}
 
-		// Calculates the costs of the solution
-		double costs = 0.0;
-		Iterator<double[]> lIter = input.iterator();
-		for (int l = 0; l < size; l++) {
-			double[] point = lIter.next();
-			costs += point[0]
-					* Metric.distanceSquared(center[nearestCluster[l]], point,
-							1);
+	/**
+	 * Copies a clustering with the weight in the first element of each point
+	 * into a flat store.
+	 *
+	 * @param input
+	 *            input clustering
+	 * @return the store, with the points in the slots 0 to n - 1
+	 */
+	protected static CoresetEngine toCoreset(List<double[]> input) {
+		int d = input.get(0).length - 1;
+		CoresetEngine coreset = new CoresetEngine(d, input.size());
+		for (double[] point : input) {
+			int slot = coreset.allocate();
+			coreset.getWeights()[slot] = point[0];
+			System.arraycopy(point, 1, coreset.getCoordinates(), slot * d, d);
 		}
-		return costs;
+		return coreset;
 	}
 
 }
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.clusterers.outliers.utils.mtree.EuclideanMTree;
+import moa.clusterers.outliers.utils.mtree.MTree;
 
 
 
@@ -55,13 +57,14 @@ public class ISBIndex {
         }
     }
     
-    MyMTree mtree;
+    EuclideanMTree<StreamObj> mtree;
+    MTree.RangeResult<StreamObj> rangeResult = new MTree.RangeResult<StreamObj>();
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     double m_Fraction;
     
     public ISBIndex(double radius, double fra) {
-        mtree = new MyMTree();
+        mtree = new EuclideanMTree<StreamObj>();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_Fraction = fra;
@@ -82,12 +85,12 @@ public class ISBIndex {
         // execute range search at mtree
         StreamObj obj;
         double d;
-        MyMTree.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MyMTree.ResultItem q : query) {
+        mtree.rangeQuery(node.obj, radius, rangeResult);
+        for (int r = 0; r < rangeResult.size(); r++) {
             // get next obj found within range
-            obj = q.data;
+            obj = rangeResult.get(r);
             // get distance of obj from query
-            d = q.distance;
+            d = rangeResult.distance(r);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
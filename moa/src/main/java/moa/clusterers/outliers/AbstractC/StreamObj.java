@@ -29,9 +29,11 @@ public class StreamObj implements EuclideanCoordinate, Comparable<StreamObj> {
     public StreamObj(double... values) {
         this.values = values;
 
+        // hash all the bits of the values, as most values are fractions;
+        // -0.0 equals 0.0, so both must hash alike
         int h = 1;
         for (double value : values) {
-            h = 31 * (int) h + (int) value;
+            h = 31 * h + (value == 0.0 ? 0 : Double.hashCode(value));
         }
         this.hashCode = h;
     }
@@ -20,8 +20,7 @@
 
 package moa.clusterers.outliers.MCOD;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +30,8 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.clusterers.outliers.utils.mtree.EuclideanMTree;
+import moa.clusterers.outliers.utils.mtree.MTree;
 
 
 
@@ -45,7 +46,13 @@ public class ISBIndex {
         public Set<MicroCluster> Rmc;
         public int count_after;
         public NodeType nodeType;
-        private ArrayList<ISBNode> nn_before;
+        // preceding neighbors, sorted ascending by id
+        private long[] nnBeforeIds;
+        private ISBNode[] nnBefore;
+        private int nnBeforeCount;
+        // expiration times of the events of the node that are in the event queue
+        long[] eventTimes = new long[0];
+        int eventCount;
         
         // statistics
         public int nOutlier;
@@ -70,7 +77,9 @@ public class ISBIndex {
             this.Rmc         = new TreeSet<MicroCluster>();
             this.count_after = 1;
             this.nodeType    = NodeType.INLIER_PD;
-            this.nn_before   = new ArrayList<ISBNode>();
+            this.nnBeforeIds = new long[4];
+            this.nnBefore    = new ISBNode[4];
+            this.nnBeforeCount = 0;
         }
         
         @Override
@@ -83,75 +92,103 @@ public class ISBIndex {
         }
         
         public void AddPrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
+            int pos = Arrays.binarySearch(nnBeforeIds, 0, nnBeforeCount, node.id);
             if (pos < 0) {
                 // item does not exist, so add it to the right position
-                nn_before.add(-(pos + 1), node);
+                pos = -(pos + 1);
+                if (nnBeforeCount == nnBeforeIds.length) {
+                    nnBeforeIds = Arrays.copyOf(nnBeforeIds, 2 * nnBeforeCount);
+                    nnBefore = Arrays.copyOf(nnBefore, 2 * nnBeforeCount);
+                }
+                System.arraycopy(nnBeforeIds, pos, nnBeforeIds, pos + 1, nnBeforeCount - pos);
+                System.arraycopy(nnBefore, pos, nnBefore, pos + 1, nnBeforeCount - pos);
+                nnBeforeIds[pos] = node.id;
+                nnBefore[pos] = node;
+                nnBeforeCount++;
             }
         }
         
         public void RemovePrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
+            int pos = Arrays.binarySearch(nnBeforeIds, 0, nnBeforeCount, node.id);
             if (pos >= 0) {
                 // item exists
-                nn_before.remove(pos);
+                nnBeforeCount--;
+                System.arraycopy(nnBeforeIds, pos + 1, nnBeforeIds, pos, nnBeforeCount - pos);
+                System.arraycopy(nnBefore, pos + 1, nnBefore, pos, nnBeforeCount - pos);
+                nnBefore[nnBeforeCount] = null;
+            }
+        }
+        
+        /**
+         * Removes the preceding neighbors with id < sinceId, i.e. the ones 
+         * that have expired.
+         */
+        public void RemovePrecNeighsBefore(long sinceId) {
+            int startPos = FirstPrecNeighPos(sinceId);
+            if (startPos > 0) {
+                nnBeforeCount -= startPos;
+                System.arraycopy(nnBeforeIds, startPos, nnBeforeIds, 0, nnBeforeCount);
+                System.arraycopy(nnBefore, startPos, nnBefore, 0, nnBeforeCount);
+                Arrays.fill(nnBefore, nnBeforeCount, nnBeforeCount + startPos, null);
             }
         }
         
+        // position of the first preceding neighbor with id >= sinceId
+        private int FirstPrecNeighPos(long sinceId) {
+            int pos = Arrays.binarySearch(nnBeforeIds, 0, nnBeforeCount, sinceId);
+            // if the item does not exist, it should be inserted at -(pos + 1)
+            return (pos < 0) ? -(pos + 1) : pos;
+        }
+        
         public ISBNode GetMinPrecNeigh(Long sinceId) {
-            if (nn_before.size() > 0) {                
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.get(startPos);
-                }
+            int startPos = FirstPrecNeighPos(sinceId);
+            if (startPos < nnBeforeCount) {
+                return nnBefore[startPos];
             }
             return null;
         }
         
         public int CountPrecNeighs(Long sinceId) {
-            if (nn_before.size() > 0) {
-                // get number of neighs with id >= sinceId
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.size() - startPos;
-                }
-            }
-            return 0;
+            // get number of neighs with id >= sinceId
+            return nnBeforeCount - FirstPrecNeighPos(sinceId);
         }
         
         public List<ISBNode> Get_nn_before() {
-            return nn_before;
+            return Arrays.asList(Arrays.copyOf(nnBefore, nnBeforeCount));
+        }
+        
+        boolean HasEvent(long expTime) {
+            for (int i = 0; i < eventCount; i++) {
+                if (eventTimes[i] == expTime)
+                    return true;
+            }
+            return false;
+        }
+        
+        void AddEvent(long expTime) {
+            if (eventCount == eventTimes.length)
+                eventTimes = Arrays.copyOf(eventTimes, Math.max(2, 2 * eventCount));
+            eventTimes[eventCount++] = expTime;
+        }
+        
+        void RemoveEvent(long expTime) {
+            for (int i = 0; i < eventCount; i++) {
+                if (eventTimes[i] == expTime) {
+                    eventTimes[i] = eventTimes[--eventCount];
+                    return;
+                }
+            }
         }
     }
     
-    MTreeStreamObjects mtree;
+    EuclideanMTree<StreamObj> mtree;
+    MTree.RangeResult<StreamObj> rangeResult = new MTree.RangeResult<StreamObj>();
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     int m_k; // k nearest neighbors
     
     public ISBIndex(double radius, int k) {
-        mtree = new MTreeStreamObjects();
+        mtree = new EuclideanMTree<StreamObj>();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_k = k;
@@ -184,12 +221,12 @@ public class ISBIndex {
         Vector<ISBSearchResult> results = new Vector<ISBSearchResult>();
         StreamObj obj;
         double d;
-        MTreeStreamObjects.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MTreeStreamObjects.ResultItem q : query) {
+        mtree.rangeQuery(node.obj, radius, rangeResult);
+        for (int r = 0; r < rangeResult.size(); r++) {
             // get next obj found within range
-            obj = q.data;
+            obj = rangeResult.get(r);
             // get distance of obj from query
-            d = q.distance;
+            d = rangeResult.distance(r);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
@@ -20,12 +20,15 @@
 
 package moa.clusterers.outliers.MCOD;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.mtree.EuclideanMTree;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -40,6 +43,13 @@ import com.yahoo.labs.samoa.instances.Instance;
 public class MCOD extends MCODBase {
     public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
     public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+    public IntOption slideOption = new IntOption("slide", 's', 
+            "Number of objects by which the window slides at once. Expirations and arrivals are processed per slide and outliers are reported at the end of each slide. The objects of an incomplete slide are only processed by ProcessPendingObjs, at the end of the stream.", 
+            1, 1, Integer.MAX_VALUE);
+    
+    protected int m_Slide;
+    // objects of the current slide that have not been processed yet
+    protected ArrayList<Instance> slideObjects;
     
     public MCOD()
     {
@@ -53,24 +63,27 @@ public class MCOD extends MCODBase {
         m_WindowSize = windowSizeOption.getValue();
         m_radius = radiusOption.getValue();
         m_k = kOption.getValue();
+        m_Slide = slideOption.getValue();
                 
         Println("Init MCOD:");
         Println("   window_size: " + m_WindowSize);
         Println("   radius: " + m_radius);
         Println("   k: " + m_k);
+        Println("   slide: " + m_Slide);
         
         //bTrace = true;
         //bWarning = true;
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new ArrayDeque<ISBNode>();
+        slideObjects = new ArrayList<Instance>();
         // create ISB
         ISB_PD = new ISBIndex(m_radius, m_k);
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
-        mtreeMC = new MTreeMicroClusters();
+        mtreeMC = new EuclideanMTree<MicroCluster>();
         // create event queue
         eventQueue = new EventQueue();
         
@@ -304,17 +317,17 @@ public class MCOD extends MCODBase {
         }
     }
     
-    void ProcessEventQueue(ISBNode nodeExpired) {
-        EventItem e = eventQueue.FindMin();
-        while ((e != null) && (e.timeStamp <= GetWindowEnd())) {
-            e = eventQueue.ExtractMin();
-            ISBNode x = e.node;
+    void ProcessEventQueue() {
+        long windowEnd = GetWindowEnd();
+        while (!eventQueue.IsEmpty() && (eventQueue.MinTime() <= windowEnd)) {
+            ISBNode x = eventQueue.ExtractMin();
             if (bTrace) Println("Process event queue: check node x: " + x.id);
-            // node x must be in window and not in any micro-cluster
-            boolean bValid = ( IsNodeIdInWin(x.id) && (x.mc == null) );
+            // node x must be in window and not in any micro-cluster; expired 
+            // nodes have already been removed from the window
+            boolean bValid = ( (x.id >= GetWindowStart()) && IsNodeIdInWin(x.id) && (x.mc == null) );
             if (bValid) {
-                // remove nodeExpired from x.nn_before
-                x.RemovePrecNeigh(nodeExpired);
+                // remove expired nodes from x.nn_before
+                x.RemovePrecNeighsBefore(GetWindowStart());
                 // get amount of neighbors of x
                 int count = x.count_after + x.CountPrecNeighs(GetWindowStart());
                 if (count < m_k) {
@@ -331,7 +344,6 @@ public class MCOD extends MCODBase {
             } else {
                 if (bWarning) Println("Process event queue: node x.id: " + x.id + " is not valid!");
             }
-            e = eventQueue.FindMin();
         }
     }
     
@@ -346,22 +358,10 @@ public class MCOD extends MCODBase {
                 
                 if (bTrace) Println("Check if mc has enough objects");
                 if (mc.GetNodesCount() < m_k) {
-                    // remove micro-cluster mc
-                    if (bTrace) Println("Remove mc");
-                    RemoveMicroCluster(mc);
-                    
-                    // insert nodes of mc to set nodesReinsert
-                    nodesReinsert = new TreeSet<ISBNode>();
-                    for (ISBNode q : mc.nodes) {
-                        nodesReinsert.add(q);
-                    }
-                    
-                    // treat each node of mc as new node
-                    for (ISBNode q : mc.nodes) {
-                        if (bTrace) Println("\nTreat as new node q: " + q.id);
-                        q.InitNode();
-                        ProcessNewNode(q, false);
-                    }
+                    // remove micro-cluster mc and treat each node of mc as new node
+                    ArrayList<MicroCluster> mcs = new ArrayList<MicroCluster>();
+                    mcs.add(mc);
+                    RemoveMicroClusters(mcs);
                 }
             } else {
                 // nodeExpired belongs to set PD
@@ -370,13 +370,115 @@ public class MCOD extends MCODBase {
             }
             
             RemoveNode(nodeExpired);
-            ProcessEventQueue(nodeExpired);
+            ProcessEventQueue();
+        }
+    }
+    
+    void RemoveMicroClusters(List<MicroCluster> mcs) {
+        // remove the micro-clusters first, so that their nodes are not 
+        // found in them while being treated as new nodes
+        nodesReinsert = new TreeSet<ISBNode>();
+        for (MicroCluster mc : mcs) {
+            if (bTrace) Println("Remove mc: " + mc.mcc.id);
+            RemoveMicroCluster(mc);
+            nodesReinsert.addAll(mc.nodes);
+        }
+        
+        for (MicroCluster mc : mcs) {
+            for (ISBNode q : mc.nodes) {
+                if (bTrace) Println("\nTreat as new node q: " + q.id);
+                q.InitNode();
+                ProcessNewNode(q, false);
+            }
         }
     }
     
+    /**
+     * Slides the window by all the objects of a slide at once. The nodes 
+     * that expire are removed first, then the micro-clusters left with too 
+     * few nodes are dissolved, then the new nodes are inserted and finally 
+     * the event queue is processed once, so that every check is made against 
+     * the window at the end of the slide.
+     */
+    void ProcessSlide(List<Instance> objects) {
+        long firstId = objId;
+        objId += objects.size(); // slide window
+        
+        if (bTrace) Println("Remove expired nodes");
+        ArrayList<MicroCluster> mcsShrunk = new ArrayList<MicroCluster>();
+        ISBNode nodeExpired;
+        while ((nodeExpired = GetExpiredNode()) != null) {
+            if (bTrace) Println("nodeExpired: " + nodeExpired.id);
+            MicroCluster mc = nodeExpired.mc;
+            if (mc != null) {
+                mc.RemoveNode(nodeExpired);
+                if (!ContainsMC(mcsShrunk, mc))
+                    mcsShrunk.add(mc);
+            } else {
+                ISB_PD.Remove(nodeExpired);
+            }
+            RemoveNode(nodeExpired);
+        }
+        
+        if (bTrace) Println("Check if micro-clusters have enough objects");
+        ArrayList<MicroCluster> mcsRemoved = new ArrayList<MicroCluster>();
+        for (MicroCluster mc : mcsShrunk) {
+            if (mc.GetNodesCount() < m_k)
+                mcsRemoved.add(mc);
+        }
+        if (mcsRemoved.size() > 0)
+            RemoveMicroClusters(mcsRemoved);
+        
+        // objects of a slide larger than the window may expire within the slide
+        int first = (int) Math.max(0, GetWindowStart() - firstId);
+        for (int i = first; i < objects.size(); i++) {
+            Instance inst = objects.get(i);
+            ISBNode nodeNew = new ISBNode(inst, new StreamObj(getInstanceValues(inst)), firstId + i);
+            if (bTrace) { Print("New node: "); PrintNode(nodeNew); }
+            AddNode(nodeNew);
+            ProcessNewNode(nodeNew, true);
+        }
+        
+        ProcessEventQueue();
+    }
+    
+    static boolean ContainsMC(List<MicroCluster> mcs, MicroCluster mc) {
+        // micro-clusters are compared by reference, equal centers are possible
+        for (MicroCluster m : mcs) {
+            if (m == mc)
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Slides the window by the objects of an incomplete slide, as there is
+     * no notification of the end of the stream. The next slide would start
+     * after them, so that calling it earlier moves the slide boundaries.
+     */
+    @Override
+    public void ProcessPendingObjs() {
+        if (slideObjects == null || slideObjects.isEmpty())
+            return;
+        if (bTrace) Println("\n- - - - - - - - - - - -\n");
+        ProcessSlide(slideObjects);
+        slideObjects.clear();
+    }
+    
     @Override
     protected void ProcessNewStreamObj(Instance inst)
     {                
+        if (m_Slide > 1) {
+            slideObjects.add(inst);
+            if (slideObjects.size() >= m_Slide) {
+                if (bTrace) Println("\n- - - - - - - - - - - -\n");
+                ProcessSlide(slideObjects);
+                slideObjects.clear();
+                if (bShowProgress) ShowProgress("Processed " + (objId-1) + " stream objects.");
+            }
+            return;
+        }
+        
         if (bShowProgress) ShowProgress("Processed " + (objId-1) + " stream objects.");       
         // PrintInstance(inst);
         
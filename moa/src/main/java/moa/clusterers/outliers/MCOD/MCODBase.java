@@ -20,7 +20,9 @@
 
 package moa.clusterers.outliers.MCOD;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -28,59 +30,100 @@ import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.mtree.EuclideanMTree;
+import moa.clusterers.outliers.utils.mtree.MTree;
 
 public abstract class MCODBase extends MyBaseOutlierDetector {    
-    protected static class EventItem implements Comparable<EventItem> {
-        public ISBNode node;
-        public Long timeStamp;
-
-        public EventItem(ISBNode node, Long timeStamp) {
-            this.node = node;
-            this.timeStamp = timeStamp;
-        }
-
-        @Override
-        public int compareTo(EventItem t) {
-            if (this.timeStamp > t.timeStamp) {
-                return +1;
-            } else if (this.timeStamp < t.timeStamp) {
-                return -1;
-            } else {
-                if (this.node.id > t.node.id)
-                    return +1;
-                else if (this.node.id < t.node.id)
-                    return -1;
+    /**
+     * Queue of the nodes to check when one of their preceding neighbors 
+     * expires, ordered by expiration time and then by node id. It is a binary 
+     * heap over primitive arrays. As with a set, inserting an event that is 
+     * already in the queue has no effect.
+     */
+    protected static class EventQueue {
+        private long[] times = new long[16];
+        private long[] ids = new long[16];
+        private ISBNode[] nodes = new ISBNode[16];
+        private int size = 0;
+        
+        public void Insert(ISBNode node, Long expTime) {
+            long t = expTime;
+            if (node.HasEvent(t))
+                return;
+            node.AddEvent(t);
+            if (size == times.length) {
+                times = Arrays.copyOf(times, 2 * size);
+                ids = Arrays.copyOf(ids, 2 * size);
+                nodes = Arrays.copyOf(nodes, 2 * size);
             }
-            return 0;
+            long id = node.id;
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (!Less(t, id, times[parent], ids[parent]))
+                    break;
+                Set(pos, times[parent], ids[parent], nodes[parent]);
+                pos = parent;
+            }
+            Set(pos, t, id, node);
         }
-    }
-    
-    protected static class EventQueue {
-        public TreeSet<EventItem> setEvents;
-
-        public EventQueue() {
-            setEvents = new TreeSet<EventItem>();
+        
+        public boolean IsEmpty() {
+            return size == 0;
         }
         
-        public void Insert(ISBNode node, Long expTime) {
-            setEvents.add(new EventItem(node, expTime));
+        public int Size() {
+            return size;
         }
         
-        public EventItem FindMin() {
-            if (setEvents.size() > 0) {
-                // events are sorted ascenting by expiration time
-                return setEvents.first();
-            }
-            return null;
+        // expiration time of the first event, the queue must not be empty
+        public long MinTime() {
+            return times[0];
         }
         
-        public EventItem ExtractMin() {
-            EventItem e = FindMin();
-            if (e != null) {
-                setEvents.remove(e);
-                return e;
+        // removes the first event and returns its node
+        public ISBNode ExtractMin() {
+            if (size == 0)
+                return null;
+            ISBNode node = nodes[0];
+            node.RemoveEvent(times[0]);
+            size--;
+            long t = times[size];
+            long id = ids[size];
+            ISBNode last = nodes[size];
+            nodes[size] = null;
+            if (size > 0) {
+                int pos = 0;
+                int child;
+                while ((child = 2 * pos + 1) < size) {
+                    if ((child + 1 < size) && Less(times[child + 1], ids[child + 1], times[child], ids[child]))
+                        child++;
+                    if (!Less(times[child], ids[child], t, id))
+                        break;
+                    Set(pos, times[child], ids[child], nodes[child]);
+                    pos = child;
+                }
+                Set(pos, t, id, last);
             }
-            return null;
+            return node;
+        }
+        
+        public long GetTime(int i) {
+            return times[i];
+        }
+        
+        public ISBNode GetNode(int i) {
+            return nodes[i];
+        }
+        
+        private void Set(int pos, long t, long id, ISBNode node) {
+            times[pos] = t;
+            ids[pos] = id;
+            nodes[pos] = node;
+        }
+        
+        private static boolean Less(long t1, long id1, long t2, long id2) {
+            return (t1 < t2) || ((t1 == t2) && (id1 < id2));
         }
     }
     
@@ -88,11 +131,12 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     
     // object identifier increments with each new data stream object
     protected Long objId;
-    // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    // nodes of the window in arrival order, used to find expired nodes
+    protected ArrayDeque<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // MTree index of micro-clusters
-    protected MTreeMicroClusters mtreeMC;
+    protected EuclideanMTree<MicroCluster> mtreeMC;
+    protected MTree.RangeResult<MicroCluster> rangeResultMC = new MTree.RangeResult<MicroCluster>();
     // set of micro-clusters (for trace)
     protected TreeSet<MicroCluster> setMC;
     // nodes treated as new nodes when a mc removed
@@ -253,7 +297,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         if (windowNodes.size() <= 0)
             return null;       
         // get oldest node
-        ISBNode node = windowNodes.get(0);
+        ISBNode node = windowNodes.peekFirst();
         // check if node has expired
         if (node.id < GetWindowStart()) {
             return node;
@@ -286,9 +330,9 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         // create a dummy mc in order to search w.r.t. nodeNew
         MicroCluster dummy = new MicroCluster(nodeNew);
         // query results are returned ascenting by distance
-        MTreeMicroClusters.Query query = mtreeMC.getNearestByRange(dummy, radius);
-        for (MTreeMicroClusters.ResultItem q : query) {            
-            results.add(new SearchResultMC(q.data, q.distance));
+        mtreeMC.rangeQuery(dummy, radius, rangeResultMC);
+        for (int r = 0; r < rangeResultMC.size(); r++) {
+            results.add(new SearchResultMC(rangeResultMC.get(r), rangeResultMC.distance(r)));
         }        
         return results;
     }
@@ -307,9 +351,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     
     void PrintWindow() {
         Println("Window [" + GetWindowStart() + "-" + GetWindowEnd() + "]: ");
-        ISBNode node;
-        for (int i = 0; i < windowNodes.size(); i++) {
-            node = windowNodes.get(i);
+        for (ISBNode node : windowNodes) {
             Print("   Node: ");
             PrintNode(node);
         }
@@ -356,8 +398,8 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     
     public void PrintEventQueue() {
         Println("event queue: ");
-        for (EventItem n : eventQueue.setEvents) {
-            Printf("  id=%d, exp=%d\n", n.node.id, n.timeStamp);
+        for (int i = 0; i < eventQueue.Size(); i++) {
+            Printf("  id=%d, exp=%d\n", eventQueue.GetNode(i).id, eventQueue.GetTime(i));
         }
     }
     
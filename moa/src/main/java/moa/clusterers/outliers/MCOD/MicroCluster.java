@@ -58,6 +58,11 @@ public class MicroCluster implements EuclideanCoordinate, Comparable<MicroCluste
         return mcc.obj.get(index);
     }
 
+    @Override
+    public int hashCode() {
+        return mcc.obj.hashCode();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof MicroCluster) {
@@ -179,6 +179,15 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
         throw new UnsupportedOperationException("Not yet implemented");
     }
     
+    /**
+     * Processes the stream objects that a detector keeps waiting, such as the
+     * objects of an incomplete slide, so that the outliers reported include 
+     * them. The outliers read before only cover the objects processed, so it
+     * is meant to be called once, at the end of the stream.
+     */
+    public void ProcessPendingObjs() {
+    }
+    
     public void PrintOutliers() {        
         Print("Outliers: ");        
         for (Outlier o : outliersFound) {
@@ -20,6 +20,8 @@
 
 package moa.clusterers.outliers;
 
+import java.util.ArrayList;
+import java.util.List;
 import moa.clusterers.outliers.AbstractC.AbstractC;
 import moa.clusterers.outliers.Angiulli.ExactSTORM;
 import moa.clusterers.outliers.MCOD.MCOD;
@@ -27,47 +29,61 @@ import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
 import moa.streams.clustering.RandomRBFGeneratorEvents;
 import com.yahoo.labs.samoa.instances.Instance;
 
+/**
+ * Measures the throughput of the distance-based outlier detectors. The
+ * instances are generated once and replayed to a fresh detector in every
+ * round, and the first rounds are not reported so that the JIT compiler has
+ * warmed up.
+ *
+ * Arguments: detector (MCOD, SimpleCOD, ExactSTORM or AbstractC), number of
+ * instances, warm-up rounds, measured rounds and the slide of MCOD.
+ */
 public class TestSpeed {    
     public static void main(String[] args) throws Exception 
     {        
-        int numInstances = 2000;        
+        String detector = args.length > 0 ? args[0] : "MCOD";
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int warmupRounds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int slide = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        
         RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
         stream.prepareForUse();
+        List<Instance> instances = new ArrayList<Instance>();
+        while (stream.hasMoreInstances() && (instances.size() < numInstances)) {               
+            instances.add(stream.nextInstance().getData());
+        }
         
-        SimpleCOD scod = new SimpleCOD();   
-        MCOD mcod = new MCOD();        
-        ExactSTORM angiulli = new ExactSTORM();   
-        //DistanceOutliersAppr angiulli = new DistanceOutliersAppr(); 
-        AbstractC abstractC = new AbstractC();        
-        
-        angiulli.queryFreqOption.setValue(1);
-        
-        scod.setModelContext(stream.getHeader());
-        scod.prepareForUse(); 
-        
-        mcod.setModelContext(stream.getHeader());
-        mcod.prepareForUse(); 
-        
-        angiulli.setModelContext(stream.getHeader());
-        angiulli.prepareForUse(); 
-        
-        abstractC.setModelContext(stream.getHeader());
-        abstractC.prepareForUse();
-        
-        Long tmStart = System.currentTimeMillis();
-        
-        int numberSamples = 0;     
-        while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
-            Instance newInst = stream.nextInstance().getData();
+        for (int round = 0; round < warmupRounds + rounds; round++) {
+            MyBaseOutlierDetector outlierDetector = newDetector(detector, slide);
+            outlierDetector.setModelContext(stream.getHeader());
+            outlierDetector.prepareForUse(); 
             
-            //scod.processNewInstanceImpl(newInst);  
-            mcod.processNewInstanceImpl(newInst);  
-            //angiulli.processNewInstanceImpl(newInst);  
-            //abstractC.processNewInstanceImpl(newInst); 
+            long tmStart = System.nanoTime();
+            for (Instance inst : instances) {
+                outlierDetector.processNewInstanceImpl(inst);  
+            }
+            double seconds = (System.nanoTime() - tmStart) / 1e9;
             
-            numberSamples++;
-        }      
-        
-        System.out.println("Total time = " + (System.currentTimeMillis() - tmStart) + " ms");
+            if (round >= warmupRounds) {
+                System.out.println(String.format("Round %d: %.0f ms, %.0f instances/s", 
+                        round - warmupRounds + 1, 1000 * seconds, instances.size() / seconds));
+            }
+        }
+    }
+    
+    static MyBaseOutlierDetector newDetector(String name, int slide) {
+        if (name.equals("SimpleCOD")) {
+            return new SimpleCOD();
+        } else if (name.equals("ExactSTORM")) {
+            ExactSTORM angiulli = new ExactSTORM();
+            angiulli.queryFreqOption.setValue(1);
+            return angiulli;
+        } else if (name.equals("AbstractC")) {
+            return new AbstractC();
+        }
+        MCOD mcod = new MCOD();
+        mcod.slideOption.setValue(slide);
+        return mcod;
     }
 }
@@ -0,0 +1,48 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *    
+ */
+
+package moa.clusterers.outliers.utils.mtree;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+/**
+ * The M-Tree used by the distance-based outlier detectors: Euclidean distance,
+ * nodes of two to three children, and deterministic splits that promote the
+ * minimum and maximum objects and partition the rest in a balanced way.
+ *
+ * @param <DATA> The type of the data objects.
+ */
+public class EuclideanMTree<DATA extends EuclideanCoordinate & Comparable<DATA>> extends MTree<DATA> {
+
+	public EuclideanMTree() {
+		super(2, DistanceFunctions.EUCLIDEAN,
+				new ComposedSplitFunction<DATA>(
+						new PromotionFunctions.MinMaxPromotion<DATA>(),
+						new PartitionFunctions.BalancedPartition<DATA>()));
+	}
+
+	/**
+	 * Checks the invariants of the tree. The checks are assertions, so they
+	 * only have an effect when assertions are enabled.
+	 */
+	public void check() {
+		_check();
+	}
+
+	public DistanceFunction<? super DATA> getDistanceFunction() {
+		return distanceFunction;
+	}
+}
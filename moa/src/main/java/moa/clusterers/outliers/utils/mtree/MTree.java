@@ -19,22 +19,29 @@ package moa.clusterers.outliers.utils.mtree;
 import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 
 
 /**
  * The main class that implements the M-Tree.
  *
+ * <p>Queries only read the tree and keep their state in their own buffers, so
+ * several threads may query the tree at the same time, as long as no thread
+ * modifies it meanwhile.
+ *
  * @param <DATA> The type of data that will be indexed by the M-Tree. Objects of
- *        this type are stored in HashMaps and HashSets, so their
- *        {@code hashCode()} and {@code equals()} methods must be consistent.
+ *        this type are compared with {@code equals()} and stored in HashSets
+ *        during splits, so their {@code hashCode()} and {@code equals()}
+ *        methods must be consistent.
  */
 public class MTree<DATA> {
 
@@ -104,48 +111,12 @@ public class MTree<DATA> {
 
 		private class ResultsIterator implements Iterator<ResultItem> {
 			
-			private class ItemWithDistances <U> implements Comparable<ItemWithDistances<U>> {
-				private U item;
-				private double distance;
-				private double minDistance;
-
-				public ItemWithDistances(U item, double distance, double minDistance) {
-					this.item = item;
-					this.distance = distance;
-					this.minDistance = minDistance;
-				}
-
-				@Override
-				public int compareTo(ItemWithDistances<U> that) {
-					if(this.minDistance < that.minDistance) {
-						return -1;
-					} else if(this.minDistance > that.minDistance) {
-						return +1;
-					} else {
-						return 0;
-					}
-				}
-			}
-			
-			
-			private ResultItem nextResultItem = null;
+			private Search search = new Search();
+			private boolean hasNextResult = false;
 			private boolean finished = false;
-			private PriorityQueue<ItemWithDistances<Node>> pendingQueue = new PriorityQueue<ItemWithDistances<Node>>();
-			private double nextPendingMinDistance;
-			private PriorityQueue<ItemWithDistances<Entry>> nearestQueue = new PriorityQueue<ItemWithDistances<Entry>>();
-			private int yieldedCount;
 			
 			private ResultsIterator() {
-				if(MTree.this.root == null) {
-					finished = true;
-					return;
-				}
-				
-				double distance = MTree.this.distanceFunction.calculate(Query.this.data, MTree.this.root.data);
-				double minDistance = Math.max(distance - MTree.this.root.radius, 0.0);
-				
-				pendingQueue.add(new ItemWithDistances<Node>(MTree.this.root, distance, minDistance));
-				nextPendingMinDistance = minDistance;
+				search.start(Query.this.data, Query.this.range, Query.this.limit);
 			}
 			
 			
@@ -155,11 +126,11 @@ public class MTree<DATA> {
 					return false;
 				}
 				
-				if(nextResultItem == null) {
-					fetchNext();
+				if(!hasNextResult) {
+					hasNextResult = search.fetchNext();
 				}
 				
-				if(nextResultItem == null) {
+				if(!hasNextResult) {
 					finished = true;
 					return false;
 				} else {
@@ -170,9 +141,8 @@ public class MTree<DATA> {
 			@Override
 			public ResultItem next() {
 				if(hasNext()) {
-					ResultItem next = nextResultItem;
-					nextResultItem = null;
-					return next;
+					hasNextResult = false;
+					return new ResultItem(search.resultData, search.resultDistance);
 				} else {
 					throw new NoSuchElementException();
 				}
@@ -183,68 +153,6 @@ public class MTree<DATA> {
 				throw new UnsupportedOperationException();
 			}
 			
-			
-			private void fetchNext() {
-				assert !finished;
-				
-				if(finished  ||  yieldedCount >= Query.this.limit) {
-					finished = true;
-					return;
-				}
-				
-				while(!pendingQueue.isEmpty()  ||  !nearestQueue.isEmpty()) {
-					if(prepareNextNearest()) {
-						return;
-					}
-					
-					assert !pendingQueue.isEmpty();
-					
-					ItemWithDistances<Node> pending = pendingQueue.poll();
-					Node node = pending.item;
-					
-					for(IndexItem child : node.children.values()) {
-						if(Math.abs(pending.distance - child.distanceToParent) - child.radius <= Query.this.range) {
-							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, child.data);
-							double childMinDistance = Math.max(childDistance - child.radius, 0.0);
-							if(childMinDistance <= Query.this.range) {
-								if(child instanceof MTree.Entry) {
-									@SuppressWarnings("unchecked")
-									Entry entry = (Entry)child;
-									nearestQueue.add(new ItemWithDistances<Entry>(entry, childDistance, childMinDistance));
-								} else {
-									@SuppressWarnings("unchecked")
-									Node childNode = (Node)child;
-									pendingQueue.add(new ItemWithDistances<Node>(childNode, childDistance, childMinDistance));
-								}
-							}
-						}
-					}
-					
-					if(pendingQueue.isEmpty()) {
-						nextPendingMinDistance = Double.POSITIVE_INFINITY;
-					} else {
-						nextPendingMinDistance = pendingQueue.peek().minDistance;
-					}
-				}
-
-				finished = true;
-			}
-
-			
-			private boolean prepareNextNearest() {
-				if(!nearestQueue.isEmpty()) {
-					ItemWithDistances<Entry> nextNearest = nearestQueue.peek();
-					if(nextNearest.distance <= nextPendingMinDistance) {
-						nearestQueue.poll();
-						nextResultItem = new ResultItem(nextNearest.item.data, nextNearest.distance);
-						++yieldedCount;
-						return true;
-					}
-				}
-				
-				return false;
-			}
-			
 		}
 		
 		
@@ -268,6 +176,347 @@ public class MTree<DATA> {
 
 
 	
+	/**
+	 * The state of a nearest-neighbors query. Nodes still to be visited and
+	 * entries found but not yet returned are kept in two queues ordered by
+	 * their minimum distance to the query, and the search advances only as far
+	 * as needed to return the next nearest entry. A search can be restarted to
+	 * run another query with the same buffers.
+	 */
+	private class Search {
+		private DistanceQueue<Node> pendingQueue = new DistanceQueue<Node>();
+		private DistanceQueue<Entry> nearestQueue = new DistanceQueue<Entry>();
+		private double nextPendingMinDistance;
+		private int yieldedCount;
+		private DATA queryData;
+		private double range;
+		private int limit;
+		
+		/** The last entry fetched and its distance to the query. */
+		private DATA resultData;
+		private double resultDistance;
+		
+		private void start(DATA queryData, double range, int limit) {
+			this.queryData = queryData;
+			this.range = range;
+			this.limit = limit;
+			this.yieldedCount = 0;
+			this.resultData = null;
+			pendingQueue.clear();
+			nearestQueue.clear();
+			
+			Node root = MTree.this.root;
+			if(root != null) {
+				double distance = MTree.this.distanceFunction.calculate(queryData, root.data);
+				double minDistance = Math.max(distance - root.radius, 0.0);
+				
+				pendingQueue.add(root, distance, minDistance);
+				nextPendingMinDistance = minDistance;
+			}
+		}
+		
+		/**
+		 * Fetches the next nearest entry into resultData and resultDistance.
+		 * @return {@code false} if there are no more results.
+		 */
+		private boolean fetchNext() {
+			if(yieldedCount >= limit) {
+				return false;
+			}
+			
+			while(!pendingQueue.isEmpty()  ||  !nearestQueue.isEmpty()) {
+				if(prepareNextNearest()) {
+					return true;
+				}
+				
+				assert !pendingQueue.isEmpty();
+				
+				Node node = pendingQueue.peekItem();
+				double nodeDistance = pendingQueue.peekDistance();
+				pendingQueue.poll();
+				
+				ChildList children = node.children;
+				for(int i = 0; i < children.size(); i++) {
+					IndexItem child = children.get(i);
+					if(Math.abs(nodeDistance - child.distanceToParent) - child.radius <= range) {
+						double childDistance = MTree.this.distanceFunction.calculate(queryData, child.data);
+						double childMinDistance = Math.max(childDistance - child.radius, 0.0);
+						if(childMinDistance <= range) {
+							if(child instanceof MTree.Entry) {
+								@SuppressWarnings("unchecked")
+								Entry entry = (Entry)child;
+								nearestQueue.add(entry, childDistance, childMinDistance);
+							} else {
+								@SuppressWarnings("unchecked")
+								Node childNode = (Node)child;
+								pendingQueue.add(childNode, childDistance, childMinDistance);
+							}
+						}
+					}
+				}
+				
+				if(pendingQueue.isEmpty()) {
+					nextPendingMinDistance = Double.POSITIVE_INFINITY;
+				} else {
+					nextPendingMinDistance = pendingQueue.peekMinDistance();
+				}
+			}
+			
+			return false;
+		}
+		
+		/**
+		 * Drops the references to the query and to the data of the tree.
+		 */
+		private void finish() {
+			queryData = null;
+			resultData = null;
+			pendingQueue.clear();
+			nearestQueue.clear();
+		}
+		
+		private MTree<DATA> mtree() {
+			return MTree.this;
+		}
+		
+		private boolean prepareNextNearest() {
+			if(!nearestQueue.isEmpty()) {
+				double distance = nearestQueue.peekDistance();
+				if(distance <= nextPendingMinDistance) {
+					resultData = nearestQueue.peekItem().data;
+					resultDistance = distance;
+					nearestQueue.poll();
+					++yieldedCount;
+					return true;
+				}
+			}
+			
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * A binary min-heap of items ordered by their minimum distance to a query.
+	 * The items and their distances are kept in parallel arrays, so adding an
+	 * item does not allocate. Items with equal minimum distances come out in
+	 * the same order as from a {@link java.util.PriorityQueue}.
+	 */
+	private static final class DistanceQueue<T> {
+		private Object[] items = new Object[16];
+		private double[] distances = new double[16];
+		private double[] minDistances = new double[16];
+		private int size;
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		void clear() {
+			Arrays.fill(items, 0, size, null);
+			size = 0;
+		}
+		
+		@SuppressWarnings("unchecked")
+		T peekItem() {
+			return (T) items[0];
+		}
+		
+		double peekDistance() {
+			return distances[0];
+		}
+		
+		double peekMinDistance() {
+			return minDistances[0];
+		}
+		
+		void add(T item, double distance, double minDistance) {
+			if(size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+				minDistances = Arrays.copyOf(minDistances, 2 * size);
+			}
+			int k = size++;
+			while(k > 0) {
+				int parent = (k - 1) >>> 1;
+				if(minDistance >= minDistances[parent]) {
+					break;
+				}
+				move(parent, k);
+				k = parent;
+			}
+			set(k, item, distance, minDistance);
+		}
+		
+		void poll() {
+			int n = --size;
+			Object item = items[n];
+			double distance = distances[n];
+			double minDistance = minDistances[n];
+			items[n] = null;
+			if(n == 0) {
+				return;
+			}
+			int k = 0;
+			int half = n >>> 1;
+			while(k < half) {
+				int child = 2 * k + 1;
+				int right = child + 1;
+				if(right < n  &&  minDistances[child] > minDistances[right]) {
+					child = right;
+				}
+				if(minDistance <= minDistances[child]) {
+					break;
+				}
+				move(child, k);
+				k = child;
+			}
+			set(k, item, distance, minDistance);
+		}
+		
+		private void move(int from, int to) {
+			items[to] = items[from];
+			distances[to] = distances[from];
+			minDistances[to] = minDistances[from];
+		}
+		
+		private void set(int k, Object item, double distance, double minDistance) {
+			items[k] = item;
+			distances[k] = distance;
+			minDistances[k] = minDistance;
+		}
+	}
+	
+	
+	/**
+	 * The results of a range query, in non-decreasing order of distance to the
+	 * query object. The results are stored in arrays that grow as needed and
+	 * are reused by every query the object is passed to, together with the
+	 * buffers of the search itself, so a caller running many queries can keep
+	 * a single instance. An instance must not be shared by concurrent queries.
+	 *
+	 * @param <DATA> The type of the data objects.
+	 */
+	public static class RangeResult<DATA> {
+		private Object[] data = new Object[16];
+		private double[] distances = new double[16];
+		private int size;
+		private MTree<DATA>.Search search;
+		
+		/** @return the number of data objects found. */
+		public int size() {
+			return size;
+		}
+		
+		/** @return the i-th nearest data object found. */
+		@SuppressWarnings("unchecked")
+		public DATA get(int i) {
+			return (DATA) data[i];
+		}
+		
+		/** @return the distance from the i-th nearest data object to the query. */
+		public double distance(int i) {
+			return distances[i];
+		}
+		
+		private void clear() {
+			Arrays.fill(data, 0, size, null);
+			size = 0;
+		}
+		
+		private void add(DATA item, double distance) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+			}
+			data[size] = item;
+			distances[size] = distance;
+			size++;
+		}
+	}
+	
+	
+	/**
+	 * The children of a node, in an array in insertion order. Nodes have few
+	 * children, so finding one by a linear scan is cheaper than hashing, and
+	 * queries can visit them without creating iterators.
+	 *
+	 * <p>As in a map keyed by the data objects, putting a child whose data is
+	 * equal to that of an existing child replaces it.
+	 */
+	private class ChildList {
+		private Object[] items = new Object[4];
+		private int size;
+		
+		int size() {
+			return size;
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		@SuppressWarnings("unchecked")
+		IndexItem get(int i) {
+			return (IndexItem) items[i];
+		}
+		
+		int indexOf(DATA data) {
+			for(int i = 0; i < size; i++) {
+				if(get(i).data.equals(data)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		boolean containsKey(DATA data) {
+			return indexOf(data) >= 0;
+		}
+		
+		IndexItem get(DATA data) {
+			int i = indexOf(data);
+			return i < 0 ? null : get(i);
+		}
+		
+		void put(IndexItem item) {
+			int i = indexOf(item.data);
+			if(i >= 0) {
+				items[i] = item;
+				return;
+			}
+			if(size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+			}
+			items[size++] = item;
+		}
+		
+		IndexItem remove(DATA data) {
+			int i = indexOf(data);
+			if(i < 0) {
+				return null;
+			}
+			IndexItem removed = get(i);
+			System.arraycopy(items, i + 1, items, i, size - i - 1);
+			items[--size] = null;
+			return removed;
+		}
+		
+		void clear() {
+			Arrays.fill(items, 0, size, null);
+			size = 0;
+		}
+		
+		Set<DATA> keySet() {
+			Set<DATA> keys = new LinkedHashSet<DATA>();
+			for(int i = 0; i < size; i++) {
+				keys.add(get(i).data);
+			}
+			return keys;
+		}
+	}
+	
+	
 	/**
 	 * The default minimum capacity of nodes in an M-Tree, when not specified in
 	 * the constructor call.
@@ -445,6 +694,55 @@ public class MTree<DATA> {
 		return new Query(queryData, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
 	}
 	
+	/**
+	 * Performs a range query on the M-Tree, storing the results in buffers
+	 * instead of creating an object per result.
+	 * @param queryData The query data object.
+	 * @param range     The maximum distance from {@code queryData} to fetched
+	 *                  neighbors.
+	 * @param result    The object that receives the results, in non-decreasing
+	 *                  order of distance. Its previous contents are discarded.
+	 */
+	public void rangeQuery(DATA queryData, double range, RangeResult<DATA> result) {
+		result.clear();
+		Search search;
+		if(result.search != null  &&  result.search.mtree() == this) {
+			search = result.search;
+		} else {
+			search = new Search();
+			result.search = search;
+		}
+		search.start(queryData, range, Integer.MAX_VALUE);
+		while(search.fetchNext()) {
+			result.add(search.resultData, search.resultDistance);
+		}
+		search.finish();
+	}
+	
+	/**
+	 * Performs a range query for each of several data objects. The queries
+	 * only read the tree, so they can be run in parallel, provided that the
+	 * tree is not modified until they finish.
+	 * @param queries  The query data objects.
+	 * @param range    The maximum distance from each query to fetched
+	 *                 neighbors.
+	 * @param parallel Whether to run the queries in parallel.
+	 * @return The results of each query, in the order of {@code queries}.
+	 */
+	public List<RangeResult<DATA>> rangeQueries(final List<? extends DATA> queries,
+			final double range, boolean parallel) {
+		final List<RangeResult<DATA>> results = new ArrayList<RangeResult<DATA>>(queries.size());
+		for(int i = 0; i < queries.size(); i++) {
+			results.add(new RangeResult<DATA>());
+		}
+		IntStream indexes = IntStream.range(0, queries.size());
+		if(parallel) {
+			indexes = indexes.parallel();
+		}
+		indexes.forEach(i -> rangeQuery(queries.get(i), range, results.get(i)));
+		return results;
+	}
+	
 	
 	protected void _check() {
 		if(root != null) {
@@ -485,7 +783,7 @@ public class MTree<DATA> {
 	
 	private abstract class Node extends IndexItem {
 
-		protected Map<DATA, IndexItem> children = new HashMap<DATA, IndexItem>();
+		protected ChildList children = new ChildList();
 		protected Rootness       rootness;
 		protected Leafness<DATA> leafness;
 		
@@ -512,10 +810,8 @@ public class MTree<DATA> {
 			_checkMaxCapacity();
 
 			int childHeight = -1;
-			for(Map.Entry<DATA, IndexItem> e : children.entrySet()) {
-				DATA data = e.getKey();
-				IndexItem child = e.getValue();
-				assert child.data.equals(data);
+			for(int i = 0; i < children.size(); i++) {
+				IndexItem child = children.get(i);
 
 				_checkChildClass(child);
 				_checkChildMetrics(child);
@@ -695,16 +991,13 @@ public class MTree<DATA> {
 		
 		public void doAddData(DATA data, double distance) {
 			Entry entry = thisNode.mtree().new Entry(data);
-			assert !thisNode.children.containsKey(data);
-			thisNode.children.put(data, entry);
-			assert thisNode.children.containsKey(data);
+			thisNode.children.put(entry);
 			thisNode.updateMetrics(entry, distance);
 		}
 
 		public void addChild(IndexItem child, double distance) {
 			assert !thisNode.children.containsKey(child.data);
-			thisNode.children.put(child.data, child);
-			assert thisNode.children.containsKey(child.data);
+			thisNode.children.put(child);
 			thisNode.updateMetrics(child, distance);
 		}
 		
@@ -743,9 +1036,9 @@ public class MTree<DATA> {
 			CandidateChild minRadiusIncreaseNeeded = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
 			CandidateChild nearestDistance         = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
 			
-			for(IndexItem item : thisNode.children.values()) {
+			for(int i = 0; i < thisNode.children.size(); i++) {
 				@SuppressWarnings("unchecked")
-				Node child = (Node)item;
+				Node child = (Node)thisNode.children.get(i);
 				double childDistance = thisNode.mtree().distanceFunction.calculate(child.data, data);
 				if(childDistance > child.radius) {
 					double radiusIncrease = childDistance - child.radius;
@@ -809,7 +1102,8 @@ public class MTree<DATA> {
 					assert existingChild.data.equals(newChild.data);
 					
 					// Transfer the _children_ of the newChild to the existingChild
-					for(IndexItem grandchild : newChild.children.values()) {
+					for(int i = 0; i < newChild.children.size(); i++) {
+						IndexItem grandchild = newChild.children.get(i);
 						existingChild.addChild(grandchild, grandchild.distanceToParent);
 					}
 					newChild.children.clear();
@@ -828,7 +1122,7 @@ public class MTree<DATA> {
 						}
 					}
 				} else {
-					thisNode.children.put(newChild.data, newChild);
+					thisNode.children.put(newChild);
 					thisNode.updateMetrics(newChild, distance);
 				}
 			}
@@ -841,9 +1135,9 @@ public class MTree<DATA> {
 
 
 		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			for(IndexItem childItem : thisNode.children.values()) {
+			for(int i = 0; i < thisNode.children.size(); i++) {
 				@SuppressWarnings("unchecked")
-				Node child = (Node)childItem;
+				Node child = (Node)thisNode.children.get(i);
 				if(Math.abs(distance - child.distanceToParent) <= child.radius) {
 					double distanceToChild = thisNode.mtree().distanceFunction.calculate(data, child.data);
 					if(distanceToChild <= child.radius) {
@@ -877,9 +1171,9 @@ public class MTree<DATA> {
 			Node nearestMergeCandidate = null;
 			double distanceNearestMergeCandidate = Double.POSITIVE_INFINITY;
 
-			for(IndexItem child : thisNode.children.values()) {
+			for(int i = 0; i < thisNode.children.size(); i++) {
 				@SuppressWarnings("unchecked")
-				Node anotherChild = (Node)child;
+				Node anotherChild = (Node)thisNode.children.get(i);
 				if(anotherChild == theChild) continue;
 
 				double distance = thisNode.mtree().distanceFunction.calculate(theChild.data, anotherChild.data);
@@ -898,7 +1192,8 @@ public class MTree<DATA> {
 
 			if(nearestDonor == null) {
 				// Merge
-				for(IndexItem grandchild : theChild.children.values()) {
+				for(int i = 0; i < theChild.children.size(); i++) {
+					IndexItem grandchild = theChild.children.get(i);
                                     //if (thisNode == null) System.out.println("thisNode is null");
                                     //if (thisNode.mtree() == null) System.out.println("thisNode.mtree() is null");
                                     //if (grandchild == null) System.out.println("grandchild is null");
@@ -920,7 +1215,8 @@ public class MTree<DATA> {
 				// Look for the nearest grandchild
 				IndexItem nearestGrandchild = null;
 				double nearestGrandchildDistance = Double.POSITIVE_INFINITY;
-				for(IndexItem grandchild : nearestDonor.children.values()) {
+				for(int i = 0; i < nearestDonor.children.size(); i++) {
+					IndexItem grandchild = nearestDonor.children.get(i);
 					double distance = thisNode.mtree().distanceFunction.calculate(grandchild.data, theChild.data);
 					if(distance < nearestGrandchildDistance) {
 						nearestGrandchildDistance = distance;
@@ -979,7 +1275,7 @@ public class MTree<DATA> {
 			} catch(NodeUnderCapacity e) {
 				// Promote the only child to root
 				@SuppressWarnings("unchecked")
-				Node theChild = (Node)(children.values().iterator().next());
+				Node theChild = (Node)children.get(0);
 				Node newRoot;
 				if(theChild instanceof MTree.InternalNode) {
 					newRoot = new RootNode(theChild.data);
@@ -988,7 +1284,8 @@ public class MTree<DATA> {
 					newRoot = new RootLeafNode(theChild.data);
 				}
 
-				for(IndexItem grandchild : theChild.children.values()) {
+				for(int i = 0; i < theChild.children.size(); i++) {
+					IndexItem grandchild = theChild.children.get(i);
 					distance = MTree.this.distanceFunction.calculate(newRoot.data, grandchild.data);
 					newRoot.addChild(grandchild, distance);
 				}
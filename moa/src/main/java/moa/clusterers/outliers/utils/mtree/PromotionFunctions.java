@@ -49,4 +49,21 @@ public final class PromotionFunctions {
 		}
 	}
 	
+	
+	/**
+	 * A {@linkplain PromotionFunction promotion function} object that promotes
+	 * the minimum and the maximum data objects according to their natural
+	 * ordering, so that splits do not depend on random choices.
+	 *
+	 * @param <DATA> The type of the data objects.
+	 */
+	public static class MinMaxPromotion<DATA extends Comparable<DATA>> implements PromotionFunction<DATA> {
+		@Override
+		public Pair<DATA> process(Set<DATA> dataSet,
+				DistanceFunction<? super DATA> distanceFunction)
+		{
+			return Utils.minMax(dataSet);
+		}
+	}
+	
 }
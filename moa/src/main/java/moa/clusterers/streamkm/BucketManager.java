@@ -1,5 +1,8 @@
 package moa.clusterers.streamkm;
 
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.clusterers.kmeanspm.CoresetEngine;
 
 /**
  *
@@ -17,21 +20,27 @@ package moa.clusterers.streamkm;
  * @see
  * <a href ="https://github.com/Waikato/moa/issues/97#issuecomment-497658907">github issue</a>
  * for arrayOutOfBoundsException of bucketsize
+ *
+ * The points are slots of a CoresetEngine, so the buckets only hold arrays of
+ * slots. Copying a point allocates a slot and taking a point as a centre shares
+ * its slot, as copying and sharing Point objects did before. The slots that are
+ * not referenced by any bucket any more are freed whenever the first bucket
+ * spills over.
  */
 public class BucketManager  {
 
 	protected class Bucket {
 		int cursize;
-		Point[] points;
-		Point[] spillover;
+		int[] points;
+		int[] spillover;
 		
-		public Bucket(int d, int maxsize){
+		public Bucket(int maxsize){
 			this.cursize = 0;
-			this.points = new Point[maxsize];
-			this.spillover = new Point[maxsize];
+			this.points = new int[maxsize];
+			this.spillover = new int[maxsize];
 			for(int i=0; i<maxsize; i++){
-				this.points[i] = new Point(d);
-				this.spillover[i] = new Point(d);
+				this.points[i] = engine.allocate();
+				this.spillover[i] = engine.allocate();
 			}
 		}
 		
@@ -39,8 +48,10 @@ public class BucketManager  {
 
 	protected int numberOfBuckets;
 	protected int maxBucketsize;
+	protected int dimension;
 	protected Bucket[] buckets;
 	protected MTRandom clustererRandom;
+	protected CoresetEngine engine;
 	protected TreeCoreset treeCoreset;
 	
 	
@@ -48,26 +59,46 @@ public class BucketManager  {
 	initializes a bucketmanager for n points with bucketsize maxsize and dimension d
 	**/
 	public BucketManager(int n,int d,int maxsize, MTRandom random){
+		this(n, d, maxsize, random, 1);
+	}
+
+	/**
+	initializes a bucketmanager for n points with bucketsize maxsize and dimension d, 
+	whose reduction steps use numberOfJobs threads
+	**/
+	public BucketManager(int n,int d,int maxsize, MTRandom random, int numberOfJobs){
 		this.clustererRandom = random;
 		this.numberOfBuckets = (int) Math.ceil(Math.log((double)n/(double)maxsize) / Math.log(2) )+2;
 		this.maxBucketsize = maxsize;
+		this.dimension = d;
+		this.engine = new CoresetEngine(d, (2*this.numberOfBuckets+1)*maxsize+this.numberOfBuckets);
+		this.engine.setNumberOfJobs(numberOfJobs);
 		this.buckets = new Bucket[this.numberOfBuckets];
 		for(int i=0; i<this.numberOfBuckets; i++){
-			this.buckets[i] = new Bucket(d,maxsize);
+			this.buckets[i] = new Bucket(maxsize);
 		}
-		this.treeCoreset = new TreeCoreset();
+		this.treeCoreset = new TreeCoreset(this.engine);
 		//printf("Created manager with %d buckets of dimension %d \n",this.numberOfBuckets,d);
 	}
 
 	/**
-	inserts a single point into the bucketmanager
+	returns the store holding the points of the buckets
 	**/
-	void insertPoint(Point p){
+	public CoresetEngine getEngine(){
+		return this.engine;
+	}
+
+	/**
+	inserts a single point with the given id into the bucketmanager
+	**/
+	void insertPoint(Instance inst, int id){
 		
 		//check if there is enough space in the first bucket
 		int cursize = this.buckets[0].cursize;	
 		if(cursize >= this.maxBucketsize) {
 			//printf("Bucket 0 full \n");
+			//free the slots left over by earlier spills
+			freeUnusedPoints();
 			//start spillover process
 			int curbucket  = 0;
 			int nextbucket = 1;
@@ -77,8 +108,7 @@ public class BucketManager  {
 				//copy the bucket	
 				int i;
 				for(i=0; i<this.maxBucketsize; i++){
-					this.buckets[nextbucket].points[i] = this.buckets[curbucket].points[i].clone();
-					//copyPointWithoutInit: we should not copy coordinates? 
+					this.buckets[nextbucket].points[i] = this.engine.copy(this.buckets[curbucket].points[i]);
 				}
 				//bucket is now full
 				this.buckets[nextbucket].cursize = this.maxBucketsize;
@@ -90,8 +120,7 @@ public class BucketManager  {
 				//copy bucket to spillover and continue
 				int i;
 				for(i=0;i<this.maxBucketsize;i++){
-					this.buckets[nextbucket].spillover[i] = this.buckets[curbucket].points[i].clone();
-					//copyPointWithoutInit: we should not copy coordinates? 
+					this.buckets[nextbucket].spillover[i] = this.engine.copy(this.buckets[curbucket].points[i]);
 				}
 				this.buckets[0].cursize=0;
 				cursize = 0;
@@ -103,7 +132,7 @@ public class BucketManager  {
 				while(nextbucket < this.numberOfBuckets && this.buckets[nextbucket].cursize == this.maxBucketsize){
 					//printf("Bucket %d full \n",nextbucket);
 					this.treeCoreset.unionTreeCoreset(this.maxBucketsize,this.maxBucketsize,
-						this.maxBucketsize,p.dimension, 
+						this.maxBucketsize,this.dimension, 
 						this.buckets[curbucket].points,this.buckets[curbucket].spillover,
 						this.buckets[nextbucket].spillover, this.clustererRandom);
 					//bucket now empty
@@ -113,14 +142,14 @@ public class BucketManager  {
 				}
 				if(nextbucket < this.numberOfBuckets){
 					this.treeCoreset.unionTreeCoreset(this.maxBucketsize,this.maxBucketsize,
-							this.maxBucketsize,p.dimension,
+							this.maxBucketsize,this.dimension,
 							this.buckets[curbucket].points,this.buckets[curbucket].spillover,
 							this.buckets[nextbucket].points, this.clustererRandom);
 					this.buckets[curbucket].cursize = 0;
 					this.buckets[nextbucket].cursize = this.maxBucketsize;
 				} else { // if there is no more bucket, move into first bucket
 					this.treeCoreset.unionTreeCoreset(this.maxBucketsize,this.maxBucketsize,
-													  this.maxBucketsize,p.dimension,
+													  this.maxBucketsize,this.dimension,
 													  this.buckets[curbucket].points,this.buckets[curbucket].spillover,
 													  this.buckets[1].points, this.clustererRandom);
 					this.buckets[curbucket].cursize = 0;
@@ -129,11 +158,33 @@ public class BucketManager  {
 			}
 		}
 		//insert point into the first bucket
-		this.buckets[0].points[cursize] = p.clone();
-		//copyPointWithoutInit: we should not copy coordinates? 
+		int slot = this.engine.allocate();
+		double[] coordinates = this.engine.getCoordinates();
+		double squareSum = 0.0;
+		for(int l=0;l<this.dimension;l++){
+			double nextNumber = inst.value(l) * inst.value(l);
+			coordinates[slot*this.dimension+l] = inst.value(l);
+			squareSum += nextNumber*nextNumber;
+		}
+		this.engine.getWeights()[slot] = inst.weight();
+		this.engine.getSquareSums()[slot] = squareSum;
+		this.engine.getIds()[slot] = id;
+		this.buckets[0].points[cursize] = slot;
 		this.buckets[0].cursize++;
 	}
 
+	/**
+	frees the slots that are not referenced by any bucket
+	**/
+	protected void freeUnusedPoints(){
+		int[][] references = new int[2*this.numberOfBuckets][];
+		for(int i=0; i<this.numberOfBuckets; i++){
+			references[2*i] = this.buckets[i].points;
+			references[2*i+1] = this.buckets[i].spillover;
+		}
+		this.engine.collect(references);
+	}
+
 	/**
 	It may happen that the manager is not full (since n is not always a power of 2). In this case we extract the coreset
 	from the manager by computing a coreset of all nonempty buckets
@@ -146,33 +197,28 @@ public class BucketManager  {
 
 	this operation should only be called after the streaming process is finished
 	**/
-	Point[] getCoresetFromManager(int d){
-		Point[] coreset = new Point[d];
+	int[] getCoresetFromManager(int d){
+		int[] coreset = new int[0];
 		int i = 0;
-		//if(this.buckets[this.numberOfBuckets-1].cursize == this.maxBucketsize){
-			//coreset = this.buckets[this.numberOfBuckets-1].points;
-
-		//} else {
-			//find the first nonempty bucket
-			for(i=0; i < this.numberOfBuckets; i++){
-				if(this.buckets[i].cursize != 0){
-					coreset = this.buckets[i].points;
-					break;
-				}
-			}		
-			//as long as there is a nonempty bucket compute a coreset
-			int j;
-			for(j=i+1; j < this.numberOfBuckets; j++){
-				if(this.buckets[j].cursize != 0){
-					//output the coreset into the spillover of bucket j
-					this.treeCoreset.unionTreeCoreset(this.maxBucketsize,this.maxBucketsize,
-						this.maxBucketsize,d, 
-						this.buckets[j].points,coreset,
-						this.buckets[j].spillover, this.clustererRandom); 
-					coreset = this.buckets[j].spillover;			
-				}
+		//find the first nonempty bucket
+		for(i=0; i < this.numberOfBuckets; i++){
+			if(this.buckets[i].cursize != 0){
+				coreset = this.buckets[i].points;
+				break;
 			}
-		//}
+		}		
+		//as long as there is a nonempty bucket compute a coreset
+		int j;
+		for(j=i+1; j < this.numberOfBuckets; j++){
+			if(this.buckets[j].cursize != 0){
+				//output the coreset into the spillover of bucket j
+				this.treeCoreset.unionTreeCoreset(this.maxBucketsize,this.maxBucketsize,
+					this.maxBucketsize,d, 
+					this.buckets[j].points,coreset,
+					this.buckets[j].spillover, this.clustererRandom); 
+				coreset = this.buckets[j].spillover;			
+			}
+		}
 		return coreset;
 	}
 }
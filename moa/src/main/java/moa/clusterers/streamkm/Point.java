@@ -3,6 +3,8 @@ package moa.clusterers.streamkm;
 import moa.cluster.Cluster;
 import moa.cluster.SphereCluster;
 
+import moa.clusterers.kmeanspm.CoresetEngine;
+
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -58,6 +60,18 @@ public class Point {
 		}
 	}
 		
+	public Point(CoresetEngine engine, int slot){
+		this.dimension = engine.getDimension();
+		this.weight = engine.getWeights()[slot];
+		this.squareSum = engine.getSquareSums()[slot];
+		this.coordinates = new double[this.dimension];
+		System.arraycopy(engine.getCoordinates(), slot * this.dimension, this.coordinates, 0, this.dimension);
+		this.id = engine.getIds()[slot];
+		this.cl = -1;
+		this.curCost = engine.getCosts()[slot];
+		this.centreIndex = engine.getLabels()[slot];
+	}
+		
 	public Point clone(){
 		Point res = new Point(this.dimension);
 		res.weight = this.weight;
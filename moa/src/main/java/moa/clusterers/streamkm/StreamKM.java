@@ -1,9 +1,12 @@
 package moa.clusterers.streamkm;
 
+import java.util.function.IntConsumer;
+
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.cluster.Clustering;
 import moa.clusterers.AbstractClusterer;
+import moa.clusterers.kmeanspm.CoresetEngine;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -37,6 +40,10 @@ public class StreamKM extends AbstractClusterer {
 	public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
 			"Seed for random behaviour of the classifier.", 1);	
 
+	public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+			"Total number of concurrent jobs used for the reduction steps and the kMeans++ runs (-1 = as much as possible, 0 = do not use multithreading)",
+			1, -1, Integer.MAX_VALUE);
+
 	protected MTRandom clustererRandom;
 	protected Point[] centresStreamingCoreset;
 
@@ -70,42 +77,16 @@ public class StreamKM extends AbstractClusterer {
 
 		if (this.initialized == false) {
 			this.dimension =  inst.numAttributes();
-			manager = new BucketManager(this.length, this.dimension, this.coresetsize, this.clustererRandom);
+			manager = new BucketManager(this.length, this.dimension, this.coresetsize, this.clustererRandom,
+					this.numberOfJobsOption.getValue());
 			this.initialized = true;
 		}
 
-		manager.insertPoint(new Point(inst, this.numberInstances));     
+		manager.insertPoint(inst, this.numberInstances);
 
 		this.numberInstances++;
 		if (this.numberInstances % lengthOption.getValue() == 0) {
-
-			Point[] streamingCoreset = manager.getCoresetFromManager(dimension);
-
-			//compute 5 clusterings of the coreset with kMeans++ and take the best
-			CoresetCostTriple triple;
-			double minCost = 0.0;
-			double curCost = 0.0;
-
-			triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
-			minCost = triple.getCoresetCost();
-			for (int j = 0 ; j < this.numberOfCentres ; j++)
-			{
-				centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
-			}
-			curCost = minCost;
-
-			for(int i = 1; i < 5; i++){
-				triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
-				curCost = triple.getCoresetCost();
-
-				if(curCost < minCost) {
-					minCost = curCost;
-					for (int j = 0 ; j < this.numberOfCentres ; j++)
-					{
-						centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
-					}
-				}
-			}
+			clusterCoreset();
 		}
 	}
 
@@ -138,33 +119,7 @@ public class StreamKM extends AbstractClusterer {
 
 		if (!evaluateOption.isSet())
 		{
-			Point[] streamingCoreset = manager.getCoresetFromManager(dimension);
-
-			//compute 5 clusterings of the coreset with kMeans++ and take the best
-			CoresetCostTriple triple;
-			double minCost = 0.0;
-			double curCost = 0.0;
-
-			triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
-			minCost = triple.getCoresetCost();
-			for (int j = 0 ; j < this.numberOfCentres ; j++)
-			{
-				centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
-			}
-			curCost = minCost;
-
-			for(int i = 1; i < 5; i++){
-				triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
-				curCost = triple.getCoresetCost();
-
-				if(curCost < minCost) {
-					minCost = curCost;
-					for (int j = 0 ; j < this.numberOfCentres ; j++)
-					{
-						centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
-					}
-				}
-			}
+			CoresetCostTriple triple = clusterCoreset();
 
 			for ( int i = 0; i < centresStreamingCoreset.length; i++ ) {
 				if(centresStreamingCoreset[i] != null){
@@ -176,19 +131,65 @@ public class StreamKM extends AbstractClusterer {
 		return clustering;
 	}
 
+	/**
+	computes 5 clusterings of the coreset with kMeans++ and stores the centres of the best one.
+	Returns the last clustering
+	**/
+	protected CoresetCostTriple clusterCoreset(){
+		int[] streamingCoreset = manager.getCoresetFromManager(dimension);
+
+		//compute 5 clusterings of the coreset with kMeans++ and take the best
+		CoresetCostTriple triple;
+		double minCost = 0.0;
+		double curCost = 0.0;
+
+		triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
+		minCost = triple.getCoresetCost();
+		for (int j = 0 ; j < this.numberOfCentres ; j++)
+		{
+			centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
+		}
+		curCost = minCost;
 
-	public CoresetCostTriple lloydPlusPlus(int k, int n, int d, Point points[]){
+		for(int i = 1; i < 5; i++){
+			triple = lloydPlusPlus(numberOfCentres, coresetsize, dimension, streamingCoreset);
+			curCost = triple.getCoresetCost();
+
+			if(curCost < minCost) {
+				minCost = curCost;
+				for (int j = 0 ; j < this.numberOfCentres ; j++)
+				{
+					centresStreamingCoreset[j] = triple.getCoresetCentres()[j].clone();
+				}
+			}
+		}
+		return triple;
+	}
+
+	/**
+	computes a clustering of the n points of the coreset with kMeans++, 
+	the points being the given slots of the engine of the manager
+	**/
+	public CoresetCostTriple lloydPlusPlus(int k, int n, int d, int points[]){
 		//printf("starting kMeans++\n");
 		CoresetCostTriple triple;
 		double[] radii = new double[k];
+		CoresetEngine engine = this.manager.getEngine();
+		double[] coordinates = engine.getCoordinates();
+		double[] weights = engine.getWeights();
+
+		//centroids of the points, and centre and cost of each point
+		double[] centroids = centroids(n, d, points);
+		int[] centreIndex = new int[n];
+		double[] curCost = new double[n];
 
 		//choose random centres
-		Point[] centres = chooseRandomCentres(k, n, d, points);
-		double cost = targetFunctionValue(k, n, centres, points);
+		Point[] centres = chooseRandomCentres(k, n, d, points, centroids, curCost);
+		double cost = targetFunctionValue(k, n, d, centres, points, centroids, centreIndex, curCost);
 		double newCost = cost;
 
 
-		Point[] massCentres = new Point[k];
+		double[][] massCentres = new double[k][d];
 		double[] numberOfPoints = new double[k];
 
 		do{
@@ -196,72 +197,102 @@ public class StreamKM extends AbstractClusterer {
 			//reset centres of mass
 			int i = 0;
 			for(i = 0; i < k; i++){	
-				massCentres[i] = new Point(d);
+				for(int l = 0; l < d; l++){
+					massCentres[i][l] = 0.0;
+				}
 				numberOfPoints[i] = 0.0;
 			}
-			//compute centres of mass
+			//compute centres of mass, the points being assigned by the last computation of the costs
 			for(i = 0; i < n; i++){
-				int centre = points[i].determineClusterCentreKMeans(k,centres);
-				for(int l = 0; l < massCentres[centre].dimension; l++){
-					if(points[i].weight != 0.0)
-						massCentres[centre].coordinates[l] += points[i].coordinates[l];
+				int centre = centreIndex[i];
+				int slot = points[i];
+				for(int l = 0; l < d; l++){
+					if(weights[slot] != 0.0)
+						massCentres[centre][l] += coordinates[slot*d+l];
 				}
-				numberOfPoints[centre] += points[i].weight;
+				numberOfPoints[centre] += weights[slot];
 
 			}
 
 			//move centres
 			for(i=0; i<k; i++){
 				for(int l=0; l<centres[i].dimension; l++){
-					centres[i].coordinates[l] = massCentres[i].coordinates[l];
+					centres[i].coordinates[l] = massCentres[i][l];
 				}
 				centres[i].weight = numberOfPoints[i];
 			}
 
 			//calculate costs
-			newCost = targetFunctionValue(k, n, centres, points);
+			newCost = targetFunctionValue(k, n, d, centres, points, centroids, centreIndex, curCost);
 			//printf("old cost:%f, new cost:%f \n",cost,newCost);
 		} while (newCost < THRESHOLD * cost);
 
 		//compute radii
 		for (int i = 0 ; i < n ; i++)
 		{
-			int centre = points[i].determineClusterCentreKMeans(k,centres);
+			int centre = centreIndex[i];
+			int slot = points[i];
 			double radius = 0.0;
 			double distance;
 
-			for(int j = 0 ; j < points[i].dimension ; j++)
+			for(int j = 0 ; j < d ; j++)
 			{
-				distance = Math.abs((centres[centre].coordinates[j]/centres[centre].weight) - (points[i].coordinates[j]/points[i].weight));
+				distance = Math.abs((centres[centre].coordinates[j]/centres[centre].weight) - (coordinates[slot*d+j]/weights[slot]));
 				radius += Math.pow(distance, 2.0);
 			}
 
-			radii[centre] += radius*points[i].weight;	
+			radii[centre] += radius*weights[slot];	
 		}
 		for (int i = 0 ; i < k ; i++)
 		{
 			radii[i] = 2.0 * Math.sqrt(radii[i]/centres[i].weight);
 		}
 
-
-		/*printf("Centres: \n");
-		int i=0;
-		for(i=0;i<k;i++){
-			printf("(");
-			int l = 0;
-			for(l=0;l<centres[i].dimension;l++){
-				printf("%f,",centres[i].coordinates[l] / centres[i].weight);
-			}
-			printf(")\n");
-		}
-		printf("kMeans++ finished\n");
-		 */ 
 		triple = new CoresetCostTriple(centres, radii, newCost);
 
 		return triple; 
 	}
 
-	private Point[] chooseRandomCentres(int k, int n, int d, Point points[]){
+	/**
+	computes the centroids of the n points, one after the other
+	**/
+	protected double[] centroids(int n, final int d, final int points[]){
+		CoresetEngine engine = this.manager.getEngine();
+		final double[] coordinates = engine.getCoordinates();
+		final double[] weights = engine.getWeights();
+		final double[] centroids = new double[n*d];
+		engine.parallelFor(n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				int slot = points[i];
+				for(int l=0;l<d;l++){
+					if(weights[slot] != 0.0){
+						centroids[i*d+l] = coordinates[slot*d+l] / weights[slot];
+					} else {
+						centroids[i*d+l] = coordinates[slot*d+l];
+					}
+				}
+			}
+		});
+		return centroids;
+	}
+
+	/**
+	returns the squared distance between the centroid of point i and the centroid at position c of centres
+	**/
+	private static double distance(double[] centroids, int i, double[] centres, int c, int d){
+		double distance = 0.0;
+		for(int l=0;l<d;l++){
+			double diff = centroids[i*d+l] - centres[c*d+l];
+			distance += diff * diff;
+		}
+		return distance;
+	}
+
+	private Point[] chooseRandomCentres(int k, final int n, final int d, int points[], final double[] centroids, final double[] curCost){
+		CoresetEngine engine = this.manager.getEngine();
+		final double[] weights = engine.getWeights();
+		final int[] slots = points;
 
 		//array to store the choosen centres
 		Point[] centres = new Point[k]; 
@@ -275,25 +306,22 @@ public class StreamKM extends AbstractClusterer {
 			next = this.clustererRandom.nextInt(n-1); 
 
 			//check if the choosen point is not a dummy
-		} while( points[next].weight < 1);
+		} while( weights[points[next]] < 1);
 
 		//set j to next unchoosen point
 		j = next;
 		//copy the choosen point to the array
-		centres[i] = points[j].clone();
+		centres[i] = new Point(engine, points[j]);
 
-		//set the current centre for all points to the choosen centre
-		for(i = 0; i < n; i++){
-			points[i].centreIndex = 0;
-			points[i].curCost = points[i].costOfPointToCenter(centres[0]);
+		//set the current cost for all points to the cost of the choosen centre
+		updateCosts(n, d, slots, weights, centroids, j, curCost, true);
 
-		}
 		//choose centre 1 to k-1 with the kMeans++ distribution
 		for(i = 1; i < k; i++){
 
 			double cost = 0.0;
 			for(j = 0; j < n; j++){
-				cost += points[j].curCost;
+				cost += curCost[j];
 			}
 
 			double random = 0;
@@ -306,77 +334,82 @@ public class StreamKM extends AbstractClusterer {
 				pos = -1;
 
 				for(j = 0; j < n; j++){
-					sum = sum + points[j].curCost;
+					sum = sum + curCost[j];
 					if(random <= sum/cost){
 						pos = j;
 						break;
 					}	
 				}	
-			} while (points[pos].weight < 1);
+			} while (weights[points[pos]] < 1);
 
 			//copy the choosen centre
-			centres[i] = points[pos].clone();
+			centres[i] = new Point(engine, points[pos]);
 			//check which points are closest to the new centre
-			for(j = 0; j < n; j++){
-				double newCost = points[j].costOfPointToCenter(centres[i]);
-				if(points[j].curCost > newCost){
-					points[j].curCost = newCost;
-					points[j].centreIndex = i;
-				}
-			}
-
+			updateCosts(n, d, slots, weights, centroids, pos, curCost, false);
 		}
 
-		/*printf("random centres: \n");
-		for(i = 0; i < k; i++){
-			//printf("%d: (",i);
-			int l = 0;
-			for(l = 0; l < centres[i].dimension; l++){
-				printf("%f,",centres[i].coordinates[l] / centres[i].weight);
-			}
-			printf(")\n");
-		}*/
-
 		return centres;
 	}
 
 	/**
-	computes the target function for the given pointarray points[] (of size n) with the given array of
-	centres centres[] (of size k)
-	 **/
-	public double targetFunctionValue(int k, int n, Point[] centres, Point[] points){
-		int i=0;
-		double sum = 0.0;
-		for(i=0;i<n;i++){
-			double nearestCost = -1.0;
-			int j=0;
-			for(j=0;j<k;j++){
-				double distance = 0.0;
-				int l = 0;
-				for(l=0;l<points[i].dimension;l++){
-					//Centroid coordinate of the point
-					double centroidCoordinatePoint;
-					if(points[i].weight != 0.0){
-						centroidCoordinatePoint = points[i].coordinates[l] / points[i].weight;
-					} else {
-						centroidCoordinatePoint = points[i].coordinates[l];
-					}
-					//Centroid coordinate of the centre
-					double centroidCoordinateCentre;
-					if(centres[j].weight != 0.0){
-						centroidCoordinateCentre = centres[j].coordinates[l] / centres[j].weight;
-					} else {
-						centroidCoordinateCentre = centres[j].coordinates[l];
-					}
-					distance += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-							(centroidCoordinatePoint-centroidCoordinateCentre) ;
+	lowers the cost of every point to its cost with the point at position centre as centre, 
+	or sets it to that cost if reset is true
+	**/
+	private void updateCosts(int n, final int d, final int[] points, final double[] weights, 
+			final double[] centroids, final int centre, final double[] curCost, final boolean reset){
+		this.manager.getEngine().parallelFor(n, new IntConsumer() {
+			@Override
+			public void accept(int j) {
+				double weight = weights[points[j]];
+				double newCost = 0.0;
+				if(weight != 0.0){
+					newCost = distance(centroids, j, centroids, centre, d) * weight;
+				}
+				if(reset || curCost[j] > newCost){
+					curCost[j] = newCost;
+				}
+			}
+		});
+	}
 
+	/**
+	computes the target function for the given array of points (of size n) with the given array of
+	centres centres[] (of size k), storing the nearest centre and the distance to it of every point
+	 **/
+	public double targetFunctionValue(final int k, int n, final int d, Point[] centres, final int[] points,
+			final double[] centroids, final int[] centreIndex, final double[] nearestCosts){
+		CoresetEngine engine = this.manager.getEngine();
+		final double[] weights = engine.getWeights();
+		//centroids of the centres
+		final double[] centreCentroids = new double[k*d];
+		for(int j=0;j<k;j++){
+			for(int l=0;l<d;l++){
+				if(centres[j].weight != 0.0){
+					centreCentroids[j*d+l] = centres[j].coordinates[l] / centres[j].weight;
+				} else {
+					centreCentroids[j*d+l] = centres[j].coordinates[l];
 				}
-				if(nearestCost <0 || distance < nearestCost) {
-					nearestCost = distance;
-				} 
 			}
-			sum += nearestCost * points[i].weight;
+		}
+		engine.parallelFor(n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				double nearestCost = -1.0;
+				int centre = 0;
+				for(int j=0;j<k;j++){
+					double distance = distance(centroids, i, centreCentroids, j, d);
+					if(nearestCost <0 || distance < nearestCost) {
+						nearestCost = distance;
+						centre = j;
+					} 
+				}
+				centreIndex[i] = centre;
+				nearestCosts[i] = nearestCost;
+			}
+		});
+		double sum = 0.0;
+		for(int i=0;i<n;i++){
+			sum += nearestCosts[i] * weights[points[i]];
 		}
 		return sum;
 	}
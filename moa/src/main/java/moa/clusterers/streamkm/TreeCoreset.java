@@ -1,28 +1,40 @@
 package moa.clusterers.streamkm;
 
+import java.util.function.IntConsumer;
+
+import moa.clusterers.kmeanspm.CoresetEngine;
+
 /**
  *
- * @author Marcel R. Ackermann, Christiane Lammersen, Marcus Maertens, Christoph Raupach, 
+ * @author Marcel R. Ackermann, Christiane Lammersen, Marcus Maertens, Christoph Raupach,
 Christian Sohler, Kamil Swierkot
+ *
+ * Points are slots of a CoresetEngine. During a union the centroids of the
+ * points are computed once into a flat array, and the tree nodes refer to the
+ * points by their position in the union. The cost loops over the points of a
+ * node run on the threads of the engine.
  */
 public class TreeCoreset {
 
 	/**
 	datastructure representing a node within a tree
 	**/
-	protected class treeNode {
+	protected static class treeNode {
 		//number of points in this node
 		int n;
-		
-		//array with pointers on points
-		Point[] points;
 
-		//pointer on the centre of the treenode
-		Point centre;
+		//positions of the points in the union
+		int[] points;
+
+		//slot of the centre of the treenode
+		int centre;
+
+		//position of a point with the same centroid as the centre
+		int centrePosition;
 
 		//pointer on the left childnode
 		treeNode lc;
-		
+
 		//pointer on the right childnode
 		treeNode rc;
 
@@ -31,216 +43,94 @@ public class TreeCoreset {
 
 		//cost of the treenode
 		double cost;
-		
-		void free(){
-			this.parent 	= null;
-			this.lc     	= null;
-			this.rc     	= null;
-			this.points		= null; 
-			this.centre     = null;  
-		}
-		
-		public treeNode(int n, Point[] points, Point centre, treeNode parent) {
+
+		public treeNode(int n, int[] points, int centre, int centrePosition, treeNode parent) {
 			this.n = n;
-			this.points = points; 
-			this.centre = centre; 
+			this.points = points;
+			this.centre = centre;
+			this.centrePosition = centrePosition;
 			this.lc = null;
 			this.rc = null;
 			this.parent = parent;
-			this.cost = treeNodeTargetFunctionValue();;
 		}
-		
-		/**
-		initalizes root as a treenode with the union of setA and setB as pointset and centre as centre
-		**/
-	    public treeNode(Point[] setA, Point[] setB, int n_1, int n_2, Point centre, int centreIndex){
-			//loop counter variable
-			int i;	
-
-			//the root has no parent and no child nodes in the beginning
-			this.parent 	= null;
-			this.lc     	= null;
-			this.rc     	= null; 
-
-			//array with points to the points
-			this.points = new Point[n_1+n_2];
-			this.n = n_1 + n_2;
-			
-			for(i=0;i<this.n;i++){
-				if(i < n_1){
-					this.points[i] = setA[i];
-					this.points[i].centreIndex = centreIndex;
-				} else {
-					this.points[i] = setB[i-n_1];
-					this.points[i].centreIndex = centreIndex;
-				}
-			}
+	};
 
-			//set the centre
-			this.centre = centre;
+	//store of the points
+	protected final CoresetEngine engine;
 
-			//calculate costs
-			this.cost = treeNodeTargetFunctionValue();
-		}
-		
-		/**
-		Computes the target function value of the n points of the treenode. Differs from the function "targetFunctionValue" in three things:
+	//dimension of the points of the current union
+	protected int dimension;
 
-		1. only the centre of the treenode is used as a centre
+	//slot of each position of the current union
+	protected int[] slots = new int[0];
 
-		2. works on arrays of pointers instead on arrays of points 
+	//centroid of each position of the current union
+	protected double[] centroids = new double[0];
 
-		3. stores the cost in the treenode
-		**/
-		double treeNodeTargetFunctionValue(){
-			//loop counter variable
-			int i;
-			
-			//stores the cost
-			double sum = 0.0;
-
-			for(i=0; i<this.n; i++){
-				//stores the distance
-				double distance = 0.0;
+	//cost of each position, used by the cost loops
+	protected double[] pointCosts = new double[0];
 
-				//loop counter variable
-				int l;
+	//which positions go to the new centre when a node is split
+	protected boolean[] toNewCentre = new boolean[0];
 
-				for(l=0;l<this.points[i].dimension;l++){
-					//centroid coordinate of the point
-					double centroidCoordinatePoint;
-					if(this.points[i].weight != 0.0){
-						centroidCoordinatePoint = this.points[i].coordinates[l] / this.points[i].weight;
-					} else {
-						centroidCoordinatePoint = this.points[i].coordinates[l];
-					}
-					//centroid coordinate of the centre
-					double centroidCoordinateCentre;
-					if(this.centre.weight != 0.0){
-						centroidCoordinateCentre = this.centre.coordinates[l] / this.centre.weight;
-					} else {
-						centroidCoordinateCentre = this.centre.coordinates[l];
-					}
-					distance += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-							(centroidCoordinatePoint-centroidCoordinateCentre) ;
-						
-				}
+	public TreeCoreset(CoresetEngine engine) {
+		this.engine = engine;
+	}
 
-				sum += distance*this.points[i].weight;	
-			}
-			return sum;
+	/**
+	returns the squared distance between the centroids at two positions
+	**/
+	double distance(int position, int centrePosition){
+		int d = this.dimension;
+		int p = position * d;
+		int c = centrePosition * d;
+		double distance = 0.0;
+		for(int l=0;l<d;l++){
+			double diff = this.centroids[p+l] - this.centroids[c+l];
+			distance += diff * diff;
 		}
-	};
+		return distance;
+	}
 
 	/**
-	computes the hypothetical cost if the node would be split with new centers centreA, centreB
+	Computes the target function value of the n points of the treenode, using only the centre of the treenode as a centre.
+	If centreB is not negative, computes the hypothetical cost if the node would be split with new centers centreA, centreB.
+	Both centres are given by their positions.
 	**/
-	double treeNodeSplitCost(treeNode node, Point centreA, Point centreB){
-		//loop counter variable
-		int i;
-		
-		//stores the cost
-		double sum = 0.0;
-		
-		for(i=0; i<node.n; i++){
-			//loop counter variable
-			int l;	
-
-			//stores the distance between p and centreA
-			double distanceA = 0.0;
-
-			for(l=0;l<node.points[i].dimension;l++){
-				//centroid coordinate of the point
-				double centroidCoordinatePoint;
-				if(node.points[i].weight != 0.0){
-					centroidCoordinatePoint = node.points[i].coordinates[l] / node.points[i].weight;
-				} else {
-					centroidCoordinatePoint = node.points[i].coordinates[l];
-				}
-				//centroid coordinate of the centre
-				double centroidCoordinateCentre;
-				if(centreA.weight != 0.0){
-					centroidCoordinateCentre = centreA.coordinates[l] / centreA.weight;
-				} else {
-					centroidCoordinateCentre = centreA.coordinates[l];
+	double treeNodeCost(final treeNode node, final int centreA, final int centreB){
+		final double[] weights = this.engine.getWeights();
+		final double[] costs = this.pointCosts;
+		this.engine.parallelFor(node.n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				int p = node.points[i];
+				double distance = distance(p, centreA);
+				if(centreB >= 0){
+					double distanceB = distance(p, centreB);
+					if(!(distance < distanceB)){
+						distance = distanceB;
+					}
 				}
-
-				distanceA += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-						(centroidCoordinatePoint-centroidCoordinateCentre) ;
+				costs[i] = distance * weights[slots[p]];
 			}
-
-			//stores the distance between p and centreB
-			double distanceB = 0.0;
-
-			for(l=0;l<node.points[i].dimension;l++){
-				//centroid coordinate of the point
-				double centroidCoordinatePoint;
-				if(node.points[i].weight != 0.0){
-					centroidCoordinatePoint = node.points[i].coordinates[l] / node.points[i].weight;
-				} else {
-					centroidCoordinatePoint = node.points[i].coordinates[l];
-				}
-				//centroid coordinate of the centre
-				double centroidCoordinateCentre;
-				if(centreB.weight != 0.0){
-					centroidCoordinateCentre = centreB.coordinates[l] / centreB.weight;
-				} else {
-					centroidCoordinateCentre = centreB.coordinates[l];
-				}
-
-				distanceB += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-						(centroidCoordinatePoint-centroidCoordinateCentre) ;
-			}
-
-			//add the cost of the closest centre to the sum
-			if(distanceA < distanceB){
-				sum += distanceA*node.points[i].weight;
-			} else {
-				sum += distanceB*node.points[i].weight;
-			}
-
+		});
+		//stores the cost
+		double sum = 0.0;
+		for(int i=0; i<node.n; i++){
+			sum += costs[i];
 		}
-		
-		//return the total cost
 		return sum;
-
 	}
 
-
 	/**
-	computes the cost of point p with the centre of treenode node
+	computes the cost of the point at position p with the centre of treenode node
 	**/
-	double treeNodeCostOfPoint(treeNode node, Point p){
-		if(p.weight == 0.0){
+	double treeNodeCostOfPoint(treeNode node, int p){
+		double weight = this.engine.getWeights()[this.slots[p]];
+		if(weight == 0.0){
 			return 0.0;
 		}
-
-		//stores the distance between centre and p
-		double distance = 0.0;
-		
-		//loop counter variable
-		int l;
-
-		for(l=0;l<p.dimension;l++){
-			//centroid coordinate of the point
-			double centroidCoordinatePoint;
-			if(p.weight != 0.0){
-				centroidCoordinatePoint = p.coordinates[l] / p.weight;
-			} else {
-				centroidCoordinatePoint = p.coordinates[l];
-			}
-			//centroid coordinate of the centre
-			double centroidCoordinateCentre;
-			if(node.centre.weight != 0.0){
-				centroidCoordinateCentre = node.centre.coordinates[l] / node.centre.weight;
-			} else {
-				centroidCoordinateCentre = node.centre.coordinates[l];
-			}
-			distance += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-					(centroidCoordinatePoint-centroidCoordinateCentre) ;
-					
-		}
-		return distance * p.weight;
+		return distance(p, node.centrePosition) * weight;
 	}
 
 	/**
@@ -260,10 +150,10 @@ public class TreeCoreset {
 	selects a leaf node (using the kMeans++ distribution)
 	**/
    treeNode selectNode(treeNode root, MTRandom clustererRandom){
-		
+
 		//random number between 0 and 1
 		double random = clustererRandom.nextDouble();
-		
+
 		while(!isLeaf(root)){
 			if(root.lc.cost == 0 && root.rc.cost == 0){
 				if(root.lc.n == 0){
@@ -273,16 +163,16 @@ public class TreeCoreset {
 				}else if(random < 0.5){
 					random = clustererRandom.nextDouble();
 					root = root.lc;
-				} else {		
-					random = clustererRandom.nextDouble();		
+				} else {
+					random = clustererRandom.nextDouble();
 					root = root.rc;
 				}
 			} else {
 
 				if(random < root.lc.cost/root.cost){
-			
+
 					root = root.lc;
-				} else {		
+				} else {
 
 					root = root.rc;
 				}
@@ -293,36 +183,37 @@ public class TreeCoreset {
 	}
 
 	/**
-	selects a new centre from the treenode (using the kMeans++ distribution)
+	selects a new centre from the treenode (using the kMeans++ distribution) and returns its position,
+	or -1 if a dummy point was chosen
 	**/
-	Point chooseCentre(treeNode node, MTRandom clustererRandom){
+	int chooseCentre(treeNode node, MTRandom clustererRandom){
 
 		//How many times should we try to choose a centre ??
 		int times = 3;
-			
+
 		//stores the nodecost if node is split with the best centre
 		double minCost = node.cost;
-		Point bestCentre = null;
-		
+		int bestCentre = -1;
+
 		//loop counter variable
 		int i;
 		int j;
-		
+
 		for(j=0;j<times;j++){
 			//sum of the relativ cost of the points
 			double sum = 0.0;
 			//random number between 0 and 1
 			double random = clustererRandom.nextDouble();
-			
+
 			for(i=0;i<node.n;i++){
-			
+
 				sum += treeNodeCostOfPoint(node,node.points[i]) / node.cost;
 				if(sum >= random){
-					if(node.points[i].weight == 0.0){
+					if(this.engine.getWeights()[this.slots[node.points[i]]] == 0.0){
 						//printf("ERROR: CHOOSEN DUMMY NODE THOUGH OTHER AVAILABLE \n");
-						return null;
+						return -1;
 					}
-					double curCost = treeNodeSplitCost(node,node.centre,node.points[i]);
+					double curCost = treeNodeCost(node,node.centrePosition,node.points[i]);
 					if(curCost < minCost){
 						bestCentre = node.points[i];
 						minCost = curCost;
@@ -331,7 +222,7 @@ public class TreeCoreset {
 				}
 			}
 		}
-		if(bestCentre == null){
+		if(bestCentre == -1){
 			return node.points[0];
 		} else {
 			return bestCentre;
@@ -339,276 +230,190 @@ public class TreeCoreset {
 	}
 
 	/**
-	returns the next centre
+	splits the parent node and creates two child nodes (one with the old centre and one with the new one)
 	**/
-	Point determineClosestCentre(Point p, Point centreA, Point centreB){
-		
-		//loop counter variable
-		int l;	
-
-		//stores the distance between p and centreA
-		double distanceA = 0.0;
-
-		for(l=0;l<p.dimension;l++){
-			//centroid coordinate of the point
-			double centroidCoordinatePoint;
-			if(p.weight != 0.0){
-				centroidCoordinatePoint = p.coordinates[l] / p.weight;
-			} else {
-				centroidCoordinatePoint = p.coordinates[l];
-			}
-			//centroid coordinate of the centre
-			double centroidCoordinateCentre;
-			if(centreA.weight != 0.0){
-				centroidCoordinateCentre = centreA.coordinates[l] / centreA.weight;
-			} else {
-				centroidCoordinateCentre = centreA.coordinates[l];
-			}
+	void split(final treeNode parent, final int newCentrePosition, int newCentreIndex){
 
-			distanceA += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-					(centroidCoordinatePoint-centroidCoordinateCentre) ;
-		}
+		//loop counter variable
+		int i;
 
-		//stores the distance between p and centreB
-		double distanceB = 0.0;
+		final int newCentre = this.slots[newCentrePosition];
+		final boolean[] toNew = this.toNewCentre;
 
-		for(l=0;l<p.dimension;l++){
-			//centroid coordinate of the point
-			double centroidCoordinatePoint;
-			if(p.weight != 0.0){
-				centroidCoordinatePoint = p.coordinates[l] / p.weight;
-			} else {
-				centroidCoordinatePoint = p.coordinates[l];
+		//1. Determines for each point if the new centre is the closest one. On a tie the new centre is taken.
+		this.engine.parallelFor(parent.n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				int p = parent.points[i];
+				toNew[i] = parent.centre == newCentre
+						|| !(distance(p, parent.centrePosition) < distance(p, newCentrePosition));
 			}
-			//centroid coordinate of the centre
-			double centroidCoordinateCentre;
-			if(centreB.weight != 0.0){
-				centroidCoordinateCentre = centreB.coordinates[l] / centreB.weight;
-			} else {
-				centroidCoordinateCentre = centreB.coordinates[l];
-			}
-
-			distanceB += (centroidCoordinatePoint-centroidCoordinateCentre) * 
-					(centroidCoordinatePoint-centroidCoordinateCentre) ;
-		}
+		});
 
-		//return the nearest centre
-		if(distanceA < distanceB){
-			return centreA;
-		} else {
-			return centreB;
-		}
-	}
-
-	/**
-	splits the parent node and creates two child nodes (one with the old centre and one with the new one)
-	**/
-	void split(treeNode parent, Point newCentre, int newCentreIndex){
-		
-		//loop counter variable
-		int i;
-
-		//1. Counts how many points belong to the new and how many points belong to the old centre
+		//2. Counts how many points belong to the new and how many points belong to the old centre
 		int nOld = 0;
 		int nNew = 0;
 		for(i=0;i<parent.n;i++){
-			Point centre = determineClosestCentre(parent.points[i], parent.centre, newCentre);
-			if(centre == newCentre){
+			if(toNew[i]){
 				nNew++;
 			} else {
 				nOld++;
-			} 
+			}
 		}
 
-		//2. initalizes the arrays for the pointer
-		
-		//array for pointer on the points belonging to the old centre
-		Point[] oldPoints = new Point[nOld];
-
-		//array for pointer on the points belonging to the new centre
-		Point[] newPoints = new Point[nNew];
+		//3. initalizes the arrays for the positions
+		int[] oldPoints = new int[nOld];
+		int[] newPoints = new int[nNew];
+		int[] labels = this.engine.getLabels();
 
 		int indexOld = 0;
 		int indexNew = 0;
 
 		for(i=0;i<parent.n;i++){
-			Point centre = determineClosestCentre(parent.points[i],parent.centre,newCentre);
-			if(centre == newCentre){
+			if(toNew[i]){
 				newPoints[indexNew] = parent.points[i];
-				newPoints[indexNew].centreIndex = newCentreIndex;
+				labels[this.slots[parent.points[i]]] = newCentreIndex;
 				indexNew++;
-			} else if(centre == parent.centre){
+			} else {
 				oldPoints[indexOld] = parent.points[i];
 				indexOld++;
-			} else {
-				//printf("ERROR !!! NO CENTER NEAREST !! \n");
 			}
 		}
 
 		//left child: old centre
-		treeNode lc = new treeNode(nOld, oldPoints, 
-						parent.centre, parent);
-		/*lc.centre = parent.centre;
-		lc.points = oldPoints;
-		lc.n = nOld;
-
-		lc.lc = null;
-		lc.rc = null;
-		lc.parent = parent;
-
-		treeNodeTargetFunctionValue(lc);*/
-		
-		//right child: new centre
-		treeNode rc = new treeNode(nNew, newPoints, newCentre, 
-							 parent);
-		/*rc.centre = newCentre;
-		rc.points = newPoints;
-		rc.n = nNew;
+		treeNode lc = new treeNode(nOld, oldPoints,
+						parent.centre, parent.centrePosition, parent);
+		lc.cost = treeNodeCost(lc, lc.centrePosition, -1);
 
-		rc.lc = null;
-		rc.rc = null;
-		rc.parent = parent;
-
-		treeNodeTargetFunctionValue(rc);*/
+		//right child: new centre
+		treeNode rc = new treeNode(nNew, newPoints, newCentre,
+							 newCentrePosition, parent);
+		rc.cost = treeNodeCost(rc, rc.centrePosition, -1);
 
 		//set childs of the parent node
 		parent.lc = lc;
 		parent.rc = rc;
 
 		//propagate the cost changes to the parent nodes
-		while(parent != null){
-			parent.cost = parent.lc.cost + parent.rc.cost;
-			parent = parent.parent;
-		}
-
-	}
-
-	/**
-	Checks if the storage is completly freed
-	**/
-	boolean treeFinished(treeNode root){
-		return (root.parent == null && root.lc == null && root.rc == null);
-	}
-
-	/**
-	frees a tree of its storage
-	**/
-	void freeTree(treeNode root){
-
-		while(!treeFinished(root)){
-			if(root.lc == null && root.rc == null){
-				root = root.parent;
-			} else if(root.lc == null && root.rc != null){
-				//Schau ob rc ein Blatt ist
-				if(isLeaf(root.rc)){
-					//Gebe rechtes Kind frei
-					root.rc.free();
-					root.rc = null;
-				} else {
-					//Fahre mit rechtem Kind fort
-					root = root.rc;
-				}
-			} else if(root.lc != null) {
-				if(isLeaf(root.lc)){
-					root.lc.free();
-					root.lc = null;
-				} else {
-					root = root.lc;
-				}
-			}
+		treeNode node = parent;
+		while(node != null){
+			node.cost = node.lc.cost + node.rc.cost;
+			node = node.parent;
 		}
-		root.free();
 
 	}
 
 	/**
 	Constructs a coreset of size k from the union of setA and setB
 	**/
-	void unionTreeCoreset(int k,int n_1,int n_2,int d, Point[] setA,Point[] setB, Point[] centres, MTRandom clustererRandom) {
+	void unionTreeCoreset(int k,int n_1,int n_2,int d, int[] setA,int[] setB, int[] centres, MTRandom clustererRandom) {
 		//printf("Computing coreset...\n");
 		//total number of points
-		int n = n_1+n_2;
+		final int n = n_1+n_2;
 
 		//choose the first centre (each point has the same probability of being choosen)
-		
+
 		//stores, how many centres have been choosen yet
-		int choosenPoints = 0; 
-		
+		int choosenPoints = 0;
+
 		//only choose from the n-i points not already choosen
-		int j = clustererRandom.nextInt(n-choosenPoints); 
+		int j = clustererRandom.nextInt(n-choosenPoints);
 
 		//copy the choosen point
-		if(j < n_1){
-			//copyPointWithoutInit(&setA[j],&centres[choosenPoints]);
-			centres[choosenPoints] = setA[j].clone();
-		} else {
-			j = j - n_1;
-			//copyPointWithoutInit(&setB[j],&centres[choosenPoints]);
-			centres[choosenPoints] = setB[j].clone();
+		int first = this.engine.copy(j < n_1 ? setA[j] : setB[j - n_1]);
+		centres[choosenPoints] = first;
+
+		//collect the slots of the union and their centroids
+		prepareUnion(n, d, setA, setB, n_1);
+		int[] labels = this.engine.getLabels();
+		int[] positions = new int[n];
+		for(int i=0;i<n;i++){
+			positions[i] = i;
+			labels[this.slots[i]] = choosenPoints;
 		}
-		treeNode root = new treeNode(setA,setB,n_1,n_2, centres[choosenPoints],choosenPoints); //??
+		treeNode root = new treeNode(n, positions, first, j, null);
+		root.cost = treeNodeCost(root, root.centrePosition, -1);
 		choosenPoints = 1;
-		
+
+		double[] coordinates = this.engine.getCoordinates();
+		double[] weights = this.engine.getWeights();
+		double[] squareSums = this.engine.getSquareSums();
+		int[] ids = this.engine.getIds();
+
 		//choose the remaining points
 		while(choosenPoints < k){
 			if(root.cost > 0.0){
 				treeNode leaf = selectNode(root, clustererRandom);
-				Point centre = chooseCentre(leaf, clustererRandom);
+				int centre = chooseCentre(leaf, clustererRandom);
+				if(centre < 0){
+					throw new IllegalStateException("A dummy point was chosen as centre.");
+				}
 				split(leaf,centre,choosenPoints);
-				//copyPointWithoutInit(centre,&centres[choosenPoints]);
-				centres[choosenPoints] = centre;
+				centres[choosenPoints] = this.slots[centre];
 			} else {
 				//create a dummy point
-				//copyPointWithoutInit(root.centre,&centres[choosenPoints]);
 				centres[choosenPoints] = root.centre;
 				int l;
-				for(l=0;l<root.centre.dimension;l++){
-					centres[choosenPoints].coordinates[l] = -1 * 1000000;
+				for(l=0;l<d;l++){
+					coordinates[root.centre*d+l] = -1 * 1000000;
 				}
-				centres[choosenPoints].id = -1;
-				centres[choosenPoints].weight = 0.0;
-				centres[choosenPoints].squareSum = 0.0;
+				ids[root.centre] = -1;
+				weights[root.centre] = 0.0;
+				squareSums[root.centre] = 0.0;
 			}
-			
+
 			choosenPoints++;
 		}
 
-		//free the tree
-		freeTree(root);
-
 		//recalculate clustering features
 		int i;
 		for(i=0;i<n;i++){
-				
-			if(i < n_1) {
-				
-				int index = setA[i].centreIndex;
-				if(centres[index].id != setA[i].id){
-					centres[index].weight += setA[i].weight;
-					centres[index].squareSum += setA[i].squareSum;
-					int l;
-					for(l=0;l<centres[index].dimension;l++){
-						if(setA[i].weight != 0.0){
-							centres[index].coordinates[l] += setA[i].coordinates[l];
-						}
-					}
-				}
-			} else {
-				
-				int index = setB[i-n_1].centreIndex;
-				if(centres[index].id != setB[i-n_1].id){
-					centres[index].weight += setB[i-n_1].weight;
-					centres[index].squareSum += setB[i-n_1].squareSum;
-					int l;
-					for(l=0;l<centres[index].dimension;l++){
-						if(setB[i-n_1].weight != 0.0){
-							centres[index].coordinates[l] += setB[i-n_1].coordinates[l];
-						}
+			int slot = this.slots[i];
+			int centre = centres[labels[slot]];
+			if(ids[centre] != ids[slot]){
+				weights[centre] += weights[slot];
+				squareSums[centre] += squareSums[slot];
+				int l;
+				for(l=0;l<d;l++){
+					if(weights[slot] != 0.0){
+						coordinates[centre*d+l] += coordinates[slot*d+l];
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	stores the slots of the union of setA and setB and computes their centroids
+	**/
+	void prepareUnion(int n, final int d, int[] setA, int[] setB, int n_1){
+		this.dimension = d;
+		if(this.slots.length < n){
+			this.slots = new int[n];
+			this.centroids = new double[n*d];
+			this.pointCosts = new double[n];
+			this.toNewCentre = new boolean[n];
+		}
+		for(int i=0;i<n;i++){
+			this.slots[i] = i < n_1 ? setA[i] : setB[i-n_1];
+		}
+		final double[] coordinates = this.engine.getCoordinates();
+		final double[] weights = this.engine.getWeights();
+		this.engine.parallelFor(n, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				int slot = slots[i];
+				double weight = weights[slot];
+				for(int l=0;l<d;l++){
+					//centroid coordinate of the point
+					if(weight != 0.0){
+						centroids[i*d+l] = coordinates[slot*d+l] / weight;
+					} else {
+						centroids[i*d+l] = coordinates[slot*d+l];
+					}
+				}
+			}
+		});
+	}
 
 }
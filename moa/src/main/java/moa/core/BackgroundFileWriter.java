@@ -0,0 +1,231 @@
+/*
+ *    BackgroundFileWriter.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffered text file that evaluation tasks write their results to. Results
+ * are passed as records that format themselves, so that in background mode
+ * both the formatting and the I/O happen on a writer thread, and the thread
+ * producing the results only puts them in a bounded queue. The file is
+ * flushed whenever the queue is empty.
+ *
+ * If a record cannot be written, the writer thread keeps the first error and
+ * discards the following records, and the error is thrown by the next call to
+ * write or close. The thread producing the results waits for room in the
+ * queue only while the writer thread is running.
+ *
+ * Without background mode every record is written and flushed at once, as an
+ * autoflushing PrintStream would.
+ */
+public class BackgroundFileWriter implements Closeable {
+
+    /**
+     * Piece of output, formatted when it is written.
+     */
+    public interface Record {
+
+        void writeTo(Writer out) throws IOException;
+    }
+
+    //maximum number of records waiting to be written
+    public static final int QUEUE_CAPACITY = 256;
+
+    //time between two checks of the writer thread while the queue is full
+    protected static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final Record END = new Record() {
+
+        @Override
+        public void writeTo(Writer out) {
+        }
+    };
+
+    protected final File file;
+
+    protected final Writer out;
+
+    protected final BlockingQueue<Record> queue;
+
+    protected final Thread thread;
+
+    protected volatile Throwable error;
+
+    /**
+     * Opens a file, appending to it if it exists.
+     *
+     * @param file the file to write to
+     * @param background whether to write from a background thread
+     * @throws IOException if the file cannot be opened
+     */
+    public BackgroundFileWriter(File file, boolean background) throws IOException {
+        this.file = file;
+        this.out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, file.exists())));
+        if (background) {
+            this.queue = new ArrayBlockingQueue<Record>(QUEUE_CAPACITY);
+            this.thread = new Thread("BackgroundFileWriter " + file.getName()) {
+
+                @Override
+                public void run() {
+                    writeQueue();
+                }
+            };
+            this.thread.setDaemon(true);
+            this.thread.start();
+        } else {
+            this.queue = null;
+            this.thread = null;
+        }
+    }
+
+    public boolean isBackground() {
+        return this.thread != null;
+    }
+
+    public void write(Record record) {
+        checkError();
+        if (this.thread == null) {
+            try {
+                record.writeTo(this.out);
+                this.out.flush();
+            } catch (IOException ex) {
+                this.error = ex;
+                checkError();
+            }
+            return;
+        }
+        try {
+            while (!this.queue.offer(record, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkWriterThread();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing to " + this.file, ex);
+        }
+    }
+
+    public void println(final String line) {
+        write(new Record() {
+
+            @Override
+            public void writeTo(Writer out) throws IOException {
+                out.write(line);
+                out.write(StringUtils.newline);
+            }
+        });
+    }
+
+    /**
+     * Writes the records still in the queue and closes the file.
+     */
+    @Override
+    public void close() {
+        if (this.thread != null) {
+            boolean interrupted = false;
+            //the writer thread always drains the queue while it runs
+            while (this.thread.isAlive()) {
+                try {
+                    if (this.queue.offer(END, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            while (true) {
+                try {
+                    this.thread.join();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            this.out.close();
+        } catch (IOException ex) {
+            if (this.error == null) {
+                this.error = ex;
+            }
+        }
+        checkError();
+    }
+
+    protected void writeQueue() {
+        try {
+            while (true) {
+                Record record = this.queue.take();
+                if (record == END) {
+                    break;
+                }
+                if (this.error != null) {
+                    //keep draining so that the producer is never blocked
+                    continue;
+                }
+                try {
+                    record.writeTo(this.out);
+                    if (this.queue.isEmpty()) {
+                        this.out.flush();
+                    }
+                } catch (Throwable ex) {
+                    this.error = ex;
+                }
+            }
+            if (this.error == null) {
+                this.out.flush();
+            }
+        } catch (IOException ex) {
+            this.error = ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Throws the error of the writer thread, or an exception if the thread
+     * has stopped without one, as no record would be taken from the queue.
+     */
+    protected void checkWriterThread() {
+        checkError();
+        if (!this.thread.isAlive()) {
+            //the thread may have failed after the first check
+            checkError();
+            throw new IllegalStateException("The thread writing to " + this.file + " has stopped.");
+        }
+    }
+
+    protected void checkError() {
+        if (this.error != null) {
+            throw new RuntimeException("Unable to write to " + this.file, this.error);
+        }
+    }
+}
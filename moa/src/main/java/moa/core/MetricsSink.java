@@ -0,0 +1,52 @@
+/*
+ *    MetricsSink.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.List;
+
+/**
+ * Destination for the metrics collected by instrumented learners. A sink
+ * receives a snapshot of named values each time the metrics are published.
+ */
+public interface MetricsSink {
+
+    /**
+     * Receives the current value of a metric.
+     *
+     * @param name the name of the metric
+     * @param value the value of the metric
+     */
+    void addMetric(String name, double value);
+
+    /**
+     * Returns a sink that adds every metric it receives to a list of
+     * measurements, as used by getModelMeasurements.
+     *
+     * @param measurements the list to add the measurements to
+     * @return the sink
+     */
+    static MetricsSink toMeasurements(final List<Measurement> measurements) {
+        return new MetricsSink() {
+
+            @Override
+            public void addMetric(String name, double value) {
+                measurements.add(new Measurement(name, value));
+            }
+        };
+    }
+}
@@ -85,18 +85,34 @@ public class SerializeUtils {
     }
 
     public static Object copyObject(Serializable obj) throws Exception {
+        return readFromByteArray(writeToByteArray(obj));
+    }
+
+    /**
+     * Serializes an object, so that copies of it can be read later with
+     * readFromByteArray without serializing it again.
+     *
+     * @param obj the object to serialize
+     * @return the serialized object
+     * @throws IOException if the object cannot be serialized
+     */
+    public static byte[] writeToByteArray(Serializable obj) throws IOException {
         ByteArrayOutputStream baoStream = new ByteArrayOutputStream();
         ObjectOutputStream out = new ObjectOutputStream(
                 new BufferedOutputStream(baoStream));
         out.writeObject(obj);
         out.flush();
         out.close();
-        byte[] byteArray = baoStream.toByteArray();
+        return baoStream.toByteArray();
+    }
+
+    public static Object readFromByteArray(byte[] byteArray) throws IOException,
+            ClassNotFoundException {
         ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
                 new ByteArrayInputStream(byteArray)));
-        Object copy = in.readObject();
+        Object obj = in.readObject();
         in.close();
-        return copy;
+        return obj;
     }
 
     public static int measureObjectByteSize(Serializable obj) throws Exception {
@@ -33,6 +33,11 @@ public class AdwinClassificationPerformanceEvaluator extends BasicClassification
 
     private static final long serialVersionUID = 1L;
 
+    @Override
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return null;
+    }
+
     @Override
     protected Estimator newEstimator() {
         return new AdwinEstimator();
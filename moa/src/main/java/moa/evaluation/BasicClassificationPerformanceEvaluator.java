@@ -62,6 +62,8 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
     protected Estimator[] precision;
 
     protected Estimator[] recall;
+
+    protected ConfusionMatrix confusionMatrix;
     
     protected Estimator TN;
     
@@ -102,17 +104,26 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
 
     public void reset(int numClasses) {
         this.numClasses = numClasses;
-        this.rowKappa = new Estimator[numClasses];
-        this.columnKappa = new Estimator[numClasses];
-        this.precision = new Estimator[numClasses];
-        this.recall = new Estimator[numClasses];
-        for (int i = 0; i < this.numClasses; i++) {
-            this.rowKappa[i] = newEstimator();
-            this.columnKappa[i] = newEstimator();
-            this.precision[i] = newEstimator();
-            this.recall[i] = newEstimator();
+        this.confusionMatrix = newConfusionMatrix(numClasses);
+        if (this.confusionMatrix == null) {
+            this.rowKappa = new Estimator[numClasses];
+            this.columnKappa = new Estimator[numClasses];
+            this.precision = new Estimator[numClasses];
+            this.recall = new Estimator[numClasses];
+            for (int i = 0; i < this.numClasses; i++) {
+                this.rowKappa[i] = newEstimator();
+                this.columnKappa[i] = newEstimator();
+                this.precision[i] = newEstimator();
+                this.recall[i] = newEstimator();
+            }
+            this.weightCorrect = newEstimator();
+        } else {
+            this.rowKappa = null;
+            this.columnKappa = null;
+            this.precision = null;
+            this.recall = null;
+            this.weightCorrect = null;
         }
-        this.weightCorrect = newEstimator();
         this.weightCorrectNoChangeClassifier = newEstimator();
         this.weightMajorityClassifier = newEstimator();
         this.TN = newEstimator();
@@ -133,18 +144,22 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
                     reset(inst.dataset().numClasses());
                 }
                 this.totalWeightObserved += weight;
-                this.weightCorrect.add(predictedClass == trueClass ? weight : 0);
-                for (int i = 0; i < this.numClasses; i++) {
-                    this.rowKappa[i].add(predictedClass == i ? weight : 0);
-                    this.columnKappa[i].add(trueClass == i ? weight : 0);
-                    // for both precision and recall, NaN values are used to 'balance' the number
-                    // of instances seen across classes
-                    if (predictedClass == i) {
-                        precision[i].add(predictedClass == trueClass ? weight : 0.0);
-                    } else precision[i].add(Double.NaN);
-                    if (trueClass == i) {
-                        recall[i].add(predictedClass == trueClass ? weight : 0.0);
-                    } else recall[i].add(Double.NaN);
+                if (this.confusionMatrix != null) {
+                    this.confusionMatrix.add(trueClass, predictedClass, weight);
+                } else {
+                    this.weightCorrect.add(predictedClass == trueClass ? weight : 0);
+                    for (int i = 0; i < this.numClasses; i++) {
+                        this.rowKappa[i].add(predictedClass == i ? weight : 0);
+                        this.columnKappa[i].add(trueClass == i ? weight : 0);
+                        // for both precision and recall, NaN values are used to 'balance' the number
+                        // of instances seen across classes
+                        if (predictedClass == i) {
+                            precision[i].add(predictedClass == trueClass ? weight : 0.0);
+                        } else precision[i].add(Double.NaN);
+                        if (trueClass == i) {
+                            recall[i].add(predictedClass == trueClass ? weight : 0.0);
+                        } else recall[i].add(Double.NaN);
+                    }
                 }
                 
                 if (predictedClass == 0 && trueClass == 0) {
@@ -164,9 +179,10 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
         int majorityClass = 0;
         double maxProbClass = 0.0;
         for (int i = 0; i < this.numClasses; i++) {
-            if (this.columnKappa[i].estimation() > maxProbClass) {
+            double probClass = getTrueClassFraction(i);
+            if (probClass > maxProbClass) {
                 majorityClass = i;
-                maxProbClass = this.columnKappa[i].estimation();
+                maxProbClass = probClass;
             }
         }
         return majorityClass;
@@ -222,9 +238,26 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
     }
 
     public double getFractionCorrectlyClassified() {
+        if (this.confusionMatrix != null) {
+            return this.confusionMatrix.getFractionCorrect();
+        }
         return this.weightCorrect.estimation();
     }
 
+    protected double getPredictedClassFraction(int numClass) {
+        if (this.confusionMatrix != null) {
+            return this.confusionMatrix.getPredictedFraction(numClass);
+        }
+        return this.rowKappa[numClass].estimation();
+    }
+
+    protected double getTrueClassFraction(int numClass) {
+        if (this.confusionMatrix != null) {
+            return this.confusionMatrix.getTrueFraction(numClass);
+        }
+        return this.columnKappa[numClass].estimation();
+    }
+
     public double getFractionIncorrectlyClassified() {
         return 1.0 - getFractionCorrectlyClassified();
     }
@@ -234,8 +267,8 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
             double p0 = getFractionCorrectlyClassified();
             double pc = 0.0;
             for (int i = 0; i < this.numClasses; i++) {
-                pc += this.rowKappa[i].estimation()
-                        * this.columnKappa[i].estimation();
+                pc += getPredictedClassFraction(i)
+                        * getTrueClassFraction(i);
             }
             return (p0 - pc) / (1.0 - pc);
         } else {
@@ -267,25 +300,31 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
 
     public double getPrecisionStatistic() {
         double total = 0;
-        for (Estimator ck : this.precision) {
-            total += ck.estimation();
+        for (int i = 0; i < this.numClasses; i++) {
+            total += getPrecisionStatistic(i);
         }
-        return total / this.precision.length;
+        return total / this.numClasses;
     }
 
     public double getPrecisionStatistic(int numClass) {
+        if (this.confusionMatrix != null) {
+            return this.confusionMatrix.getPrecision(numClass);
+        }
         return this.precision[numClass].estimation();
     }
 
     public double getRecallStatistic() {
         double total = 0;
-        for (Estimator ck : this.recall) {
-            total += ck.estimation();
+        for (int i = 0; i < this.numClasses; i++) {
+            total += getRecallStatistic(i);
         }
-        return total / this.recall.length;
+        return total / this.numClasses;
     }
 
     public double getRecallStatistic(int numClass) {
+        if (this.confusionMatrix != null) {
+            return this.confusionMatrix.getRecall(numClass);
+        }
         return this.recall[numClass].estimation();
     }
 
@@ -356,6 +395,117 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
         return new BasicEstimator();
     }
 
+    /**
+     * Confusion matrix of the instances seen so far, kept as its row sums,
+     * column sums and diagonal. It replaces the per-class estimators of
+     * accuracy, kappa, precision and recall, so that adding an instance costs
+     * the same whatever the number of classes. Every sum is updated with the
+     * same operations as the estimators it replaces, so the measurements are
+     * identical.
+     */
+    public class ConfusionMatrix implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int numClasses;
+
+        //weight of the instances predicted as each class
+        protected double[] predictedWeight;
+
+        //weight of the instances of each class
+        protected double[] trueWeight;
+
+        //weight of the instances of each class that were classified correctly
+        protected double[] correctWeight;
+
+        protected long[] predictedCount;
+
+        protected long[] trueCount;
+
+        protected double weightCorrect;
+
+        protected long count;
+
+        public ConfusionMatrix(int numClasses) {
+            this.numClasses = numClasses;
+            clear();
+        }
+
+        public void clear() {
+            this.predictedWeight = new double[this.numClasses];
+            this.trueWeight = new double[this.numClasses];
+            this.correctWeight = new double[this.numClasses];
+            this.predictedCount = new long[this.numClasses];
+            this.trueCount = new long[this.numClasses];
+            this.weightCorrect = 0.0;
+            this.count = 0;
+        }
+
+        public void add(int trueClass, int predictedClass, double weight) {
+            //votes may have more entries than the header has classes
+            if (predictedClass < this.numClasses) {
+                this.predictedWeight[predictedClass] += weight;
+                this.predictedCount[predictedClass]++;
+            }
+            this.trueWeight[trueClass] += weight;
+            this.trueCount[trueClass]++;
+            if (trueClass == predictedClass) {
+                this.correctWeight[trueClass] += weight;
+                this.weightCorrect += weight;
+            }
+            this.count++;
+        }
+
+        /**
+         * Removes an instance that was added before, used by windowed
+         * matrices to forget the oldest instance.
+         */
+        protected void remove(int trueClass, int predictedClass, double weight) {
+            //votes may have more entries than the header has classes
+            if (predictedClass < this.numClasses) {
+                this.predictedWeight[predictedClass] -= weight;
+                this.predictedCount[predictedClass]--;
+            }
+            this.trueWeight[trueClass] -= weight;
+            this.trueCount[trueClass]--;
+            if (trueClass == predictedClass) {
+                this.correctWeight[trueClass] -= weight;
+                this.weightCorrect -= weight;
+            }
+            this.count--;
+        }
+
+        public double getFractionCorrect() {
+            return this.weightCorrect / this.count;
+        }
+
+        public double getPredictedFraction(int numClass) {
+            return this.predictedWeight[numClass] / this.count;
+        }
+
+        public double getTrueFraction(int numClass) {
+            return this.trueWeight[numClass] / this.count;
+        }
+
+        public double getPrecision(int numClass) {
+            return this.correctWeight[numClass] / this.predictedCount[numClass];
+        }
+
+        public double getRecall(int numClass) {
+            return this.correctWeight[numClass] / this.trueCount[numClass];
+        }
+    }
+
+    /**
+     * Returns the confusion matrix used to compute accuracy, kappa, precision
+     * and recall, or null to compute them with per-class estimators created by
+     * newEstimator. Evaluators whose estimators are not averages over all the
+     * instances or over a window return null.
+     */
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return new ConfusionMatrix(numClasses);
+    }
+
 
     @Override
     public ImmutableCapabilities defineImmutableCapabilities() {
@@ -26,6 +26,7 @@
 package moa.evaluation;
 
 import java.util.ArrayList;
+import java.util.function.IntConsumer;
 
 import moa.cluster.Cluster;
 import moa.cluster.Clustering;
@@ -119,6 +120,11 @@ public class CMM extends MeasureCollection{
     }
 
     
+    /**
+     * CMM is always computed on all the points, also in the approximate mode:
+     * the connectivity of a point depends on its nearest neighbours in the
+     * whole window, so a sample of the points would not bound its error.
+     */
     @Override
     public void evaluateClustering(Clustering clustering, Clustering trueClustering, ArrayList<DataPoint> points) throws Exception{
         this.clustering = clustering;
@@ -126,7 +132,7 @@ public class CMM extends MeasureCollection{
         numPoints = points.size();
         numFClusters = clustering.size();
 
-        gtAnalysis = new CMM_GTAnalysis(trueClustering, points, enableClassMerge);
+        gtAnalysis = new CMM_GTAnalysis(trueClustering, points, enableClassMerge, this);
 
         numGT0Classes = gtAnalysis.getNumberOfGT0Classes();
 
@@ -295,7 +301,17 @@ public class CMM extends MeasureCollection{
         double totalError = 0.0;
         double totalErrorMax = 0.0;
 
-        /** mainly iterate over all points and find the right error value for the point.
+        /* find the error value and the coverage of every point in parallel */
+        final double[] errors = new double[numPoints];
+        final int[] coverages = new int[numPoints];
+        parallelFor(numPoints, new IntConsumer() {
+            @Override
+            public void accept(int p) {
+                calculatePointError(p, errors, coverages);
+            }
+        });
+
+        /** mainly iterate over all points and sum up the error values.
          *  within the same run calculate various other stuff like coverage etc...
          */
         for (int p = 0; p < numPoints; p++) {
@@ -315,38 +331,13 @@ public class CMM extends MeasureCollection{
             totalErrorMax+=cmdp.connectivity*weight;
 
 
-            double err = 0;
-            int coverage = 0;
+            double err = errors[p];
+            int coverage = coverages[p];
 
-            //check every FCluster
-            for (int c = 0; c < numFClusters; c++) {
-                //contained in cluster c?
-                if(pointInclusionProbFC[p][c] >= pointInclusionProbThreshold){
-                    coverage++;
-
-                    if(!cmdp.isNoise()){
-                        //PLACED CORRECTLY
-                        if(matchMap[c] == cmdp.workclass()){
-                        }
-                        //MISPLACED
-                        else{
-                            double errvalue = misplacedError(cmdp, c);
-                            if(errvalue > err)
-                                err = errvalue;
-                        }
-                    }
-                    else{
-                        //NOISE
-                        double errvalue = noiseError(cmdp, c);
-                        if(errvalue > err) err = errvalue;
-                    }
-                }
-            }
             //not in any cluster
             if(coverage == 0){
                 //MISSED
                 if(!cmdp.isNoise()){
-                    err = missedError(cmdp,true);
                     errorMissed+= weight*err;
                 }
                 //NOISE
@@ -368,9 +359,6 @@ public class CMM extends MeasureCollection{
             if(coverage>0) totalCoverage++;  //points covered by clustering (incl. noise)
             if(coverage>0 && !cmdp.isNoise()) trueCoverage++; //points covered by clustering, don't count noise
             if(coverage>1) totalRedundancy++; //include noise
-
-            cmdp.p.setMeasureValue("CMM",err);
-            cmdp.p.setMeasureValue("Redundancy", coverage);
         }
 
         addValue("CMM", (totalErrorMax!=0)?1-totalError/totalErrorMax:1);
@@ -385,6 +373,50 @@ public class CMM extends MeasureCollection{
     }
 
 
+    /**
+     * Calculates the error value and the coverage of a single point
+     */
+    private void calculatePointError(int p, double[] errors, int[] coverages){
+        CMMPoint cmdp = gtAnalysis.getPoint(p);
+        double err = 0;
+        int coverage = 0;
+
+        //check every FCluster
+        for (int c = 0; c < numFClusters; c++) {
+            //contained in cluster c?
+            if(pointInclusionProbFC[p][c] >= pointInclusionProbThreshold){
+                coverage++;
+
+                if(!cmdp.isNoise()){
+                    //PLACED CORRECTLY
+                    if(matchMap[c] == cmdp.workclass()){
+                    }
+                    //MISPLACED
+                    else{
+                        double errvalue = misplacedError(cmdp, c);
+                        if(errvalue > err)
+                            err = errvalue;
+                    }
+                }
+                else{
+                    //NOISE
+                    double errvalue = noiseError(cmdp, c);
+                    if(errvalue > err) err = errvalue;
+                }
+            }
+        }
+        //not in any cluster
+        if(coverage == 0 && !cmdp.isNoise()){
+            //MISSED
+            err = missedError(cmdp,true);
+        }
+
+        cmdp.p.setMeasureValue("CMM",err);
+        cmdp.p.setMeasureValue("Redundancy", coverage);
+        errors[p] = err;
+        coverages[p] = coverage;
+    }
+
     private double noiseError(CMMPoint cmdp, int assignedClusterID){
         int gtAssignedID = matchMap[assignedClusterID];
         double error;
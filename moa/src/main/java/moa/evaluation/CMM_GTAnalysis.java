@@ -36,10 +36,10 @@ package moa.evaluation;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.function.IntConsumer;
 import moa.cluster.Clustering;
 import moa.core.AutoExpandVector;
 import moa.gui.visualization.DataPoint;
-import com.yahoo.labs.samoa.instances.Instance;
 
 public class CMM_GTAnalysis{
 	
@@ -119,6 +119,17 @@ public class CMM_GTAnalysis{
      */
     private boolean debug = false;
 
+    /**
+     * measure whose threads are used for the per point computations,
+     * null to compute them sequentially
+     */
+    private MeasureCollection measure;
+
+    /**
+     * coordinates of the points, without the class label
+     */
+    private double[][] coordinates;
+
     
     /******* CMM parameter ***********/
 
@@ -294,28 +305,35 @@ public class CMM_GTAnalysis{
          * + average knn distance and average knn distance deviation of all points 
          */
         private void calculateKnn(){
+            forEachPoint(points.size(), new IntConsumer() {
+                @Override
+                public void accept(int i) {
+                    CMMPoint cmdp = cmmpoints.get(points.get(i));
+                    if(!cmdp.isNoise()){
+                        AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
+                        AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
+
+                        //calculate nearest neighbours 
+                        getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
+
+                        //TODO: What to do if we have less then k neighbours?
+                        double avgKnn = 0;
+                        for (int k = 0; k < knnDist.size(); k++) {
+                            avgKnn+= knnDist.get(k);
+                        }
+                        if(knnDist.size()!=0)
+                            avgKnn/=knnDist.size();
+                        cmdp.knnInCluster = avgKnn;
+                        cmdp.knnIndices = knnPointIndex;
+                        cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
+                    }
+                }
+            });
             for (int p0 : points) {
                 CMMPoint cmdp = cmmpoints.get(p0);
                 if(!cmdp.isNoise()){
-                    AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
-                    AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
-                    
-                    //calculate nearest neighbours 
-                    getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
-
-                    //TODO: What to do if we have less then k neighbours?
-                    double avgKnn = 0;
-                    for (int i = 0; i < knnDist.size(); i++) {
-                        avgKnn+= knnDist.get(i);
-                    }
-                    if(knnDist.size()!=0)
-                        avgKnn/=knnDist.size();
-                    cmdp.knnInCluster = avgKnn;
-                    cmdp.knnIndices = knnPointIndex;
-                    cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
-
-                    knnMeanAvg+=avgKnn;
-                    knnDevAvg+=Math.pow(avgKnn,2);
+                    knnMeanAvg+=cmdp.knnInCluster;
+                    knnDevAvg+=Math.pow(cmdp.knnInCluster,2);
                 }
             }
             knnMeanAvg=knnMeanAvg/(double)points.size();
@@ -334,7 +352,7 @@ public class CMM_GTAnalysis{
          * @param otherCid cluster id of the other cluster
          * @param initial flag for initial run
          */
-        private void calculateClusterConnection(int otherCid, boolean initial){
+        private void calculateClusterConnection(final int otherCid, final boolean initial){
             double avgConnection = 0;
             if(workclass==otherCid){
                 avgConnection = 1;
@@ -343,13 +361,22 @@ public class CMM_GTAnalysis{
                 AutoExpandVector<Double> kmax = new AutoExpandVector<Double>();
                 AutoExpandVector<Integer> kmaxIndexes = new AutoExpandVector<Integer>();
 
-                for(int p : points){
-                    CMMPoint cmdp = cmmpoints.get(p);
-                    double con_p_Cj = getConnectionValue(cmmpoints.get(p), otherCid);
-                    double connection = cmdp.connectivity * con_p_Cj;
-                    if(initial){
-                        cmdp.p.setMeasureValue("Connection to C"+otherCid, con_p_Cj);
+                final double[] connections = new double[points.size()];
+                forEachPoint(points.size(), new IntConsumer() {
+                    @Override
+                    public void accept(int i) {
+                        CMMPoint cmdp = cmmpoints.get(points.get(i));
+                        double con_p_Cj = getConnectionValue(cmdp, otherCid);
+                        connections[i] = cmdp.connectivity * con_p_Cj;
+                        if(initial){
+                            cmdp.p.setMeasureValue("Connection to C"+otherCid, con_p_Cj);
+                        }
                     }
+                });
+
+                for (int i = 0; i < points.size(); i++) {
+                    int p = points.get(i);
+                    double connection = connections[i];
 
                     //connection
                     if(kmax.size() < clusterConnectionMaxPoints || connection > kmax.get(kmax.size()-1)){
@@ -457,6 +484,18 @@ public class CMM_GTAnalysis{
      * @param enableClassMerge allow class merging (should be set to true on default)
      */
     public CMM_GTAnalysis(Clustering trueClustering, ArrayList<DataPoint> points, boolean enableClassMerge){
+        this(trueClustering, points, enableClassMerge, null);
+    }
+
+    /**
+     * @param trueClustering the ground truth clustering
+     * @param points data points
+     * @param enableClassMerge allow class merging (should be set to true on default)
+     * @param measure measure whose threads are used for the per point
+     * computations, or null to compute them sequentially
+     */
+    public CMM_GTAnalysis(Clustering trueClustering, ArrayList<DataPoint> points, boolean enableClassMerge, MeasureCollection measure){
+        this.measure = measure;
         if(debug)
             System.out.println("GT Analysis Debug Output");
 
@@ -501,9 +540,13 @@ public class CMM_GTAnalysis{
 
         //create cmd point wrapper instances
         cmmpoints = new ArrayList<CMMPoint>();
+        coordinates = new double[numPoints][numDims];
         for (int p = 0; p < points.size(); p++) {
             CMMPoint cmdp = new CMMPoint(points.get(p), p);
             cmmpoints.add(cmdp);
+            for (int i = 0; i < numDims; i++) {
+                coordinates[p][i] = cmdp.value(i);
+            }
         }
 
 
@@ -601,7 +644,7 @@ public class CMM_GTAnalysis{
         for (int p1 = 0; p1 < pointIDs.size(); p1++) {
             int pid = pointIDs.get(p1);
             if(cmmp.pID == pid) continue;
-            double dist = distance(cmmp,cmmpoints.get(pid));
+            double dist = distance(coordinates[cmmp.pID], coordinates[pid]);
             if(knnDist.size() < k || dist < knnDist.get(knnDist.size()-1)){
                 int index = 0;
                 while(index < knnDist.size() && dist > knnDist.get(index)) {
@@ -623,11 +666,28 @@ public class CMM_GTAnalysis{
      * calculate initial connectivities
      */
     private void calculateGTPointQualities(){
-        for (int p = 0; p < numPoints; p++) {
-            CMMPoint cmdp = cmmpoints.get(p);
-            if(!cmdp.isNoise()){
-                cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
-                cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+        forEachPoint(numPoints, new IntConsumer() {
+            @Override
+            public void accept(int p) {
+                CMMPoint cmdp = cmmpoints.get(p);
+                if(!cmdp.isNoise()){
+                    cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
+                    cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs body for the indices 0 to n-1, in parallel if a measure was given. 
+     */
+    protected void forEachPoint(int n, IntConsumer body){
+        if(measure != null){
+            measure.parallelFor(n, body);
+        }
+        else{
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
             }
         }
     }
@@ -718,19 +778,26 @@ public class CMM_GTAnalysis{
         if(noise.isEmpty()) 
             return 1;
 
-        double connectivity = 0;
-        for(int p : noise){
-            CMMPoint npoint = cmmpoints.get(p);
-            double maxConnection = 0;
-
-            //TODO: some kind of pruning possible. what about weighting?
-            for (int c = 0; c < gt0Clusters.size(); c++) {
-                double connection = getConnectionValue(npoint, c);
-                if(connection > maxConnection)
-                    maxConnection = connection;
+        final double[] maxConnections = new double[noise.size()];
+        forEachPoint(noise.size(), new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                CMMPoint npoint = cmmpoints.get(noise.get(i));
+                double maxConnection = 0;
+
+                //TODO: some kind of pruning possible. what about weighting?
+                for (int c = 0; c < gt0Clusters.size(); c++) {
+                    double connection = getConnectionValue(npoint, c);
+                    if(connection > maxConnection)
+                        maxConnection = connection;
+                }
+                maxConnections[i] = maxConnection;
+                npoint.p.setMeasureValue("MaxConnection", maxConnection);
             }
-            connectivity+=maxConnection;
-            npoint.p.setMeasureValue("MaxConnection", maxConnection);
+        });
+        double connectivity = 0;
+        for (int i = 0; i < maxConnections.length; i++) {
+            connectivity+=maxConnections[i];
         }
 
         return 1-(connectivity / noise.size());
@@ -796,21 +863,10 @@ public class CMM_GTAnalysis{
      * @param inst2 point as double array
      * @return euclidian distance
      */
-    private double distance(Instance inst1, Instance inst2){
-          return distance(inst1, inst2.toDoubleArray());
-
-    }
-    
-    /**
-     * Calculates Euclidian distance 
-     * @param inst1 point as an instance
-     * @param inst2 point as double array
-     * @return euclidian distance
-     */
-    private double distance(Instance inst1, double[] inst2){
+    private double distance(double[] inst1, double[] inst2){
         double distance = 0.0;
         for (int i = 0; i < numDims; i++) {
-            double d = inst1.value(i) - inst2[i];
+            double d = inst1[i] - inst2[i];
             distance += d * d;
         }
         return Math.sqrt(distance);
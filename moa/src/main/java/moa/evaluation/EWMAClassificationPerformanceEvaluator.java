@@ -47,6 +47,11 @@ public class EWMAClassificationPerformanceEvaluator extends BasicClassificationP
     public FloatOption alphaOption = new FloatOption("alpha",
             'a', "Fading factor or exponential smoothing factor", .01);
 
+    @Override
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return null;
+    }
+
     @Override
     protected Estimator newEstimator() {
         return new EWMAEstimator(this.alphaOption.getValue());
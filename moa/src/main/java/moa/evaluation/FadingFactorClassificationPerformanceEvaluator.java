@@ -37,6 +37,11 @@ public class FadingFactorClassificationPerformanceEvaluator extends BasicClassif
     public FloatOption alphaOption = new FloatOption("alpha",
             'a', "Fading factor or exponential smoothing factor", .999);
 
+    @Override
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return null;
+    }
+
     @Override
     protected Estimator newEstimator() {
         return new FadingFactorEstimator(this.alphaOption.getValue());
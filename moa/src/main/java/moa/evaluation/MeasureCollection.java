@@ -21,7 +21,15 @@
 package moa.evaluation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 import moa.AbstractMOAObject;
 import moa.cluster.Clustering;
 import moa.gui.visualization.DataPoint;
@@ -44,6 +52,26 @@ public abstract class MeasureCollection extends AbstractMOAObject{
     private HashMap<String, Integer> map;
 
     private int numMeasures = 0;
+
+    /**
+     * number of threads used by the measures that can be computed in parallel,
+     * the results do not depend on it
+     */
+    private int numberOfJobs = 1;
+    private transient ForkJoinPool pool = null;
+
+    /**
+     * maximum error of the measures that can be estimated from a sample of
+     * the points, 0 computes them exactly
+     */
+    private double approximationError = 0.0;
+
+    /**
+     * probability that an estimated measure is further than
+     * approximationError from the exact value
+     */
+    private double approximationDelta = 0.05;
+    private Random sampleRandom = new Random(1);
     
     
 
@@ -241,6 +269,147 @@ public abstract class MeasureCollection extends AbstractMOAObject{
         return duration;
      }
 
+     /**
+      * Sets the number of threads used by the measures that can be computed
+      * in parallel. Every thread count gives the same values.
+      *
+      * @param numberOfJobs number of threads, -1 for one per processor
+      */
+     public void setNumberOfJobs(int numberOfJobs){
+         if(numberOfJobs == -1)
+             numberOfJobs = Runtime.getRuntime().availableProcessors();
+         this.numberOfJobs = Math.max(1, numberOfJobs);
+         shutdown();
+     }
+
+     /**
+      * Stops the threads of the measure. They are started again if the
+      * measure is evaluated afterwards.
+      */
+     public void shutdown(){
+         if(pool != null){
+             pool.shutdown();
+             pool = null;
+         }
+     }
+
+     public int getNumberOfJobs(){
+         return numberOfJobs;
+     }
+
+     /**
+      * Lets the measures that are means of per-point values in [0,1], such as
+      * the Silhouette coefficient, be estimated from a uniform sample of the
+      * points. The sample is large enough for the estimate to be within error
+      * of the exact value with probability 1-delta (Hoeffding bound). Measures
+      * that are not such means are always computed on all the points.
+      *
+      * @param error maximum error, 0 computes the measures exactly
+      * @param delta probability of exceeding the maximum error
+      * @param seed seed of the sampling
+      */
+     public void setApproximation(double error, double delta, int seed){
+         this.approximationError = error;
+         this.approximationDelta = delta;
+         this.sampleRandom = new Random(seed);
+     }
+
+     public boolean isApproximate(){
+         return approximationError > 0;
+     }
+
+     /**
+      * @return the number of points to sample out of numPoints
+      */
+     public int getSampleSize(int numPoints){
+         if(!isApproximate())
+             return numPoints;
+         double size = Math.log(2 / approximationDelta) / (2 * approximationError * approximationError);
+         return (int)Math.min(numPoints, Math.ceil(size));
+     }
+
+     /**
+      * Draws a uniform sample of the point indices without replacement.
+      *
+      * @return the sampled indices in increasing order, or null if every
+      * point has to be used
+      */
+     protected int[] samplePoints(int numPoints){
+         int size = getSampleSize(numPoints);
+         if(size >= numPoints)
+             return null;
+         int[] indices = new int[numPoints];
+         for (int i = 0; i < numPoints; i++) {
+             indices[i] = i;
+         }
+         for (int i = 0; i < size; i++) {
+             int j = i + sampleRandom.nextInt(numPoints - i);
+             int tmp = indices[i];
+             indices[i] = indices[j];
+             indices[j] = tmp;
+         }
+         int[] sample = Arrays.copyOf(indices, size);
+         Arrays.sort(sample);
+         return sample;
+     }
+
+     /**
+      * @return the sampled points, or points itself if every point has to be used
+      */
+     protected ArrayList<DataPoint> samplePoints(ArrayList<DataPoint> points){
+         int[] sample = samplePoints(points.size());
+         if(sample == null)
+             return points;
+         ArrayList<DataPoint> sampled = new ArrayList<DataPoint>(sample.length);
+         for (int p : sample) {
+             sampled.add(points.get(p));
+         }
+         return sampled;
+     }
+
+     /**
+      * Runs body for every index from 0 to n-1 using numberOfJobs threads. The
+      * body must only write results that belong to its own index, so that
+      * they can be combined in index order afterwards.
+      */
+     public void parallelFor(int n, final IntConsumer body){
+         if(numberOfJobs <= 1 || n < 2){
+             for (int i = 0; i < n; i++) {
+                 body.accept(i);
+             }
+             return;
+         }
+         if(pool == null)
+             pool = new ForkJoinPool(numberOfJobs);
+         int numTasks = Math.min(n, 4 * numberOfJobs);
+         List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numTasks);
+         for (int t = 0; t < numTasks; t++) {
+             final int from = (int)((long)n * t / numTasks);
+             final int to = (int)((long)n * (t + 1) / numTasks);
+             tasks.add(new Callable<Void>() {
+                 @Override
+                 public Void call() {
+                     for (int i = from; i < to; i++) {
+                         body.accept(i);
+                     }
+                     return null;
+                 }
+             });
+         }
+         try {
+             for (Future<Void> f : pool.invokeAll(tasks)) {
+                 f.get();
+             }
+         } catch (InterruptedException ex) {
+             Thread.currentThread().interrupt();
+             throw new RuntimeException(ex);
+         } catch (ExecutionException ex) {
+             if(ex.getCause() instanceof RuntimeException)
+                 throw (RuntimeException)ex.getCause();
+             throw new RuntimeException(ex.getCause());
+         }
+     }
+
      public void getDescription(StringBuilder sb, int indent) {
 
     }
@@ -21,6 +21,7 @@
 package moa.evaluation;
 
 import java.util.ArrayList;
+import java.util.function.IntConsumer;
 import moa.cluster.Clustering;
 import moa.gui.visualization.DataPoint;
 
@@ -42,34 +43,44 @@ public class SSQ extends MeasureCollection{
       return defaults;
   }
     
-    public void evaluateClustering(Clustering clustering, Clustering trueClsutering, ArrayList<DataPoint> points) {
-        double sum = 0.0;
-        for (int p = 0; p < points.size(); p++) {
-            //don't include noise
-            // Matthias Carnein 2019/09/20
-            // Removed condition, will go out of bounds if class label does not exist
-            // same as in SilhouetteCoefficient
-            // if(points.get(p).classValue()==-1) continue;
+    public void evaluateClustering(Clustering clustering, Clustering trueClsutering, final ArrayList<DataPoint> points) {
+        final double[][] centers = new double[clustering.size()][];
+        for (int c = 0; c < clustering.size(); c++) {
+            centers[c] = clustering.get(c).getCenter();
+        }
 
-            double minDistance = Double.MAX_VALUE;
-            for (int c = 0; c < clustering.size(); c++) {
-                double distance = 0.0;
-                double[] center = clustering.get(c).getCenter();
-                for (int i = 0; i < center.length; i++) {
-                    double d = points.get(p).value(i) - center[i];
-                    distance += d * d;
+        // the distances are computed in parallel and summed in order
+        final double[] minDistances = new double[points.size()];
+        parallelFor(points.size(), new IntConsumer() {
+            @Override
+            public void accept(int p) {
+                //don't include noise
+                // Matthias Carnein 2019/09/20
+                // Removed condition, will go out of bounds if class label does not exist
+                // same as in SilhouetteCoefficient
+                // if(points.get(p).classValue()==-1) continue;
+
+                DataPoint point = points.get(p);
+                double minDistance = Double.MAX_VALUE;
+                for (int c = 0; c < centers.length; c++) {
+                    double distance = 0.0;
+                    double[] center = centers[c];
+                    for (int i = 0; i < center.length; i++) {
+                        double d = point.value(i) - center[i];
+                        distance += d * d;
+                    }
+                    minDistance = Math.min(distance, minDistance);
                 }
-                minDistance = Math.min(distance, minDistance);
+                minDistances[p] = minDistance;
             }
-            
-            sum+=minDistance;
+        });
+
+        double sum = 0.0;
+        for (int p = 0; p < points.size(); p++) {
+            sum+=minDistances[p];
         }
         
         addValue(0,sum);
     }
 
-
-
-
-
 }
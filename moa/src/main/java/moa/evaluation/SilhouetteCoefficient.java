@@ -21,7 +21,7 @@
 package moa.evaluation; 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.function.IntConsumer;
 import moa.cluster.Cluster;
 import moa.cluster.Clustering;
 import moa.gui.visualization.DataPoint;
@@ -45,95 +45,130 @@ public class SilhouetteCoefficient extends MeasureCollection{
         return names;
     }
 
+    /**
+     * Averages the silhouette of the points that belong to a cluster. The
+     * silhouettes of the points are computed in parallel and, in the
+     * approximate mode, only for a uniform sample of the points that belong
+     * to a cluster, each against all the points. The normalized silhouettes
+     * are in [0,1], so the sample bounds the error of their mean.
+     */
     public void evaluateClustering(Clustering clustering, Clustering trueClustering, ArrayList<DataPoint> points) {
-        int numFCluster = clustering.size();
+        final int numFCluster = clustering.size();
+        final int numPoints = points.size();
 
-        double [][] pointInclusionProbFC = new double[points.size()][numFCluster];
+        final boolean [][] inCluster = new boolean[numPoints][numFCluster];
+        final boolean [] inAnyCluster = new boolean[numPoints];
         for (int p = 0; p < points.size(); p++) {
             DataPoint point = points.get(p);
             for (int fc = 0; fc < numFCluster; fc++) {
                 Cluster cl = clustering.get(fc);
-                pointInclusionProbFC[p][fc] = cl.getInclusionProbability(point);
+                inCluster[p][fc] = cl.getInclusionProbability(point) > pointInclusionProbThreshold;
+                inAnyCluster[p] |= inCluster[p][fc];
             }
         }
 
-        double silhCoeff = 0.0;
-        int totalCount = 0;
-        for (int p = 0; p < points.size(); p++) {
+        final double [][] coordinates = new double[numPoints][];
+        for (int p = 0; p < numPoints; p++) {
             DataPoint point = points.get(p);
-            ArrayList<Integer> ownClusters = new ArrayList<Integer>();
-            for (int fc = 0; fc < numFCluster; fc++) {
-                if(pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
-                    ownClusters.add(fc);
-                }
+            coordinates[p] = new double[point.numAttributes()];
+            for (int i = 0; i < coordinates[p].length; i++) {
+                coordinates[p][i] = point.value(i);
             }
+        }
 
-            if(ownClusters.size() > 0){
-                double[] distanceByClusters = new double[numFCluster];
-                int[] countsByClusters = new int[numFCluster];
-                    //calculate averageDistance of p to all cluster
-                for (int p1 = 0; p1 < points.size(); p1++) {
-                    DataPoint point1 = points.get(p1);
-                    if(p1!= p){ 
-                        // Matthias Carnein 2019/04/03
-                        // Removed second part of if-condition: && point1.classValue() != -1 
-                        // Accessing the classValue will go outOfBounds when no class label exists
-                        // What is the purpose of this check anyway? Class label is not used for Silhouette calculation
-                        for (int fc = 0; fc < numFCluster; fc++) {
-                            if(pointInclusionProbFC[p1][fc] > pointInclusionProbThreshold){
-                                double distance = distance(point, point1);
-                                distanceByClusters[fc]+=distance;
-                                countsByClusters[fc]++;
-                            }
-                        }
-                    }
-                }
+        //only the points that belong to a cluster are averaged, and sampled
+        int numClustered = 0;
+        for (int p = 0; p < numPoints; p++) {
+            if(inAnyCluster[p])
+                numClustered++;
+        }
+        final int[] clustered = new int[numClustered];
+        numClustered = 0;
+        for (int p = 0; p < numPoints; p++) {
+            if(inAnyCluster[p])
+                clustered[numClustered++] = p;
+        }
 
-                //find closest OWN cluster as clusters might overlap
-                double minAvgDistanceOwn = Double.MAX_VALUE;
-                int minOwnIndex = -1;
-                for (int fc : ownClusters) {
-                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
-                        if(normDist < minAvgDistanceOwn){// && pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
-                            minAvgDistanceOwn = normDist;
-                            minOwnIndex = fc;
-                        }
-                }
+        final ArrayList<DataPoint> allPoints = points;
+        final int[] sample = samplePoints(clustered.length);
+        final int numEvaluated = (sample == null) ? clustered.length : sample.length;
+        final double[] silhouettes = new double[numEvaluated];
+        parallelFor(numEvaluated, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                int p = clustered[(sample == null) ? i : sample[i]];
+                silhouettes[i] = silhouette(p, allPoints.get(p), numFCluster, inCluster, inAnyCluster, coordinates);
+            }
+        });
 
+        double silhCoeff = 0.0;
+        int totalCount = numEvaluated;
+        for (int i = 0; i < numEvaluated; i++) {
+            silhCoeff+=silhouettes[i];
+        }
+        if(totalCount>0)
+            silhCoeff/=(double)totalCount;
+        //normalize from -1, 1 to 0,1
+        silhCoeff = (silhCoeff+1)/2.0;
+        addValue(0,silhCoeff);
+    }
 
-                //find closest other (or other own) cluster
-                double minAvgDistanceOther = Double.MAX_VALUE;
+    private double silhouette(int p, DataPoint point, int numFCluster,
+            boolean[][] inCluster, boolean[] inAnyCluster, double[][] coordinates) {
+        double[] distanceByClusters = new double[numFCluster];
+        int[] countsByClusters = new int[numFCluster];
+        //calculate averageDistance of p to all cluster
+        for (int p1 = 0; p1 < coordinates.length; p1++) {
+            // Matthias Carnein 2019/04/03
+            // Removed second part of if-condition: && point1.classValue() != -1 
+            // Accessing the classValue will go outOfBounds when no class label exists
+            // What is the purpose of this check anyway? Class label is not used for Silhouette calculation
+            if(p1 != p && inAnyCluster[p1]){
+                double distance = distance(coordinates[p], coordinates[p1]);
                 for (int fc = 0; fc < numFCluster; fc++) {
-                    if(fc != minOwnIndex){
-                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
-                        if(normDist < minAvgDistanceOther){
-                            minAvgDistanceOther = normDist;
-                        }
+                    if(inCluster[p1][fc]){
+                        distanceByClusters[fc]+=distance;
+                        countsByClusters[fc]++;
                     }
                 }
+            }
+        }
 
-                double silhP = (minAvgDistanceOther-minAvgDistanceOwn)/Math.max(minAvgDistanceOther, minAvgDistanceOwn);
-                point.setMeasureValue("SC - own", minAvgDistanceOwn);
-                point.setMeasureValue("SC - other", minAvgDistanceOther);
-                point.setMeasureValue("SC", silhP);
+        //find closest OWN cluster as clusters might overlap
+        double minAvgDistanceOwn = Double.MAX_VALUE;
+        int minOwnIndex = -1;
+        for (int fc = 0; fc < numFCluster; fc++) {
+            if(inCluster[p][fc]){
+                double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                if(normDist < minAvgDistanceOwn){
+                    minAvgDistanceOwn = normDist;
+                    minOwnIndex = fc;
+                }
+            }
+        }
 
-                silhCoeff+=silhP;
-                totalCount++;
-                //System.out.println(point.getTimestamp()+" Silh "+silhP+" / "+avgDistanceOwn+" "+minAvgDistanceOther+" (C"+minIndex+")");
+        //find closest other (or other own) cluster
+        double minAvgDistanceOther = Double.MAX_VALUE;
+        for (int fc = 0; fc < numFCluster; fc++) {
+            if(fc != minOwnIndex){
+                double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                if(normDist < minAvgDistanceOther){
+                    minAvgDistanceOther = normDist;
+                }
             }
         }
-        if(totalCount>0)
-            silhCoeff/=(double)totalCount;
-        //normalize from -1, 1 to 0,1
-        silhCoeff = (silhCoeff+1)/2.0;
-        addValue(0,silhCoeff);
+
+        double silhP = (minAvgDistanceOther-minAvgDistanceOwn)/Math.max(minAvgDistanceOther, minAvgDistanceOwn);
+        point.setMeasureValue("SC - own", minAvgDistanceOwn);
+        point.setMeasureValue("SC - other", minAvgDistanceOther);
+        point.setMeasureValue("SC", silhP);
+        return silhP;
     }
 
-    private double distance(DataPoint inst1, DataPoint inst2){
+    private static double distance(double[] inst1, double[] inst2){
         double distance = 0.0;
-        int numDims = inst1.numAttributes();
-        for (int i = 0; i < numDims; i++) {
-            double d = inst1.value(i) - inst2.value(i);
+        for (int i = 0; i < inst1.length; i++) {
+            double d = inst1[i] - inst2[i];
             distance += d * d;
         }
         return Math.sqrt(distance);
@@ -46,6 +46,11 @@ public class WindowClassificationPerformanceEvaluator extends BasicClassificatio
         return new WindowEstimator(this.widthOption.getValue());
     }
 
+    @Override
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return new WindowConfusionMatrix(numClasses, this.widthOption.getValue());
+    }
+
     @Override
     public ImmutableCapabilities defineImmutableCapabilities() {
         if (this.getClass() == WindowClassificationPerformanceEvaluator.class)
@@ -99,4 +104,47 @@ public class WindowClassificationPerformanceEvaluator extends BasicClassificatio
 
     }
 
+    /**
+     * Confusion matrix of the last instances, kept in a single ring of
+     * (true class, predicted class, weight) entries. Adding an instance
+     * forgets the oldest one once the window is full.
+     */
+    public class WindowConfusionMatrix extends ConfusionMatrix {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int[] trueClasses;
+
+        protected int[] predictedClasses;
+
+        protected double[] weights;
+
+        protected int posWindow;
+
+        public WindowConfusionMatrix(int numClasses, int sizeWindow) {
+            super(numClasses);
+            this.trueClasses = new int[sizeWindow];
+            this.predictedClasses = new int[sizeWindow];
+            this.weights = new double[sizeWindow];
+            this.posWindow = 0;
+        }
+
+        @Override
+        public void add(int trueClass, int predictedClass, double weight) {
+            if (this.count == this.weights.length) {
+                remove(this.trueClasses[this.posWindow],
+                        this.predictedClasses[this.posWindow],
+                        this.weights[this.posWindow]);
+            }
+            super.add(trueClass, predictedClass, weight);
+            this.trueClasses[this.posWindow] = trueClass;
+            this.predictedClasses[this.posWindow] = predictedClass;
+            this.weights[this.posWindow] = weight;
+            this.posWindow++;
+            if (this.posWindow == this.weights.length) {
+                this.posWindow = 0;
+            }
+        }
+    }
+
 }
@@ -49,6 +49,12 @@ public class WindowFixedClassificationPerformanceEvaluator extends BasicClassifi
         return new WindowEstimator(this.widthOption.getValue(), this.widthGradualDriftOption.getValue());
     }
 
+    @Override
+    protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+        return new WindowConfusionMatrix(numClasses, this.widthOption.getValue(),
+                this.widthGradualDriftOption.getValue());
+    }
+
     @Override
     public ImmutableCapabilities defineImmutableCapabilities() {
         if (this.getClass() == WindowFixedClassificationPerformanceEvaluator.class)
@@ -127,4 +133,39 @@ public class WindowFixedClassificationPerformanceEvaluator extends BasicClassifi
 
     }
 
+    /**
+     * Confusion matrix of the instances of the current window. The matrix is
+     * cleared when a window is full, so it needs no ring of instances.
+     */
+    public class WindowConfusionMatrix extends ConfusionMatrix {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int SizeWindow;
+
+        protected int SizeGDWindow;
+
+        //size of the current window
+        protected int size;
+
+        public WindowConfusionMatrix(int numClasses, int sizeWindow, int sizeGD) {
+            super(numClasses);
+            SizeWindow = sizeWindow;
+            SizeGDWindow = sizeGD;
+            size = sizeWindow;
+        }
+
+        @Override
+        public void add(int trueClass, int predictedClass, double weight) {
+            if (this.count == this.size) {
+                clear();
+                if (SizeGDWindow != -1) {
+                    //case of gradual cd -> windows of SizeWindow and SizeGDWindow length alternate
+                    this.size = this.size == SizeWindow ? SizeGDWindow : SizeWindow;
+                }
+            }
+            super.add(trueClass, predictedClass, weight);
+        }
+    }
+
 }
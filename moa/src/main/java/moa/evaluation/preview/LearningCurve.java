@@ -116,9 +116,18 @@ public class LearningCurve extends Preview {
     }
 
     public String entryToString(int entryIndex) {
+        return entryToString(this.measurementValues.get(entryIndex),
+                this.measurementNames.size());
+    }
+
+    /**
+     * Formats the first numMeasurements values of an entry, as returned by
+     * getEntryData. It does not read the curve, so it can be called from
+     * another thread while entries are being inserted.
+     */
+    public static String entryToString(double[] vals, int numMeasurements) {
         StringBuilder sb = new StringBuilder();
-        double[] vals = this.measurementValues.get(entryIndex);
-        for (int i = 0; i < this.measurementNames.size(); i++) {
+        for (int i = 0; i < numMeasurements; i++) {
             if (i > 0) {
                 sb.append(',');
             }
@@ -131,6 +140,17 @@ public class LearningCurve extends Preview {
         return sb.toString();
     }
 
+    /**
+     * Removes all but the last numEntries entries, keeping the measurement
+     * names.
+     */
+    public void retainLastEntries(int numEntries) {
+        int numRemoved = this.measurementValues.size() - numEntries;
+        if (numRemoved > 0) {
+            this.measurementValues.subList(0, numRemoved).clear();
+        }
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         sb.append(headerToString());
@@ -128,12 +128,37 @@ public class BatchCmd implements ClusterEventListener{
 
 	public static void runBatch(ClusteringStream stream, AbstractClusterer clusterer,
 			boolean[] measureCollection, int amountInstances, String outputFile){
+		runBatch(stream, clusterer, measureCollection, amountInstances, outputFile, 0.0, 0.05, 1, 1);
+	}
+
+
+	/**
+	 * Runs the batch job with approximate or multi-threaded measures.
+	 *
+	 * @param approximationError maximum error of the Silhouette coefficient estimated from a sample, 0 computes it exactly
+	 * @param approximationDelta probability of exceeding the maximum error
+	 * @param randomSeed seed of the sampling
+	 * @param numberOfJobs number of threads used to compute the measures, -1 for one per processor
+	 */
+	public static void runBatch(ClusteringStream stream, AbstractClusterer clusterer,
+			boolean[] measureCollection, int amountInstances, String outputFile,
+			double approximationError, double approximationDelta, int randomSeed, int numberOfJobs){
 		// create the measure collection 
 		MeasureCollection[] measures = getMeasures(getMeasureSelection(measureCollection));
+		for (MeasureCollection m : measures) {
+			m.setApproximation(approximationError, approximationDelta, randomSeed);
+			m.setNumberOfJobs(numberOfJobs);
+		}
 		
 		// run the batch job
 		BatchCmd batch = new BatchCmd(clusterer, stream, measures, amountInstances);
-		batch.run();
+		try {
+			batch.run();
+		} finally {
+			for (MeasureCollection m : measures) {
+				m.shutdown();
+			}
+		}
 
 		// read events and horizon
 		ArrayList<ClusterEvent> clusterEvents = batch.getEventList();
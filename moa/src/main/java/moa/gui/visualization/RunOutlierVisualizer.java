@@ -371,6 +371,11 @@ public class RunOutlierVisualizer implements Runnable, ActionListener, ClusterEv
             }
         } else {
             System.out.println("DONE");
+            // the objects of an incomplete slide are only processed at the end of the stream
+            m_outlier[ALGORITHM_1].ProcessPendingObjs();
+            if (bUseAlgorithm2)
+                m_outlier[ALGORITHM_2].ProcessPendingObjs();
+            drawOutliers();
             pause();
             return;
         }
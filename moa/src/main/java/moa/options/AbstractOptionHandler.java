@@ -189,4 +189,17 @@ public abstract class AbstractOptionHandler extends AbstractMOAObject implements
     protected Object getPreparedClassOption(ClassOption opt) {
         return this.config.getPreparedClassOption(opt);
     }
+
+    /**
+     * Gets a copy of a prepared option of this class, for objects that are
+     * created again and again from the same option, such as change detectors
+     * or votes. The copies are made from the prepared object serialized when
+     * it is first copied, so it must not be changed afterwards.
+     *
+     * @param opt the class option to copy
+     * @return a copy of the prepared option
+     */
+    protected Object getPreparedClassOptionCopy(ClassOption opt) {
+        return this.config.getPreparedClassOptionCopy(opt);
+    }
 }
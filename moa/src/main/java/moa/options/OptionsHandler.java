@@ -1,10 +1,14 @@
 package moa.options;
 
 
+import java.io.Serializable;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import com.github.javacliparser.JavaCLIParser;
 import com.github.javacliparser.Option;
 import moa.core.ObjectRepository;
+import moa.core.SerializeUtils;
 import moa.tasks.NullMonitor;
 import moa.tasks.TaskMonitor;
 
@@ -48,6 +52,12 @@ public class OptionsHandler extends JavaCLIParser {
     /** Dictionary with option texts and objects */
     //protected Map<String, Object> classOptionNamesToPreparedObjects;
 
+    /** Values of the class options when they were prepared, to prepare them again if they change */
+    protected Map<ClassOption, Object> preparedClassOptionValues;
+
+    /** Serialized prepared objects, to make copies of them */
+    protected transient Map<String, byte[]> preparedClassOptionCopies;
+
 
     /*public String getPurposeString() {
         return "Anonymous object: purpose undocumented.";
@@ -132,45 +142,134 @@ public class OptionsHandler extends JavaCLIParser {
     public void prepareClassOptions(TaskMonitor monitor,
             ObjectRepository repository) {
         this.classOptionNamesToPreparedObjects = null;
+        this.preparedClassOptionValues = null;
+        this.preparedClassOptionCopies = null;
         Option[] optionArray = getOptions().getOptionArray();
         for (Option option : optionArray) {
             if (option instanceof ClassOption) {
-                ClassOption classOption = (ClassOption) option;
-                monitor.setCurrentActivity("Materializing option "
-                        + classOption.getName() + "...", -1.0);
-                Object optionObj = classOption.materializeObject(monitor,
-                        repository);
-                if (monitor.taskShouldAbort()) {
+                if (!prepareClassOption((ClassOption) option, monitor, repository)) {
                     return;
                 }
-                if (optionObj instanceof OptionHandler) {
-                    monitor.setCurrentActivity("Preparing option "
-                            + classOption.getName() + "...", -1.0);
-                    ((OptionHandler) optionObj).prepareForUse(monitor,
-                            repository);
-                    if (monitor.taskShouldAbort()) {
-                        return;
-                    }
-                }
-                if (this.classOptionNamesToPreparedObjects == null) {
-                    this.classOptionNamesToPreparedObjects = new HashMap<String, Object>();
-                }
-                this.classOptionNamesToPreparedObjects.put(option.getName(),
-                        optionObj);
             }
         }
     }
 
+    /**
+     * Prepares one option of this class, replacing the object prepared
+     * before for it. It is synchronized with the lookups of prepared options,
+     * which ensemble members may make from several threads.
+     *
+     * @param classOption the class option to prepare
+     * @param monitor the TaskMonitor to use
+     * @param repository  the ObjectRepository to use
+     * @return false if the task should abort
+     */
+    protected synchronized boolean prepareClassOption(ClassOption classOption, TaskMonitor monitor,
+            ObjectRepository repository) {
+        monitor.setCurrentActivity("Materializing option "
+                + classOption.getName() + "...", -1.0);
+        Object value = classOption.getPreMaterializedObject();
+        Object optionObj = classOption.materializeObject(monitor,
+                repository);
+        if (monitor.taskShouldAbort()) {
+            return false;
+        }
+        if (optionObj instanceof OptionHandler) {
+            monitor.setCurrentActivity("Preparing option "
+                    + classOption.getName() + "...", -1.0);
+            ((OptionHandler) optionObj).prepareForUse(monitor,
+                    repository);
+            if (monitor.taskShouldAbort()) {
+                return false;
+            }
+        }
+        if (this.classOptionNamesToPreparedObjects == null) {
+            this.classOptionNamesToPreparedObjects = new HashMap<String, Object>();
+        }
+        if (this.preparedClassOptionValues == null) {
+            this.preparedClassOptionValues = new IdentityHashMap<ClassOption, Object>();
+        }
+        this.classOptionNamesToPreparedObjects.put(classOption.getName(),
+                optionObj);
+        this.preparedClassOptionValues.put(classOption, value);
+        if (this.preparedClassOptionCopies != null) {
+            this.preparedClassOptionCopies.remove(classOption.getName());
+        }
+        PreparedOptionAudit.record(this.handler, classOption, PreparedOptionAudit.PREPARATION);
+        return true;
+    }
+
     /**
      *  Gets a prepared option of this class.
      *
+     * The object is prepared once and kept. It is prepared again if the
+     * option has been set to another value since, so that changes to the
+     * options are not ignored.
+     *
      * @param opt the class option to get
      * @return an option stored in the dictionary
      */
     public Object getPreparedClassOption(ClassOption opt) {
+        PreparedOptionAudit.record(this.handler, opt, PreparedOptionAudit.LOOKUP);
+        return getPreparedObject(opt);
+    }
+
+    /**
+     * Gets a copy of a prepared option of this class, such as a new change
+     * detector to replace one that detected a drift. The prepared object is
+     * serialized once and every copy is read from the serialized object, so
+     * the prepared object must not be changed after it is copied.
+     *
+     * @param opt the class option to copy
+     * @return a copy of the option stored in the dictionary
+     */
+    public Object getPreparedClassOptionCopy(ClassOption opt) {
+        byte[] serialized;
+        synchronized (this) {
+            Object prepared = getPreparedObject(opt);
+            if (prepared == null) {
+                return null;
+            }
+            PreparedOptionAudit.record(this.handler, opt, PreparedOptionAudit.COPY);
+            if (this.preparedClassOptionCopies == null) {
+                this.preparedClassOptionCopies = new HashMap<String, byte[]>();
+            }
+            serialized = this.preparedClassOptionCopies.get(opt.getName());
+            if (serialized == null) {
+                try {
+                    serialized = SerializeUtils.writeToByteArray((Serializable) prepared);
+                } catch (Exception e) {
+                    throw new RuntimeException("Object copy failed.", e);
+                }
+                this.preparedClassOptionCopies.put(opt.getName(), serialized);
+            }
+        }
+        try {
+            return SerializeUtils.readFromByteArray(serialized);
+        } catch (Exception e) {
+            throw new RuntimeException("Object copy failed.", e);
+        }
+    }
+
+    /**
+     * Gets the prepared object of an option, preparing it again if the option
+     * has been set to another value since. Synchronized so that ensemble
+     * members running on several threads prepare it only once.
+     *
+     * @param opt the class option to get
+     * @return the prepared object
+     */
+    protected synchronized Object getPreparedObject(ClassOption opt) {
         if (this.classOptionNamesToPreparedObjects == null) {
                     this.prepareForUse();
-                }
+        } else if (this.preparedClassOptionValues != null) {
+            Object value = this.preparedClassOptionValues.get(opt);
+            if (value != opt.getPreMaterializedObject()
+                    && (value != null || this.preparedClassOptionValues.containsKey(opt))) {
+                //the option was set to another value after it was prepared
+                prepareClassOption(opt, new NullMonitor(), null);
+            }
+        }
         return this.classOptionNamesToPreparedObjects.get(opt.getName());
     }
 
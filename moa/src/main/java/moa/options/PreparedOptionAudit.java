@@ -0,0 +1,85 @@
+/*
+ *    PreparedOptionAudit.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.options;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts how the prepared class options of the option handlers are used
+ * while an audit runs: how many times each prepared object is looked up,
+ * copied and prepared again, per class of handler and option. A learner that
+ * looks up or copies an option for every instance shows counts that grow
+ * with the number of instances, instead of a few for each reset or drift.
+ *
+ * The counts are global, so they include every handler used by any thread
+ * during the audit. When no audit runs, the cost is reading one field.
+ */
+public class PreparedOptionAudit {
+
+    /** Index of the number of lookups in the counts */
+    public static final int LOOKUP = 0;
+
+    /** Index of the number of copies in the counts */
+    public static final int COPY = 1;
+
+    /** Index of the number of preparations in the counts */
+    public static final int PREPARATION = 2;
+
+    private static volatile Map<String, long[]> counts;
+
+    /**
+     * Starts an audit, discarding the counts of any audit running.
+     */
+    public static synchronized void start() {
+        counts = new TreeMap<String, long[]>();
+    }
+
+    /**
+     * Stops the audit.
+     *
+     * @return the counts indexed by LOOKUP, COPY and PREPARATION, for each
+     * class of handler and option name separated by a space, or null if no
+     * audit was running
+     */
+    public static synchronized Map<String, long[]> stop() {
+        Map<String, long[]> result = counts;
+        counts = null;
+        return result;
+    }
+
+    public static boolean isRunning() {
+        return counts != null;
+    }
+
+    static void record(Object handler, ClassOption option, int kind) {
+        Map<String, long[]> current = counts;
+        if (current == null) {
+            return;
+        }
+        String key = handler.getClass().getName() + " " + option.getName();
+        synchronized (current) {
+            long[] count = current.get(key);
+            if (count == null) {
+                count = new long[3];
+                current.put(key, count);
+            }
+            count[kind]++;
+        }
+    }
+}
@@ -19,6 +19,7 @@
  */
 package moa.streams;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import moa.capabilities.CapabilitiesHandler;
@@ -26,6 +27,7 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.core.Example;
 
+import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
@@ -80,20 +82,28 @@ public class ConceptDriftStream extends AbstractOptionHandler implements
     public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
             "Seed for random noise.", 1);
 
-    protected ExampleStream inputStream;
+    protected ExampleStream<Example<Instance>> inputStream;
 
-    protected ExampleStream driftStream;
+    protected ExampleStream<Example<Instance>> driftStream;
 
     protected Random random;
 
     protected int numberInstanceStream;
 
+    // Instances of each stream and which stream each instance is taken from, used by nextInstances
+    protected transient Instance[] inputBuffer;
+
+    protected transient Instance[] driftBuffer;
+
+    protected transient boolean[] fromDriftStream;
+
     @Override
+    @SuppressWarnings("unchecked")
     public void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
 
-        this.inputStream = (ExampleStream) getPreparedClassOption(this.streamOption);
-        this.driftStream = (ExampleStream) getPreparedClassOption(this.driftstreamOption);
+        this.inputStream = (ExampleStream<Example<Instance>>) getPreparedClassOption(this.streamOption);
+        this.driftStream = (ExampleStream<Example<Instance>>) getPreparedClassOption(this.driftstreamOption);
         this.random = new Random(this.randomSeedOption.getValue());
         numberInstanceStream = 0;
         if (this.alphaOption.getValue() != 0.0) {
@@ -122,11 +132,8 @@ public class ConceptDriftStream extends AbstractOptionHandler implements
     }
 
     @Override
-    public Example nextInstance() {
-        numberInstanceStream++;
-        double x = -4.0 * (double) (numberInstanceStream - this.positionOption.getValue()) / (double) this.widthOption.getValue();
-        double probabilityDrift = 1.0 / (1.0 + Math.exp(x));
-        if (this.random.nextDouble() > probabilityDrift) {
+    public Example<Instance> nextInstance() {
+        if (!nextIsFromDriftStream()) {
             return this.inputStream.nextInstance();
         } else {
             return this.driftStream.nextInstance();
@@ -134,6 +141,66 @@ public class ConceptDriftStream extends AbstractOptionHandler implements
 
     }
 
+    /**
+     * Decides which stream the next instance is taken from. The streams are
+     * only asked for instances afterwards, so nextInstances can decide this
+     * for a whole block first and then take the instances of each stream in
+     * one call.
+     *
+     * @return true if the next instance is taken from the drift stream
+     */
+    protected boolean nextIsFromDriftStream() {
+        numberInstanceStream++;
+        double x = -4.0 * (double) (numberInstanceStream - this.positionOption.getValue()) / (double) this.widthOption.getValue();
+        double probabilityDrift = 1.0 / (1.0 + Math.exp(x));
+        return !(this.random.nextDouble() > probabilityDrift);
+    }
+
+    @Override
+    public int nextInstances(int n, Instance[] buffer) {
+        if (this.fromDriftStream == null || this.fromDriftStream.length < n) {
+            this.fromDriftStream = new boolean[n];
+            this.inputBuffer = this.inputBuffer == null ? new Instance[n] : Arrays.copyOf(this.inputBuffer, n);
+            this.driftBuffer = this.driftBuffer == null ? new Instance[n] : Arrays.copyOf(this.driftBuffer, n);
+        }
+        int numDrift = 0;
+        for (int i = 0; i < n; i++) {
+            this.fromDriftStream[i] = nextIsFromDriftStream();
+            if (this.fromDriftStream[i]) {
+                numDrift++;
+            }
+        }
+        int numInput = nextInstances(this.inputStream, n - numDrift, this.inputBuffer);
+        numDrift = nextInstances(this.driftStream, numDrift, this.driftBuffer);
+        int input = 0;
+        int drift = 0;
+        for (int i = 0; i < n; i++) {
+            if (this.fromDriftStream[i]) {
+                if (drift == numDrift) {
+                    return i;
+                }
+                buffer[i] = this.driftBuffer[drift++];
+            } else {
+                if (input == numInput) {
+                    return i;
+                }
+                buffer[i] = this.inputBuffer[input++];
+            }
+        }
+        return n;
+    }
+
+    protected static int nextInstances(ExampleStream<Example<Instance>> stream, int n, Instance[] buffer) {
+        if (stream instanceof InstanceStream) {
+            return ((InstanceStream) stream).nextInstances(n, buffer);
+        }
+        int i = 0;
+        while (i < n && stream.hasMoreInstances()) {
+            buffer[i++] = stream.nextInstance().getData();
+        }
+        return i;
+    }
+
     @Override
     public void restart() {
         this.inputStream.restart();
@@ -0,0 +1,142 @@
+/*
+ *    IndexedInstanceStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Stream that can generate any of its instances without generating the ones
+ * before it. Generators do this by drawing the random numbers of each
+ * instance from a seed derived from the index of the instance, so that a
+ * stream can be generated in parts, on several threads or by several shards,
+ * and still be the same as when it is generated in order.
+ *
+ * @version $Revision: 1 $
+ */
+public interface IndexedInstanceStream extends InstanceStream {
+
+    /**
+     * Gets whether the instances can be generated by index with the current
+     * options.
+     *
+     * @return true if setNextInstanceIndex can be used
+     */
+    public boolean isIndexable();
+
+    /**
+     * Gets the index of the instance returned by the next call to
+     * nextInstance, starting at 0 after a restart.
+     *
+     * @return the index of the next instance
+     */
+    public long getNextInstanceIndex();
+
+    /**
+     * Sets the index of the instance returned by the next call to
+     * nextInstance.
+     *
+     * @param index the index of the next instance
+     * @throws UnsupportedOperationException if the stream is not indexable
+     */
+    public void setNextInstanceIndex(long index);
+
+    /**
+     * Derives the seed of an instance from the seed of the stream. The
+     * mixing function is the one of SplitMix64, so that the seeds of
+     * consecutive instances are unrelated.
+     *
+     * @param seed the seed of the stream
+     * @param index the index of the instance
+     * @return the seed of the instance
+     */
+    static long instanceSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates n instances of a stream starting at an index, splitting them
+     * between several threads. Each thread generates a contiguous part with
+     * its own copy of the stream, so the stream itself is not changed.
+     *
+     * @param stream an indexable stream
+     * @param from the index of the first instance
+     * @param n the number of instances
+     * @param numberOfJobs the number of threads
+     * @return the instances, in the order of the stream
+     */
+    static Instance[] generate(IndexedInstanceStream stream, final long from, final int n,
+            int numberOfJobs) {
+        if (!stream.isIndexable()) {
+            throw new UnsupportedOperationException("The stream cannot generate instances by index.");
+        }
+        final Instance[] instances = new Instance[n];
+        int numTasks = Math.max(1, Math.min(numberOfJobs, n));
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            final int start = (int) ((long) n * t / numTasks);
+            final int end = (int) ((long) n * (t + 1) / numTasks);
+            final IndexedInstanceStream part = (IndexedInstanceStream) stream.copy();
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    part.setNextInstanceIndex(from + start);
+                    for (int i = start; i < end; i++) {
+                        instances[i] = part.nextInstance().getData();
+                    }
+                    return null;
+                }
+            });
+        }
+        if (numTasks == 1) {
+            try {
+                tasks.get(0).call();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            return instances;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(numTasks);
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return instances;
+    }
+}
@@ -23,7 +23,9 @@ import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.core.Example;
+import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 /**
  * Interface representing a data stream of instances. 
@@ -33,4 +35,44 @@ import com.yahoo.labs.samoa.instances.Instance;
  */
 public interface InstanceStream extends ExampleStream<Example<Instance>> {
 
+    /**
+     * Gets the next instances of this stream, as many as the stream has up to
+     * n. Generators overwrite the instances already in the buffer instead of
+     * creating new ones, so the instances are only valid until the next call
+     * and the buffer should not be filled by other streams.
+     *
+     * @param n the number of instances to get
+     * @param buffer the array to store the instances in, of length n or more
+     * @return the number of instances stored in the buffer
+     */
+    default int nextInstances(int n, Instance[] buffer) {
+        int i = 0;
+        while (i < n && hasMoreInstances()) {
+            buffer[i++] = nextInstance().getData();
+        }
+        return i;
+    }
+
+    /**
+     * Gets an instance of a buffer that a generator can overwrite, that is a
+     * dense instance with the given header. If there is none at that position
+     * a new one is stored there.
+     *
+     * @param buffer the buffer passed to nextInstances
+     * @param index the position in the buffer
+     * @param header the header of the generator
+     * @return the instance at that position, with weight 1
+     */
+    static Instance reusableInstance(Instance[] buffer, int index, InstancesHeader header) {
+        Instance inst = buffer[index];
+        if (!(inst instanceof DenseInstance) || inst.dataset() != header
+                || inst.numAttributes() != header.numAttributes()) {
+            inst = new DenseInstance(header.numAttributes());
+            inst.setDataset(header);
+            buffer[index] = inst;
+        } else {
+            inst.setWeight(1.0);
+        }
+        return inst;
+    }
 }
@@ -20,7 +20,6 @@
  */
 package moa.streams;
 
-import moa.core.Example;
 import java.util.Random;
 import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
@@ -80,7 +79,7 @@ public class RecurrentConceptDriftStream extends ConceptDriftStream {
     }
 
     @Override
-    public Example nextInstance() {
+    protected boolean nextIsFromDriftStream() {
 
         numberInstanceStream++;
         double x = numberInstanceStream;
@@ -98,11 +97,7 @@ public class RecurrentConceptDriftStream extends ConceptDriftStream {
             iPos += this.widthRecurrenceOption.getValue() + this.stabPeriodOption.getValue();
         }
         
-        if (this.random.nextDouble() > probabilityDrift) {            
-            return this.inputStream.nextInstance();
-        } else {            
-            return this.driftStream.nextInstance();
-        }       
+        return !(this.random.nextDouble() > probabilityDrift);
     }
 
     @Override
@@ -1,6 +1,7 @@
 
 
 package moa.streams.filters;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashFunction;
@@ -9,13 +10,16 @@ import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
 import moa.core.FastVector;
 import moa.core.InstanceExample;
 import moa.streams.InstanceStream;
 
 /**
  *    Filter to perform feature hashing to reduce the number of attributes by applying
- *    a hash function to features.
+ *    a hash function to features. The bucket and sign of every attribute are hashed
+ *    once and kept in tables, and only the nonzero values of the input instances
+ *    are visited.
  *
  *   @author Maroua Bahri
  */
@@ -27,16 +31,29 @@ public class HashingTrickFilter extends AbstractStreamFilter {
     public IntOption dim = new IntOption("OutputFeatureDimension", 'd',
             "the target feature dimension.", 10);
 
+    public FlagOption sparseOutputOption = new FlagOption("sparseOutput", 's',
+            "Output sparse instances.");
+
     protected InstancesHeader streamHeader;
 
     protected FastVector attributes;
 
+    /** Output feature of each input attribute. */
+    protected int[] buckets;
+
+    /** Sign added to the output feature of each input attribute. */
+    protected double[] signs;
+
+    protected int inputClassIndex;
+
     @Override
     public String getPurposeString() { return "Reduces the number of input features using a hash function.";  }
 
     @Override
     protected void restartImpl() {
         this.streamHeader = null;
+        this.buckets = null;
+        this.signs = null;
     }
 
     @Override
@@ -62,24 +79,50 @@ public class HashingTrickFilter extends AbstractStreamFilter {
         }
 
 
-        double [] hashVal = hashVector(sparseInstance,this.dim.getValue(), Hashing.murmur3_128());
+        if (this.buckets == null) {
+            initHashTables(sparseInstance, this.dim.getValue(), Hashing.murmur3_128());
+        }
+
+        double [] hashVal = hashVector(sparseInstance);
 
         return new InstanceExample(transformedInstance(sparseInstance, hashVal));
     }
 
 
 
-    public DenseInstance transformedInstance(Instance sparseInst, double [] hashVal) {
+    public Instance transformedInstance(Instance sparseInst, double [] hashVal) {
 
         Instances header = this.streamHeader;
-        double[] attributeValues = new double[header.numAttributes()];
+        Instance newInstance;
+        if (this.sparseOutputOption.isSet()) {
+            int numNonZero = 0;
+            for (double v : hashVal) {
+                if (v != 0.0) {
+                    numNonZero++;
+                }
+            }
+            double[] values = new double[numNonZero + 1];
+            int[] indices = new int[numNonZero + 1];
+            int pos = 0;
+            for (int i = 0; i < hashVal.length; i++) {
+                if (hashVal[i] != 0.0) {
+                    values[pos] = hashVal[i];
+                    indices[pos++] = i;
+                }
+            }
+            values[pos] = sparseInst.classValue();
+            indices[pos] = header.numAttributes() - 1;
+            newInstance = new SparseInstance(1.0, values, indices, header.numAttributes());
+        } else {
+            double[] attributeValues = new double[header.numAttributes()];
+
+            for(int i = 0 ; i < header.numAttributes()-1 ; i++) {
+                attributeValues[i] = hashVal[i];
+            }
 
-        for(int i = 0 ; i < header.numAttributes()-1 ; i++) {
-            attributeValues[i] = hashVal[i];
+            attributeValues[attributeValues.length-1] = sparseInst.classValue();
+            newInstance = new DenseInstance(1.0, attributeValues);
         }
-
-        attributeValues[attributeValues.length-1] = sparseInst.classValue();
-        DenseInstance newInstance = new DenseInstance(1.0, attributeValues);
         newInstance.setDataset(header);
         return newInstance;
     }
@@ -90,21 +133,40 @@ public class HashingTrickFilter extends AbstractStreamFilter {
     }
 
 
-    public  double[] hashVector(Instance instance, int n, HashFunction hashFunction) {
-
-        double [] denseValues = new double [n];
-        for (int i = 0 ; i < n ; i++) {
-            denseValues[i] = 0d;
+    /**
+     * Hashes every input attribute once, storing its output feature and sign.
+     */
+    protected void initHashTables(Instance instance, int n, HashFunction hashFunction) {
+        int numInputAttributes = instance.numAttributes() - 1;
+        this.buckets = new int[numInputAttributes];
+        this.signs = new double[numInputAttributes];
+        for (int i = 0; i < numInputAttributes; i++) {
+            int hash = hashFunction.hashInt(i).asInt();
+            this.buckets[i] = Math.abs(hash) % n;
+            this.signs[i] = hash < 0 ? -1d : 1d;
         }
-        for (int i = 0; i < instance.numAttributes()-1 ; i++){
-                double diff = Math.abs(instance.value(i));
-                if( diff  > Double.MIN_NORMAL) {
-                    int  hash = hashFunction.hashInt(i).asInt();
-                    int bucket = Math.abs(hash) % n;
-                    denseValues[bucket] += (hash < 0 ? -1d : 1d);
-                }
+        this.inputClassIndex = instance.classIndex();
+    }
+
+    /**
+     * Hashes the input attributes of an instance using the precomputed
+     * tables, visiting only the values stored by the instance.
+     *
+     * @param instance the instance to hash
+     * @return the hashed values
+     */
+    public double[] hashVector(Instance instance) {
+        double[] denseValues = new double[this.dim.getValue()];
+        for (int p = 0; p < instance.numValues(); p++) {
+            int i = instance.index(p);
+            if (i == this.inputClassIndex) {
+                continue;
+            }
+            if (Math.abs(instance.valueSparse(p)) > Double.MIN_NORMAL) {
+                int attIndex = i < this.inputClassIndex ? i : i - 1;
+                denseValues[this.buckets[attIndex]] += this.signs[attIndex];
+            }
         }
-        
         return denseValues;
     }
 
@@ -1,20 +1,21 @@
-
-
 package moa.streams.filters;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.*;
 import moa.core.FastVector;
 import moa.core.InstanceExample;
 import moa.streams.InstanceStream;
 
-import java.util.Arrays;
 import java.util.Random;
-import java.util.stream.IntStream;
 
 /**
  *    Filter to perform random projection to reduce the number of attributes. It applies
  *    a Gaussian matrix on features to project them into a lower-dimensional space.
+ *    The sparse projections of Achlioptas and Li et al. are generated on the fly from
+ *    the seed, so no matrix is stored and very high dimensional streams can be used.
+ *    Only the nonzero values of the input instances are visited.
  *
  *   @author Maroua Bahri
  */
@@ -24,36 +25,62 @@ public class RandomProjectionFilter extends AbstractStreamFilter {
 
     public IntOption dim = new IntOption("OutputFeatureDimension", 'd',
             "the target feature dimension.", 10);
+
+    public MultiChoiceOption projectionOption = new MultiChoiceOption(
+            "projection", 'p', "The distribution of the projection matrix entries.", new String[]{
+                "Gaussian", "Achlioptas", "VerySparse"},
+            new String[]{"Gaussian entries, stored as a matrix",
+                "Entries in {-sqrt(3), 0, sqrt(3)} with density 1/3, generated on the fly",
+                "Entries in {-sqrt(s), 0, sqrt(s)} with density 1/s, s = sqrt(number of attributes), generated on the fly"},
+            0);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for the random projection.", 1);
+
+    public FlagOption sparseOutputOption = new FlagOption("sparseOutput", 's',
+            "Output sparse instances.");
+
     protected InstancesHeader streamHeader;
+
+    /** Gaussian projection indexed by input attribute, then output feature. */
     protected double[][] GaussMatrix ;
 
+    protected int numInputAttributes;
+
+    protected int inputClassIndex;
+
+    /** Probability of each nonzero sign in the sparse projections. */
+    protected double halfDensity;
+
+    /** Magnitude of the nonzero entries in the sparse projections. */
+    protected double entryScale;
+
+    protected long seedHash;
+
 
     public String getPurposeString() { return "Reduces the number of input features using random projection.";  }
 
     @Override
     protected void restartImpl() {
         this.streamHeader = null;
+        this.GaussMatrix = null;
     }
 
     @Override
     public InstancesHeader getHeader() {
-        Instance sparseInstance = (Instance) this.inputStream.nextInstance().getData();
-        Random r = new Random(System.currentTimeMillis());
-        this.GaussMatrix = new double[this.dim.getValue()][sparseInstance.numAttributes()-1] ;
-        for(int i = 0 ; i < this.dim.getValue() ; i++){
-            for(int j = 0; j < sparseInstance.numAttributes()-1 ; j++){
-                this.GaussMatrix[i][j]= r.nextGaussian();
-            }
-        }
-
         if (streamHeader == null) {
+            InstancesHeader inputHeader = this.inputStream.getHeader();
+            this.numInputAttributes = inputHeader.numAttributes() - 1;
+            this.inputClassIndex = inputHeader.classIndex();
+            initProjection();
+
             //Create a new header
             FastVector attributes = new FastVector();
             for (int i = 0; i < this.dim.getValue(); i++) {
                 attributes.addElement(new Attribute("numeric" + (i + 1)));
             }
 
-            attributes.addElement(sparseInstance.classAttribute());
+            attributes.addElement(inputHeader.classAttribute());
             this.streamHeader = new InstancesHeader(new Instances(
                     getCLICreationString(InstanceStream.class), attributes, 0));
             this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
@@ -63,24 +90,71 @@ public class RandomProjectionFilter extends AbstractStreamFilter {
 
     }
 
+    protected void initProjection() {
+        switch (this.projectionOption.getChosenIndex()) {
+            case 0:
+                Random r = new Random(this.randomSeedOption.getValue());
+                this.GaussMatrix = new double[this.numInputAttributes][this.dim.getValue()];
+                for (int i = 0; i < this.dim.getValue(); i++) {
+                    for (int j = 0; j < this.numInputAttributes; j++) {
+                        this.GaussMatrix[j][i] = r.nextGaussian();
+                    }
+                }
+                break;
+            case 1:
+                this.seedHash = this.randomSeedOption.getValue() * 0xD1B54A32D192ED03L;
+                this.halfDensity = 1.0 / 6.0;
+                this.entryScale = Math.sqrt(3.0);
+                break;
+            default:
+                this.seedHash = this.randomSeedOption.getValue() * 0xD1B54A32D192ED03L;
+                double s = Math.max(1.0, Math.sqrt(this.numInputAttributes));
+                this.halfDensity = 1.0 / (2.0 * s);
+                this.entryScale = Math.sqrt(s);
+        }
+    }
+
     @Override
     public InstanceExample nextInstance() {
         Instance sparseInstance = (Instance) this.inputStream.nextInstance().getData();
+        getHeader();
 
         return new InstanceExample(transformedInstance(sparseInstance,
-                randomProjection(sparseInstance,this.GaussMatrix)));
+                randomProjection(sparseInstance)));
     }
 
 
-    public DenseInstance transformedInstance(Instance sparseInst, double [] val) {
+    public Instance transformedInstance(Instance sparseInst, double [] val) {
 
         Instances header = this.streamHeader;
-        double[] attributeValues = new double[header.numAttributes()];
+        Instance newInstance;
+        if (this.sparseOutputOption.isSet()) {
+            int numNonZero = 0;
+            for (double v : val) {
+                if (v != 0.0) {
+                    numNonZero++;
+                }
+            }
+            double[] values = new double[numNonZero + 1];
+            int[] indices = new int[numNonZero + 1];
+            int pos = 0;
+            for (int i = 0; i < val.length; i++) {
+                if (val[i] != 0.0) {
+                    values[pos] = val[i];
+                    indices[pos++] = i;
+                }
+            }
+            values[pos] = sparseInst.classValue();
+            indices[pos] = header.numAttributes() - 1;
+            newInstance = new SparseInstance(1.0, values, indices, header.numAttributes());
+        } else {
+            double[] attributeValues = new double[header.numAttributes()];
 
-        System.arraycopy(val, 0, attributeValues, 0, header.numAttributes()-1);
+            System.arraycopy(val, 0, attributeValues, 0, header.numAttributes()-1);
 
-        attributeValues[attributeValues.length-1] = sparseInst.classValue();
-        DenseInstance newInstance = new DenseInstance(1.0, attributeValues);
+            attributeValues[attributeValues.length-1] = sparseInst.classValue();
+            newInstance = new DenseInstance(1.0, attributeValues);
+        }
         newInstance.setDataset(header);
         return newInstance;
     }
@@ -91,27 +165,57 @@ public class RandomProjectionFilter extends AbstractStreamFilter {
         // TODO Auto-generated method stub
     }
 
-    public  double[] randomProjection(Instance instance, double[][] gm) {
-
-        double [] denseValues;
-
-        double[] ins = new double [instance.numAttributes()-1];
-        for(int i = 0 ; i < instance.numAttributes()-1 ; i++) {
-            ins[i] = instance.value(i);
+    /**
+     * Projects the input attributes of an instance, visiting only the values
+     * stored by the instance, which are the nonzero ones for sparse instances.
+     *
+     * @param instance the instance to project
+     * @return the projected values
+     */
+    public double[] randomProjection(Instance instance) {
+        double[] projected = new double[this.dim.getValue()];
+        for (int p = 0; p < instance.numValues(); p++) {
+            int index = instance.index(p);
+            if (index == this.inputClassIndex) {
+                continue;
+            }
+            double value = instance.valueSparse(p);
+            if (value == 0.0) {
+                continue;
+            }
+            int attIndex = index < this.inputClassIndex ? index : index - 1;
+            if (this.GaussMatrix != null) {
+                double[] column = this.GaussMatrix[attIndex];
+                for (int i = 0; i < projected.length; i++) {
+                    projected[i] += column[i] * value;
+                }
+            } else {
+                for (int i = 0; i < projected.length; i++) {
+                    projected[i] += sparseEntry(attIndex, i) * value;
+                }
+            }
         }
-        denseValues = multiply(gm, ins);
-
-        return denseValues;
+        return projected;
     }
 
-    public static double[] multiply(double[][] matrix, double[] vector) {
-        return Arrays.stream(matrix)
-                .mapToDouble(row ->
-                        IntStream.range(0, row.length)
-                                .mapToDouble(col -> row[col] * vector[col])
-                                .sum()
-                ).toArray();
+    /**
+     * Returns the entry of the sparse projection matrix for an input
+     * attribute and an output feature. The entry is a function of the seed
+     * and both indices only, so it is recomputed instead of stored.
+     */
+    protected double sparseEntry(int attIndex, int feature) {
+        long z = this.seedHash + attIndex * 0x9E3779B97F4A7C15L + feature * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        double u = (z >>> 11) * 0x1.0p-53;
+        if (u < this.halfDensity) {
+            return this.entryScale;
+        }
+        if (u < 2.0 * this.halfDensity) {
+            return -this.entryScale;
+        }
+        return 0.0;
     }
 
-
-}
\ No newline at end of file
+}
@@ -38,6 +38,7 @@ import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
+import moa.streams.IndexedInstanceStream;
 import moa.streams.InstanceStream;
 import moa.tasks.TaskMonitor;
 
@@ -62,7 +63,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class AgrawalGenerator extends AbstractOptionHandler implements
-        InstanceStream, CapabilitiesHandler {
+        IndexedInstanceStream, CapabilitiesHandler {
 
     @Override
     public String getPurposeString() {
@@ -87,6 +88,9 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
     public FlagOption balanceClassesOption = new FlagOption("balanceClasses",
             'b', "Balance the number of instances of each class.");
 
+    public FlagOption indexedRandomOption = new FlagOption("indexedRandom", 'x',
+            "Draw the random numbers of each instance from a seed derived from its index, so that instances can be generated in any order.");
+
     protected interface ClassFunction {
 
         public int determineClass(double salary, double commission, int age,
@@ -278,6 +282,9 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
 
     protected boolean nextClassShouldBeZero;
 
+    // Index of the next instance
+    protected long nextInstanceIndex;
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -334,8 +341,55 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
         return true;
     }
 
+    @Override
+    public boolean isIndexable() {
+        return this.indexedRandomOption.isSet();
+    }
+
+    @Override
+    public long getNextInstanceIndex() {
+        return this.nextInstanceIndex;
+    }
+
+    @Override
+    public void setNextInstanceIndex(long index) {
+        if (!isIndexable()) {
+            throw new UnsupportedOperationException("The stream cannot generate instances by index with these options.");
+        }
+        this.nextInstanceIndex = index;
+        // with balanced classes the instances alternate between the groups
+        this.nextClassShouldBeZero = this.balanceClassesOption.isSet() && index % 2 == 1;
+    }
+
     @Override
     public InstanceExample nextInstance() {
+        InstancesHeader header = getHeader();
+        Instance inst = new DenseInstance(header.numAttributes());
+        inst.setDataset(header);
+        generateInstance(inst);
+        return new InstanceExample(inst);
+    }
+
+    @Override
+    public int nextInstances(int n, Instance[] buffer) {
+        for (int i = 0; i < n; i++) {
+            generateInstance(InstanceStream.reusableInstance(buffer, i, getHeader()));
+        }
+        return n;
+    }
+
+    /**
+     * Sets the attribute values and the class of the next instance.
+     *
+     * @param inst a dense instance with the header of this stream
+     */
+    protected void generateInstance(Instance inst) {
+        if (this.indexedRandomOption.isSet()) {
+            this.instanceRandom.setSeed(IndexedInstanceStream.instanceSeed(
+                    this.instanceRandomSeedOption.getValue(), this.nextInstanceIndex));
+        }
+        this.nextInstanceIndex++;
+
         double salary = 0, commission = 0, hvalue = 0, loan = 0;
         int age = 0, elevel = 0, car = 0, zipcode = 0, hyears = 0, group = 0;
         boolean desiredClassFound = false;
@@ -381,8 +435,6 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
             loan = perturbValue(loan, 0, 500000);
         }
         // construct instance
-        InstancesHeader header = getHeader();
-        Instance inst = new DenseInstance(header.numAttributes());
         inst.setValue(0, salary);
         inst.setValue(1, commission);
         inst.setValue(2, age);
@@ -392,9 +444,7 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
         inst.setValue(6, hvalue);
         inst.setValue(7, hyears);
         inst.setValue(8, loan);
-        inst.setDataset(header);
         inst.setClassValue(group);
-        return new InstanceExample(inst);
     }
 
     protected double perturbValue(double val, double min, double max) {
@@ -417,6 +467,7 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
         this.nextClassShouldBeZero = false;
+        this.nextInstanceIndex = 0;
     }
 
     @Override
@@ -20,6 +20,7 @@
 package moa.streams.generators;
 
 import java.util.Random;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import moa.capabilities.CapabilitiesHandler;
@@ -29,6 +30,7 @@ import moa.core.FastVector;
 import moa.core.InstanceExample;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
+import moa.streams.IndexedInstanceStream;
 import moa.streams.InstanceStream;
 import moa.tasks.TaskMonitor;
 import com.yahoo.labs.samoa.instances.Attribute;
@@ -44,7 +46,7 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
  * @version $Revision: 7 $
  */
 public class HyperplaneGenerator extends AbstractOptionHandler implements
-        InstanceStream, CapabilitiesHandler {
+        IndexedInstanceStream, CapabilitiesHandler {
 
     @Override
     public String getPurposeString() {
@@ -75,6 +77,9 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
     public IntOption sigmaPercentageOption = new IntOption("sigmaPercentage",
             's', "Percentage of probability that the direction of change is reversed.", 10, 0, 100);
 
+    public FlagOption indexedRandomOption = new FlagOption("indexedRandom", 'x',
+            "Draw the random numbers of each instance from a seed derived from its index, so that instances can be generated in any order.");
+
     protected InstancesHeader streamHeader;
 
     protected Random instanceRandom;
@@ -85,6 +90,9 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
 
     public int numberInstance;
 
+    // Index of the next instance
+    protected long nextInstanceIndex;
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -129,16 +137,62 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
         return true;
     }
 
+    @Override
+    public boolean isIndexable() {
+        return this.indexedRandomOption.isSet()
+                // the drift of the hyperplane depends on all the instances before
+                && (this.numDriftAttsOption.getValue() == 0 || this.magChangeOption.getValue() == 0.0);
+    }
+
+    @Override
+    public long getNextInstanceIndex() {
+        return this.nextInstanceIndex;
+    }
+
+    @Override
+    public void setNextInstanceIndex(long index) {
+        if (!isIndexable()) {
+            throw new UnsupportedOperationException("The stream cannot generate instances by index with these options.");
+        }
+        this.nextInstanceIndex = index;
+    }
+
     @Override
     public InstanceExample nextInstance() {
+        Instance inst = new DenseInstance(this.numAttsOption.getValue() + 1);
+        inst.setDataset(getHeader());
+        generateInstance(inst);
+        return new InstanceExample(inst);
+    }
+
+    @Override
+    public int nextInstances(int n, Instance[] buffer) {
+        for (int i = 0; i < n; i++) {
+            generateInstance(InstanceStream.reusableInstance(buffer, i, getHeader()));
+        }
+        return n;
+    }
+
+    /**
+     * Sets the attribute values and the class of the next instance, and moves
+     * the hyperplane.
+     *
+     * @param inst a dense instance with the header of this stream
+     */
+    protected void generateInstance(Instance inst) {
+        if (this.indexedRandomOption.isSet()) {
+            this.instanceRandom.setSeed(IndexedInstanceStream.instanceSeed(
+                    this.instanceRandomSeedOption.getValue(), this.nextInstanceIndex));
+        }
+        this.nextInstanceIndex++;
 
         int numAtts = this.numAttsOption.getValue();
-        double[] attVals = new double[numAtts + 1];
         double sum = 0.0;
         double sumWeights = 0.0;
         for (int i = 0; i < numAtts; i++) {
-            attVals[i] = this.instanceRandom.nextDouble();
-            sum += this.weights[i] * attVals[i];
+            double attVal = this.instanceRandom.nextDouble();
+            inst.setValue(i, attVal);
+            sum += this.weights[i] * attVal;
             sumWeights += this.weights[i];
         }
         int classLabel;
@@ -152,16 +206,15 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
             classLabel = (classLabel == 0 ? 1 : 0);
         }
 
-        Instance inst = new DenseInstance(1.0, attVals);
-        inst.setDataset(getHeader());
         inst.setClassValue(classLabel);
         addDrift();
-        return new InstanceExample(inst);
     }
 
     private void addDrift() {
-        for (int i = 0; i < this.numDriftAttsOption.getValue(); i++) {
-            this.weights[i] += (double) ((double) sigma[i]) * ((double) this.magChangeOption.getValue());
+        int numDriftAtts = this.numDriftAttsOption.getValue();
+        double magChange = this.magChangeOption.getValue();
+        for (int i = 0; i < numDriftAtts; i++) {
+            this.weights[i] += (double) ((double) sigma[i]) * magChange;
             if (//this.weights[i] >= 1.0 || this.weights[i] <= 0.0 ||
                     (1 + (this.instanceRandom.nextInt(100))) <= this.sigmaPercentageOption.getValue()) {
                 this.sigma[i] *= -1;
@@ -173,6 +226,7 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
         this.weights = new double[this.numAttsOption.getValue()];
+        this.nextInstanceIndex = 0;
         this.sigma = new int[this.numAttsOption.getValue()];
         for (int i = 0; i < this.numAttsOption.getValue(); i++) {
             this.weights[i] = this.instanceRandom.nextDouble();
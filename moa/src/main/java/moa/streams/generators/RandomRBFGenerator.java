@@ -36,7 +36,9 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.core.MiscUtils;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import moa.streams.IndexedInstanceStream;
 import moa.streams.InstanceStream;
 import moa.tasks.TaskMonitor;
 
@@ -47,7 +49,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class RandomRBFGenerator extends AbstractOptionHandler implements
-        InstanceStream, CapabilitiesHandler {
+        IndexedInstanceStream, CapabilitiesHandler {
 
     @Override
     public String getPurposeString() {
@@ -72,6 +74,9 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
     public IntOption numCentroidsOption = new IntOption("numCentroids", 'n',
             "The number of centroids in the model.", 50, 1, Integer.MAX_VALUE);
 
+    public FlagOption indexedRandomOption = new FlagOption("indexedRandom", 'x',
+            "Draw the random numbers of each instance from a seed derived from its index, so that instances can be generated in any order.");
+
     protected static class Centroid implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -91,6 +96,12 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
 
     protected Random instanceRandom;
 
+    // Index of the next instance
+    protected long nextInstanceIndex;
+
+    // Attribute values of the instance being generated
+    protected transient double[] attVals;
+
     @Override
     public void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -123,14 +134,62 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
     @Override
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+        this.nextInstanceIndex = 0;
+    }
+
+    @Override
+    public boolean isIndexable() {
+        return this.indexedRandomOption.isSet();
+    }
+
+    @Override
+    public long getNextInstanceIndex() {
+        return this.nextInstanceIndex;
+    }
+
+    @Override
+    public void setNextInstanceIndex(long index) {
+        if (!isIndexable()) {
+            throw new UnsupportedOperationException("The stream cannot generate instances by index with these options.");
+        }
+        this.nextInstanceIndex = index;
     }
 
     @Override
     public InstanceExample nextInstance() {
+        Instance inst = new DenseInstance(this.numAttsOption.getValue() + 1);
+        inst.setDataset(getHeader());
+        generateInstance(inst);
+        return new InstanceExample(inst);
+    }
+
+    @Override
+    public int nextInstances(int n, Instance[] buffer) {
+        for (int i = 0; i < n; i++) {
+            generateInstance(InstanceStream.reusableInstance(buffer, i, getHeader()));
+        }
+        return n;
+    }
+
+    /**
+     * Sets the attribute values and the class of the next instance.
+     *
+     * @param inst a dense instance with the header of this stream
+     */
+    protected void generateInstance(Instance inst) {
+        if (this.indexedRandomOption.isSet()) {
+            this.instanceRandom.setSeed(IndexedInstanceStream.instanceSeed(
+                    this.instanceRandomSeedOption.getValue(), this.nextInstanceIndex));
+        }
+        this.nextInstanceIndex++;
+
         Centroid centroid = this.centroids[MiscUtils.chooseRandomIndexBasedOnWeights(this.centroidWeights,
                 this.instanceRandom)];
         int numAtts = this.numAttsOption.getValue();
-        double[] attVals = new double[numAtts + 1];
+        if (this.attVals == null || this.attVals.length != numAtts) {
+            this.attVals = new double[numAtts];
+        }
+        double[] attVals = this.attVals;
         for (int i = 0; i < numAtts; i++) {
             attVals[i] = (this.instanceRandom.nextDouble() * 2.0) - 1.0;
         }
@@ -143,12 +202,9 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
                 * centroid.stdDev;
         double scale = desiredMag / magnitude;
         for (int i = 0; i < numAtts; i++) {
-            attVals[i] = centroid.centre[i] + attVals[i] * scale;
+            inst.setValue(i, centroid.centre[i] + attVals[i] * scale);
         }
-        Instance inst = new DenseInstance(1.0, attVals);
-        inst.setDataset(getHeader());
         inst.setClassValue(centroid.classLabel);
-        return new InstanceExample(inst);
     }
 
     protected void generateHeader() {
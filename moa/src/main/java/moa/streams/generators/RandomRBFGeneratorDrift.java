@@ -23,7 +23,8 @@ import java.util.Random;
 
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
-import moa.core.InstanceExample;
+
+import com.yahoo.labs.samoa.instances.Instance;
 
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.FloatOption;
@@ -52,15 +53,48 @@ public class RandomRBFGeneratorDrift extends RandomRBFGenerator {
     protected double[][] speedCentroids;
 
     @Override
-    public InstanceExample nextInstance() {
+    public void restart() {
+        super.restart();
+        if (this.indexedRandomOption.isSet() && this.centroids != null) {
+            // the centroids move the same way whatever the instances are, so
+            // instance i sees the centroids moved i + 1 times from their start
+            generateCentroids();
+        }
+    }
+
+    @Override
+    public void setNextInstanceIndex(long index) {
+        long current = this.nextInstanceIndex;
+        super.setNextInstanceIndex(index);
+        if (index < current) {
+            generateCentroids();
+            current = 0;
+        }
+        for (long i = current; i < index; i++) {
+            moveCentroids();
+        }
+    }
+
+    @Override
+    protected void generateInstance(Instance inst) {
+        moveCentroids();
+        super.generateInstance(inst);
+    }
+
+    /**
+     * Moves the drifting centroids by one step.
+     */
+    protected void moveCentroids() {
         //Update Centroids with drift
         int len = this.numDriftCentroidsOption.getValue();
         if (len > this.centroids.length) {
             len = this.centroids.length;
         }
+        int numAtts = this.numAttsOption.getValue();
+        double speedChange = this.speedChangeOption.getValue();
         for (int j = 0; j < len; j++) {
-            for (int i = 0; i < this.numAttsOption.getValue(); i++) {
-                this.centroids[j].centre[i] += this.speedCentroids[j][i] * this.speedChangeOption.getValue();
+            for (int i = 0; i < numAtts; i++) {
+                this.centroids[j].centre[i] += this.speedCentroids[j][i] * speedChange;
                 if (this.centroids[j].centre[i] > 1) {
                     this.centroids[j].centre[i] = 1;
                     this.speedCentroids[j][i] = -this.speedCentroids[j][i];
@@ -71,7 +105,6 @@ public class RandomRBFGeneratorDrift extends RandomRBFGenerator {
                 }
             }
         }
-        return super.nextInstance();
     }
 
     @Override
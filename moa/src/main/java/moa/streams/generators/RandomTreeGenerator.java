@@ -36,8 +36,10 @@ import moa.core.InstanceExample;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
+import moa.streams.IndexedInstanceStream;
 import moa.streams.InstanceStream;
 import moa.tasks.TaskMonitor;
 
@@ -48,7 +50,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class RandomTreeGenerator extends AbstractOptionHandler implements
-        InstanceStream, CapabilitiesHandler {
+        IndexedInstanceStream, CapabilitiesHandler {
 
     @Override
     public String getPurposeString() {
@@ -94,6 +96,9 @@ public class RandomTreeGenerator extends AbstractOptionHandler implements
             "The fraction of leaves per level from firstLeafLevel onwards.",
             0.15, 0.0, 1.0);
 
+    public FlagOption indexedRandomOption = new FlagOption("indexedRandom", 'x',
+            "Draw the random numbers of each instance from a seed derived from its index, so that instances can be generated in any order.");
+
     protected static class Node implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -113,6 +118,12 @@ public class RandomTreeGenerator extends AbstractOptionHandler implements
 
     protected Random instanceRandom;
 
+    // Index of the next instance
+    protected long nextInstanceIndex;
+
+    // Attribute values of the instance being generated
+    protected transient double[] attVals;
+
     @Override
     public void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -135,6 +146,7 @@ public class RandomTreeGenerator extends AbstractOptionHandler implements
     @Override
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+        this.nextInstanceIndex = 0;
     }
 
     @Override
@@ -147,20 +159,66 @@ public class RandomTreeGenerator extends AbstractOptionHandler implements
         return true;
     }
 
+    @Override
+    public boolean isIndexable() {
+        return this.indexedRandomOption.isSet();
+    }
+
+    @Override
+    public long getNextInstanceIndex() {
+        return this.nextInstanceIndex;
+    }
+
+    @Override
+    public void setNextInstanceIndex(long index) {
+        if (!isIndexable()) {
+            throw new UnsupportedOperationException("The stream cannot generate instances by index with these options.");
+        }
+        this.nextInstanceIndex = index;
+    }
+
     @Override
     public InstanceExample nextInstance() {
-        double[] attVals = new double[this.numNominalsOption.getValue()
-                + this.numNumericsOption.getValue()];
         InstancesHeader header = getHeader();
         Instance inst = new DenseInstance(header.numAttributes());
+        inst.setDataset(header);
+        generateInstance(inst);
+        return new InstanceExample(inst);
+    }
+
+    @Override
+    public int nextInstances(int n, Instance[] buffer) {
+        for (int i = 0; i < n; i++) {
+            generateInstance(InstanceStream.reusableInstance(buffer, i, getHeader()));
+        }
+        return n;
+    }
+
+    /**
+     * Sets the attribute values and the class of the next instance.
+     *
+     * @param inst a dense instance with the header of this stream
+     */
+    protected void generateInstance(Instance inst) {
+        if (this.indexedRandomOption.isSet()) {
+            this.instanceRandom.setSeed(IndexedInstanceStream.instanceSeed(
+                    this.instanceRandomSeedOption.getValue(), this.nextInstanceIndex));
+        }
+        this.nextInstanceIndex++;
+
+        int numNominals = this.numNominalsOption.getValue();
+        int numAtts = numNominals + this.numNumericsOption.getValue();
+        if (this.attVals == null || this.attVals.length != numAtts) {
+            this.attVals = new double[numAtts];
+        }
+        double[] attVals = this.attVals;
+        int numValsPerNominal = this.numValsPerNominalOption.getValue();
         for (int i = 0; i < attVals.length; i++) {
-            attVals[i] = i < this.numNominalsOption.getValue() ? this.instanceRandom.nextInt(this.numValsPerNominalOption.getValue())
+            attVals[i] = i < numNominals ? this.instanceRandom.nextInt(numValsPerNominal)
                     : this.instanceRandom.nextDouble();
             inst.setValue(i, attVals[i]);
         }
-        inst.setDataset(header);
         inst.setClassValue(classifyInstance(this.treeRoot, attVals));
-        return new InstanceExample(inst);
     }
 
     protected int classifyInstance(Node node, double[] attVals) {
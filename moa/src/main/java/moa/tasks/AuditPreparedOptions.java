@@ -0,0 +1,142 @@
+/*
+ *    AuditPreparedOptions.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import moa.core.Example;
+import moa.core.ObjectRepository;
+import moa.core.StringUtils;
+import moa.learners.Learner;
+import moa.options.ClassOption;
+import moa.options.PreparedOptionAudit;
+import moa.streams.ExampleStream;
+
+import com.github.javacliparser.IntOption;
+
+/**
+ * Task that reports which learners use their class options inside the
+ * training and prediction loop. The learner is tested and then trained with
+ * each instance, as in a prequential evaluation, while the lookups, copies
+ * and preparations of the prepared class options are counted with
+ * PreparedOptionAudit. Options with many uses per instance are listed
+ * first, together with the time taken, so that the same stream can be
+ * profiled before and after a change to a learner.
+ *
+ * @version $Revision: 1 $
+ */
+public class AuditPreparedOptions extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Reports the class options that a learner looks up, copies or prepares while it learns from a stream.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to audit.", Learner.class, "moa.classifiers.trees.HoeffdingTree");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Maximum number of instances to test/train on  (-1 = no limit).",
+            100000, -1, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+        int maxInstances = this.instanceLimitOption.getValue();
+        long instancesProcessed = 0;
+        monitor.setCurrentActivity("Auditing learner...", -1.0);
+        PreparedOptionAudit.start();
+        Map<String, long[]> counts;
+        long startTime = System.nanoTime();
+        try {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))) {
+                Example example = stream.nextInstance();
+                learner.getVotesForInstance(example);
+                learner.trainOnInstance(example);
+                instancesProcessed++;
+                if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    monitor.setCurrentActivityFractionComplete(maxInstances < 0 ? -1.0
+                            : (double) instancesProcessed / maxInstances);
+                }
+            }
+        } finally {
+            counts = PreparedOptionAudit.stop();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return report(counts, instancesProcessed, seconds);
+    }
+
+    protected String report(Map<String, long[]> counts, final long instances, double seconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Instances: ").append(instances);
+        StringUtils.appendNewline(sb);
+        sb.append("Wall time (seconds): ").append(String.format(Locale.US, "%.3f", seconds));
+        StringUtils.appendNewline(sb);
+        sb.append("Instances per second: ").append(String.format(Locale.US, "%.1f", instances / seconds));
+        StringUtils.appendNewline(sb);
+        StringUtils.appendNewline(sb);
+        sb.append("lookups,copies,preparations,uses per 1000 instances,class,option");
+        StringUtils.appendNewline(sb);
+        List<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(counts.entrySet());
+        //the options used most often first
+        Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(Map.Entry<String, long[]> a, Map.Entry<String, long[]> b) {
+                return Long.compare(uses(b.getValue()), uses(a.getValue()));
+            }
+        });
+        for (Map.Entry<String, long[]> entry : entries) {
+            long[] count = entry.getValue();
+            sb.append(count[PreparedOptionAudit.LOOKUP]).append(',');
+            sb.append(count[PreparedOptionAudit.COPY]).append(',');
+            sb.append(count[PreparedOptionAudit.PREPARATION]).append(',');
+            sb.append(String.format(Locale.US, "%.3f", instances == 0 ? 0.0 : 1000.0 * uses(count) / instances)).append(',');
+            sb.append(entry.getKey().replace(' ', ','));
+            StringUtils.appendNewline(sb);
+        }
+        return sb.toString();
+    }
+
+    protected static long uses(long[] count) {
+        return count[PreparedOptionAudit.LOOKUP] + count[PreparedOptionAudit.COPY]
+                + count[PreparedOptionAudit.PREPARATION];
+    }
+}
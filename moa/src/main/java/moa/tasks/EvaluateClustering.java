@@ -15,6 +15,7 @@ import moa.gui.BatchCmd;
 import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.clustering.ClusteringStream;
 
@@ -62,6 +63,21 @@ public class EvaluateClustering extends AuxiliarMainTask {
     public FlagOption silhouetteOption = new FlagOption("Silhouette", 'h', "SilhCoeff.");
     
     public FlagOption statisticalOption = new FlagOption("Statistical", 't', "van Dongen, Rand statistic.");
+
+    public FloatOption approximationErrorOption = new FloatOption("approximationError", 'a',
+            "Maximum error of Silhouette when estimated from a sample of the points in clusters (0 = compute exactly). CMM is always computed exactly.",
+            0.0, 0.0, 1.0);
+
+    public FloatOption approximationDeltaOption = new FloatOption("approximationDelta", 'b',
+            "Probability that an estimated measure exceeds the maximum error.",
+            0.05, 0.0, 1.0);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for sampling the points of the estimated measures.", 1);
+
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Number of threads used to compute CMM, Silhouette and SSQ (-1 = as many as processors).",
+            1, -1, Integer.MAX_VALUE);
        
     /*public ClassOption evaluatorOption = new ClassOption("evaluator", 'e',
     "Performance evaluation method.",
@@ -124,7 +140,11 @@ public class EvaluateClustering extends AuxiliarMainTask {
                 (AbstractClusterer) getPreparedClassOption(this.learnerOption),
                 measureCollection,
                 (int) this.instanceLimitOption.getValue(),
-                (String) dumpFileOption.getValue());
+                (String) dumpFileOption.getValue(),
+                this.approximationErrorOption.getValue(),
+                this.approximationDeltaOption.getValue(),
+                this.randomSeedOption.getValue(),
+                this.numberOfJobsOption.getValue());
 
         LearningCurve learningCurve = new LearningCurve("EvaluateClustering does not support custom output file (> [filename]).\n" +
         												"Check out the dump file to see the results (if you haven't specified, dumpClustering.csv by default).");
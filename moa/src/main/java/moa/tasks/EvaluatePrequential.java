@@ -21,16 +21,18 @@
 package moa.tasks;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
+import java.io.IOException;
+import java.io.Writer;
 
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.MultiClassClassifier;
+import moa.core.BackgroundFileWriter;
 import moa.core.Example;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
+import moa.core.StringUtils;
 import moa.core.TimingUtils;
 import moa.evaluation.WindowClassificationPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
@@ -42,6 +44,7 @@ import moa.learners.Learner;
 import moa.options.ClassOption;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
@@ -100,6 +103,12 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public FlagOption backgroundOutputOption = new FlagOption("backgroundOutput", 'b',
+            "Format and write the intermediate results and the output predictions on a background thread.");
+
+    public FlagOption lastEntryOnlyOption = new FlagOption("lastEntryOnly", 'k',
+            "Keep only the last entry of the learning curve in memory, the others being in the dump file.");
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -152,17 +161,12 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
         int secondsElapsed = 0;
         monitor.setCurrentActivity("Evaluating learner...", -1.0);
 
+        boolean background = this.backgroundOutputOption.isSet();
         File dumpFile = this.dumpFileOption.getFile();
-        PrintStream immediateResultStream = null;
+        BackgroundFileWriter immediateResultStream = null;
         if (dumpFile != null) {
             try {
-                if (dumpFile.exists()) {
-                    immediateResultStream = new PrintStream(
-                            new FileOutputStream(dumpFile, true), true);
-                } else {
-                    immediateResultStream = new PrintStream(
-                            new FileOutputStream(dumpFile), true);
-                }
+                immediateResultStream = new BackgroundFileWriter(dumpFile, background);
             } catch (Exception ex) {
                 throw new RuntimeException(
                         "Unable to open immediate result file: " + dumpFile, ex);
@@ -170,107 +174,185 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
         }
         //File for output predictions
         File outputPredictionFile = this.outputPredictionFileOption.getFile();
-        PrintStream outputPredictionResultStream = null;
+        BackgroundFileWriter outputPredictionResultStream = null;
+        PredictionBlock predictions = null;
         if (outputPredictionFile != null) {
             try {
-                if (outputPredictionFile.exists()) {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile, true), true);
-                } else {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile), true);
-                }
+                outputPredictionResultStream = new BackgroundFileWriter(outputPredictionFile, background);
             } catch (Exception ex) {
+                if (immediateResultStream != null) {
+                    immediateResultStream.close();
+                }
                 throw new RuntimeException(
                         "Unable to open prediction result file: " + outputPredictionFile, ex);
             }
+            predictions = new PredictionBlock(background ? PredictionBlock.SIZE : 1);
         }
-        boolean firstDump = true;
-        boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
-        long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-        long lastEvaluateStartTime = evaluateStartTime;
-        double RAMHours = 0.0;
-        while (stream.hasMoreInstances()
-                && ((maxInstances < 0) || (instancesProcessed < maxInstances))
-                && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = stream.nextInstance();
-            Example testInst = (Example) trainInst; //.copy();
-            //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
-            // Output prediction
-            if (outputPredictionFile != null) {
-                int trueClass = (int) ((Instance) trainInst.getData()).classValue();
-                outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
-                 ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
-            }
+        //the writers are closed however the evaluation ends, so that their
+        //files are complete and a background writer thread does not outlive the task
+        try {
+            boolean firstDump = true;
+            boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+            long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            long lastEvaluateStartTime = evaluateStartTime;
+            double RAMHours = 0.0;
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))
+                    && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
+                Example trainInst = stream.nextInstance();
+                Example testInst = (Example) trainInst; //.copy();
+                //testInst.setClassMissing();
+                double[] prediction = learner.getVotesForInstance(testInst);
+                // Output prediction
+                if (outputPredictionFile != null) {
+                    int trueClass = (int) ((Instance) trainInst.getData()).classValue();
+                    predictions.add(Utils.maxIndex(prediction),
+                            ((Instance) testInst.getData()).classIsMissing() == true ? -1 : trueClass);
+                    if (predictions.isFull()) {
+                        outputPredictionResultStream.write(predictions);
+                        predictions = new PredictionBlock(predictions.predictedClasses.length);
+                    }
+                }
 
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
-            evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
-            instancesProcessed++;
-            if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                    || stream.hasMoreInstances() == false) {
-                long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-                double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
-                double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
-                RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
-                RAMHours += RAMHoursIncrement;
-                lastEvaluateStartTime = evaluateTime;
-                learningCurve.insertEntry(new LearningEvaluation(
-                        new Measurement[]{
-                            new Measurement(
-                            "learning evaluation instances",
-                            instancesProcessed),
-                            new Measurement(
-                            "evaluation time ("
-                            + (preciseCPUTiming ? "cpu "
-                            : "") + "seconds)",
-                            time),
-                            new Measurement(
-                            "model cost (RAM-Hours)",
-                            RAMHours)
-                        },
-                        evaluator, learner));
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
+                evaluator.addResult(testInst, prediction);
+                learner.trainOnInstance(trainInst);
+                instancesProcessed++;
+                if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
+                        || stream.hasMoreInstances() == false) {
+                    long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                    double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
+                    double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
+                    double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+                    RAMHours += RAMHoursIncrement;
+                    lastEvaluateStartTime = evaluateTime;
+                    learningCurve.insertEntry(new LearningEvaluation(
+                            new Measurement[]{
+                                new Measurement(
+                                "learning evaluation instances",
+                                instancesProcessed),
+                                new Measurement(
+                                "evaluation time ("
+                                + (preciseCPUTiming ? "cpu "
+                                : "") + "seconds)",
+                                time),
+                                new Measurement(
+                                "model cost (RAM-Hours)",
+                                RAMHours)
+                            },
+                            evaluator, learner));
 
-                if (immediateResultStream != null) {
-                    if (firstDump) {
-                        immediateResultStream.println(learningCurve.headerToString());
-                        firstDump = false;
+                    if (immediateResultStream != null) {
+                        if (firstDump) {
+                            immediateResultStream.println(learningCurve.headerToString());
+                            firstDump = false;
+                        }
+                        immediateResultStream.write(new CurveEntry(
+                                learningCurve.getEntryData(learningCurve.numEntries() - 1)));
+                    }
+                    if (this.lastEntryOnlyOption.isSet()) {
+                        learningCurve.retainLastEntries(1);
                     }
-                    immediateResultStream.println(learningCurve.entryToString(learningCurve.numEntries() - 1));
-                    immediateResultStream.flush();
-                }
-            }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                if (monitor.taskShouldAbort()) {
-                    return null;
                 }
-                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
-                if (maxInstances > 0) {
-                    long maxRemaining = maxInstances - instancesProcessed;
-                    if ((estimatedRemainingInstances < 0)
-                            || (maxRemaining < estimatedRemainingInstances)) {
-                        estimatedRemainingInstances = maxRemaining;
+                if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                    if (maxInstances > 0) {
+                        long maxRemaining = maxInstances - instancesProcessed;
+                        if ((estimatedRemainingInstances < 0)
+                                || (maxRemaining < estimatedRemainingInstances)) {
+                            estimatedRemainingInstances = maxRemaining;
+                        }
                     }
+                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                            : (double) instancesProcessed
+                            / (double) (instancesProcessed + estimatedRemainingInstances));
+                    if (monitor.resultPreviewRequested()) {
+                        monitor.setLatestResultPreview(learningCurve.copy());
+                    }
+                    secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                            - evaluateStartTime);
                 }
-                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
-                        : (double) instancesProcessed
-                        / (double) (instancesProcessed + estimatedRemainingInstances));
-                if (monitor.resultPreviewRequested()) {
-                    monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        } finally {
+            closeOutput(immediateResultStream, outputPredictionResultStream, predictions);
+        }
+        return learningCurve;
+    }
+
+    protected void closeOutput(BackgroundFileWriter immediateResultStream,
+            BackgroundFileWriter outputPredictionResultStream, PredictionBlock predictions) {
+        try {
+            if (outputPredictionResultStream != null) {
+                if (predictions.size > 0) {
+                    outputPredictionResultStream.write(predictions);
                 }
-                secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
-                        - evaluateStartTime);
+                outputPredictionResultStream.close();
+            }
+        } finally {
+            if (immediateResultStream != null) {
+                immediateResultStream.close();
             }
         }
-        if (immediateResultStream != null) {
-            immediateResultStream.close();
+    }
+
+    /**
+     * Row of the learning curve, formatted by the writer.
+     */
+    protected static class CurveEntry implements BackgroundFileWriter.Record {
+
+        protected final double[] values;
+
+        public CurveEntry(double[] values) {
+            this.values = values;
         }
-        if (outputPredictionResultStream != null) {
-            outputPredictionResultStream.close();
+
+        @Override
+        public void writeTo(Writer out) throws IOException {
+            out.write(LearningCurve.entryToString(this.values, this.values.length));
+            out.write(StringUtils.newline);
+        }
+    }
+
+    /**
+     * Output predictions of consecutive instances, formatted by the writer.
+     * A true class of -1 stands for a missing class.
+     */
+    protected static class PredictionBlock implements BackgroundFileWriter.Record {
+
+        public static final int SIZE = 1024;
+
+        protected final int[] predictedClasses;
+
+        protected final int[] trueClasses;
+
+        protected int size;
+
+        public PredictionBlock(int capacity) {
+            this.predictedClasses = new int[capacity];
+            this.trueClasses = new int[capacity];
+        }
+
+        public void add(int predictedClass, int trueClass) {
+            this.predictedClasses[this.size] = predictedClass;
+            this.trueClasses[this.size] = trueClass;
+            this.size++;
+        }
+
+        public boolean isFull() {
+            return this.size == this.predictedClasses.length;
+        }
+
+        @Override
+        public void writeTo(Writer out) throws IOException {
+            for (int i = 0; i < this.size; i++) {
+                out.write(this.predictedClasses[i] + "," + (this.trueClasses[i] < 0 ? " ? " : this.trueClasses[i]));
+                out.write(StringUtils.newline);
+            }
         }
-        return learningCurve;
     }
 
     @Override
@@ -21,6 +21,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -30,6 +31,7 @@ import com.yahoo.labs.samoa.instances.Prediction;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 
 import moa.classifiers.MultiTargetRegressor;
 import moa.classifiers.Regressor;
@@ -102,6 +104,9 @@ public class EvaluatePrequentialMultiTarget extends MultiTargetMainTask {
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public FlagOption measureThroughputOption = new FlagOption("measureThroughput", 'b',
+            "Add the wall-clock time and the instances per second to the results, which include the work of the threads of multi-threaded learners.");
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -191,6 +196,8 @@ public class EvaluatePrequentialMultiTarget extends MultiTargetMainTask {
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        // the CPU time of this thread leaves out the worker threads of a learner
+        long wallStartTime = System.nanoTime();
         double RAMHours = 0.0;
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
@@ -219,21 +226,29 @@ public class EvaluatePrequentialMultiTarget extends MultiTargetMainTask {
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
+                Measurement[] taskMeasurements = new Measurement[]{
+                    new Measurement(
+                    "learning evaluation instances",
+                    instancesProcessed),
+                    new Measurement(
+                    "evaluation time ("
+                    + (preciseCPUTiming ? "cpu "
+                    : "") + "seconds)",
+                    time),
+                    new Measurement(
+                    "model cost (RAM-Hours)",
+                    RAMHours)
+                };
+                if (this.measureThroughputOption.isSet()) {
+                    double wallTime = TimingUtils.nanoTimeToSeconds(System.nanoTime() - wallStartTime);
+                    taskMeasurements = Arrays.copyOf(taskMeasurements, taskMeasurements.length + 2);
+                    taskMeasurements[taskMeasurements.length - 2] = new Measurement(
+                            "wall time (seconds)", wallTime);
+                    taskMeasurements[taskMeasurements.length - 1] = new Measurement(
+                            "instances per second", wallTime > 0.0 ? instancesProcessed / wallTime : 0.0);
+                }
                 learningCurve.insertEntry(new LearningEvaluation(
-                        new Measurement[]{
-                            new Measurement(
-                            "learning evaluation instances",
-                            instancesProcessed),
-                            new Measurement(
-                            "evaluation time ("
-                            + (preciseCPUTiming ? "cpu "
-                            : "") + "seconds)",
-                            time),
-                            new Measurement(
-                            "model cost (RAM-Hours)",
-                            RAMHours)
-                        },
-                        evaluator, learner));
+                        taskMeasurements, evaluator, learner));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
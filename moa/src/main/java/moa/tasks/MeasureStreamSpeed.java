@@ -27,9 +27,12 @@ import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
+import com.yahoo.labs.samoa.instances.Instance;
 
 /**
- * Task for measuring the speed of the stream.
+ * Task for measuring the speed of the stream. With a block size, the speed of
+ * getting blocks of instances with nextInstances is measured as well, after
+ * restarting the stream, and compared with getting them one at a time.
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
@@ -50,6 +53,9 @@ public class MeasureStreamSpeed extends AuxiliarMainTask {
     public IntOption generateSizeOption = new IntOption("generateSize", 'g',
             "Number of examples.", 10000000, 0, Integer.MAX_VALUE);
 
+    public IntOption blockSizeOption = new IntOption("blockSize", 'b',
+            "Number of examples per call to nextInstances, 0 to only generate them one at a time.", 0, 0, Integer.MAX_VALUE);
+
     @Override
     protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         TimingUtils.enablePreciseTiming();
@@ -62,13 +68,42 @@ public class MeasureStreamSpeed extends AuxiliarMainTask {
         }
         double genTime = TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
                 - genStartTime);
+        int blockSize = this.blockSizeOption.getValue();
+        if (blockSize == 0 || !(stream instanceof InstanceStream) || !stream.isRestartable()) {
+            return new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement("Number of instances generated",
+                        numInstances),
+                        new Measurement("Time elapsed", genTime),
+                        new Measurement("Instances per second", numInstances
+                        / genTime)});
+        }
+        stream.restart();
+        InstanceStream instanceStream = (InstanceStream) stream;
+        Instance[] buffer = new Instance[blockSize];
+        int numBlockInstances = 0;
+        long blockStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        while (numBlockInstances < numInstances) {
+            int n = instanceStream.nextInstances(Math.min(blockSize, numInstances - numBlockInstances), buffer);
+            if (n == 0) {
+                break;
+            }
+            numBlockInstances += n;
+        }
+        double blockTime = TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                - blockStartTime);
         return new LearningEvaluation(
                 new Measurement[]{
                     new Measurement("Number of instances generated",
                     numInstances),
                     new Measurement("Time elapsed", genTime),
                     new Measurement("Instances per second", numInstances
-                    / genTime)});
+                    / genTime),
+                    new Measurement("Time elapsed in blocks", blockTime),
+                    new Measurement("Instances per second in blocks",
+                    numBlockInstances / blockTime),
+                    new Measurement("Speedup of blocks",
+                    (numBlockInstances / blockTime) / (numInstances / genTime))});
     }
 
     @Override
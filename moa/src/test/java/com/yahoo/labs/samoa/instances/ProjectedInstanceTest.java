@@ -0,0 +1,190 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import moa.core.SerializeUtils;
+
+import org.junit.Test;
+
+/**
+ * Tests that a projected instance has the same values as a copy of the
+ * source from which the other attributes are deleted.
+ */
+public class ProjectedInstanceTest {
+	private static double EPS = 0.0;
+
+	private static InstancesHeader header(int numAttributes) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < numAttributes; i++) {
+			attributes.add(new Attribute("x" + i));
+		}
+		attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(numAttributes);
+		return new InstancesHeader(instances);
+	}
+
+	private static Instance source() {
+		Instance inst = new DenseInstance(2.5, new double[]{0.5, -1.0, Double.NaN, 3.0, 7.25, 1});
+		inst.setDataset(header(5));
+		return inst;
+	}
+
+	/**
+	 * Projects an instance the way it was done before projections were
+	 * views: by deleting the attributes not selected from a copy.
+	 */
+	private static Instance projectByCopy(Instance source, boolean[] selected, InstancesHeader header) {
+		Instance projected = source.copy();
+		for (int att = projected.numAttributes() - 2; att >= 0; att--) {
+			if (!selected[att]) {
+				projected.deleteAttributeAt(att);
+			}
+		}
+		projected.setDataset(header);
+		return projected;
+	}
+
+	private static int[] indexes(boolean[] selected) {
+		int size = 1;
+		for (boolean s : selected) {
+			if (s) {
+				size++;
+			}
+		}
+		int[] indexes = new int[size];
+		int index = 0;
+		for (int att = 0; att < selected.length; att++) {
+			if (selected[att]) {
+				indexes[index++] = att;
+			}
+		}
+		indexes[index] = selected.length;
+		return indexes;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.classIndex(), actual.classIndex());
+		assertEquals(expected.weight(), actual.weight(), EPS);
+		assertEquals(expected.classValue(), actual.classValue(), EPS);
+		for (int i = 0; i < expected.numAttributes(); i++) {
+			assertEquals(expected.value(i), actual.value(i), EPS);
+			assertEquals(expected.isMissing(i), actual.isMissing(i));
+		}
+		assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), EPS);
+	}
+
+	private static void compare(boolean[] selected) {
+		int[] indexes = indexes(selected);
+		InstancesHeader header = header(indexes.length - 1);
+		Instance source = source();
+		Instance expected = projectByCopy(source, selected, header);
+		Instance projected = new ProjectedInstance(source, indexes, header);
+		assertSameInstance(expected, projected);
+		assertSameInstance(expected, projected.copy());
+	}
+
+	@Test
+	public void testSubspace() {
+		compare(new boolean[]{true, false, true, false, true});
+	}
+
+	@Test
+	public void testAllAttributes() {
+		compare(new boolean[]{true, true, true, true, true});
+	}
+
+	@Test
+	public void testOnlyClass() {
+		compare(new boolean[]{false, false, false, false, false});
+	}
+
+	@Test
+	public void testWeight() {
+		Instance source = source();
+		int[] indexes = indexes(new boolean[]{true, true, false, false, false});
+		Instance projected = new ProjectedInstance(source, indexes, header(2), 4.0);
+		assertEquals(4.0, projected.weight(), EPS);
+		projected.setWeight(0.5);
+		assertEquals(0.5, projected.weight(), EPS);
+		assertEquals(2.5, source.weight(), EPS);
+	}
+
+	@Test
+	public void testAliasesSource() {
+		Instance source = source();
+		int[] indexes = indexes(new boolean[]{false, true, false, true, false});
+		Instance projected = new ProjectedInstance(source, indexes, header(2));
+		Instance copy = projected.copy();
+		source.setValue(3, 42.0);
+		assertEquals(42.0, projected.value(1), EPS);
+		assertEquals(3.0, copy.value(1), EPS);
+		copy.setValue(0, 5.0);
+		assertEquals(-1.0, source.value(1), EPS);
+	}
+
+	@Test
+	public void testCopyOnWrite() {
+		Instance source = source();
+		int[] indexes = indexes(new boolean[]{false, true, false, true, false});
+		Instance projected = new ProjectedInstance(source, indexes, header(2));
+		projected.setValue(0, 5.0);
+		assertEquals(5.0, projected.value(0), EPS);
+		assertEquals(3.0, projected.value(1), EPS);
+		assertEquals(-1.0, source.value(1), EPS);
+		//the projection no longer aliases its source
+		source.setValue(3, 42.0);
+		assertEquals(3.0, projected.value(1), EPS);
+	}
+
+	@Test
+	public void testSetClassValue() {
+		boolean[] selected = new boolean[]{true, false, true, false, true};
+		int[] indexes = indexes(selected);
+		InstancesHeader header = header(indexes.length - 1);
+		Instance source = source();
+		Instance expected = projectByCopy(source, selected, header);
+		Instance projected = new ProjectedInstance(source, indexes, header);
+		expected.setClassValue(0);
+		projected.setClassValue(0);
+		assertSameInstance(expected, projected);
+		assertSameInstance(expected, projected.copy());
+		assertEquals(1, source.classValue(), EPS);
+	}
+
+	@Test
+	public void testDeleteAndInsertAttributes() {
+		boolean[] selected = new boolean[]{true, true, false, true, true};
+		int[] indexes = indexes(selected);
+		InstancesHeader header = header(indexes.length - 1);
+		Instance source = source();
+		Instance expected = projectByCopy(source, selected, header);
+		Instance projected = new ProjectedInstance(source, indexes, header);
+		expected.deleteAttributeAt(1);
+		projected.deleteAttributeAt(1);
+		expected.insertAttributeAt(0);
+		projected.insertAttributeAt(0);
+		assertEquals(expected.numAttributes(), projected.numAttributes());
+		assertArrayEquals(expected.toDoubleArray(), projected.toDoubleArray(), EPS);
+		assertArrayEquals(new double[]{0.5, -1.0, Double.NaN, 3.0, 7.25, 1}, source.toDoubleArray(), EPS);
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		boolean[] selected = new boolean[]{true, false, false, true, true};
+		int[] indexes = indexes(selected);
+		InstancesHeader header = header(indexes.length - 1);
+		Instance source = source();
+		Instance projected = new ProjectedInstance(source, indexes, header);
+		Object copy = SerializeUtils.copyObject(projected);
+		assertTrue(copy instanceof ProjectedInstance);
+		assertSameInstance(projectByCopy(source, selected, header), (Instance) copy);
+	}
+}
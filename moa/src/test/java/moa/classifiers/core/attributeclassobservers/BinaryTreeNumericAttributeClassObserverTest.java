@@ -0,0 +1,61 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.HellingerSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+import org.junit.Test;
+
+/**
+ * Tests that the observer suggests the splits it suggested when it evaluated
+ * the candidates one by one, on a tree whose branches have not all seen the
+ * second class.
+ */
+public class BinaryTreeNumericAttributeClassObserverTest {
+
+	private static AttributeSplitSuggestion suggestion(SplitCriterion criterion) {
+		BinaryTreeNumericAttributeClassObserver observer = new BinaryTreeNumericAttributeClassObserver();
+		double[][] observations = {{1, 1}, {0, 1}, {2, 0}, {3, 0}, {2, 0}, {2, 0}};
+		for (double[] o : observations) {
+			observer.observeAttributeClass(o[0], (int) o[1], 1.0);
+		}
+		return observer.getBestEvaluatedSplitSuggestion(criterion, new double[]{4, 2}, 0, true);
+	}
+
+	private static void check(SplitCriterion criterion, double cutPoint, double merit, double[][] postSplitDists) {
+		AttributeSplitSuggestion suggestion = suggestion(criterion);
+		assertEquals(cutPoint, ((NumericAttributeBinaryTest) suggestion.splitTest).getSplitValue(), 0.0);
+		assertEquals(merit, suggestion.merit, 0.0);
+		assertEquals(postSplitDists.length, suggestion.resultingClassDistributions.length);
+		for (int i = 0; i < postSplitDists.length; i++) {
+			//the distributions are not padded with zeros
+			assertArrayEquals(postSplitDists[i], suggestion.resultingClassDistributions[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testHellinger() {
+		//the right branches of the root and of the split at 1 have only seen
+		//the first class, for which the Hellinger distance is 0
+		check(new HellingerSplitCriterion(), 0.0, 0.7653668647301797,
+				new double[][]{{0, 1}, {4, 1}});
+	}
+
+	@Test
+	public void testGini() {
+		check(new GiniSplitCriterion(), 1.0, 1.0, new double[][]{{0, 2}, {4}});
+	}
+
+	@Test
+	public void testInfoGain() {
+		InfoGainSplitCriterion criterion = new InfoGainSplitCriterion();
+		criterion.prepareForUse();
+		check(criterion, 1.0, 0.9182958340544894, new double[][]{{0, 2}, {4}});
+	}
+}
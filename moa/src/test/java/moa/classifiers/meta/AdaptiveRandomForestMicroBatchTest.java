@@ -0,0 +1,70 @@
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Tests that a forest trained in micro-batches, with one or several threads,
+ * predicts the same as a forest trained on each instance that is given the
+ * instances of a batch only once the batch is full.
+ */
+public class AdaptiveRandomForestMicroBatchTest {
+
+	private static AdaptiveRandomForest forest(String options, RandomRBFGeneratorDrift stream) throws Exception {
+		AdaptiveRandomForest forest = new AdaptiveRandomForest();
+		forest.getOptions().setViaCLIString("-s 5 " + options);
+		forest.setModelContext(stream.getHeader());
+		forest.prepareForUse();
+		return forest;
+	}
+
+	private static void compare(String options, int batchSize) throws Exception {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.getOptions().setViaCLIString("-s 0.01");
+		stream.prepareForUse();
+		AdaptiveRandomForest expected = forest("-B 1", stream);
+		Classifier actual = forest(options, stream);
+		List<Instance> pending = new ArrayList<Instance>();
+		for (int n = 0; n < 2000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			//test-then-train, as in a prequential evaluation
+			assertArrayEquals(expected.getVotesForInstance(inst), actual.getVotesForInstance(inst), 0.0);
+			actual.trainOnInstance(inst);
+			pending.add(inst);
+			if (pending.size() == batchSize) {
+				for (Instance p : pending) {
+					expected.trainOnInstance(p);
+				}
+				pending.clear();
+			}
+			if (n % 301 == 0) {
+				//a copy keeps the pending batch, and copying does not train on it
+				actual = actual.copy();
+			}
+		}
+	}
+
+	@Test
+	public void testSequentialBatches() throws Exception {
+		compare("-B 7", 7);
+	}
+
+	@Test
+	public void testParallelBatches() throws Exception {
+		compare("-B 7 -j 3", 7);
+	}
+
+	@Test
+	public void testSingleInstanceBatches() throws Exception {
+		compare("-B 1 -j 2", 1);
+	}
+}
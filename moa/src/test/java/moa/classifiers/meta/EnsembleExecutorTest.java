@@ -0,0 +1,155 @@
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.core.DoubleVector;
+import moa.core.SerializeUtils;
+import moa.streams.generators.AgrawalGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Tests that the executor combines the votes of the members as the ensembles
+ * did when they asked each member in turn, with one or several threads.
+ */
+public class EnsembleExecutorTest {
+
+	private static Classifier[] trainedMembers(AgrawalGenerator stream, int numMembers) {
+		Classifier[] members = new Classifier[numMembers];
+		for (int i = 0; i < numMembers; i++) {
+			members[i] = i % 2 == 0 ? new HoeffdingTree() : new NaiveBayes();
+			members[i].setModelContext(stream.getHeader());
+			members[i].prepareForUse();
+		}
+		//every member sees different instances, and the last one none
+		for (int n = 0; n < 3000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			int i = n % numMembers;
+			if (i < numMembers - 1) {
+				members[i].trainOnInstance(inst);
+			}
+		}
+		return members;
+	}
+
+	private static double[] combinedVoteReference(Classifier[] members, Instance inst) {
+		DoubleVector combinedVote = new DoubleVector();
+		for (int i = 0; i < members.length; i++) {
+			DoubleVector vote = new DoubleVector(members[i].getVotesForInstance(inst));
+			if (vote.sumOfValues() > 0.0) {
+				vote.normalize();
+				combinedVote.addValues(vote);
+			}
+		}
+		return combinedVote.getArrayRef();
+	}
+
+	private static void compare(int numberOfJobs) {
+		AgrawalGenerator stream = new AgrawalGenerator();
+		stream.prepareForUse();
+		Classifier[] members = trainedMembers(stream, 7);
+		EnsembleExecutor executor = new EnsembleExecutor(numberOfJobs);
+		assertEquals(numberOfJobs > 1, executor.isParallel());
+		for (int n = 0; n < 300; n++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(combinedVoteReference(members, inst), executor.getCombinedVote(members, inst), 0.0);
+			double[][] votes = executor.getVotes(members, 3, inst);
+			assertEquals(3, votes.length);
+			for (int i = 0; i < votes.length; i++) {
+				assertArrayEquals(members[i].getVotesForInstance(inst), votes[i], 0.0);
+			}
+		}
+		//no members
+		Instance inst = stream.nextInstance().getData();
+		assertEquals(0, executor.getCombinedVote(new Classifier[0], inst).length);
+		assertEquals(0, executor.getVotes(members, 0, inst).length);
+		executor.shutdown();
+	}
+
+	@Test
+	public void testSequential() {
+		compare(1);
+	}
+
+	@Test
+	public void testParallel() {
+		compare(3);
+	}
+
+	@Test
+	public void testEveryMemberOnce() throws Exception {
+		EnsembleExecutor executor = new EnsembleExecutor(4);
+		//fewer and more members than threads
+		for (int n : new int[]{0, 1, 3, 4, 101}) {
+			final AtomicIntegerArray calls = new AtomicIntegerArray(n);
+			executor.forEachMember(n, new IntConsumer() {
+				@Override
+				public void accept(int i) {
+					calls.incrementAndGet(i);
+				}
+			});
+			for (int i = 0; i < n; i++) {
+				assertEquals(1, calls.get(i));
+			}
+		}
+		executor.shutdown();
+		//the pool is created again after a shutdown or a copy
+		EnsembleExecutor copy = (EnsembleExecutor) SerializeUtils.copyObject(executor);
+		final AtomicIntegerArray calls = new AtomicIntegerArray(10);
+		copy.forEachMember(10, new IntConsumer() {
+			@Override
+			public void accept(int i) {
+				calls.incrementAndGet(i);
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			assertEquals(1, calls.get(i));
+		}
+		copy.shutdown();
+	}
+
+	@Test
+	public void testFailingMember() {
+		EnsembleExecutor executor = new EnsembleExecutor(3);
+		final IllegalStateException exception = new IllegalStateException();
+		final AssertionError error = new AssertionError();
+		try {
+			executor.forEachMember(10, new IntConsumer() {
+				@Override
+				public void accept(int i) {
+					if (i == 7) {
+						throw exception;
+					}
+				}
+			});
+			fail();
+		} catch (IllegalStateException ex) {
+			assertSame(exception, ex);
+		}
+		try {
+			executor.forEachMember(10, new IntConsumer() {
+				@Override
+				public void accept(int i) {
+					if (i == 2) {
+						throw error;
+					}
+				}
+			});
+			fail();
+		} catch (AssertionError ex) {
+			assertSame(error, ex);
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,55 @@
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import moa.streams.ConceptDriftStream;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Tests that Streaming Random Patches gives the same predictions with one or
+ * several threads, on a stream whose drift makes the learners start bkg
+ * learners and reset.
+ */
+public class StreamingRandomPatchesThreadsTest {
+
+	private static StreamingRandomPatches ensemble(String options, ConceptDriftStream stream) throws Exception {
+		StreamingRandomPatches ensemble = new StreamingRandomPatches();
+		ensemble.getOptions().setViaCLIString("-s 4 " + options);
+		ensemble.setModelContext(stream.getHeader());
+		ensemble.prepareForUse();
+		return ensemble;
+	}
+
+	private static void compare(String trainingMethod) throws Exception {
+		ConceptDriftStream stream = new ConceptDriftStream();
+		stream.getOptions().setViaCLIString("-s (generators.AgrawalGenerator -f 1) "
+				+ "-d (generators.AgrawalGenerator -f 5) -p 1500 -w 50");
+		stream.prepareForUse();
+		StreamingRandomPatches sequential = ensemble(trainingMethod + " -j 1", stream);
+		StreamingRandomPatches parallel = ensemble(trainingMethod + " -j 3", stream);
+		for (int n = 0; n < 4000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(sequential.getVotesForInstance(inst), parallel.getVotesForInstance(inst), 0.0);
+			sequential.trainOnInstance(inst);
+			parallel.trainOnInstance(inst);
+		}
+	}
+
+	@Test
+	public void testRandomPatches() throws Exception {
+		compare("-t 2");
+	}
+
+	@Test
+	public void testRandomSubspaces() throws Exception {
+		compare("-t 0");
+	}
+
+	@Test
+	public void testResampling() throws Exception {
+		compare("-t 1");
+	}
+}
@@ -0,0 +1,145 @@
+package moa.classifiers.rules.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import moa.classifiers.rules.core.conditionaltests.NominalAttributeBinaryRulePredicate;
+import moa.classifiers.rules.core.conditionaltests.NumericAttributeBinaryRulePredicate;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Tests that the rules found by the coverage index are the ones whose
+ * predicates all hold, as when every predicate is evaluated.
+ */
+public class RuleCoverageIndexTest {
+	private static final int NUM_NUMERIC = 4;
+	//the class is not the last attribute, to check the mapping of the indices
+	private static final int CLASS_INDEX = 2;
+
+	private static InstancesHeader header() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < NUM_NUMERIC + 1; i++) {
+			if (i == CLASS_INDEX) {
+				attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+			}
+			attributes.add(new Attribute("x" + i));
+		}
+		attributes.add(new Attribute("n", Arrays.asList("u", "v", "w")));
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(CLASS_INDEX);
+		return new InstancesHeader(instances);
+	}
+
+	private static Predicate randomPredicate(Random random) {
+		Predicate predicate;
+		int kind = random.nextInt(10);
+		if (kind == 0) {
+			predicate = new NominalAttributeBinaryRulePredicate(NUM_NUMERIC + 1, random.nextInt(3));
+		} else if (kind == 1) {
+			//equality tests are evaluated one by one
+			predicate = new NumericAttributeBinaryRulePredicate(random.nextInt(NUM_NUMERIC + 1), random.nextInt(5), 0);
+		} else if (kind == 2) {
+			predicate = new NumericAttributeBinaryRulePredicate(random.nextInt(NUM_NUMERIC + 1), Double.NaN, 1 + random.nextInt(2));
+		} else {
+			//small integer thresholds, so that values fall exactly on them
+			predicate = new NumericAttributeBinaryRulePredicate(random.nextInt(NUM_NUMERIC + 1), random.nextInt(5), 1 + random.nextInt(2));
+		}
+		if (random.nextInt(4) == 0) {
+			predicate.negateCondition();
+		}
+		return predicate;
+	}
+
+	private static int[] evaluateAll(List<Predicate[]> rules, Instance inst) {
+		int[] covering = new int[rules.size()];
+		int count = 0;
+		for (int r = 0; r < rules.size(); r++) {
+			boolean covers = true;
+			for (Predicate predicate : rules.get(r)) {
+				covers &= predicate.evaluate(inst);
+			}
+			if (covers) {
+				covering[count++] = r;
+			}
+		}
+		return Arrays.copyOf(covering, count);
+	}
+
+	private static Instance randomInstance(InstancesHeader header, Random random) {
+		Instance inst = new DenseInstance(header.numAttributes());
+		inst.setDataset(header);
+		for (int i = 0; i < header.numAttributes(); i++) {
+			if (i == CLASS_INDEX) {
+				inst.setValue(i, random.nextInt(2));
+			} else if (random.nextInt(8) == 0) {
+				inst.setMissing(i);
+			} else if (header.attribute(i).isNominal()) {
+				inst.setValue(i, random.nextInt(3));
+			} else {
+				inst.setValue(i, random.nextInt(11) * 0.5 - 0.5);
+			}
+		}
+		return inst;
+	}
+
+	private static void compare(int numRules, long seed) {
+		Random random = new Random(seed);
+		List<Predicate[]> rules = new ArrayList<Predicate[]>();
+		for (int r = 0; r < numRules; r++) {
+			Predicate[] predicates = new Predicate[random.nextInt(5)];
+			for (int p = 0; p < predicates.length; p++) {
+				predicates[p] = randomPredicate(random);
+			}
+			rules.add(predicates);
+		}
+		RuleCoverageIndex index = new RuleCoverageIndex(rules);
+		assertEquals(numRules, index.getNumRules());
+		InstancesHeader header = header();
+		for (int n = 0; n < 2000; n++) {
+			Instance inst = randomInstance(header, random);
+			assertArrayEquals(evaluateAll(rules, inst), index.getCoveringRules(inst));
+		}
+	}
+
+	@Test
+	public void testFewRules() {
+		compare(10, 1);
+	}
+
+	@Test
+	public void testManyRules() {
+		//more rules than the bits of a word
+		compare(300, 2);
+	}
+
+	@Test
+	public void testNoRules() {
+		compare(0, 3);
+	}
+
+	@Test
+	public void testRulesWithoutPredicates() {
+		List<Predicate[]> rules = new ArrayList<Predicate[]>();
+		rules.add(new Predicate[0]);
+		rules.add(new Predicate[]{new NumericAttributeBinaryRulePredicate(0, 1.0, 1)});
+		rules.add(new Predicate[0]);
+		RuleCoverageIndex index = new RuleCoverageIndex(rules);
+		Instance inst = randomInstance(header(), new Random(4));
+		inst.setValue(0, 2.0);
+		assertArrayEquals(new int[]{0, 2}, index.getCoveringRules(inst));
+		inst.setValue(0, 1.0);
+		assertArrayEquals(new int[]{0, 1, 2}, index.getCoveringRules(inst));
+	}
+}
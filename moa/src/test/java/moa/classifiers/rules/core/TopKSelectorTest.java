@@ -0,0 +1,106 @@
+package moa.classifiers.rules.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the selector keeps the same candidates as sorting all of them
+ * by score, the first offered winning ties and NaN scores coming last.
+ */
+public class TopKSelectorTest {
+
+	private static int[] sortAll(final double[] scores, int k) {
+		List<Integer> candidates = new ArrayList<Integer>();
+		for (int i = 0; i < scores.length; i++) {
+			candidates.add(i);
+		}
+		//the sort is stable, so candidates with the same score stay in offering order
+		Collections.sort(candidates, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				double sa = scores[a];
+				double sb = scores[b];
+				if (Double.isNaN(sa) || Double.isNaN(sb)) {
+					return Boolean.compare(Double.isNaN(sa), Double.isNaN(sb));
+				}
+				return sa == sb ? 0 : (sa > sb ? -1 : 1);
+			}
+		});
+		int[] best = new int[Math.min(k, scores.length)];
+		for (int i = 0; i < best.length; i++) {
+			best[i] = candidates.get(i);
+		}
+		return best;
+	}
+
+	private static double randomScore(Random random) {
+		int kind = random.nextInt(10);
+		if (kind == 0) {
+			return Double.NaN;
+		} else if (kind == 1) {
+			return random.nextBoolean() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		} else if (kind == 2) {
+			return random.nextBoolean() ? 0.0 : -0.0;
+		}
+		//few distinct scores, so that there are many ties
+		return random.nextInt(8);
+	}
+
+	@Test
+	public void testRandomScores() {
+		Random random = new Random(1);
+		//the selector is reused after it is emptied
+		TopKSelector selector = new TopKSelector(5);
+		TopKSelector indexOrderSelector = new TopKSelector(5);
+		for (int trial = 0; trial < 500; trial++) {
+			double[] scores = new double[random.nextInt(20)];
+			for (int i = 0; i < scores.length; i++) {
+				scores[i] = randomScore(random);
+				selector.offer(i, scores[i]);
+				indexOrderSelector.offer(i, scores[i]);
+			}
+			int[] expected = sortAll(scores, 5);
+			assertEquals(expected.length, selector.size());
+			assertArrayEquals(expected, selector.removeAll());
+			assertEquals(0, selector.size());
+			Arrays.sort(expected);
+			assertArrayEquals(expected, indexOrderSelector.removeAllInIndexOrder());
+		}
+	}
+
+	@Test
+	public void testMoreThanOffered() {
+		TopKSelector selector = new TopKSelector(10);
+		selector.offer(7, 1.0);
+		selector.offer(3, 2.0);
+		selector.offer(5, Double.NaN);
+		assertArrayEquals(new int[]{3, 7, 5}, selector.removeAll());
+		assertArrayEquals(new int[0], selector.removeAll());
+	}
+
+	@Test
+	public void testOfferResult() {
+		TopKSelector selector = new TopKSelector(1);
+		assertTrue(selector.offer(0, 1.0));
+		assertFalse(selector.offer(1, 1.0));
+		assertFalse(selector.offer(2, Double.NaN));
+		assertTrue(selector.offer(3, 2.0));
+		assertArrayEquals(new int[]{3}, selector.removeAll());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidK() {
+		new TopKSelector(0);
+	}
+}
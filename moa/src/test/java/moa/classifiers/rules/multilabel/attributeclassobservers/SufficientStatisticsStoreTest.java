@@ -0,0 +1,161 @@
+package moa.classifiers.rules.multilabel.attributeclassobservers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import moa.core.DoubleVector;
+
+import org.junit.Test;
+
+/**
+ * Tests that the packed store accumulates and transfers the same statistics
+ * as the DoubleVector of each output that the E-BST nodes kept before.
+ */
+public class SufficientStatisticsStoreTest {
+	private static final int NUM_VECTORS = 3;
+
+	private static DoubleVector[] randomStatistics(Random random, int maxWidth) {
+		DoubleVector[] statistics = new DoubleVector[NUM_VECTORS];
+		for (int i = 0; i < NUM_VECTORS; i++) {
+			double[] values = new double[1 + random.nextInt(maxWidth)];
+			for (int k = 0; k < values.length; k++) {
+				values[k] = random.nextGaussian() * 10;
+			}
+			statistics[i] = new DoubleVector(values);
+		}
+		return statistics;
+	}
+
+	private static DoubleVector[] zeros() {
+		DoubleVector[] vectors = new DoubleVector[NUM_VECTORS];
+		for (int i = 0; i < NUM_VECTORS; i++) {
+			vectors[i] = new DoubleVector();
+		}
+		return vectors;
+	}
+
+	private static DoubleVector[] copy(DoubleVector[] vectors) {
+		DoubleVector[] copy = new DoubleVector[vectors.length];
+		for (int i = 0; i < vectors.length; i++) {
+			copy[i] = new DoubleVector(vectors[i]);
+		}
+		return copy;
+	}
+
+	private static void assertSameVectors(DoubleVector[] expected, DoubleVector[] actual, int width) {
+		for (int i = 0; i < NUM_VECTORS; i++) {
+			for (int k = 0; k < width; k++) {
+				assertEquals(expected[i].getValue(k), actual[i].getValue(k), 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Rounds the statistics to floats, as a store in single precision
+	 * keeps them.
+	 */
+	private static DoubleVector[] toFloat(DoubleVector[] statistics) {
+		DoubleVector[] rounded = new DoubleVector[statistics.length];
+		for (int i = 0; i < statistics.length; i++) {
+			double[] values = statistics[i].getArrayCopy();
+			for (int k = 0; k < values.length; k++) {
+				values[k] = (float) values[k];
+			}
+			rounded[i] = new DoubleVector(values);
+		}
+		return rounded;
+	}
+
+	private static void addRounded(DoubleVector[] row, DoubleVector[] statistics, boolean singlePrecision) {
+		for (int i = 0; i < NUM_VECTORS; i++) {
+			double[] values = statistics[i].getArrayRef();
+			for (int k = 0; k < values.length; k++) {
+				if (singlePrecision) {
+					//the sum is computed in single precision
+					row[i].setValue(k, (float) row[i].getValue(k) + (float) values[k]);
+				} else {
+					row[i].setValue(k, row[i].getValue(k) + values[k]);
+				}
+			}
+		}
+	}
+
+	private static void compare(boolean singlePrecision) {
+		Random random = new Random(1);
+		SufficientStatisticsStore store = new SufficientStatisticsStore(NUM_VECTORS, singlePrecision);
+		List<DoubleVector[]> rows = new ArrayList<DoubleVector[]>();
+		DoubleVector[] total = zeros();
+		for (int n = 0; n < 2000; n++) {
+			//the vectors get wider once there are rows, so the store has to widen them
+			DoubleVector[] statistics = randomStatistics(random, n < 1000 ? 2 : 4);
+			if (rows.isEmpty() || random.nextInt(3) == 0) {
+				assertEquals(rows.size(), store.addRow(statistics));
+				rows.add(singlePrecision ? toFloat(statistics) : copy(statistics));
+			} else {
+				int row = random.nextInt(rows.size());
+				store.addToRow(row, statistics);
+				addRounded(rows.get(row), statistics, singlePrecision);
+			}
+			for (int i = 0; i < NUM_VECTORS; i++) {
+				total[i].addValues(statistics[i]);
+			}
+		}
+		assertEquals(rows.size(), store.getNumRows());
+		assertEquals(4, store.getWidth());
+
+		//moves every row to the left side of a split and back, as the split search does
+		DoubleVector[] expectedLeft = zeros();
+		DoubleVector[] expectedRight = copy(total);
+		DoubleVector[] actualLeft = zeros();
+		DoubleVector[] actualRight = copy(total);
+		for (int row = 0; row < rows.size(); row++) {
+			for (int i = 0; i < NUM_VECTORS; i++) {
+				expectedLeft[i].addValues(rows.get(row)[i]);
+				expectedRight[i].subtractValues(rows.get(row)[i]);
+			}
+			store.transferRow(row, actualLeft, actualRight);
+			assertSameVectors(expectedLeft, actualLeft, store.getWidth());
+			assertSameVectors(expectedRight, actualRight, store.getWidth());
+		}
+		for (int row = rows.size() - 1; row >= 0; row--) {
+			for (int i = 0; i < NUM_VECTORS; i++) {
+				expectedLeft[i].subtractValues(rows.get(row)[i]);
+				expectedRight[i].addValues(rows.get(row)[i]);
+			}
+			store.transferRow(row, actualRight, actualLeft);
+			assertSameVectors(expectedLeft, actualLeft, store.getWidth());
+			assertSameVectors(expectedRight, actualRight, store.getWidth());
+		}
+	}
+
+	@Test
+	public void testDoublePrecision() {
+		compare(false);
+	}
+
+	@Test
+	public void testSinglePrecision() {
+		compare(true);
+	}
+
+	@Test
+	public void testMissingVectors() {
+		SufficientStatisticsStore store = new SufficientStatisticsStore(2, false);
+		assertEquals(0, store.getNumRows());
+		assertEquals(0, store.getWidth());
+		int row = store.addRow(new DoubleVector[]{null, new DoubleVector(new double[]{1, 2})});
+		store.addToRow(row, new DoubleVector[]{new DoubleVector(new double[]{3}), null});
+		DoubleVector[] left = new DoubleVector[]{new DoubleVector(), new DoubleVector()};
+		DoubleVector[] right = new DoubleVector[]{new DoubleVector(), new DoubleVector()};
+		store.transferRow(row, left, right);
+		assertEquals(3, left[0].getValue(0), 0.0);
+		assertEquals(0, left[0].getValue(1), 0.0);
+		assertEquals(1, left[1].getValue(0), 0.0);
+		assertEquals(2, left[1].getValue(1), 0.0);
+		assertEquals(-3, right[0].getValue(0), 0.0);
+		assertEquals(-2, right[1].getValue(1), 0.0);
+	}
+}
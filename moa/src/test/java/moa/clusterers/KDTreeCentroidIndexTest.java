@@ -0,0 +1,121 @@
+package moa.clusterers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the kd-tree centroid index gives the same answers as a linear
+ * scan over the centres while the centres move, appear and disappear.
+ */
+public class KDTreeCentroidIndexTest {
+	private static final int DIMENSIONS = 3;
+	private static final int NUM_IDS = 120;
+
+	private static double[] randomPoint(Random random) {
+		double[] point = new double[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			point[i] = random.nextDouble();
+		}
+		return point;
+	}
+
+	private static void compareQueries(LinearCentroidIndex expected, KDTreeCentroidIndex actual,
+			double[][] centers, Random random) {
+		assertEquals(expected.size(), actual.size());
+		for (int q = 0; q < 20; q++) {
+			double[] point;
+			int id = random.nextInt(NUM_IDS);
+			//queries exactly at a centre exercise the ties at distance zero
+			if (q % 4 == 0 && centers[id] != null) {
+				point = centers[id].clone();
+			} else {
+				point = randomPoint(random);
+			}
+			int exclude = random.nextBoolean() ? -1 : id;
+			assertEquals(expected.nearest(point, exclude), actual.nearest(point, exclude));
+			if (actual.contains(id)) {
+				assertEquals(expected.distance(point, id), actual.distance(point, id), 0.0);
+			}
+			double slack = random.nextDouble() * 0.1;
+			int[] within = expected.candidatesWithin(point, slack);
+			int[] candidates = actual.candidatesWithin(point, slack);
+			Arrays.sort(candidates);
+			for (int c : within) {
+				assertTrue("missing candidate " + c, Arrays.binarySearch(candidates, c) >= 0);
+			}
+			for (int c : candidates) {
+				assertTrue(actual.contains(c));
+			}
+		}
+	}
+
+	@Test
+	public void testMovingCenters() {
+		Random random = new Random(1);
+		LinearCentroidIndex expected = new LinearCentroidIndex();
+		KDTreeCentroidIndex actual = new KDTreeCentroidIndex();
+		double[][] centers = new double[NUM_IDS][];
+		for (int n = 0; n < 5000; n++) {
+			int id = random.nextInt(NUM_IDS);
+			int operation = random.nextInt(10);
+			if (operation == 0) {
+				expected.remove(id);
+				actual.remove(id);
+				centers[id] = null;
+			} else {
+				double[] center;
+				if (centers[id] == null || operation == 1) {
+					center = randomPoint(random);
+				} else {
+					//a micro-cluster absorbing a point moves a little
+					center = centers[id].clone();
+					for (int i = 0; i < DIMENSIONS; i++) {
+						center[i] += (random.nextDouble() - 0.5) * 0.01;
+					}
+				}
+				double extent = random.nextDouble() * 0.05;
+				expected.put(id, center, extent);
+				actual.put(id, center, extent);
+				centers[id] = center;
+			}
+			assertEquals(expected.contains(id), actual.contains(id));
+			if (n % 10 == 0) {
+				compareQueries(expected, actual, centers, random);
+			}
+			if (n == 2500) {
+				expected.clear();
+				actual.clear();
+				Arrays.fill(centers, null);
+			}
+		}
+	}
+
+	@Test
+	public void testTiesGoToSmallestId() {
+		KDTreeCentroidIndex index = new KDTreeCentroidIndex();
+		double[] center = new double[]{0.5, 0.5, 0.5};
+		for (int id = 40; id >= 0; id--) {
+			index.put(id, center, 0.0);
+		}
+		assertEquals(0, index.nearest(new double[]{0.1, 0.2, 0.3}, -1));
+		assertEquals(1, index.nearest(new double[]{0.1, 0.2, 0.3}, 0));
+	}
+
+	@Test
+	public void testEmpty() {
+		KDTreeCentroidIndex index = new KDTreeCentroidIndex();
+		assertEquals(-1, index.nearest(new double[]{0, 0}, -1));
+		assertArrayEquals(new int[0], index.candidatesWithin(new double[]{0, 0}, 1.0));
+		index.put(3, new double[]{1, 1}, 0.5);
+		assertEquals(-1, index.nearest(new double[]{0, 0}, 3));
+		index.remove(3);
+		assertEquals(0, index.size());
+		assertEquals(-1, index.nearest(new double[]{0, 0}, -1));
+	}
+}
@@ -0,0 +1,115 @@
+package moa.clusterers.dstream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests DensityGridMap against the HashMap it replaces in D-Stream.
+ */
+public class DensityGridMapTest {
+	private static final int RANGE = 9;
+
+	private static DensityGrid grid(int x, int y) {
+		return new DensityGrid(new int[]{x, y});
+	}
+
+	private static void assertSameContents(Map<DensityGrid, Integer> expected, DensityGridMap<Integer> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		for (int x = 0; x < RANGE; x++) {
+			for (int y = 0; y < RANGE; y++) {
+				DensityGrid dg = grid(x, y);
+				assertEquals(expected.containsKey(dg), actual.containsKey(dg));
+				assertEquals(expected.get(dg), actual.get(dg));
+				int position = actual.indexOf(dg.getCoordinates());
+				assertEquals(expected.containsKey(dg), position >= 0);
+				if (position >= 0) {
+					assertEquals(dg, actual.keyAt(position));
+					assertEquals(expected.get(dg), actual.valueAt(position));
+				}
+			}
+		}
+		Map<DensityGrid, Integer> iterated = new HashMap<DensityGrid, Integer>();
+		for (int position = 0; position < actual.size(); position++) {
+			iterated.put(actual.keyAt(position), actual.valueAt(position));
+		}
+		assertEquals(expected, iterated);
+	}
+
+	@Test
+	public void testRandomOperations() {
+		//few distinct grids, so that probe sequences collide and removals shift entries back
+		Random random = new Random(1);
+		Map<DensityGrid, Integer> expected = new HashMap<DensityGrid, Integer>();
+		DensityGridMap<Integer> actual = new DensityGridMap<Integer>();
+		for (int n = 0; n < 20000; n++) {
+			DensityGrid dg = grid(random.nextInt(RANGE), random.nextInt(RANGE));
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(dg), actual.remove(dg));
+			} else {
+				expected.put(dg, n);
+				actual.put(dg, n);
+			}
+			if (n % 97 == 0) {
+				assertSameContents(expected, actual);
+			}
+			if (n % 5003 == 0) {
+				expected.clear();
+				actual.clear();
+			}
+		}
+		assertSameContents(expected, actual);
+	}
+
+	@Test
+	public void testRemoveUntilEmpty() {
+		Map<DensityGrid, Integer> expected = new HashMap<DensityGrid, Integer>();
+		DensityGridMap<Integer> actual = new DensityGridMap<Integer>();
+		for (int x = 0; x < RANGE; x++) {
+			for (int y = 0; y < RANGE; y++) {
+				expected.put(grid(x, y), x * RANGE + y);
+				actual.put(grid(x, y), x * RANGE + y);
+			}
+		}
+		assertSameContents(expected, actual);
+		//removes in an order unrelated to the insertion order
+		for (int i = 0; i < RANGE * RANGE; i++) {
+			int cell = (i * 37) % (RANGE * RANGE);
+			DensityGrid dg = grid(cell / RANGE, cell % RANGE);
+			assertEquals(expected.remove(dg), actual.remove(dg));
+			assertSameContents(expected, actual);
+		}
+		assertTrue(actual.isEmpty());
+		assertNull(actual.remove(grid(0, 0)));
+	}
+
+	@Test
+	public void testPutKeepsFirstKey() {
+		DensityGridMap<Integer> map = new DensityGridMap<Integer>();
+		DensityGrid first = grid(1, 2);
+		map.put(first, 1);
+		map.put(grid(1, 2), 2);
+		assertEquals(1, map.size());
+		assertSame(first, map.keyAt(0));
+		assertEquals(Integer.valueOf(2), map.get(first));
+	}
+
+	@Test
+	public void testEmpty() {
+		DensityGridMap<Integer> map = new DensityGridMap<Integer>();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(grid(0, 0)));
+		assertNull(map.get(grid(0, 0)));
+		assertNull(map.remove(grid(0, 0)));
+		assertEquals(-1, map.indexOf(new int[]{0, 0}));
+	}
+}
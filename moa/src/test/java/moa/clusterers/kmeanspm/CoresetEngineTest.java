@@ -0,0 +1,241 @@
+package moa.clusterers.kmeanspm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the k-means++ seeding and the k-means algorithm of the flat
+ * coreset store give the same results as the list-based versions they
+ * replace, with one or several threads, and that slots are recycled.
+ */
+public class CoresetEngineTest {
+	private static final int DIMENSION = 4;
+
+	/**
+	 * Squared distance between a centre and a point with the weight in its
+	 * first element. Metric asserts the opposite lengths for an offset, so
+	 * it cannot be used with assertions enabled.
+	 */
+	private static double distanceSquared(double[] center, double[] point) {
+		double distance = 0.0;
+		for (int j = 0; j < center.length; j++) {
+			double d = center[j] - point[j + 1];
+			distance += d * d;
+		}
+		return distance;
+	}
+
+	/**
+	 * k-means++ seeding over points with the weight in their first element,
+	 * as it was computed before the flat store.
+	 */
+	private static double[][] kMeansPlusPlusReference(int k, List<double[]> input, Random random) {
+		int n = input.size();
+		int d = input.get(0).length - 1;
+		double[][] centers = new double[k][];
+		double[] lastCenter = new double[d];
+		System.arraycopy(input.get(random.nextInt(n)), 1, lastCenter, 0, d);
+		centers[0] = lastCenter;
+		double[] distance = new double[n];
+		for (int j = 0; j < n; j++) {
+			distance[j] = Double.POSITIVE_INFINITY;
+		}
+		for (int i = 1; i < k; i++) {
+			double sum = 0.0;
+			for (int j = 0; j < n; j++) {
+				double[] point = input.get(j);
+				distance[j] = Math.min(distance[j], point[0] * distanceSquared(lastCenter, point));
+				sum += distance[j];
+			}
+			int candidate = 0;
+			if (sum > 0) {
+				double nextCenterValue = sum * random.nextDouble();
+				double currentValue = distance[0];
+				while (!(nextCenterValue < currentValue)) {
+					currentValue += distance[++candidate];
+				}
+			}
+			lastCenter = new double[d];
+			System.arraycopy(input.get(candidate), 1, lastCenter, 0, d);
+			centers[i] = lastCenter;
+		}
+		return centers;
+	}
+
+	/**
+	 * k-means over points with the weight in their first element, as it was
+	 * computed before the flat store.
+	 */
+	private static double kMeansReference(double[][] center, List<double[]> input) {
+		int k = center.length;
+		int d = center[0].length;
+		int size = input.size();
+		double[][] newCenter = new double[k][d];
+		double[] newCenterWeight = new double[k];
+		int[] nearestCluster = new int[size];
+		boolean converged;
+		do {
+			for (int i = 0; i < k; i++) {
+				for (int j = 0; j < d; j++) {
+					newCenter[i][j] = 0.0;
+				}
+				newCenterWeight[i] = 0.0;
+			}
+			for (int l = 0; l < size; l++) {
+				double[] point = input.get(l);
+				double minDistance = Double.POSITIVE_INFINITY;
+				int closestCluster = -1;
+				for (int i = 0; i < k; i++) {
+					double distance = Math.sqrt(distanceSquared(center[i], point));
+					if (distance < minDistance) {
+						closestCluster = i;
+						minDistance = distance;
+					}
+				}
+				for (int j = 0; j < d; j++) {
+					newCenter[closestCluster][j] += point[0] * point[j + 1];
+				}
+				newCenterWeight[closestCluster] += point[0];
+				nearestCluster[l] = closestCluster;
+			}
+			converged = true;
+			for (int i = 0; i < k; i++) {
+				for (int j = 0; j < d; j++) {
+					if (newCenterWeight[i] != 0.0) {
+						double newValue = newCenter[i][j] / newCenterWeight[i];
+						if (newValue != center[i][j]) {
+							converged = false;
+						}
+						center[i][j] = newValue;
+					}
+				}
+			}
+		} while (!converged);
+		double costs = 0.0;
+		for (int l = 0; l < size; l++) {
+			double[] point = input.get(l);
+			costs += point[0] * distanceSquared(center[nearestCluster[l]], point);
+		}
+		return costs;
+	}
+
+	private static List<double[]> randomPoints(int n, Random random) {
+		List<double[]> points = new ArrayList<double[]>(n);
+		for (int i = 0; i < n; i++) {
+			double[] point = new double[DIMENSION + 1];
+			point[0] = 1 + random.nextInt(5);
+			//points around a few centres, so that k-means takes several iterations
+			int centre = random.nextInt(6);
+			for (int j = 1; j <= DIMENSION; j++) {
+				point[j] = centre + random.nextGaussian() * 0.7;
+			}
+			points.add(point);
+		}
+		return points;
+	}
+
+	private static CoresetEngine toEngine(List<double[]> points, int numberOfJobs) {
+		//starts small, so that the store has to grow
+		CoresetEngine engine = new CoresetEngine(DIMENSION, 1);
+		engine.setNumberOfJobs(numberOfJobs);
+		double[] coordinates = new double[DIMENSION];
+		for (double[] point : points) {
+			System.arraycopy(point, 1, coordinates, 0, DIMENSION);
+			engine.add(point[0], coordinates);
+		}
+		return engine;
+	}
+
+	private static double[][] copy(double[][] centers) {
+		double[][] copy = new double[centers.length][];
+		for (int i = 0; i < centers.length; i++) {
+			copy[i] = centers[i].clone();
+		}
+		return copy;
+	}
+
+	private static void compare(List<double[]> points, int k, int numberOfJobs) {
+		CoresetEngine engine = toEngine(points, numberOfJobs);
+		Random expectedRandom = new Random(7);
+		Random actualRandom = new Random(7);
+		double[][] expected = kMeansPlusPlusReference(k, points, expectedRandom);
+		double[][] actual = engine.kMeansPlusPlusCentroids(k, actualRandom);
+		for (int i = 0; i < k; i++) {
+			assertArrayEquals(expected[i], actual[i], 0.0);
+		}
+		//both drew the same random numbers
+		assertEquals(expectedRandom.nextLong(), actualRandom.nextLong());
+
+		double[][] expectedCenters = copy(expected);
+		double[][] actualCenters = copy(expected);
+		assertEquals(kMeansReference(expectedCenters, points), engine.kMeans(actualCenters), 0.0);
+		for (int i = 0; i < k; i++) {
+			assertArrayEquals(expectedCenters[i], actualCenters[i], 0.0);
+		}
+		//stops the worker threads
+		engine.setNumberOfJobs(1);
+	}
+
+	@Test
+	public void testSequential() {
+		compare(randomPoints(5000, new Random(1)), 10, 1);
+	}
+
+	@Test
+	public void testParallel() {
+		//enough points for parallelFor to split the loops between threads
+		compare(randomPoints(5000, new Random(1)), 10, 3);
+	}
+
+	@Test
+	public void testFewPoints() {
+		compare(randomPoints(5, new Random(2)), 5, 3);
+	}
+
+	@Test
+	public void testIdenticalPoints() {
+		//all the distances are zero, so every centroid is the first point
+		List<double[]> points = new ArrayList<double[]>();
+		for (int i = 0; i < 50; i++) {
+			points.add(new double[]{1.0, 0.5, 0.5, 0.5, 0.5});
+		}
+		compare(points, 3, 1);
+	}
+
+	@Test
+	public void testSlotRecycling() {
+		CoresetEngine engine = new CoresetEngine(2, 2);
+		int[] slots = new int[6];
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = engine.add(i, new double[]{i, -i});
+		}
+		assertEquals(6, engine.size());
+		int copy = engine.copy(slots[4]);
+		assertEquals(6, copy);
+		assertArrayEquals(new double[]{4, -4}, engine.getPoint(copy), 0.0);
+		assertEquals(4.0, engine.getWeights()[copy], 0.0);
+
+		//frees the slots 0, 2 and 4, which are handed out again from the lowest
+		engine.collect(new int[]{slots[1], slots[3]}, new int[]{slots[5], copy});
+		int reused = engine.allocate();
+		assertEquals(0, reused);
+		assertArrayEquals(new double[]{0, 0}, engine.getPoint(reused), 0.0);
+		assertEquals(1.0, engine.getWeights()[reused], 0.0);
+		assertEquals(-1, engine.getIds()[reused]);
+		assertEquals(2, engine.add(9, new double[]{9, 9}));
+		assertEquals(4, engine.allocate());
+		//no free slot is left
+		assertEquals(7, engine.allocate());
+		assertArrayEquals(new double[]{5, -5}, engine.getPoint(slots[5]), 0.0);
+
+		engine.clear();
+		assertEquals(0, engine.size());
+		assertEquals(0, engine.allocate());
+	}
+}
@@ -0,0 +1,98 @@
+package moa.clusterers.outliers.MCOD;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import moa.clusterers.outliers.MyBaseOutlierDetector.Outlier;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import org.junit.Test;
+
+/**
+ * Tests that sliding the window by several objects at once reports the same
+ * outliers at the end of each slide as sliding it by one object, as MCOD did
+ * before, however often the outliers are read in the middle of a slide.
+ */
+public class MCODTest {
+	private static final int NUM_OBJECTS = 1000;
+
+	private static final int[] CHECKPOINTS = {1, 250, 300, NUM_OBJECTS};
+
+	private static MCOD mcod(int slide) {
+		MCOD mcod = new MCOD();
+		mcod.getOptions().setViaCLIString("-w 300 -t 5 -r 0.05 -s " + slide);
+		mcod.prepareForUse();
+		mcod.resetLearning();
+		return mcod;
+	}
+
+	private static RandomRBFGeneratorEvents stream() {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static TreeSet<Long> outliers(MCOD mcod) {
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (Outlier o : mcod.getOutliersResult()) {
+			ids.add(o.id);
+		}
+		return ids;
+	}
+
+	/**
+	 * Gets the outliers after each number of objects, sliding by one object.
+	 */
+	private static List<TreeSet<Long>> expectedOutliers() {
+		RandomRBFGeneratorEvents stream = stream();
+		MCOD mcod = mcod(1);
+		List<TreeSet<Long>> outliers = new ArrayList<TreeSet<Long>>();
+		outliers.add(outliers(mcod));
+		for (int n = 1; n <= NUM_OBJECTS; n++) {
+			mcod.trainOnInstance(stream.nextInstance().getData());
+			outliers.add(outliers(mcod));
+		}
+		return outliers;
+	}
+
+	private static void compare(List<TreeSet<Long>> expected, int slide, boolean readEachObject) {
+		RandomRBFGeneratorEvents stream = stream();
+		MCOD mcod = mcod(slide);
+		int checkpoint = 0;
+		for (int n = 1; n <= NUM_OBJECTS; n++) {
+			mcod.trainOnInstance(stream.nextInstance().getData());
+			if (readEachObject || n == CHECKPOINTS[checkpoint]) {
+				//the outliers at the end of the last complete slide
+				assertEquals(expected.get(n - n % slide), outliers(mcod));
+			}
+			if (n == CHECKPOINTS[checkpoint]) {
+				checkpoint++;
+			}
+		}
+		//the end of the stream completes the last slide
+		mcod.ProcessPendingObjs();
+		assertEquals(expected.get(NUM_OBJECTS), outliers(mcod));
+	}
+
+	@Test
+	public void testSlides() {
+		List<TreeSet<Long>> expected = expectedOutliers();
+		assertFalse(expected.get(NUM_OBJECTS).isEmpty());
+		//slides that do not divide the checkpoints, and a slide larger than the window
+		for (int slide : new int[]{7, 64, 301}) {
+			compare(expected, slide, false);
+		}
+	}
+
+	@Test
+	public void testReadEachObject() {
+		List<TreeSet<Long>> expected = expectedOutliers();
+		for (int slide : new int[]{7, 64}) {
+			compare(expected, slide, true);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package moa.clusterers.outliers.utils.mtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+import org.junit.Test;
+
+/**
+ * Tests that range queries filling a RangeResult return the same neighbours,
+ * in the same order, as iterating over a query.
+ */
+public class MTreeTest {
+
+	private static class Point implements EuclideanCoordinate, Comparable<Point> {
+		final int id;
+		final double[] values;
+
+		Point(int id, double[] values) {
+			this.id = id;
+			this.values = values;
+		}
+
+		@Override
+		public int dimensions() {
+			return this.values.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return this.values[index];
+		}
+
+		@Override
+		public int compareTo(Point o) {
+			return Integer.compare(this.id, o.id);
+		}
+	}
+
+	private static Point randomPoint(int id, Random random) {
+		return new Point(id, new double[]{random.nextDouble(), random.nextDouble()});
+	}
+
+	private static void assertSameResults(MTree<Point> tree, Point query, double range,
+			MTree.RangeResult<Point> result) {
+		List<Point> expected = new ArrayList<Point>();
+		List<Double> distances = new ArrayList<Double>();
+		for (MTree<Point>.ResultItem item : tree.getNearestByRange(query, range)) {
+			expected.add(item.data);
+			distances.add(item.distance);
+		}
+		assertEquals(expected.size(), result.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), result.get(i));
+			assertEquals(distances.get(i), result.distance(i), 0.0);
+		}
+	}
+
+	private static Set<Point> bruteForce(List<Point> points, Point query, double range) {
+		Set<Point> within = new HashSet<Point>();
+		for (Point p : points) {
+			if (DistanceFunctions.euclidean(p, query) <= range) {
+				within.add(p);
+			}
+		}
+		return within;
+	}
+
+	@Test
+	public void testRangeQueries() {
+		Random random = new Random(1);
+		EuclideanMTree<Point> tree = new EuclideanMTree<Point>();
+		List<Point> points = new ArrayList<Point>();
+		//one result object is reused by all the queries, with results of any size
+		MTree.RangeResult<Point> result = new MTree.RangeResult<Point>();
+		for (int n = 0; n < 1500; n++) {
+			if (points.size() > 0 && random.nextInt(4) == 0) {
+				Point removed = points.remove(random.nextInt(points.size()));
+				assertTrue(tree.remove(removed));
+			} else {
+				Point p = randomPoint(n, random);
+				points.add(p);
+				tree.add(p);
+			}
+			if (n % 25 == 0) {
+				Point query = randomPoint(-1, random);
+				double range = random.nextDouble() * (n % 2 == 0 ? 0.1 : 0.5);
+				tree.rangeQuery(query, range, result);
+				assertSameResults(tree, query, range, result);
+				Set<Point> found = new HashSet<Point>();
+				for (int i = 0; i < result.size(); i++) {
+					found.add(result.get(i));
+				}
+				assertEquals(bruteForce(points, query, range), found);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelRangeQueries() {
+		Random random = new Random(2);
+		EuclideanMTree<Point> tree = new EuclideanMTree<Point>();
+		List<Point> queries = new ArrayList<Point>();
+		for (int n = 0; n < 1000; n++) {
+			Point p = randomPoint(n, random);
+			tree.add(p);
+			if (n % 10 == 0) {
+				queries.add(p);
+			}
+		}
+		List<MTree.RangeResult<Point>> sequential = tree.rangeQueries(queries, 0.1, false);
+		List<MTree.RangeResult<Point>> parallel = tree.rangeQueries(queries, 0.1, true);
+		assertEquals(queries.size(), parallel.size());
+		for (int q = 0; q < queries.size(); q++) {
+			assertSameResults(tree, queries.get(q), 0.1, sequential.get(q));
+			assertSameResults(tree, queries.get(q), 0.1, parallel.get(q));
+		}
+	}
+
+	@Test
+	public void testResultReusedByAnotherTree() {
+		Random random = new Random(3);
+		EuclideanMTree<Point> first = new EuclideanMTree<Point>();
+		EuclideanMTree<Point> second = new EuclideanMTree<Point>();
+		for (int n = 0; n < 200; n++) {
+			first.add(randomPoint(n, random));
+			second.add(randomPoint(n, random));
+		}
+		MTree.RangeResult<Point> result = new MTree.RangeResult<Point>();
+		Point query = randomPoint(-1, random);
+		first.rangeQuery(query, 0.3, result);
+		assertSameResults(first, query, 0.3, result);
+		second.rangeQuery(query, 0.3, result);
+		assertSameResults(second, query, 0.3, result);
+	}
+
+	@Test
+	public void testEmptyTree() {
+		EuclideanMTree<Point> tree = new EuclideanMTree<Point>();
+		MTree.RangeResult<Point> result = new MTree.RangeResult<Point>();
+		Point query = new Point(0, new double[]{0.5, 0.5});
+		tree.rangeQuery(query, 1.0, result);
+		assertEquals(0, result.size());
+		tree.add(query);
+		tree.rangeQuery(query, 0.0, result);
+		assertEquals(1, result.size());
+		assertSame(query, result.get(0));
+		assertTrue(tree.remove(query));
+		tree.rangeQuery(query, 1.0, result);
+		assertEquals(0, result.size());
+	}
+}
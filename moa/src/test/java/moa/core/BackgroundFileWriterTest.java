@@ -0,0 +1,158 @@
+package moa.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the writer produces the same file as the autoflushing
+ * PrintStream the evaluation tasks used before, in the foreground and in the
+ * background, and that a failing record is reported without blocking.
+ */
+public class BackgroundFileWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String line(int i) {
+		return "line " + i + "," + (i * 0.25);
+	}
+
+	private static BackgroundFileWriter.Record failingRecord(final IOException exception) {
+		return new BackgroundFileWriter.Record() {
+			@Override
+			public void writeTo(Writer out) throws IOException {
+				throw exception;
+			}
+		};
+	}
+
+	private static void writeLines(BackgroundFileWriter writer, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (i % 2 == 0) {
+				writer.println(line(i));
+			} else {
+				final int n = i;
+				//records are formatted when they are written
+				writer.write(new BackgroundFileWriter.Record() {
+					@Override
+					public void writeTo(Writer out) throws IOException {
+						out.write(line(n));
+						out.write(StringUtils.newline);
+					}
+				});
+			}
+		}
+	}
+
+	private void compare(boolean background) throws IOException {
+		File expected = this.folder.newFile();
+		File actual = this.folder.newFile();
+		//more records than fit in the queue, written in two sessions to check the appending
+		for (int[] session : new int[][]{{0, 1000}, {1000, 1300}}) {
+			PrintStream stream = new PrintStream(new FileOutputStream(expected, true), true);
+			for (int i = session[0]; i < session[1]; i++) {
+				stream.println(line(i));
+			}
+			stream.close();
+			BackgroundFileWriter writer = new BackgroundFileWriter(actual, background);
+			assertEquals(background, writer.isBackground());
+			writeLines(writer, session[0], session[1]);
+			writer.close();
+		}
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+	}
+
+	@Test
+	public void testForeground() throws IOException {
+		compare(false);
+	}
+
+	@Test
+	public void testBackground() throws IOException {
+		compare(true);
+	}
+
+	@Test
+	public void testNoRecords() throws IOException {
+		for (boolean background : new boolean[]{false, true}) {
+			File file = new File(this.folder.getRoot(), "empty" + background);
+			new BackgroundFileWriter(file, background).close();
+			assertTrue(file.exists());
+			assertEquals(0, file.length());
+		}
+	}
+
+	@Test
+	public void testFailingRecordInForeground() throws IOException {
+		File file = this.folder.newFile();
+		BackgroundFileWriter writer = new BackgroundFileWriter(file, false);
+		writer.println(line(0));
+		IOException exception = new IOException();
+		try {
+			writer.write(failingRecord(exception));
+			fail();
+		} catch (RuntimeException ex) {
+			assertSame(exception, ex.getCause());
+		}
+		//the error is thrown again by the next calls
+		try {
+			writer.println(line(1));
+			fail();
+		} catch (RuntimeException ex) {
+			assertSame(exception, ex.getCause());
+		}
+		try {
+			writer.close();
+			fail();
+		} catch (RuntimeException ex) {
+			assertSame(exception, ex.getCause());
+		}
+		assertEquals(line(0) + StringUtils.newline, new String(Files.readAllBytes(file.toPath())));
+	}
+
+	@Test(timeout = 30000)
+	public void testFailingRecordInBackground() throws IOException {
+		File file = this.folder.newFile();
+		BackgroundFileWriter writer = new BackgroundFileWriter(file, true);
+		writeLines(writer, 0, 10);
+		IOException exception = new IOException();
+		writer.write(failingRecord(exception));
+		//the records after the failure are discarded, and never fill the queue
+		int written = 0;
+		try {
+			while (written < 100 * BackgroundFileWriter.QUEUE_CAPACITY) {
+				writer.println(line(10 + written++));
+			}
+			//the writer thread has not stored the error yet
+			writer.close();
+			fail();
+		} catch (RuntimeException ex) {
+			assertSame(exception, ex.getCause());
+		}
+		try {
+			writer.close();
+			fail();
+		} catch (RuntimeException ex) {
+			assertSame(exception, ex.getCause());
+		}
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			expected.append(line(i)).append(StringUtils.newline);
+		}
+		assertEquals(expected.toString(), new String(Files.readAllBytes(file.toPath())));
+	}
+}
@@ -0,0 +1,140 @@
+package moa.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import moa.core.InstanceExample;
+import moa.core.Measurement;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Tests that the evaluators computing their measurements from a confusion
+ * matrix give the same measurements as with per-class estimators.
+ */
+public class ConfusionMatrixTest {
+	private static final int NUM_CLASSES = 3;
+	private static final String OPTIONS = "-o -p -r -f -g";
+
+	private static class EstimatorBasicEvaluator extends BasicClassificationPerformanceEvaluator {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+			return null;
+		}
+	}
+
+	private static class EstimatorWindowEvaluator extends WindowClassificationPerformanceEvaluator {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+			return null;
+		}
+	}
+
+	private static class EstimatorWindowFixedEvaluator extends WindowFixedClassificationPerformanceEvaluator {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConfusionMatrix newConfusionMatrix(int numClasses) {
+			return null;
+		}
+	}
+
+	private static InstancesHeader header() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("class", Arrays.asList("a", "b", "c")));
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(1);
+		return new InstancesHeader(instances);
+	}
+
+	private static void compare(BasicClassificationPerformanceEvaluator matrix,
+			BasicClassificationPerformanceEvaluator estimators, String options, int numInstances) {
+		matrix.getOptions().setViaCLIString(options);
+		estimators.getOptions().setViaCLIString(options);
+		matrix.prepareForUse();
+		estimators.prepareForUse();
+		InstancesHeader header = header();
+		Random random = new Random(1);
+		for (int n = 0; n < numInstances; n++) {
+			Instance inst = new DenseInstance(1.0, new double[]{random.nextDouble(), 0});
+			inst.setDataset(header);
+			//the last class is only seen in the second half
+			inst.setClassValue(random.nextInt(n < numInstances / 2 ? NUM_CLASSES - 1 : NUM_CLASSES));
+			double r = random.nextDouble();
+			if (r < 0.05) {
+				inst.setWeight(0.0);
+			} else if (r < 0.2) {
+				inst.setWeight(random.nextDouble() * 3);
+			} else if (r < 0.25) {
+				inst.setMissing(1);
+			}
+			//votes may be empty or longer than the number of classes
+			double[] votes = new double[random.nextInt(NUM_CLASSES + 3)];
+			for (int i = 0; i < votes.length; i++) {
+				votes[i] = random.nextInt(3);
+			}
+			matrix.addResult(new InstanceExample(inst), votes);
+			estimators.addResult(new InstanceExample(inst), votes);
+			assertSameMeasurements(n, estimators.getPerformanceMeasurements(), matrix.getPerformanceMeasurements());
+		}
+	}
+
+	private static void assertSameMeasurements(int n, Measurement[] expected, Measurement[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getName(), actual[i].getName());
+			assertEquals(expected[i].getName() + " after " + (n + 1) + " instances",
+					expected[i].getValue(), actual[i].getValue(), 0.0);
+		}
+	}
+
+	@Test
+	public void testBasic() {
+		compare(new BasicClassificationPerformanceEvaluator(), new EstimatorBasicEvaluator(), OPTIONS, 2000);
+	}
+
+	@Test
+	public void testWindow() {
+		//the window is only partly full during the first instances
+		compare(new WindowClassificationPerformanceEvaluator(), new EstimatorWindowEvaluator(),
+				OPTIONS + " -w 50", 2000);
+	}
+
+	@Test
+	public void testWindowFixed() {
+		compare(new WindowFixedClassificationPerformanceEvaluator(), new EstimatorWindowFixedEvaluator(),
+				OPTIONS + " -w 50", 2000);
+	}
+
+	@Test
+	public void testWindowFixedGradualDrift() {
+		compare(new WindowFixedClassificationPerformanceEvaluator(), new EstimatorWindowFixedEvaluator(),
+				OPTIONS + " -w 50 -j 17", 2000);
+	}
+
+	@Test
+	public void testNoInstances() {
+		BasicClassificationPerformanceEvaluator matrix = new BasicClassificationPerformanceEvaluator();
+		BasicClassificationPerformanceEvaluator estimators = new EstimatorBasicEvaluator();
+		matrix.prepareForUse();
+		estimators.prepareForUse();
+		matrix.reset(NUM_CLASSES);
+		estimators.reset(NUM_CLASSES);
+		assertSameMeasurements(-1, estimators.getPerformanceMeasurements(), matrix.getPerformanceMeasurements());
+	}
+}
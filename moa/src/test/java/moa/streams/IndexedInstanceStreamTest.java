@@ -0,0 +1,145 @@
+package moa.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import moa.options.AbstractOptionHandler;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.HyperplaneGenerator;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Tests that generators produce the same instances when they are generated
+ * by index, in blocks or on several threads as when they are generated one
+ * after the other.
+ */
+public class IndexedInstanceStreamTest {
+	private static final int NUM_INSTANCES = 500;
+
+	private static IndexedInstanceStream prepare(AbstractOptionHandler stream, String options) throws Exception {
+		stream.getOptions().setViaCLIString(options);
+		stream.prepareForUse();
+		return (IndexedInstanceStream) stream;
+	}
+
+	private static Instance[] sequential(IndexedInstanceStream stream, int n) {
+		stream.restart();
+		Instance[] instances = new Instance[n];
+		for (int i = 0; i < n; i++) {
+			instances[i] = stream.nextInstance().getData();
+		}
+		return instances;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0.0);
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+	}
+
+	private static void assertSameInstances(Instance[] expected, int from, Instance[] actual) {
+		for (int i = 0; i < actual.length; i++) {
+			assertSameInstance(expected[from + i], actual[i]);
+		}
+	}
+
+	/**
+	 * Gets the instances in blocks that do not divide their number, so that
+	 * the last block is partial and the buffer is reused.
+	 */
+	private static void assertSameBlocks(IndexedInstanceStream stream, Instance[] expected) {
+		stream.restart();
+		Instance[] buffer = new Instance[64];
+		int i = 0;
+		while (i < expected.length) {
+			int n = Math.min(buffer.length, expected.length - i);
+			assertEquals(n, stream.nextInstances(n, buffer));
+			for (int j = 0; j < n; j++) {
+				assertSameInstance(expected[i + j], buffer[j]);
+			}
+			i += n;
+		}
+	}
+
+	private static void compare(IndexedInstanceStream stream) {
+		assertTrue(stream.isIndexable());
+		Instance[] expected = sequential(stream, NUM_INSTANCES);
+		assertEquals(NUM_INSTANCES, stream.getNextInstanceIndex());
+		assertSameBlocks(stream, expected);
+
+		//seeks backwards and forwards
+		stream.setNextInstanceIndex(250);
+		for (int i = 250; i < 300; i++) {
+			assertSameInstance(expected[i], stream.nextInstance().getData());
+		}
+		stream.setNextInstanceIndex(17);
+		assertSameInstance(expected[17], stream.nextInstance().getData());
+		assertEquals(18, stream.getNextInstanceIndex());
+		stream.setNextInstanceIndex(NUM_INSTANCES - 1);
+		assertSameInstance(expected[NUM_INSTANCES - 1], stream.nextInstance().getData());
+
+		//the parts of the threads do not divide the number of instances
+		assertSameInstances(expected, 0, IndexedInstanceStream.generate(stream, 0, NUM_INSTANCES, 3));
+		assertSameInstances(expected, 123, IndexedInstanceStream.generate(stream, 123, 77, 4));
+		assertSameInstances(expected, 5, IndexedInstanceStream.generate(stream, 5, 2, 3));
+		assertEquals(0, IndexedInstanceStream.generate(stream, 10, 0, 3).length);
+		//generate does not move the stream
+		assertEquals(NUM_INSTANCES, stream.getNextInstanceIndex());
+	}
+
+	@Test
+	public void testAgrawal() throws Exception {
+		compare(prepare(new AgrawalGenerator(), "-x -f 3"));
+	}
+
+	@Test
+	public void testAgrawalBalanced() throws Exception {
+		//the class of an instance depends on the parity of its index
+		compare(prepare(new AgrawalGenerator(), "-x -b"));
+	}
+
+	@Test
+	public void testRandomTree() throws Exception {
+		compare(prepare(new RandomTreeGenerator(), "-x"));
+	}
+
+	@Test
+	public void testRandomRBF() throws Exception {
+		compare(prepare(new RandomRBFGenerator(), "-x"));
+	}
+
+	@Test
+	public void testHyperplane() throws Exception {
+		compare(prepare(new HyperplaneGenerator(), "-x -k 0"));
+	}
+
+	@Test
+	public void testNotIndexable() throws Exception {
+		IndexedInstanceStream[] streams = new IndexedInstanceStream[]{
+			prepare(new AgrawalGenerator(), ""),
+			prepare(new HyperplaneGenerator(), "-x -k 2 -t 0.1")
+		};
+		for (IndexedInstanceStream stream : streams) {
+			assertFalse(stream.isIndexable());
+			//blocks are still the same as single instances
+			assertSameBlocks(stream, sequential(stream, NUM_INSTANCES));
+			try {
+				stream.setNextInstanceIndex(0);
+				fail();
+			} catch (UnsupportedOperationException ex) {
+			}
+			try {
+				IndexedInstanceStream.generate(stream, 0, 10, 2);
+				fail();
+			} catch (UnsupportedOperationException ex) {
+			}
+		}
+	}
+}